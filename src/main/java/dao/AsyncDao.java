@@ -0,0 +1,201 @@
+package dao;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Runs the methods of a {@link Dao} on a {@link DaoExecutor}, returning {@link CompletableFuture}s instead of
+ * blocking the caller. Independent lookups can be issued together and run concurrently, up to the executor's
+ * limit, and the Swing event dispatch thread can hand off work and update the window when it completes.
+ * <p>
+ * Every call can be cancelled through its future, and reads made through {@link #withTimeout(Duration)} fail
+ * with a {@link java.util.concurrent.TimeoutException} when they take too long. Only the future returned here
+ * cancels the call; cancelling a stage derived from it, such as {@code thenApply}, does not. Cancelling a call
+ * that has started does not stop it, see {@link DaoExecutor}.
+ * <p>
+ * The writes, {@code create}, {@code update} and {@code delete} and their batch forms, never time out:
+ * a write that outlived its timeout could still commit, and its future would report a failure that did not happen.
+ * {@link Dao#streamAll()} is not offered, since a stream must be read and closed on the thread that opened it.
+ *
+ * @param <T> the entity type
+ */
+public class AsyncDao<T> {
+
+    private final Dao<T> delegate;
+    private final DaoExecutor executor;
+    private final Duration timeout;
+
+    /**
+     * Wraps a DAO, running its calls on the {@link DaoExecutor#shared() shared executor} without a timeout.
+     *
+     * @param delegate the DAO to call
+     */
+    public AsyncDao(Dao<T> delegate) {
+        this(delegate, DaoExecutor.shared(), null);
+    }
+
+    /**
+     * Wraps a DAO.
+     *
+     * @param delegate the DAO to call
+     * @param executor the executor to run the calls on
+     * @param timeout  the longest a call may take, or {@code null} for no limit
+     * @throws IllegalArgumentException if the timeout is not positive
+     */
+    public AsyncDao(Dao<T> delegate, DaoExecutor executor, Duration timeout) {
+        if (timeout != null && (timeout.isZero() || timeout.isNegative())) {
+            throw new IllegalArgumentException("Timeout must be positive: " + timeout);
+        }
+        this.delegate = delegate;
+        this.executor = executor;
+        this.timeout = timeout;
+    }
+
+    /**
+     * Gets a view of this DAO whose reads time out.
+     *
+     * @param timeout the longest a read may take, including the wait for the executor
+     * @return a DAO with the same delegate and executor
+     */
+    public AsyncDao<T> withTimeout(Duration timeout) {
+        return new AsyncDao<>(delegate, executor, timeout);
+    }
+
+    /**
+     * Gets the wrapped DAO.
+     *
+     * @return the wrapped DAO
+     */
+    public Dao<T> getDelegate() {
+        return delegate;
+    }
+
+    /**
+     * Runs any work on the executor, with this DAO's timeout; for example a query that only a particular DAO offers.
+     * Work that writes should be run through a DAO without a timeout, for the reason given above.
+     *
+     * @param call the work
+     * @param <R>  the result type
+     * @return a future completed with the result of the work
+     */
+    public <R> CompletableFuture<R> supply(Supplier<R> call) {
+        return executor.submit(call, timeout);
+    }
+
+    /**
+     * Runs a write on the executor, without a timeout.
+     */
+    private <R> CompletableFuture<R> write(Supplier<R> call) {
+        return executor.submit(call, null);
+    }
+
+    /**
+     * Persists a new entity, see {@link Dao#create(Object)}.
+     *
+     * @param entity the entity
+     * @return a future completed with the persisted entity
+     */
+    public CompletableFuture<T> create(T entity) {
+        return write(() -> delegate.create(entity));
+    }
+
+    /**
+     * Finds an entity, see {@link Dao#findById(Long)}.
+     *
+     * @param id the ID
+     * @return a future completed with the entity, or with {@code null} if there is none
+     */
+    public CompletableFuture<T> findById(Long id) {
+        return supply(() -> delegate.findById(id));
+    }
+
+    /**
+     * Finds all entities, see {@link Dao#findAll()}.
+     *
+     * @return a future completed with the entities
+     */
+    public CompletableFuture<List<T>> findAll() {
+        return supply(delegate::findAll);
+    }
+
+    /**
+     * Finds one page of entities, see {@link Dao#findPage(PageRequest)}.
+     *
+     * @param request the page to find
+     * @return a future completed with the page
+     */
+    public CompletableFuture<Page<T>> findPage(PageRequest request) {
+        return supply(() -> delegate.findPage(request));
+    }
+
+    /**
+     * Saves a changed entity, see {@link Dao#update(Object)}.
+     *
+     * @param entity the entity
+     * @return a future completed with the saved entity
+     */
+    public CompletableFuture<T> update(T entity) {
+        return write(() -> delegate.update(entity));
+    }
+
+    /**
+     * Changes an entity in a transaction of its own, see {@link Dao#update(Long, Consumer)}.
+     *
+     * @param id      the ID
+     * @param changes the changes to apply
+     * @return a future completed with the saved entity, or with {@code null} if there is none
+     */
+    public CompletableFuture<T> update(Long id, Consumer<T> changes) {
+        return write(() -> delegate.update(id, changes));
+    }
+
+    /**
+     * Persists new entities, see {@link Dao#createAll(Collection)}.
+     *
+     * @param entities the entities
+     * @return a future completed with the persisted entities
+     */
+    public CompletableFuture<List<T>> createAll(Collection<T> entities) {
+        return write(() -> delegate.createAll(entities));
+    }
+
+    /**
+     * Saves changed entities, see {@link Dao#updateAll(Collection)}.
+     *
+     * @param entities the entities
+     * @return a future completed with the saved entities
+     */
+    public CompletableFuture<List<T>> updateAll(Collection<T> entities) {
+        return write(() -> delegate.updateAll(entities));
+    }
+
+    /**
+     * Deletes an entity, see {@link Dao#delete(Long)}.
+     *
+     * @param id the ID
+     * @return a future completed once the entity is deleted
+     */
+    public CompletableFuture<Void> delete(Long id) {
+        return write(() -> {
+            delegate.delete(id);
+            return null;
+        });
+    }
+
+    /**
+     * Deletes entities, see {@link Dao#deleteAll(Collection)}.
+     *
+     * @param ids the IDs
+     * @return a future completed once the entities are deleted
+     */
+    public CompletableFuture<Void> deleteAll(Collection<Long> ids) {
+        return write(() -> {
+            delegate.deleteAll(ids);
+            return null;
+        });
+    }
+}
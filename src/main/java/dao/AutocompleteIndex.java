@@ -0,0 +1,339 @@
+package dao;
+
+import entity.Book;
+import entity.Publisher;
+
+import javax.persistence.EntityManagerFactory;
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.WeakHashMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+
+/**
+ * An in-memory prefix index of book titles, authors and publisher names, used by {@link BookDao#suggest(String, int)}.
+ * Values are kept in sorted arrays searched by binary search, so a suggestion costs a lookup and a short scan
+ * whatever the size of the catalog. Values that start with the typed text are suggested first, then values
+ * with a later word starting with it, so both "gre" and "gat" suggest "The Great Gatsby".
+ * <p>
+ * Like {@link BookSearchIndex}, the index is built from the database on first use, kept up to date by the
+ * write methods of {@link BookDao} and {@link PublisherDao}, and held once per {@link EntityManagerFactory}.
+ */
+final class AutocompleteIndex {
+
+    private static final Map<EntityManagerFactory, AutocompleteIndex> INDEXES =
+            Collections.synchronizedMap(new WeakHashMap<>());
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final SortedKeys starts = new SortedKeys();
+    private final SortedKeys laterWords = new SortedKeys();
+    private final Map<Long, List<String>> bookValues = new HashMap<>();
+    private final Map<Long, String> publisherNames = new HashMap<>();
+    private boolean built;
+
+    private AutocompleteIndex() { }
+
+    /**
+     * Gets the index of a database, creating an empty, unbuilt one if needed.
+     *
+     * @param emf the {@link EntityManagerFactory} of the database
+     * @return the index
+     */
+    static AutocompleteIndex of(EntityManagerFactory emf) {
+        return INDEXES.computeIfAbsent(emf, key -> new AutocompleteIndex());
+    }
+
+    /**
+     * Suggests titles, authors and publisher names for typed text.
+     *
+     * @param emf    the {@link EntityManagerFactory} to build the index from if it is not built yet
+     * @param prefix the typed text
+     * @param limit  the maximum number of suggestions
+     * @return distinct values, those starting with the text first, each group in alphabetical order
+     */
+    List<String> suggest(EntityManagerFactory emf, String prefix, int limit) {
+        String key = normalize(prefix);
+        if (key.isEmpty()) {
+            return List.of();
+        }
+        ensureBuilt(emf);
+        lock.readLock().lock();
+        try {
+            Set<String> suggestions = new LinkedHashSet<>();
+            starts.collect(key, suggestions, limit);
+            laterWords.collect(key, suggestions, limit);
+            return new ArrayList<>(suggestions);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Adds or replaces the titles and authors of books, if the index is built.
+     *
+     * @param books the books as committed to the database
+     */
+    void putBooks(Collection<Book> books) {
+        lock.writeLock().lock();
+        try {
+            if (built) {
+                for (Book book : books) {
+                    removeValues(bookValues.remove(book.getId()));
+                    addBook(book.getId(), book.getTitle(), book.getAuthor());
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Removes the titles and authors of books, if the index is built.
+     *
+     * @param ids the IDs of the deleted books
+     */
+    void removeBooks(Collection<Long> ids) {
+        lock.writeLock().lock();
+        try {
+            if (built) {
+                ids.forEach(id -> removeValues(bookValues.remove(id)));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Adds or replaces publisher names, if the index is built.
+     *
+     * @param publishers the publishers as committed to the database
+     */
+    void putPublishers(Collection<Publisher> publishers) {
+        lock.writeLock().lock();
+        try {
+            if (built) {
+                for (Publisher publisher : publishers) {
+                    removeValue(publisherNames.remove(publisher.getId()));
+                    addPublisher(publisher.getId(), publisher.getName());
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Removes publisher names, if the index is built.
+     *
+     * @param ids the IDs of the deleted publishers
+     */
+    void removePublishers(Collection<Long> ids) {
+        lock.writeLock().lock();
+        try {
+            if (built) {
+                ids.forEach(id -> removeValue(publisherNames.remove(id)));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Builds the index from the database unless it is built already, holding off writes meanwhile.
+     */
+    private void ensureBuilt(EntityManagerFactory emf) {
+        lock.readLock().lock();
+        try {
+            if (built) {
+                return;
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        lock.writeLock().lock();
+        try {
+            if (!built) {
+                try (Stream<Object[]> rows = Streams.scroll(emf,
+                        "SELECT b.id, b.title, b.author FROM Book b", Object[].class, Map.of())) {
+                    rows.forEach(row -> addBook((Long) row[0], (String) row[1], (String) row[2]));
+                }
+                try (Stream<Object[]> rows = Streams.scroll(emf,
+                        "SELECT p.id, p.name FROM Publisher p", Object[].class, Map.of())) {
+                    rows.forEach(row -> addPublisher((Long) row[0], (String) row[1]));
+                }
+                starts.compact();
+                laterWords.compact();
+                built = true;
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void addBook(Long id, String title, String author) {
+        List<String> values = new ArrayList<>(2);
+        for (String value : Arrays.asList(title, author)) {
+            if (value != null && !normalize(value).isEmpty()) {
+                values.add(value);
+                addValue(value);
+            }
+        }
+        bookValues.put(id, values);
+    }
+
+    private void addPublisher(Long id, String name) {
+        if (name != null && !normalize(name).isEmpty()) {
+            publisherNames.put(id, name);
+            addValue(name);
+        }
+    }
+
+    private void addValue(String value) {
+        String key = normalize(value);
+        starts.add(key + '\0' + value);
+        for (int i = key.indexOf(' '); i >= 0; i = key.indexOf(' ', i + 1)) {
+            laterWords.add(key.substring(i + 1) + '\0' + value);
+        }
+    }
+
+    private void removeValues(List<String> values) {
+        if (values != null) {
+            values.forEach(this::removeValue);
+        }
+    }
+
+    private void removeValue(String value) {
+        if (value == null) {
+            return;
+        }
+        String key = normalize(value);
+        starts.remove(key + '\0' + value);
+        for (int i = key.indexOf(' '); i >= 0; i = key.indexOf(' ', i + 1)) {
+            laterWords.remove(key.substring(i + 1) + '\0' + value);
+        }
+    }
+
+    /**
+     * Turns text into lower-case words without accents, separated by single spaces.
+     *
+     * @param text the text, may be {@code null}
+     * @return the normalized text
+     */
+    static String normalize(String text) {
+        if (text == null) {
+            return "";
+        }
+        return Normalizer.normalize(text, Normalizer.Form.NFD)
+                .replaceAll("\\p{M}", "")
+                .toLowerCase(Locale.ROOT)
+                .replaceAll("[^\\p{L}\\p{N}]+", " ")
+                .trim();
+    }
+
+    /**
+     * A sorted multiset of keys of the form {@code normalized + '\0' + value}.
+     * Most keys live in a sorted array; keys added since the last compaction wait in a small tree map,
+     * so an insert does not shift the array. Removed keys keep their slot with a count of zero until
+     * the next compaction.
+     */
+    private static final class SortedKeys {
+        private static final int MIN_PENDING = 1024;
+
+        private String[] keys = new String[0];
+        private int[] counts = new int[0];
+        private final TreeMap<String, Integer> pending = new TreeMap<>();
+
+        void add(String key) {
+            int i = Arrays.binarySearch(keys, key);
+            if (i >= 0) {
+                counts[i]++;
+            } else {
+                pending.merge(key, 1, Integer::sum);
+                if (pending.size() > Math.max(MIN_PENDING, keys.length / 16)) {
+                    compact();
+                }
+            }
+        }
+
+        void remove(String key) {
+            int i = Arrays.binarySearch(keys, key);
+            if (i >= 0) {
+                if (counts[i] > 0) {
+                    counts[i]--;
+                }
+            } else {
+                pending.computeIfPresent(key, (k, count) -> count > 1 ? count - 1 : null);
+            }
+        }
+
+        /**
+         * Merges the pending keys into the array and drops keys whose count fell to zero.
+         */
+        void compact() {
+            List<String> mergedKeys = new ArrayList<>(keys.length + pending.size());
+            List<Integer> mergedCounts = new ArrayList<>(keys.length + pending.size());
+            Iterator<Map.Entry<String, Integer>> added = pending.entrySet().iterator();
+            Map.Entry<String, Integer> next = added.hasNext() ? added.next() : null;
+            for (int i = 0; i < keys.length; i++) {
+                while (next != null && next.getKey().compareTo(keys[i]) < 0) {
+                    mergedKeys.add(next.getKey());
+                    mergedCounts.add(next.getValue());
+                    next = added.hasNext() ? added.next() : null;
+                }
+                if (counts[i] > 0) {
+                    mergedKeys.add(keys[i]);
+                    mergedCounts.add(counts[i]);
+                }
+            }
+            while (next != null) {
+                mergedKeys.add(next.getKey());
+                mergedCounts.add(next.getValue());
+                next = added.hasNext() ? added.next() : null;
+            }
+            keys = mergedKeys.toArray(new String[0]);
+            counts = mergedCounts.stream().mapToInt(Integer::intValue).toArray();
+            pending.clear();
+        }
+
+        /**
+         * Adds the values of the keys starting with a prefix, in key order, until there are enough suggestions.
+         */
+        void collect(String prefix, Set<String> suggestions, int limit) {
+            int i = Arrays.binarySearch(keys, prefix);
+            i = i >= 0 ? i : -i - 1;
+            Iterator<String> added = pending.tailMap(prefix, true).keySet().iterator();
+            String next = added.hasNext() ? added.next() : null;
+            while (suggestions.size() < limit) {
+                String key;
+                if (next != null && (i >= keys.length || next.compareTo(keys[i]) < 0)) {
+                    key = next;
+                    next = added.hasNext() ? added.next() : null;
+                } else if (i < keys.length) {
+                    key = counts[i] > 0 ? keys[i] : null;
+                    i++;
+                    if (key == null) {
+                        continue;
+                    }
+                } else {
+                    return;
+                }
+                if (!key.startsWith(prefix)) {
+                    return;
+                }
+                suggestions.add(key.substring(key.indexOf('\0') + 1));
+            }
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package dao;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.EntityTransaction;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+
+/**
+ * Runs bulk writes in a single transaction. The persistence context is flushed and cleared every
+ * {@link #BATCH_SIZE} items, which lets Hibernate send the statements as JDBC batches and keeps memory flat.
+ * If any item fails, the whole transaction is rolled back.
+ */
+final class Batches {
+
+    /**
+     * Number of items written per flush. Matches {@code hibernate.jdbc.batch_size} in {@code persistence.xml}.
+     */
+    static final int BATCH_SIZE = 50;
+
+    private Batches() { }
+
+    /**
+     * Applies an action to every item in one transaction and collects the results.
+     *
+     * @param emf    the {@link EntityManagerFactory} to open the {@link EntityManager} with
+     * @param items  the items to process
+     * @param action the write to perform for each item
+     * @param <T>    the item type
+     * @param <R>    the result type
+     * @return the results, in the order of {@code items}
+     */
+    static <T, R> List<R> apply(EntityManagerFactory emf, Collection<? extends T> items, BiFunction<EntityManager, T, R> action) {
+        List<R> results = new ArrayList<>(items.size());
+        run(emf, items, (em, item) -> results.add(action.apply(em, item)));
+        return results;
+    }
+
+    /**
+     * Applies an action to every item in one transaction.
+     *
+     * @param emf    the {@link EntityManagerFactory} to open the {@link EntityManager} with
+     * @param items  the items to process
+     * @param action the write to perform for each item
+     * @param <T>    the item type
+     */
+    static <T> void run(EntityManagerFactory emf, Collection<? extends T> items, BiConsumer<EntityManager, T> action) {
+        EntityManager em = emf.createEntityManager();
+        EntityTransaction tx = em.getTransaction();
+        try {
+            tx.begin();
+            int count = 0;
+            for (T item : items) {
+                action.accept(em, item);
+                if (++count % BATCH_SIZE == 0) {
+                    em.flush();
+                    em.clear();
+                }
+            }
+            tx.commit();
+        } finally {
+            if (tx.isActive()) {
+                tx.rollback();
+            }
+            em.close();
+        }
+    }
+}
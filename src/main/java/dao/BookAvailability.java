@@ -0,0 +1,116 @@
+package dao;
+
+import entity.Book;
+
+/**
+ * A read-only catalog row: the details of a {@link Book} together with how many copies it has
+ * and how many of them are available. Rows are computed by the database in a single grouped query,
+ * so no {@link entity.Copy} entities are loaded to build them.
+ */
+public class BookAvailability {
+
+    private final Long bookId;
+    private final String title;
+    private final String author;
+    private final String isbn;
+    private final String publisher;
+    private final int publicationYear;
+    private final long totalCopies;
+    private final long availableCopies;
+
+    /**
+     * Constructs a catalog row. Used by JPQL constructor expressions.
+     *
+     * @param bookId          the ID of the book
+     * @param title           the title of the book
+     * @param author          the author of the book
+     * @param isbn            the ISBN of the book
+     * @param publisher       the name of the publisher
+     * @param publicationYear the year the book was published
+     * @param totalCopies     the number of copies of the book
+     * @param availableCopies the number of copies with status "Available"
+     */
+    public BookAvailability(Long bookId, String title, String author, String isbn, String publisher,
+                            int publicationYear, long totalCopies, long availableCopies) {
+        this.bookId = bookId;
+        this.title = title;
+        this.author = author;
+        this.isbn = isbn;
+        this.publisher = publisher;
+        this.publicationYear = publicationYear;
+        this.totalCopies = totalCopies;
+        this.availableCopies = availableCopies;
+    }
+
+    /**
+     * Gets the ID of the book.
+     *
+     * @return the book ID
+     */
+    public Long getBookId() {
+        return bookId;
+    }
+
+    /**
+     * Gets the title of the book.
+     *
+     * @return the title
+     */
+    public String getTitle() {
+        return title;
+    }
+
+    /**
+     * Gets the author of the book.
+     *
+     * @return the author
+     */
+    public String getAuthor() {
+        return author;
+    }
+
+    /**
+     * Gets the ISBN of the book.
+     *
+     * @return the ISBN
+     */
+    public String getIsbn() {
+        return isbn;
+    }
+
+    /**
+     * Gets the name of the publisher.
+     *
+     * @return the publisher's name
+     */
+    public String getPublisher() {
+        return publisher;
+    }
+
+    /**
+     * Gets the publication year of the book.
+     *
+     * @return the publication year
+     */
+    public int getPublicationYear() {
+        return publicationYear;
+    }
+
+    /**
+     * Gets the number of copies of the book.
+     *
+     * @return the total number of copies
+     */
+    public long getTotalCopies() {
+        return totalCopies;
+    }
+
+    /**
+     * Gets the number of copies that can currently be borrowed.
+     *
+     * @return the number of available copies
+     */
+    public long getAvailableCopies() {
+        return availableCopies;
+    }
+}
@@ -2,9 +2,17 @@ package dao;
 
 import entity.Book;
 import entity.Copy;
+import monitoring.DaoMetrics;
+import org.hibernate.Hibernate;
 
 import javax.persistence.*;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 /**
  * Data Access Object (DAO) class for managing {@link Book} entities.
@@ -12,7 +20,31 @@ import java.util.List;
  */
 public class BookDao implements Dao<Book> {
 
+    /**
+     * Keyset pagination queries for {@link Book} entities.
+     */
+    private static final Keyset<Book> KEYSET = new Keyset<>(Book.class, "b", Book::getId)
+            .sortKey("title", "title", Book::getTitle)
+            .sortKey("author", "author", Book::getAuthor);
+
+    /**
+     * Fetches the publisher of each book in the same query, instead of one query per publisher.
+     */
+    private static final String FETCH_PUBLISHER = "LEFT JOIN FETCH b.publisherEntity";
+
+    /**
+     * Selects one catalog row per book, counting its copies in the database.
+     */
+    private static final String CATALOG_FROM =
+            "SELECT NEW dao.BookAvailability(b.id, b.title, b.author, b.isbn, b.publisher, b.publicationYear, "
+                    + "COUNT(c.id), SUM(CASE WHEN c.status = 'Available' THEN 1 ELSE 0 END)) "
+                    + "FROM Book b LEFT JOIN b.copies c ";
+    private static final String CATALOG_GROUP_BY =
+            "GROUP BY b.id, b.title, b.author, b.isbn, b.publisher, b.publicationYear";
+    private static final String CATALOG_SELECT = CATALOG_FROM + CATALOG_GROUP_BY;
+
     private final EntityManagerFactory emf;
+    private final DaoMetrics metrics;
 
     /**
      * Constructor to initialize the {@link BookDao} with an {@link EntityManagerFactory}.
@@ -20,7 +52,18 @@ public class BookDao implements Dao<Book> {
      * @param emf the {@link EntityManagerFactory} to be used for database operations.
      */
     public BookDao(EntityManagerFactory emf) {
+        this(emf, DaoMetrics.shared());
+    }
+
+    /**
+     * Constructs a DAO that records its calls into the given metrics instead of the shared ones.
+     *
+     * @param emf     the factory to create EntityManager instances
+     * @param metrics the metrics to record the calls into
+     */
+    public BookDao(EntityManagerFactory emf, DaoMetrics metrics) {
         this.emf = emf;
+        this.metrics = metrics;
     }
 
     /**
@@ -31,15 +74,21 @@ public class BookDao implements Dao<Book> {
      */
     @Override
     public Book create(Book book) {
-        EntityManager em = emf.createEntityManager();
-        try {
-            em.getTransaction().begin();
-            em.persist(book); // ID will be auto-generated
-            em.getTransaction().commit();
-            return book;
-        } finally {
-            em.close();
-        }
+        return metrics.time("Book", "create", () -> {
+            EntityManager em = emf.createEntityManager();
+            try {
+                em.getTransaction().begin();
+                em.persist(normalized(book)); // ID will be auto-generated
+                em.getTransaction().commit();
+                indexed(List.of(book));
+                return book;
+            } finally {
+                if (em.getTransaction().isActive()) {
+                    em.getTransaction().rollback();
+                }
+                em.close();
+            }
+        });
     }
 
     /**
@@ -50,12 +99,136 @@ public class BookDao implements Dao<Book> {
      */
     @Override
     public Book findById(Long id) {
-        EntityManager em = emf.createEntityManager();
-        try {
-            return em.find(Book.class, id);
-        } finally {
-            em.close();
-        }
+        return metrics.time("Book", "findById", () -> {
+            EntityManager em = emf.createEntityManager();
+            try {
+                return em.find(Book.class, id);
+            } finally {
+                em.close();
+            }
+        });
+    }
+
+    /**
+     * Finds a {@link Book} entity by its ID together with its {@link Copy} entities,
+     * using the {@code Book.copies} entity graph so the copies arrive in the same query.
+     * A book served from the second-level cache ignores the graph; its copies are then read from the cache as well.
+     * Use this only where the copy list itself is needed; counts are available from {@link #findCatalog()}.
+     *
+     * @param id the ID of the {@link Book} to find.
+     * @return the found {@link Book} entity with its copies loaded, or {@code null} if no entity is found.
+     */
+    public Book findByIdWithCopies(Long id) {
+        return metrics.time("Book", "findByIdWithCopies", () -> {
+            EntityManager em = emf.createEntityManager();
+            try {
+                Map<String, Object> hints = Map.of("javax.persistence.loadgraph", em.getEntityGraph("Book.copies"));
+                Book book = em.find(Book.class, id, hints);
+                if (book != null) {
+                    Hibernate.initialize(book.getCopies());
+                }
+                return book;
+            } finally {
+                em.close();
+            }
+        });
+    }
+
+    /**
+     * Retrieves the catalog: every {@link Book} with its total and available copy counts,
+     * computed by a single grouped query in the database.
+     *
+     * @return a {@link List} of {@link BookAvailability} rows ordered by book ID.
+     */
+    public List<BookAvailability> findCatalog() {
+        return metrics.time("Book", "findCatalog", () -> {
+            EntityManager em = emf.createEntityManager();
+            try {
+                return QueryCache.create(em, "Book.findCatalog", CATALOG_SELECT + " ORDER BY b.id", BookAvailability.class)
+                        .getResultList();
+            } finally {
+                em.close();
+            }
+        });
+    }
+
+    /**
+     * Retrieves one page of the catalog, with the copy counts of each book computed in the database,
+     * using keyset pagination on the book ID so every page reads only the books it returns.
+     * The only supported sort key is {@code "id"}.
+     *
+     * @param request the page to retrieve.
+     * @return the requested {@link Page} of {@link BookAvailability} rows, ordered by book ID.
+     * @throws IllegalArgumentException if the request uses another sort key.
+     */
+    public Page<BookAvailability> findCatalog(PageRequest request) {
+        return metrics.time("Book", "findCatalogPage", () -> {
+            if (!PageRequest.ID.equals(request.getSortKey())) {
+                throw new IllegalArgumentException("Unsupported sort key for the catalog: " + request.getSortKey());
+            }
+            EntityManager em = emf.createEntityManager();
+            try {
+                TypedQuery<BookAvailability> query;
+                if (request.isFirst()) {
+                    query = QueryCache.create(em, "Book.findCatalogPage",
+                            CATALOG_SELECT + " ORDER BY b.id", BookAvailability.class);
+                } else {
+                    query = QueryCache.create(em, "Book.findCatalogPage",
+                            CATALOG_FROM + "WHERE b.id > :lastId " + CATALOG_GROUP_BY + " ORDER BY b.id", BookAvailability.class)
+                            .setParameter("lastId", request.getLastId());
+                }
+                // Fetch one extra row to find out whether another page follows
+                List<BookAvailability> rows = query.setMaxResults(request.getLimit() + 1).getResultList();
+                if (rows.size() <= request.getLimit()) {
+                    return new Page<>(rows, null);
+                }
+                List<BookAvailability> items = rows.subList(0, request.getLimit());
+                Long lastId = items.get(items.size() - 1).getBookId();
+                return new Page<>(items, PageRequest.afterId(lastId, request.getLimit()));
+            } finally {
+                em.close();
+            }
+        });
+    }
+
+    /**
+     * Retrieves the catalog row of one book, so a table showing the catalog can update that row alone
+     * after the book or one of its copies changed.
+     *
+     * @param bookId the ID of the {@link Book}.
+     * @return the {@link BookAvailability} row of the book, or {@code null} if the book does not exist.
+     */
+    public BookAvailability findAvailability(Long bookId) {
+        return metrics.time("Book", "findAvailability", () -> {
+            EntityManager em = emf.createEntityManager();
+            try {
+                List<BookAvailability> rows = QueryCache.create(em, "Book.findAvailability",
+                        CATALOG_FROM + "WHERE b.id = :bookId " + CATALOG_GROUP_BY, BookAvailability.class)
+                        .setParameter("bookId", bookId)
+                        .getResultList();
+                return rows.isEmpty() ? null : rows.get(0);
+            } finally {
+                em.close();
+            }
+        });
+    }
+
+    /**
+     * Retrieves the catalog rows of the books that have at least one available copy.
+     *
+     * @return a {@link List} of {@link BookAvailability} rows ordered by book ID.
+     */
+    public List<BookAvailability> findAvailableCatalog() {
+        return metrics.time("Book", "findAvailableCatalog", () -> {
+            EntityManager em = emf.createEntityManager();
+            try {
+                return QueryCache.create(em, "Book.findAvailableCatalog",
+                        CATALOG_SELECT + " HAVING SUM(CASE WHEN c.status = 'Available' THEN 1 ELSE 0 END) > 0 ORDER BY b.id",
+                        BookAvailability.class).getResultList();
+            } finally {
+                em.close();
+            }
+        });
     }
 
     /**
@@ -65,12 +238,135 @@ public class BookDao implements Dao<Book> {
      */
     @Override
     public List<Book> findAll() {
-        EntityManager em = emf.createEntityManager();
-        try {
-            return em.createQuery("SELECT b FROM Book b", Book.class).getResultList();
-        } finally {
-            em.close();
-        }
+        return metrics.time("Book", "findAll", () -> {
+            EntityManager em = emf.createEntityManager();
+            try {
+                return QueryCache.named(em, "Book.findAll", Book.class).getResultList();
+            } finally {
+                em.close();
+            }
+        });
+    }
+
+    /**
+     * Finds a {@link Book} entity by its ISBN, given as ISBN-10 or ISBN-13, with or without hyphens.
+     * Recently found ISBNs are mapped to their book IDs, so repeated lookups read the book by ID.
+     *
+     * @param isbn the ISBN of the {@link Book} to find.
+     * @return the found {@link Book} entity or {@code null} if no entity is found.
+     */
+    public Book findByIsbn(String isbn) {
+        return metrics.time("Book", "findByIsbn", () -> {
+            String normalized = Isbn.normalize(isbn);
+            if (normalized == null) {
+                return null;
+            }
+            EntityManager em = emf.createEntityManager();
+            try {
+                return NaturalKeyCache.of(emf, "Book.isbn", Book.class, Book::getId).find(em, normalized,
+                        book -> normalized.equals(book.getIsbn()),
+                        manager -> {
+                            List<Book> books = QueryCache.named(manager, "Book.findByIsbn", Book.class)
+                                    .setParameter("isbn", normalized)
+                                    .getResultList();
+                            return books.isEmpty() ? null : books.get(0);
+                        });
+            } finally {
+                em.close();
+            }
+        });
+    }
+
+    /**
+     * Searches the books by title, author, publisher and ISBN, for example for {@code "orwell 1984"}.
+     * Every word of the query must start a word of the book; books matching in the title rank above books
+     * matching in the author or publisher, and whole words rank above prefixes. The search runs on an
+     * in-memory index kept up to date by the write methods of this DAO, so it does not scan the table.
+     *
+     * @param query the words to look for.
+     * @param limit the maximum number of books to return.
+     * @return the matching {@link Book} entities, best match first; empty if the query has no words.
+     * @throws IllegalArgumentException if {@code limit} is not positive.
+     */
+    public List<Book> search(String query, int limit) {
+        return metrics.time("Book", "search", () -> {
+            if (limit <= 0) {
+                throw new IllegalArgumentException("Limit must be positive: " + limit);
+            }
+            List<Long> ids = BookSearchIndex.of(emf).search(emf, query, limit);
+            if (ids.isEmpty()) {
+                return List.of();
+            }
+            EntityManager em = emf.createEntityManager();
+            try {
+                Map<Long, Book> books = new HashMap<>();
+                em.createQuery("SELECT b FROM Book b " + FETCH_PUBLISHER + " WHERE b.id IN :ids", Book.class)
+                        .setParameter("ids", ids)
+                        .getResultList()
+                        .forEach(book -> books.put(book.getId(), book));
+                // Keep the ranking order, skipping books deleted since they were found
+                List<Book> results = new ArrayList<>(ids.size());
+                for (Long id : ids) {
+                    Book book = books.get(id);
+                    if (book != null) {
+                        results.add(book);
+                    }
+                }
+                return results;
+            } finally {
+                em.close();
+            }
+        });
+    }
+
+    /**
+     * Suggests book titles, authors and publisher names for text typed so far, for example {@code "orw"}
+     * for "George Orwell". Values starting with the text come first, then values with a later word starting
+     * with it. Suggestions come from an in-memory prefix index, so they do not query the database.
+     *
+     * @param prefix the text typed so far.
+     * @param limit  the maximum number of suggestions.
+     * @return distinct suggestions; empty if the text has no letters or digits.
+     * @throws IllegalArgumentException if {@code limit} is not positive.
+     */
+    public List<String> suggest(String prefix, int limit) {
+        return metrics.time("Book", "suggest", () -> {
+            if (limit <= 0) {
+                throw new IllegalArgumentException("Limit must be positive: " + limit);
+            }
+            return AutocompleteIndex.of(emf).suggest(emf, prefix, limit);
+        });
+    }
+
+    /**
+     * Retrieves one page of {@link Book} entities using keyset pagination.
+     * Supported sort keys are {@code "id"}, {@code "title"} and {@code "author"}.
+     *
+     * @param request the page to retrieve.
+     * @return the requested {@link Page} of {@link Book} entities.
+     */
+    @Override
+    public Page<Book> findPage(PageRequest request) {
+        return metrics.time("Book", "findPage", () -> {
+            EntityManager em = emf.createEntityManager();
+            try {
+                return KEYSET.fetch(em, request, FETCH_PUBLISHER, null, Map.of());
+            } finally {
+                em.close();
+            }
+        });
+    }
+
+    /**
+     * Streams all {@link Book} entities from the database in ID order through a forward-only cursor.
+     * The returned stream must be closed to release its database connection.
+     *
+     * @return a {@link Stream} over all {@link Book} entities.
+     */
+    @Override
+    public Stream<Book> streamAll() {
+        return metrics.time("Book", "streamAll",
+                () -> Streams.scroll(emf, "SELECT b FROM Book b " + FETCH_PUBLISHER + " ORDER BY b.id", Book.class, Map.of()));
     }
 
     /**
@@ -81,16 +377,43 @@ public class BookDao implements Dao<Book> {
      */
     @Override
     public Book update(Book book) {
-        EntityManager em = emf.createEntityManager();
-        try {
-            em.getTransaction().begin();
-            Book merged = em.merge(book);
-            em.getTransaction().commit();
-            return merged;
-        } finally {
-            em.close();
-        }
+        return metrics.time("Book", "update", () -> {
+            EntityManager em = emf.createEntityManager();
+            try {
+                em.getTransaction().begin();
+                Book merged = em.merge(normalized(book));
+                em.getTransaction().commit();
+                indexed(List.of(merged));
+                return merged;
+            } finally {
+                if (em.getTransaction().isActive()) {
+                    em.getTransaction().rollback();
+                }
+                em.close();
+            }
+        });
+    }
+
+    /**
+     * Updates a {@link Book} entity by re-reading it and applying changes to its current state,
+     * retrying after concurrent updates as described in {@link Dao#update(Long, Consumer)}.
+     *
+     * @param id      the ID of the {@link Book} to update.
+     * @param changes the changes to apply to the {@link Book}.
+     * @return the updated {@link Book} entity, or {@code null} if no entity is found.
+     */
+    @Override
+    public Book update(Long id, Consumer<Book> changes) {
+        return metrics.time("Book", "updateById", () -> {
+            Book updated = OptimisticRetry.DEFAULT.execute(
+                    () -> Transactions.modify(emf, Book.class, id, changes.andThen(BookDao::normalized)));
+            if (updated != null) {
+                indexed(List.of(updated));
+            }
+            return updated;
+        });
     }
+
     /**
      * Deletes a {@link Book} entity by its ID. Ensures that a {@link Book} cannot
      * be deleted if it still has associated {@link Copy} entities.
@@ -100,20 +423,117 @@ public class BookDao implements Dao<Book> {
      */
     @Override
     public void delete(Long bookId) {
-        EntityManager em = emf.createEntityManager();
-        try {
-            em.getTransaction().begin();
-            Book book = em.find(Book.class, bookId);
-            if (book != null) {
-                // If the Book still has child Copies, throw an exception
-                if (!book.getCopies().isEmpty()) {
-                    throw new IllegalStateException("Cannot delete Book that still has Copies");
+        metrics.run("Book", "delete", () -> {
+            EntityManager em = emf.createEntityManager();
+            try {
+                em.getTransaction().begin();
+                remove(em, bookId);
+                em.getTransaction().commit();
+                unindexed(List.of(bookId));
+            } finally {
+                if (em.getTransaction().isActive()) {
+                    em.getTransaction().rollback();
                 }
-                em.remove(book);
+                em.close();
             }
-            em.getTransaction().commit();
-        } finally {
-            em.close();
+        });
+    }
+
+    /**
+     * Persists several new {@link Book} entities in a single batched transaction.
+     *
+     * @param books the {@link Book} entities to be created.
+     * @return the persisted {@link Book} entities with auto-generated IDs.
+     */
+    @Override
+    public List<Book> createAll(Collection<Book> books) {
+        return metrics.time("Book", "createAll", () -> {
+            List<Book> created = Batches.apply(emf, books, (em, book) -> {
+                em.persist(normalized(book));
+                return book;
+            });
+            indexed(created);
+            return created;
+        });
+    }
+
+    /**
+     * Updates several existing {@link Book} entities in a single batched transaction.
+     *
+     * @param books the {@link Book} entities with updated values.
+     * @return the updated {@link Book} entities.
+     */
+    @Override
+    public List<Book> updateAll(Collection<Book> books) {
+        return metrics.time("Book", "updateAll", () -> {
+            List<Book> updated = Batches.apply(emf, books, (em, book) -> em.merge(normalized(book)));
+            indexed(updated);
+            return updated;
+        });
+    }
+
+    /**
+     * Deletes several {@link Book} entities by their IDs in a single batched transaction,
+     * applying the same rules as {@link #delete(Long)} to each of them.
+     *
+     * @param ids the IDs of the {@link Book} entities to delete.
+     */
+    @Override
+    public void deleteAll(Collection<Long> ids) {
+        metrics.run("Book", "deleteAll", () -> {
+            Batches.run(emf, ids, this::remove);
+            unindexed(ids);
+        });
+    }
+
+    /**
+     * Removes a {@link Book} entity within the caller's transaction.
+     *
+     * @param em the {@link EntityManager} of the current transaction.
+     * @param bookId the ID of the {@link Book} to remove.
+     */
+    private void remove(EntityManager em, Long bookId) {
+        Book book = em.find(Book.class, bookId);
+        if (book != null) {
+            // If the Book still has child Copies, throw an exception
+            long copies = em.createQuery("SELECT COUNT(c) FROM Copy c WHERE c.book.id = :bookId", Long.class)
+                    .setParameter("bookId", bookId)
+                    .getSingleResult();
+            if (copies > 0) {
+                throw new IllegalStateException("Cannot delete Book that still has Copies");
+            }
+            em.remove(book);
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Brings the search and autocomplete indexes up to date after books were committed.
+     *
+     * @param books the created or updated {@link Book} entities.
+     */
+    private void indexed(Collection<Book> books) {
+        BookSearchIndex.of(emf).put(books);
+        AutocompleteIndex.of(emf).putBooks(books);
+    }
+
+    /**
+     * Removes deleted books from the search and autocomplete indexes.
+     *
+     * @param ids the IDs of the deleted {@link Book} entities.
+     */
+    private void unindexed(Collection<Long> ids) {
+        BookSearchIndex.of(emf).remove(ids);
+        AutocompleteIndex.of(emf).removeBooks(ids);
+    }
+
+    /**
+     * Stores the ISBN of a book in its normalized form, see {@link Isbn#normalize(String)}.
+     *
+     * @param book the {@link Book} about to be written.
+     * @return the same {@link Book}.
+     */
+    private static Book normalized(Book book) {
+        book.setIsbn(Isbn.normalize(book.getIsbn()));
+        return book;
+    }
+}
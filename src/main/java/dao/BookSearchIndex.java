@@ -0,0 +1,384 @@
+package dao;
+
+import entity.Book;
+
+import javax.persistence.EntityManagerFactory;
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.WeakHashMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+
+/**
+ * An in-memory inverted index of the books of one database, used by {@link BookDao#search(String, int)}.
+ * Titles, authors, publishers and ISBNs are split into lower-case words without accents, and every word
+ * points to the books containing it. A search looks up each query word as a prefix, so {@code "orw 198"}
+ * finds "1984" by George Orwell, keeps the books that match every word, and ranks them by where the words
+ * matched (title over author over publisher), whether they matched whole words and how rare they are.
+ * <p>
+ * The index is built from the database on the first search and kept up to date by the write methods
+ * of {@link BookDao}, so books written any other way after the first search are not found.
+ * There is one index per {@link EntityManagerFactory}.
+ */
+final class BookSearchIndex {
+
+    private static final double TITLE_WEIGHT = 3.0;
+    private static final double AUTHOR_WEIGHT = 2.0;
+    private static final double PUBLISHER_WEIGHT = 1.0;
+    private static final double ISBN_WEIGHT = 4.0;
+
+    /**
+     * Share of the score a word earns when it is only a prefix of the indexed word.
+     */
+    private static final double PREFIX_FACTOR = 0.5;
+
+    private static final Map<EntityManagerFactory, BookSearchIndex> INDEXES =
+            Collections.synchronizedMap(new WeakHashMap<>());
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final NavigableMap<String, Set<Long>> postings = new TreeMap<>();
+    private final Map<Long, Entry> entries = new HashMap<>();
+    private boolean built;
+
+    private BookSearchIndex() { }
+
+    /**
+     * Gets the index of a database, creating an empty, unbuilt one if needed.
+     *
+     * @param emf the {@link EntityManagerFactory} of the database
+     * @return the index
+     */
+    static BookSearchIndex of(EntityManagerFactory emf) {
+        return INDEXES.computeIfAbsent(emf, key -> new BookSearchIndex());
+    }
+
+    /**
+     * Finds the best matching books.
+     *
+     * @param emf   the {@link EntityManagerFactory} to build the index from if it is not built yet
+     * @param query the words to look for
+     * @param limit the maximum number of results
+     * @return the IDs of the matching books, best match first
+     */
+    List<Long> search(EntityManagerFactory emf, String query, int limit) {
+        List<List<String>> queryWords = queryWords(query);
+        if (queryWords.isEmpty()) {
+            return List.of();
+        }
+        ensureBuilt(emf);
+        lock.readLock().lock();
+        try {
+            // Walk the candidates of the rarest word and check the other words against each candidate
+            // The postings of a word are only counted here, never copied, so short words cost no more than their count
+            List<String> words = new ArrayList<>();
+            List<NavigableMap<String, Set<Long>>> matches = new ArrayList<>();
+            long[] counts = new long[queryWords.size()];
+            double[] rarity = new double[queryWords.size()];
+            int rarest = 0;
+            for (int i = 0; i < queryWords.size(); i++) {
+                // Look a word up by the first of its forms that matches anything
+                NavigableMap<String, Set<Long>> match = null;
+                for (String form : queryWords.get(i)) {
+                    match = matching(form);
+                    counts[i] = count(match);
+                    if (counts[i] > 0) {
+                        words.add(form);
+                        break;
+                    }
+                }
+                if (counts[i] == 0) {
+                    return List.of();
+                }
+                matches.add(match);
+                rarity[i] = Math.log(1.0 + (double) entries.size() / counts[i]);
+                if (counts[i] < counts[rarest]) {
+                    rarest = i;
+                }
+            }
+
+            // Keep the best hits in a heap whose head is the worst of them; on equal scores, lower IDs win
+            Comparator<Hit> worstFirst = Comparator.comparingDouble((Hit hit) -> hit.score)
+                    .thenComparingLong(hit -> -hit.id);
+            PriorityQueue<Hit> best = new PriorityQueue<>(worstFirst);
+            String rarestWord = words.get(rarest);
+            for (Map.Entry<String, Set<Long>> posting : matches.get(rarest).entrySet()) {
+                candidates:
+                for (Long id : posting.getValue()) {
+                    Entry entry = entries.get(id);
+                    // A book with several words starting with the query word is in several postings; score it once
+                    if (!posting.getKey().equals(entry.firstWordStartingWith(rarestWord))) {
+                        continue;
+                    }
+                    double score = 0;
+                    for (int i = 0; i < words.size(); i++) {
+                        double wordScore = entry.score(words.get(i));
+                        if (wordScore == 0) {
+                            continue candidates;
+                        }
+                        score += wordScore * rarity[i];
+                    }
+                    best.add(new Hit(id, score));
+                    if (best.size() > limit) {
+                        best.poll();
+                    }
+                }
+            }
+
+            List<Long> ids = new ArrayList<>(best.size());
+            while (!best.isEmpty()) {
+                ids.add(best.poll().id);
+            }
+            Collections.reverse(ids);
+            return ids;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Adds or replaces books in the index, if it is built.
+     *
+     * @param books the books as committed to the database
+     */
+    void put(Collection<Book> books) {
+        lock.writeLock().lock();
+        try {
+            if (built) {
+                for (Book book : books) {
+                    index(book.getId(), book.getTitle(), book.getAuthor(), book.getPublisher(), book.getIsbn());
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Removes books from the index, if it is built.
+     *
+     * @param ids the IDs of the deleted books
+     */
+    void remove(Collection<Long> ids) {
+        lock.writeLock().lock();
+        try {
+            if (built) {
+                ids.forEach(this::unindex);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Builds the index from the database unless it is built already.
+     * Writes wait for the build, so a book committed while it runs is either read by it or applied after it.
+     */
+    private void ensureBuilt(EntityManagerFactory emf) {
+        lock.readLock().lock();
+        try {
+            if (built) {
+                return;
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        lock.writeLock().lock();
+        try {
+            if (!built) {
+                try (Stream<Object[]> rows = Streams.scroll(emf,
+                        "SELECT b.id, b.title, b.author, b.publisher, b.isbn FROM Book b", Object[].class, Map.of())) {
+                    rows.forEach(row -> index((Long) row[0], (String) row[1], (String) row[2], (String) row[3], (String) row[4]));
+                }
+                built = true;
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void index(Long id, String title, String author, String publisher, String isbn) {
+        unindex(id);
+        Entry entry = new Entry(words(title), words(author), words(publisher), isbnWord(isbn));
+        entries.put(id, entry);
+        for (String word : entry.allWords()) {
+            postings.computeIfAbsent(word, key -> new HashSet<>()).add(id);
+        }
+    }
+
+    private void unindex(Long id) {
+        Entry entry = entries.remove(id);
+        if (entry != null) {
+            for (String word : entry.allWords()) {
+                Set<Long> ids = postings.get(word);
+                ids.remove(id);
+                if (ids.isEmpty()) {
+                    postings.remove(word);
+                }
+            }
+        }
+    }
+
+    /**
+     * Gets the postings of the words starting with the given prefix, as a view of the index.
+     */
+    private NavigableMap<String, Set<Long>> matching(String prefix) {
+        return postings.subMap(prefix, true, prefix + Character.MAX_VALUE, false);
+    }
+
+    /**
+     * Counts the postings of a prefix. A book with several words starting with the prefix is counted once per word,
+     * so this is an upper bound of the number of matching books, which is close enough to rank words by rarity.
+     */
+    private static long count(NavigableMap<String, Set<Long>> match) {
+        long count = 0;
+        for (Set<Long> ids : match.values()) {
+            count += ids.size();
+        }
+        return count;
+    }
+
+    /**
+     * Splits text into lower-case words without accents.
+     *
+     * @param text the text, may be {@code null}
+     * @return the words
+     */
+    static List<String> words(String text) {
+        if (text == null || text.isBlank()) {
+            return List.of();
+        }
+        String plain = Normalizer.normalize(text, Normalizer.Form.NFD)
+                .replaceAll("\\p{M}", "")
+                .toLowerCase(Locale.ROOT);
+        List<String> words = new ArrayList<>();
+        for (String word : plain.split("[^\\p{L}\\p{N}]+")) {
+            if (!word.isEmpty()) {
+                words.add(word);
+            }
+        }
+        return words;
+    }
+
+    /**
+     * Splits a query into words, each with the forms to look it up by, in order of preference.
+     * A part that looks like an ISBN, such as {@code 978-0-14}, is kept as one word. Books are indexed by their
+     * normalized ISBN, so a complete ISBN-10 is looked up as its ISBN-13 first, then by its digits as typed.
+     */
+    private static List<List<String>> queryWords(String query) {
+        List<List<String>> words = new ArrayList<>();
+        if (query == null) {
+            return words;
+        }
+        for (String part : query.trim().split("\\s+")) {
+            if (part.matches("[0-9Xx-]*[0-9][0-9Xx-]*")) {
+                String typed = isbnWord(part);
+                String normalized = isbnWord(Isbn.normalize(part));
+                words.add(normalized.equals(typed) ? List.of(typed) : List.of(normalized, typed));
+            } else {
+                words(part).forEach(word -> words.add(List.of(word)));
+            }
+        }
+        return words;
+    }
+
+    private static String isbnWord(String isbn) {
+        return isbn == null ? "" : isbn.replaceAll("[^0-9Xx]", "").toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * The indexed words of one book, by field.
+     */
+    private static final class Entry {
+        private final List<String> title;
+        private final List<String> author;
+        private final List<String> publisher;
+        private final String isbn;
+
+        Entry(List<String> title, List<String> author, List<String> publisher, String isbn) {
+            this.title = title;
+            this.author = author;
+            this.publisher = publisher;
+            this.isbn = isbn;
+        }
+
+        Set<String> allWords() {
+            Set<String> words = new HashSet<>(title);
+            words.addAll(author);
+            words.addAll(publisher);
+            if (!isbn.isEmpty()) {
+                words.add(isbn);
+            }
+            return words;
+        }
+
+        /**
+         * Finds the alphabetically first of the book's words that starts with a prefix.
+         *
+         * @return the word, or {@code null} if no word of the book starts with the prefix
+         */
+        String firstWordStartingWith(String prefix) {
+            String first = firstStartingWith(title, prefix, null);
+            first = firstStartingWith(author, prefix, first);
+            first = firstStartingWith(publisher, prefix, first);
+            return isbn.startsWith(prefix) && (first == null || isbn.compareTo(first) < 0) ? isbn : first;
+        }
+
+        private static String firstStartingWith(List<String> fieldWords, String prefix, String first) {
+            for (String fieldWord : fieldWords) {
+                if (fieldWord.startsWith(prefix) && (first == null || fieldWord.compareTo(first) < 0)) {
+                    first = fieldWord;
+                }
+            }
+            return first;
+        }
+
+        /**
+         * Scores a query word by the best field it matches in, or 0 if it matches nowhere.
+         */
+        double score(String word) {
+            double score = fieldScore(title, word) * TITLE_WEIGHT;
+            score = Math.max(score, fieldScore(author, word) * AUTHOR_WEIGHT);
+            score = Math.max(score, fieldScore(publisher, word) * PUBLISHER_WEIGHT);
+            return Math.max(score, fieldScore(List.of(isbn), word) * ISBN_WEIGHT);
+        }
+
+        private static double fieldScore(List<String> fieldWords, String word) {
+            double score = 0;
+            for (String fieldWord : fieldWords) {
+                if (fieldWord.equals(word)) {
+                    return 1.0;
+                }
+                if (fieldWord.startsWith(word)) {
+                    score = PREFIX_FACTOR;
+                }
+            }
+            return score;
+        }
+    }
+
+    /**
+     * A matching book and its score.
+     */
+    private static final class Hit {
+        private final long id;
+        private final double score;
+
+        Hit(long id, double score) {
+            this.id = id;
+            this.score = score;
+        }
+    }
+}
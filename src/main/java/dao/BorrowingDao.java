@@ -2,9 +2,15 @@ package dao;
 
 import entity.Borrowing;
 import entity.Copy;
+import monitoring.DaoMetrics;
 
 import javax.persistence.*;
+import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 /**
  * Data Access Object (DAO) class for managing {@link Borrowing} entities.
@@ -12,14 +18,43 @@ import java.util.List;
  */
 public class BorrowingDao implements Dao<Borrowing> {
 
+    /**
+     * Keyset pagination queries for {@link Borrowing} entities.
+     */
+    private static final Keyset<Borrowing> KEYSET = new Keyset<>(Borrowing.class, "b", Borrowing::getId)
+            .sortKey("borrowDate", "borrowDate", Borrowing::getBorrowDate);
+
+    /**
+     * Fetches the user, copy, book and publisher of each borrowing in the same query, so rows need no further queries.
+     */
+    private static final String FETCH_ALL =
+            "LEFT JOIN FETCH b.user LEFT JOIN FETCH b.copy c LEFT JOIN FETCH c.book bk LEFT JOIN FETCH bk.publisherEntity";
+
+    /**
+     * Selects borrowings together with their associations, see {@link #FETCH_ALL}.
+     */
+    private static final String STREAM_SELECT = "SELECT b FROM Borrowing b " + FETCH_ALL;
+
     private final EntityManagerFactory emf;
+    private final DaoMetrics metrics;
     /**
      * Constructor to initialize the {@link BorrowingDao} with an {@link EntityManagerFactory}.
      *
      * @param emf the {@link EntityManagerFactory} to be used for database operations.
      */
     public BorrowingDao(EntityManagerFactory emf) {
+        this(emf, DaoMetrics.shared());
+    }
+
+    /**
+     * Constructs a DAO that records its calls into the given metrics instead of the shared ones.
+     *
+     * @param emf     the factory to create EntityManager instances
+     * @param metrics the metrics to record the calls into
+     */
+    public BorrowingDao(EntityManagerFactory emf, DaoMetrics metrics) {
         this.emf = emf;
+        this.metrics = metrics;
     }
 
     /**
@@ -30,15 +65,20 @@ public class BorrowingDao implements Dao<Borrowing> {
      */
     @Override
     public Borrowing create(Borrowing borrowing) {
-        EntityManager em = emf.createEntityManager();
-        try {
-            em.getTransaction().begin();
-            em.persist(borrowing); // ID will be auto-generated
-            em.getTransaction().commit();
-            return borrowing;
-        } finally {
-            em.close();
-        }
+        return metrics.time("Borrowing", "create", () -> {
+            EntityManager em = emf.createEntityManager();
+            try {
+                em.getTransaction().begin();
+                em.persist(borrowing); // ID will be auto-generated
+                em.getTransaction().commit();
+                return borrowing;
+            } finally {
+                if (em.getTransaction().isActive()) {
+                    em.getTransaction().rollback();
+                }
+                em.close();
+            }
+        });
     }
 
     /**
@@ -49,12 +89,14 @@ public class BorrowingDao implements Dao<Borrowing> {
      */
     @Override
     public Borrowing findById(Long id) {
-        EntityManager em = emf.createEntityManager();
-        try {
-            return em.find(Borrowing.class, id);
-        } finally {
-            em.close();
-        }
+        return metrics.time("Borrowing", "findById", () -> {
+            EntityManager em = emf.createEntityManager();
+            try {
+                return em.find(Borrowing.class, id);
+            } finally {
+                em.close();
+            }
+        });
     }
 
     /**
@@ -64,12 +106,110 @@ public class BorrowingDao implements Dao<Borrowing> {
      */
     @Override
     public List<Borrowing> findAll() {
-        EntityManager em = emf.createEntityManager();
-        try {
-            return em.createQuery("SELECT b FROM Borrowing b", Borrowing.class).getResultList();
-        } finally {
-            em.close();
-        }
+        return metrics.time("Borrowing", "findAll", () -> {
+            EntityManager em = emf.createEntityManager();
+            try {
+                return em.createQuery(STREAM_SELECT, Borrowing.class).getResultList();
+            } finally {
+                em.close();
+            }
+        });
+    }
+
+    /**
+     * Retrieves one page of {@link Borrowing} entities using keyset pagination.
+     * Supported sort keys are {@code "id"} and {@code "borrowDate"}.
+     *
+     * @param request the page to retrieve.
+     * @return the requested {@link Page} of {@link Borrowing} entities.
+     */
+    @Override
+    public Page<Borrowing> findPage(PageRequest request) {
+        return metrics.time("Borrowing", "findPage", () -> {
+            EntityManager em = emf.createEntityManager();
+            try {
+                return KEYSET.fetch(em, request, FETCH_ALL, null, Map.of());
+            } finally {
+                em.close();
+            }
+        });
+    }
+
+    /**
+     * Streams all {@link Borrowing} entities from the database in ID order through a forward-only cursor.
+     * The returned stream must be closed to release its database connection.
+     *
+     * @return a {@link Stream} over all {@link Borrowing} entities.
+     */
+    @Override
+    public Stream<Borrowing> streamAll() {
+        return metrics.time("Borrowing", "streamAll",
+                () -> Streams.scroll(emf, STREAM_SELECT + " ORDER BY b.id", Borrowing.class, Map.of()));
+    }
+
+    /**
+     * Streams all {@link Borrowing} entities that have not been returned yet, in ID order.
+     * The returned stream must be closed to release its database connection.
+     *
+     * @return a {@link Stream} over active {@link Borrowing} entities.
+     */
+    public Stream<Borrowing> streamActive() {
+        return metrics.time("Borrowing", "streamActive",
+                () -> Streams.scroll(emf, STREAM_SELECT + " WHERE b.returnDate IS NULL ORDER BY b.id", Borrowing.class, Map.of()));
+    }
+
+    /**
+     * Streams all {@link Borrowing} entities whose borrow date lies in the given range, in ID order.
+     * The returned stream must be closed to release its database connection.
+     *
+     * @param from the first borrow date to include.
+     * @param to   the last borrow date to include.
+     * @return a {@link Stream} over the matching {@link Borrowing} entities.
+     */
+    public Stream<Borrowing> streamBorrowedBetween(LocalDate from, LocalDate to) {
+        return metrics.time("Borrowing", "streamBorrowedBetween",
+                () -> Streams.scroll(emf, STREAM_SELECT + " WHERE b.borrowDate BETWEEN :from AND :to ORDER BY b.id",
+                        Borrowing.class, Map.of("from", from, "to", to)));
+    }
+
+    /**
+     * Retrieves one page of the borrowing history of a user, with each borrowing's copy and book fetched
+     * in the same query. Only the user's rows are read, through the index on {@code Borrowings.user_id}.
+     * Supported sort keys are {@code "id"} and {@code "borrowDate"}.
+     *
+     * @param userId  the ID of the user whose borrowings to retrieve.
+     * @param request the page to retrieve.
+     * @return the requested {@link Page} of the user's {@link Borrowing} entities.
+     */
+    public Page<Borrowing> findByUser(Long userId, PageRequest request) {
+        return metrics.time("Borrowing", "findByUser", () -> {
+            EntityManager em = emf.createEntityManager();
+            try {
+                return KEYSET.fetch(em, request, FETCH_ALL,
+                        "b.user.id = :userId", Map.of("userId", userId));
+            } finally {
+                em.close();
+            }
+        });
+    }
+
+    /**
+     * Retrieves the borrowings of a user that have not been returned yet, with their copy and book fetched.
+     *
+     * @param userId the ID of the user whose borrowings to retrieve.
+     * @return a {@link List} of the user's active {@link Borrowing} entities, ordered by borrow date.
+     */
+    public List<Borrowing> findActiveByUser(Long userId) {
+        return metrics.time("Borrowing", "findActiveByUser", () -> {
+            EntityManager em = emf.createEntityManager();
+            try {
+                return em.createQuery(STREAM_SELECT + " WHERE b.user.id = :userId AND b.returnDate IS NULL ORDER BY b.borrowDate, b.id", Borrowing.class)
+                        .setParameter("userId", userId)
+                        .getResultList();
+            } finally {
+                em.close();
+            }
+        });
     }
 
     /**
@@ -80,15 +220,34 @@ public class BorrowingDao implements Dao<Borrowing> {
      */
     @Override
     public Borrowing update(Borrowing borrowing) {
-        EntityManager em = emf.createEntityManager();
-        try {
-            em.getTransaction().begin();
-            Borrowing merged = em.merge(borrowing);
-            em.getTransaction().commit();
-            return merged;
-        } finally {
-            em.close();
-        }
+        return metrics.time("Borrowing", "update", () -> {
+            EntityManager em = emf.createEntityManager();
+            try {
+                em.getTransaction().begin();
+                Borrowing merged = em.merge(borrowing);
+                em.getTransaction().commit();
+                return merged;
+            } finally {
+                if (em.getTransaction().isActive()) {
+                    em.getTransaction().rollback();
+                }
+                em.close();
+            }
+        });
+    }
+
+    /**
+     * Updates a {@link Borrowing} entity by re-reading it and applying changes to its current state,
+     * retrying after concurrent updates as described in {@link Dao#update(Long, Consumer)}.
+     *
+     * @param id      the ID of the {@link Borrowing} to update.
+     * @param changes the changes to apply to the {@link Borrowing}.
+     * @return the updated {@link Borrowing} entity, or {@code null} if no entity is found.
+     */
+    @Override
+    public Borrowing update(Long id, Consumer<Borrowing> changes) {
+        return metrics.time("Borrowing", "updateById",
+                () -> OptimisticRetry.DEFAULT.execute(() -> Transactions.modify(emf, Borrowing.class, id, changes)));
     }
 
     /**
@@ -99,24 +258,77 @@ public class BorrowingDao implements Dao<Borrowing> {
      */
     @Override
     public void delete(Long borrowingId) {
-        EntityManager em = emf.createEntityManager();
-        try {
-            em.getTransaction().begin();
-            Borrowing borrowing = em.find(Borrowing.class, borrowingId);
-            if (borrowing != null) {
-                // Reset the associated copy's status to "Available"
-                Copy copy = borrowing.getCopy();
-                if (copy != null) {
-                    copy.setStatus("Available");
-                    em.merge(copy);
+        metrics.run("Borrowing", "delete", () -> {
+            EntityManager em = emf.createEntityManager();
+            try {
+                em.getTransaction().begin();
+                remove(em, borrowingId);
+                em.getTransaction().commit();
+            } finally {
+                if (em.getTransaction().isActive()) {
+                    em.getTransaction().rollback();
                 }
+                em.close();
+            }
+        });
+    }
 
-                // Delete the borrowing
-                em.remove(borrowing);
+    /**
+     * Persists several new {@link Borrowing} entities in a single batched transaction.
+     *
+     * @param borrowings the {@link Borrowing} entities to be created.
+     * @return the persisted {@link Borrowing} entities with auto-generated IDs.
+     */
+    @Override
+    public List<Borrowing> createAll(Collection<Borrowing> borrowings) {
+        return metrics.time("Borrowing", "createAll", () -> {
+            return Batches.apply(emf, borrowings, (em, borrowing) -> {
+                em.persist(borrowing);
+                return borrowing;
+            });
+        });
+    }
+
+    /**
+     * Updates several existing {@link Borrowing} entities in a single batched transaction.
+     *
+     * @param borrowings the {@link Borrowing} entities with updated values.
+     * @return the updated {@link Borrowing} entities.
+     */
+    @Override
+    public List<Borrowing> updateAll(Collection<Borrowing> borrowings) {
+        return metrics.time("Borrowing", "updateAll", () -> Batches.apply(emf, borrowings, EntityManager::merge));
+    }
+
+    /**
+     * Deletes several {@link Borrowing} entities by their IDs in a single batched transaction,
+     * applying the same rules as {@link #delete(Long)} to each of them.
+     *
+     * @param ids the IDs of the {@link Borrowing} entities to delete.
+     */
+    @Override
+    public void deleteAll(Collection<Long> ids) {
+        metrics.run("Borrowing", "deleteAll", () -> Batches.run(emf, ids, this::remove));
+    }
+
+    /**
+     * Removes a {@link Borrowing} entity within the caller's transaction.
+     *
+     * @param em the {@link EntityManager} of the current transaction.
+     * @param borrowingId the ID of the {@link Borrowing} to remove.
+     */
+    private void remove(EntityManager em, Long borrowingId) {
+        Borrowing borrowing = em.find(Borrowing.class, borrowingId);
+        if (borrowing != null) {
+            // Reset the associated copy's status to "Available"
+            Copy copy = borrowing.getCopy();
+            if (copy != null) {
+                copy.setStatus("Available");
+                em.merge(copy);
             }
-            em.getTransaction().commit();
-        } finally {
-            em.close();
+
+            // Delete the borrowing
+            em.remove(borrowing);
         }
     }
 }
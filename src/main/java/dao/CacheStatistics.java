@@ -0,0 +1,145 @@
+package dao;
+
+import entity.Book;
+import entity.Copy;
+import entity.Publisher;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+
+import javax.persistence.EntityManagerFactory;
+
+/**
+ * Read-only view of the second-level and query cache statistics of a persistence unit.
+ * Counts are kept by Hibernate while {@code hibernate.generate_statistics} is enabled and
+ * grow for the lifetime of the {@link EntityManagerFactory}.
+ */
+public final class CacheStatistics implements CacheStatisticsMBean {
+
+    /**
+     * The cache region holding {@link Book} entities.
+     */
+    public static final String BOOK_REGION = "books";
+
+    /**
+     * The cache region holding {@link Publisher} entities.
+     */
+    public static final String PUBLISHER_REGION = "publishers";
+
+    /**
+     * The cache region holding {@link Copy} entities.
+     */
+    public static final String COPY_REGION = "copies";
+
+    /**
+     * The cache region holding the copy IDs of each {@link Book}.
+     */
+    public static final String BOOK_COPIES_REGION = "book-copies";
+
+    private final Statistics statistics;
+
+    /**
+     * Constructs a view of the statistics of the given {@link EntityManagerFactory}.
+     *
+     * @param emf the {@link EntityManagerFactory} whose cache statistics to read.
+     */
+    public CacheStatistics(EntityManagerFactory emf) {
+        this.statistics = emf.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    /**
+     * Gets the number of lookups answered by a cache region.
+     *
+     * @param region the name of the region, for example {@link #BOOK_REGION}.
+     * @return the hit count.
+     */
+    public long getHitCount(String region) {
+        return regionStatistics(region).getHitCount();
+    }
+
+    /**
+     * Gets the number of lookups a cache region could not answer.
+     *
+     * @param region the name of the region, for example {@link #BOOK_REGION}.
+     * @return the miss count.
+     */
+    public long getMissCount(String region) {
+        return regionStatistics(region).getMissCount();
+    }
+
+    /**
+     * Gets the number of entries put into a cache region.
+     *
+     * @param region the name of the region, for example {@link #BOOK_REGION}.
+     * @return the put count.
+     */
+    public long getPutCount(String region) {
+        return regionStatistics(region).getPutCount();
+    }
+
+    /**
+     * Gets the share of lookups answered by a cache region.
+     *
+     * @param region the name of the region, for example {@link #BOOK_REGION}.
+     * @return the hit ratio between 0 and 1, or 0 if the region has not been used yet.
+     */
+    public double getHitRatio(String region) {
+        CacheRegionStatistics stats = regionStatistics(region);
+        long lookups = stats.getHitCount() + stats.getMissCount();
+        return lookups == 0 ? 0 : (double) stats.getHitCount() / lookups;
+    }
+
+    /**
+     * Gets the number of second-level cache hits over all regions.
+     *
+     * @return the total hit count.
+     */
+    public long getTotalHitCount() {
+        return statistics.getSecondLevelCacheHitCount();
+    }
+
+    /**
+     * Gets the number of second-level cache misses over all regions.
+     *
+     * @return the total miss count.
+     */
+    public long getTotalMissCount() {
+        return statistics.getSecondLevelCacheMissCount();
+    }
+
+    /**
+     * Gets the number of query executions answered by the query cache.
+     *
+     * @return the query cache hit count.
+     */
+    public long getQueryCacheHitCount() {
+        return statistics.getQueryCacheHitCount();
+    }
+
+    /**
+     * Gets the number of cacheable query executions that had to run against the database,
+     * because no result was cached or the cached result was invalidated by a write.
+     *
+     * @return the query cache miss count.
+     */
+    public long getQueryCacheMissCount() {
+        return statistics.getQueryCacheMissCount();
+    }
+
+    /**
+     * Gets the number of query results put into the query cache.
+     *
+     * @return the query cache put count.
+     */
+    public long getQueryCachePutCount() {
+        return statistics.getQueryCachePutCount();
+    }
+
+    private CacheRegionStatistics regionStatistics(String region) {
+        CacheRegionStatistics stats = statistics.getDomainDataRegionStatistics(region);
+        if (stats == null) {
+            throw new IllegalArgumentException("Unknown cache region: " + region);
+        }
+        return stats;
+    }
+}
@@ -0,0 +1,32 @@
+package dao;
+
+/**
+ * JMX view of the totals of {@link CacheStatistics}.
+ */
+public interface CacheStatisticsMBean {
+
+    /**
+     * @return the number of lookups answered by any second-level cache region
+     */
+    long getTotalHitCount();
+
+    /**
+     * @return the number of second-level cache lookups that went to the database
+     */
+    long getTotalMissCount();
+
+    /**
+     * @return the number of queries answered by the query cache
+     */
+    long getQueryCacheHitCount();
+
+    /**
+     * @return the number of cacheable queries that were run against the database
+     */
+    long getQueryCacheMissCount();
+
+    /**
+     * @return the number of query results put into the query cache
+     */
+    long getQueryCachePutCount();
+}
@@ -1,9 +1,14 @@
 package dao;
 
 import entity.Copy;
+import monitoring.DaoMetrics;
 
 import javax.persistence.*;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 /**
  * Data Access Object (DAO) class for managing {@link Copy} entities.
@@ -11,7 +16,18 @@ import java.util.List;
  */
 public class CopyDao implements Dao<Copy> {
 
+    /**
+     * Keyset pagination queries for {@link Copy} entities.
+     */
+    private static final Keyset<Copy> KEYSET = new Keyset<>(Copy.class, "c", Copy::getId);
+
+    /**
+     * Fetches the book of each copy, and the book's publisher, in the same query.
+     */
+    private static final String FETCH_BOOK = "JOIN FETCH c.book b LEFT JOIN FETCH b.publisherEntity";
+
     private final EntityManagerFactory emf;
+    private final DaoMetrics metrics;
 
     /**
      * Constructor to initialize the {@link CopyDao} with an {@link EntityManagerFactory}.
@@ -19,7 +35,18 @@ public class CopyDao implements Dao<Copy> {
      * @param emf the {@link EntityManagerFactory} to be used for database operations.
      */
     public CopyDao(EntityManagerFactory emf) {
+        this(emf, DaoMetrics.shared());
+    }
+
+    /**
+     * Constructs a DAO that records its calls into the given metrics instead of the shared ones.
+     *
+     * @param emf     the factory to create EntityManager instances
+     * @param metrics the metrics to record the calls into
+     */
+    public CopyDao(EntityManagerFactory emf, DaoMetrics metrics) {
         this.emf = emf;
+        this.metrics = metrics;
     }
 
     /**
@@ -30,15 +57,20 @@ public class CopyDao implements Dao<Copy> {
      */
     @Override
     public Copy create(Copy copy) {
-        EntityManager em = emf.createEntityManager();
-        try {
-            em.getTransaction().begin();
-            em.persist(copy);
-            em.getTransaction().commit();
-            return copy;
-        } finally {
-            em.close();
-        }
+        return metrics.time("Copy", "create", () -> {
+            EntityManager em = emf.createEntityManager();
+            try {
+                em.getTransaction().begin();
+                em.persist(copy);
+                em.getTransaction().commit();
+                return copy;
+            } finally {
+                if (em.getTransaction().isActive()) {
+                    em.getTransaction().rollback();
+                }
+                em.close();
+            }
+        });
     }
 
     /**
@@ -49,12 +81,43 @@ public class CopyDao implements Dao<Copy> {
      */
     @Override
     public Copy findById(Long id) {
-        EntityManager em = emf.createEntityManager();
-        try {
-            return em.find(Copy.class, id);
-        } finally {
-            em.close();
-        }
+        return metrics.time("Copy", "findById", () -> {
+            EntityManager em = emf.createEntityManager();
+            try {
+                return em.find(Copy.class, id);
+            } finally {
+                em.close();
+            }
+        });
+    }
+
+    /**
+     * Finds a {@link Copy} entity by its book and its number among the copies of that book,
+     * using the index on {@code Copies(book_id, copyNumber)}.
+     * Recently found copies are mapped to their IDs, so repeated lookups read the copy by ID.
+     *
+     * @param bookId     the ID of the {@link entity.Book} the copy belongs to.
+     * @param copyNumber the number of the copy.
+     * @return the found {@link Copy} entity, the oldest one if several share the number, or {@code null} if none is found.
+     */
+    public Copy findByBookAndCopyNumber(Long bookId, int copyNumber) {
+        return metrics.time("Copy", "findByBookAndCopyNumber", () -> {
+            EntityManager em = emf.createEntityManager();
+            try {
+                return NaturalKeyCache.of(emf, "Copy.bookAndCopyNumber", Copy.class, Copy::getId).find(em, List.of(bookId, copyNumber),
+                        copy -> bookId.equals(copy.getBook().getId()) && Integer.valueOf(copyNumber).equals(copy.getCopyNumber()),
+                        manager -> {
+                            List<Copy> copies = manager.createNamedQuery("Copy.findByBookAndCopyNumber", Copy.class)
+                                    .setParameter("bookId", bookId)
+                                    .setParameter("copyNumber", copyNumber)
+                                    .setMaxResults(1)
+                                    .getResultList();
+                            return copies.isEmpty() ? null : copies.get(0);
+                        });
+            } finally {
+                em.close();
+            }
+        });
     }
 
     /**
@@ -64,12 +127,59 @@ public class CopyDao implements Dao<Copy> {
      */
     @Override
     public List<Copy> findAll() {
-        EntityManager em = emf.createEntityManager();
-        try {
-            return em.createQuery("SELECT c FROM Copy c", Copy.class).getResultList();
-        } finally {
-            em.close();
-        }
+        return metrics.time("Copy", "findAll", () -> {
+            EntityManager em = emf.createEntityManager();
+            try {
+                return em.createQuery("SELECT c FROM Copy c " + FETCH_BOOK, Copy.class).getResultList();
+            } finally {
+                em.close();
+            }
+        });
+    }
+
+    /**
+     * Retrieves one page of {@link Copy} entities using keyset pagination.
+     * Copies are ordered by ID.
+     *
+     * @param request the page to retrieve.
+     * @return the requested {@link Page} of {@link Copy} entities.
+     */
+    @Override
+    public Page<Copy> findPage(PageRequest request) {
+        return metrics.time("Copy", "findPage", () -> {
+            EntityManager em = emf.createEntityManager();
+            try {
+                return KEYSET.fetch(em, request, FETCH_BOOK, null, Map.of());
+            } finally {
+                em.close();
+            }
+        });
+    }
+
+    /**
+     * Streams all {@link Copy} entities from the database in ID order through a forward-only cursor.
+     * The returned stream must be closed to release its database connection.
+     *
+     * @return a {@link Stream} over all {@link Copy} entities.
+     */
+    @Override
+    public Stream<Copy> streamAll() {
+        return metrics.time("Copy", "streamAll",
+                () -> Streams.scroll(emf, "SELECT c FROM Copy c " + FETCH_BOOK + " ORDER BY c.id", Copy.class, Map.of()));
+    }
+
+    /**
+     * Streams all {@link Copy} entities with the given status, in ID order.
+     * The returned stream must be closed to release its database connection.
+     *
+     * @param status the status to match (e.g., "Available", "Borrowed").
+     * @return a {@link Stream} over the matching {@link Copy} entities.
+     */
+    public Stream<Copy> streamByStatus(String status) {
+        return metrics.time("Copy", "streamByStatus", () -> {
+            return Streams.scroll(emf, "SELECT c FROM Copy c " + FETCH_BOOK + " WHERE c.status = :status ORDER BY c.id",
+                    Copy.class, Map.of("status", status));
+        });
     }
 
     /**
@@ -80,15 +190,34 @@ public class CopyDao implements Dao<Copy> {
      */
     @Override
     public Copy update(Copy copy) {
-        EntityManager em = emf.createEntityManager();
-        try {
-            em.getTransaction().begin();
-            Copy merged = em.merge(copy);
-            em.getTransaction().commit();
-            return merged;
-        } finally {
-            em.close();
-        }
+        return metrics.time("Copy", "update", () -> {
+            EntityManager em = emf.createEntityManager();
+            try {
+                em.getTransaction().begin();
+                Copy merged = em.merge(copy);
+                em.getTransaction().commit();
+                return merged;
+            } finally {
+                if (em.getTransaction().isActive()) {
+                    em.getTransaction().rollback();
+                }
+                em.close();
+            }
+        });
+    }
+
+    /**
+     * Updates a {@link Copy} entity by re-reading it and applying changes to its current state,
+     * retrying after concurrent updates as described in {@link Dao#update(Long, Consumer)}.
+     *
+     * @param id      the ID of the {@link Copy} to update.
+     * @param changes the changes to apply to the {@link Copy}.
+     * @return the updated {@link Copy} entity, or {@code null} if no entity is found.
+     */
+    @Override
+    public Copy update(Long id, Consumer<Copy> changes) {
+        return metrics.time("Copy", "updateById",
+                () -> OptimisticRetry.DEFAULT.execute(() -> Transactions.modify(emf, Copy.class, id, changes)));
     }
 
     /**
@@ -100,19 +229,76 @@ public class CopyDao implements Dao<Copy> {
      */
     @Override
     public void delete(Long id) {
-        EntityManager em = emf.createEntityManager();
-        try {
-            em.getTransaction().begin();
-            Copy copy = em.find(Copy.class, id);
-            if (copy != null) {
-                if ("Borrowed".equals(copy.getStatus())) {
-                    throw new IllegalStateException("Cannot delete a Copy that is currently Borrowed");
+        metrics.run("Copy", "delete", () -> {
+            EntityManager em = emf.createEntityManager();
+            try {
+                em.getTransaction().begin();
+                remove(em, id);
+                em.getTransaction().commit();
+            } finally {
+                if (em.getTransaction().isActive()) {
+                    em.getTransaction().rollback();
                 }
-                em.remove(copy);
+                em.close();
+            }
+        });
+    }
+
+    /**
+     * Persists several new {@link Copy} entities in a single batched transaction.
+     *
+     * @param copies the {@link Copy} entities to be created.
+     * @return the persisted {@link Copy} entities with auto-generated IDs.
+     */
+    @Override
+    public List<Copy> createAll(Collection<Copy> copies) {
+        return metrics.time("Copy", "createAll", () -> {
+            return Batches.apply(emf, copies, (em, copy) -> {
+                em.persist(copy);
+                return copy;
+            });
+        });
+    }
+
+    /**
+     * Updates several existing {@link Copy} entities in a single batched transaction.
+     *
+     * @param copies the {@link Copy} entities with updated values.
+     * @return the updated {@link Copy} entities.
+     */
+    @Override
+    public List<Copy> updateAll(Collection<Copy> copies) {
+        return metrics.time("Copy", "updateAll", () -> Batches.apply(emf, copies, EntityManager::merge));
+    }
+
+    /**
+     * Deletes several {@link Copy} entities by their IDs in a single batched transaction,
+     * applying the same rules as {@link #delete(Long)} to each of them.
+     *
+     * @param ids the IDs of the {@link Copy} entities to delete.
+     */
+    @Override
+    public void deleteAll(Collection<Long> ids) {
+        metrics.run("Copy", "deleteAll", () -> Batches.run(emf, ids, this::remove));
+    }
+
+    /**
+     * Removes a {@link Copy} entity within the caller's transaction.
+     *
+     * @param em the {@link EntityManager} of the current transaction.
+     * @param id the ID of the {@link Copy} to remove.
+     */
+    private void remove(EntityManager em, Long id) {
+        Copy copy = em.find(Copy.class, id);
+        if (copy != null) {
+            if ("Borrowed".equals(copy.getStatus())) {
+                throw new IllegalStateException("Cannot delete a Copy that is currently Borrowed");
+            }
+            // Detach the copy from its book's loaded copy list, otherwise the book's cascade would persist it again
+            if (emf.getPersistenceUnitUtil().isLoaded(copy.getBook(), "copies")) {
+                copy.getBook().getCopies().remove(copy);
             }
-            em.getTransaction().commit();
-        } finally {
-            em.close();
+            em.remove(copy);
         }
     }
 }
\ No newline at end of file
@@ -1,9 +1,14 @@
 package dao;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 /**
  * Generic Data Access Object (DAO) interface that defines basic CRUD operations.
+ * The implementations record the calls of all their public methods in {@link monitoring.DaoMetrics},
+ * under their entity name and the method name; {@link #update(Long, Consumer)} is recorded as {@code updateById}.
  *
  * @param <T> the type of the entity that this DAO will manage.
  */
@@ -31,14 +36,66 @@ public interface Dao<T> {
      */
     List<T> findAll();
 
+    /**
+     * Retrieves one page of entities using keyset pagination.
+     * Unlike {@link #findAll()}, memory and query cost per call are bounded by the page limit,
+     * so a caller can walk a table of any size by following {@link Page#next()}.
+     *
+     * @param request the page to retrieve, see {@link PageRequest#first(int)}.
+     * @return the requested {@link Page}.
+     * @throws IllegalArgumentException if the request uses a sort key this DAO does not support.
+     */
+    Page<T> findPage(PageRequest request);
+
+    /**
+     * Streams all entities of this type from the database through a forward-only cursor.
+     * Entities are read in batches and detached as the stream moves on, so the whole table is never held in memory.
+     * The returned stream holds a database connection and must be closed, preferably with try-with-resources.
+     *
+     * @return a {@link Stream} over all entities of this type.
+     */
+    Stream<T> streamAll();
+
     /**
      * Updates an existing entity in the database.
      *
+     * The entity is merged as given: if it was changed by someone else since it was read,
+     * the update fails with an {@link javax.persistence.OptimisticLockException} rather than overwriting that change.
+     *
      * @param entity the entity with updated values.
      * @return the updated entity.
      */
     T update(T entity);
 
+    /**
+     * Updates an entity by re-reading it and applying changes to the current version.
+     * If another transaction updates the entity concurrently, the read and the changes are repeated
+     * under {@link OptimisticRetry#DEFAULT}, so the changes may be applied more than once
+     * and must not depend on anything but the entity passed in.
+     *
+     * @param id      the ID of the entity to update.
+     * @param changes the changes to apply to the entity.
+     * @return the updated entity, or {@code null} if no entity with the given ID exists.
+     * @throws javax.persistence.OptimisticLockException if the entity was still changed concurrently after the last retry.
+     */
+    T update(Long id, Consumer<T> changes);
+
+    /**
+     * Persists several new entities in a single transaction, sending the inserts as JDBC batches.
+     *
+     * @param entities the entities to be created.
+     * @return the persisted entities, with auto-generated IDs, in the order given.
+     */
+    List<T> createAll(Collection<T> entities);
+
+    /**
+     * Updates several existing entities in a single transaction, sending the updates as JDBC batches.
+     *
+     * @param entities the entities with updated values.
+     * @return the updated entities, in the order given.
+     */
+    List<T> updateAll(Collection<T> entities);
+
     /**
      * Deletes an entity by its ID.
      *
@@ -46,4 +103,13 @@ public interface Dao<T> {
      * @throws IllegalStateException if the entity cannot be deleted due to existing relationships or constraints.
      */
     void delete(Long id);
+
+    /**
+     * Deletes several entities by their IDs in a single transaction.
+     * If any of them cannot be deleted, none of them is.
+     *
+     * @param ids the IDs of the entities to delete.
+     * @throws IllegalStateException if an entity cannot be deleted due to existing relationships or constraints.
+     */
+    void deleteAll(Collection<Long> ids);
 }
@@ -0,0 +1,193 @@
+package dao;
+
+import java.time.Duration;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * Runs DAO calls on virtual threads, at most a fixed number at a time.
+ * Every call gets its own virtual thread, so a caller can issue thousands of calls without tying up platform
+ * threads; calls beyond the limit wait for a permit, which costs a parked virtual thread and nothing else.
+ * The limit should not exceed the connection pool size, since a call holds a connection while it runs.
+ * <p>
+ * The futures returned by {@link #submit(Supplier, Duration)} can be cancelled, and a call whose timeout expires
+ * completes with a {@link TimeoutException}. Either way a call that has not started is skipped, but a running
+ * call is never interrupted, so it does not abandon a transaction halfway: it runs to the end, and its outcome,
+ * which may be a committed write, is no longer reported through the future.
+ */
+public final class DaoExecutor {
+
+    private static volatile DaoExecutor shared;
+
+    private final Semaphore permits;
+    private final int maxConcurrency;
+    private final ThreadFactory threads;
+
+    /**
+     * Constructs an executor.
+     *
+     * @param maxConcurrency the most calls running at the same time
+     * @throws IllegalArgumentException if {@code maxConcurrency} is not positive
+     */
+    public DaoExecutor(int maxConcurrency) {
+        if (maxConcurrency <= 0) {
+            throw new IllegalArgumentException("Concurrency must be positive: " + maxConcurrency);
+        }
+        this.maxConcurrency = maxConcurrency;
+        this.permits = new Semaphore(maxConcurrency, true);
+        this.threads = Thread.ofVirtual().name("dao-call-", 0).factory();
+    }
+
+    /**
+     * Gets the executor shared by the application, sized like the default connection pool.
+     *
+     * @return the shared executor
+     */
+    public static DaoExecutor shared() {
+        DaoExecutor executor = shared;
+        if (executor == null) {
+            synchronized (DaoExecutor.class) {
+                executor = shared;
+                if (executor == null) {
+                    executor = new DaoExecutor(Math.max(PooledConnectionProvider.MIN_DEFAULT_POOL_SIZE,
+                            Runtime.getRuntime().availableProcessors() * 2));
+                    shared = executor;
+                }
+            }
+        }
+        return executor;
+    }
+
+    /**
+     * Runs a call on a virtual thread once a permit is free.
+     *
+     * @param call    the call
+     * @param timeout the longest the call may take, including the wait for a permit, or {@code null} for no limit
+     * @param <R>     the result type
+     * @return a future completed with the result of the call, or with what it threw
+     */
+    public <R> CompletableFuture<R> submit(Supplier<R> call, Duration timeout) {
+        Call<R> task = new Call<>(call);
+        Thread thread = threads.newThread(task);
+        task.thread = thread;
+        if (timeout != null) {
+            task.orTimeout(timeout.toNanos(), TimeUnit.NANOSECONDS);
+            task.whenComplete((result, failure) -> {
+                if (failure instanceof TimeoutException) {
+                    task.interruptIfWaiting();
+                }
+            });
+        }
+        thread.start();
+        return task;
+    }
+
+    /**
+     * Gets the most calls that run at the same time.
+     *
+     * @return the concurrency limit
+     */
+    public int getMaxConcurrency() {
+        return maxConcurrency;
+    }
+
+    /**
+     * Gets the number of calls running now.
+     *
+     * @return the running call count
+     */
+    public int getActiveCount() {
+        return maxConcurrency - permits.availablePermits();
+    }
+
+    /**
+     * Gets the number of calls waiting for a permit.
+     *
+     * @return the waiting call count, an estimate
+     */
+    public int getQueuedCount() {
+        return permits.getQueueLength();
+    }
+
+    /**
+     * A call and its future. Cancelling the future before the call starts interrupts the wait for a permit.
+     */
+    private final class Call<R> extends CompletableFuture<R> implements Runnable {
+        private final Supplier<R> call;
+        private volatile Thread thread;
+        private boolean started; // Guarded by this
+
+        Call(Supplier<R> call) {
+            this.call = call;
+        }
+
+        @Override
+        public void run() {
+            if (isDone()) {
+                return;
+            }
+            try {
+                permits.acquire();
+            } catch (InterruptedException e) {
+                completeExceptionally(new CancellationException("Interrupted while waiting to run"));
+                return;
+            }
+            if (!start()) {
+                permits.release();
+                return;
+            }
+            R result = null;
+            Throwable failure = null;
+            try {
+                result = call.get();
+            } catch (Throwable t) {
+                failure = t;
+            } finally {
+                permits.release();
+            }
+            // Completed after the permit is free, so stages run on completion do not hold it
+            if (failure != null) {
+                completeExceptionally(failure);
+            } else {
+                complete(result);
+            }
+        }
+
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            boolean cancelled = super.cancel(mayInterruptIfRunning);
+            if (cancelled) {
+                interruptIfWaiting();
+            }
+            return cancelled;
+        }
+
+        /**
+         * Marks the call as started, unless its future was already completed by a cancellation or timeout.
+         *
+         * @return {@code true} if the call may run
+         */
+        private synchronized boolean start() {
+            if (isDone()) {
+                return false;
+            }
+            started = true;
+            return true;
+        }
+
+        /**
+         * Interrupts the thread of a call that is still waiting for a permit, and leaves a running call alone.
+         */
+        private synchronized void interruptIfWaiting() {
+            Thread waiting = thread;
+            if (!started && waiting != null) {
+                waiting.interrupt();
+            }
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package dao;
+
+/**
+ * Normalizes ISBNs, so a book can be found whether its ISBN is typed with or without hyphens
+ * and in its 10- or 13-digit form. Books are stored with the normalized ISBN.
+ */
+public final class Isbn {
+
+    private Isbn() { }
+
+    /**
+     * Normalizes an ISBN. A valid ISBN-10 or ISBN-13, with or without hyphens and spaces, becomes
+     * the 13 digits of its ISBN-13, for example {@code 0-14-118263-6} and {@code 978-0-14-118263-6} both become
+     * {@code 9780141182636}. Anything else is only trimmed, so catalog numbers that are not ISBNs are kept.
+     *
+     * @param isbn the ISBN as entered, may be {@code null}
+     * @return the normalized ISBN, or {@code null} if {@code isbn} is {@code null}
+     */
+    public static String normalize(String isbn) {
+        if (isbn == null) {
+            return null;
+        }
+        String compact = isbn.replaceAll("[\\s-]", "").toUpperCase();
+        if (isValidIsbn13(compact)) {
+            return compact;
+        }
+        if (isValidIsbn10(compact)) {
+            String body = "978" + compact.substring(0, 9);
+            return body + isbn13CheckDigit(body);
+        }
+        return isbn.trim();
+    }
+
+    private static boolean isValidIsbn13(String digits) {
+        return digits.matches("\\d{13}") && isbn13CheckDigit(digits.substring(0, 12)) == digits.charAt(12);
+    }
+
+    private static boolean isValidIsbn10(String digits) {
+        if (!digits.matches("\\d{9}[\\dX]")) {
+            return false;
+        }
+        int sum = 0;
+        for (int i = 0; i < 10; i++) {
+            int value = digits.charAt(i) == 'X' ? 10 : digits.charAt(i) - '0';
+            sum += value * (10 - i);
+        }
+        return sum % 11 == 0;
+    }
+
+    private static char isbn13CheckDigit(String first12) {
+        int sum = 0;
+        for (int i = 0; i < 12; i++) {
+            sum += (first12.charAt(i) - '0') * (i % 2 == 0 ? 1 : 3);
+        }
+        return (char) ('0' + (10 - sum % 10) % 10);
+    }
+}
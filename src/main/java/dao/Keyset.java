@@ -0,0 +1,139 @@
+package dao;
+
+import javax.persistence.EntityManager;
+import javax.persistence.TypedQuery;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Builds keyset ("seek") queries for one entity type.
+ * Each page is selected with {@code WHERE (sortKey, id) > (lastSortValue, lastId)} instead of an offset,
+ * so the database only reads the rows it returns. The ID breaks ties between equal sort values,
+ * and {@code null} sort values are ordered first.
+ *
+ * @param <T> the entity type.
+ */
+final class Keyset<T> {
+
+    private final Class<T> type;
+    private final String alias;
+    private final Function<T, Long> idOf;
+    private final Map<String, SortKey<T>> sortKeys = new HashMap<>();
+
+    /**
+     * Constructs a keyset query builder that supports ordering by ID.
+     *
+     * @param type  the entity class
+     * @param alias the alias used for the entity in JPQL
+     * @param idOf  extracts the ID of an entity
+     */
+    Keyset(Class<T> type, String alias, Function<T, Long> idOf) {
+        this.type = type;
+        this.alias = alias;
+        this.idOf = idOf;
+    }
+
+    /**
+     * Registers an additional sort key. The attribute should be indexed for pages to stay cheap.
+     *
+     * @param name      the name callers use in {@link PageRequest}
+     * @param attribute the attribute path relative to the entity alias, e.g. {@code "title"}
+     * @param valueOf   extracts the sort value from an entity
+     * @return this builder
+     */
+    Keyset<T> sortKey(String name, String attribute, Function<T, ?> valueOf) {
+        sortKeys.put(name, new SortKey<>(alias + "." + attribute, valueOf));
+        return this;
+    }
+
+    /**
+     * Fetches one page over the whole table.
+     *
+     * @param em      the {@link EntityManager} to query with
+     * @param request the page to fetch
+     * @return the requested page
+     */
+    Page<T> fetch(EntityManager em, PageRequest request) {
+        return fetch(em, request, "", null, Map.of());
+    }
+
+    /**
+     * Fetches one page of the entities that match a condition.
+     *
+     * @param em         the {@link EntityManager} to query with
+     * @param request    the page to fetch
+     * @param joins      JPQL joins appended to the {@code FROM} clause, e.g. fetch joins (may be empty)
+     * @param condition  a JPQL condition the entities must satisfy, or {@code null}
+     * @param parameters the named parameters used by {@code condition}
+     * @return the requested page
+     */
+    Page<T> fetch(EntityManager em, PageRequest request, String joins, String condition, Map<String, Object> parameters) {
+        String idPath = alias + ".id";
+        boolean byId = PageRequest.ID.equals(request.getSortKey());
+        SortKey<T> sortKey = byId ? null : sortKeys.get(request.getSortKey());
+        if (!byId && sortKey == null) {
+            throw new IllegalArgumentException("Unsupported sort key for " + type.getSimpleName() + ": " + request.getSortKey());
+        }
+
+        StringBuilder jpql = new StringBuilder("SELECT ").append(alias)
+                .append(" FROM ").append(type.getSimpleName()).append(' ').append(alias);
+        if (!joins.isEmpty()) {
+            jpql.append(' ').append(joins);
+        }
+        String where = condition;
+        if (!request.isFirst()) {
+            String seek;
+            if (byId) {
+                seek = idPath + " > :lastId";
+            } else if (request.getLastSortValue() == null) {
+                seek = "(" + sortKey.path + " IS NULL AND " + idPath + " > :lastId) OR " + sortKey.path + " IS NOT NULL";
+            } else {
+                seek = sortKey.path + " > :lastValue OR (" + sortKey.path + " = :lastValue AND " + idPath + " > :lastId)";
+            }
+            where = where == null ? seek : "(" + where + ") AND (" + seek + ")";
+        }
+        if (where != null) {
+            jpql.append(" WHERE ").append(where);
+        }
+        jpql.append(" ORDER BY ");
+        if (!byId) {
+            jpql.append(sortKey.path).append(" ASC NULLS FIRST, ");
+        }
+        jpql.append(idPath).append(" ASC");
+
+        TypedQuery<T> query = em.createQuery(jpql.toString(), type);
+        parameters.forEach(query::setParameter);
+        if (!request.isFirst()) {
+            query.setParameter("lastId", request.getLastId());
+            if (!byId && request.getLastSortValue() != null) {
+                query.setParameter("lastValue", request.getLastSortValue());
+            }
+        }
+        // Fetch one extra row to find out whether another page follows
+        List<T> rows = query.setMaxResults(request.getLimit() + 1).getResultList();
+        if (rows.size() <= request.getLimit()) {
+            return new Page<>(rows, null);
+        }
+
+        List<T> items = rows.subList(0, request.getLimit());
+        T last = items.get(items.size() - 1);
+        Long lastId = idOf.apply(last);
+        Object lastValue = byId ? lastId : sortKey.valueOf.apply(last);
+        return new Page<>(items, PageRequest.after(request.getSortKey(), lastValue, lastId, request.getLimit()));
+    }
+
+    /**
+     * A sort key: the JPQL path to order by and how to read its value from a loaded entity.
+     */
+    private static final class SortKey<T> {
+        private final String path;
+        private final Function<T, ?> valueOf;
+
+        private SortKey(String path, Function<T, ?> valueOf) {
+            this.path = path;
+            this.valueOf = valueOf;
+        }
+    }
+}
@@ -1,9 +1,14 @@
 package dao;
 
 import entity.Librarian;
+import monitoring.DaoMetrics;
 
 import javax.persistence.*;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 /**
  * Data Access Object (DAO) class for managing {@link Librarian} entities.
@@ -11,7 +16,18 @@ import java.util.List;
  */
 public class LibrarianDao implements Dao<Librarian> {
 
+    /**
+     * Keyset pagination queries for {@link Librarian} entities.
+     */
+    private static final Keyset<Librarian> KEYSET = new Keyset<>(Librarian.class, "l", Librarian::getId);
+
+    /**
+     * Fetches the user account of each librarian in the same query.
+     */
+    private static final String FETCH_USER = "LEFT JOIN FETCH l.user";
+
     private final EntityManagerFactory emf;
+    private final DaoMetrics metrics;
 
     /**
      * Constructs a new {@code LibrarianDao} with the specified {@link EntityManagerFactory}.
@@ -19,7 +35,18 @@ public class LibrarianDao implements Dao<Librarian> {
      * @param emf the {@link EntityManagerFactory} to use for database operations.
      */
     public LibrarianDao(EntityManagerFactory emf) {
+        this(emf, DaoMetrics.shared());
+    }
+
+    /**
+     * Constructs a DAO that records its calls into the given metrics instead of the shared ones.
+     *
+     * @param emf     the factory to create EntityManager instances
+     * @param metrics the metrics to record the calls into
+     */
+    public LibrarianDao(EntityManagerFactory emf, DaoMetrics metrics) {
         this.emf = emf;
+        this.metrics = metrics;
     }
 
     /**
@@ -30,15 +57,20 @@ public class LibrarianDao implements Dao<Librarian> {
      */
     @Override
     public Librarian create(Librarian librarian) {
-        EntityManager em = emf.createEntityManager();
-        try {
-            em.getTransaction().begin();
-            em.persist(librarian);
-            em.getTransaction().commit();
-            return librarian;
-        } finally {
-            em.close();
-        }
+        return metrics.time("Librarian", "create", () -> {
+            EntityManager em = emf.createEntityManager();
+            try {
+                em.getTransaction().begin();
+                em.persist(librarian);
+                em.getTransaction().commit();
+                return librarian;
+            } finally {
+                if (em.getTransaction().isActive()) {
+                    em.getTransaction().rollback();
+                }
+                em.close();
+            }
+        });
     }
 
     /**
@@ -49,12 +81,14 @@ public class LibrarianDao implements Dao<Librarian> {
      */
     @Override
     public Librarian findById(Long id) {
-        EntityManager em = emf.createEntityManager();
-        try {
-            return em.find(Librarian.class, id);
-        } finally {
-            em.close();
-        }
+        return metrics.time("Librarian", "findById", () -> {
+            EntityManager em = emf.createEntityManager();
+            try {
+                return em.find(Librarian.class, id);
+            } finally {
+                em.close();
+            }
+        });
     }
 
     /**
@@ -64,12 +98,45 @@ public class LibrarianDao implements Dao<Librarian> {
      */
     @Override
     public List<Librarian> findAll() {
-        EntityManager em = emf.createEntityManager();
-        try {
-            return em.createQuery("SELECT l FROM Librarian l", Librarian.class).getResultList();
-        } finally {
-            em.close();
-        }
+        return metrics.time("Librarian", "findAll", () -> {
+            EntityManager em = emf.createEntityManager();
+            try {
+                return QueryCache.named(em, "Librarian.findAll", Librarian.class).getResultList();
+            } finally {
+                em.close();
+            }
+        });
+    }
+
+    /**
+     * Retrieves one page of {@link Librarian} entities using keyset pagination.
+     * Librarians are ordered by ID.
+     *
+     * @param request the page to retrieve.
+     * @return the requested {@link Page} of {@link Librarian} entities.
+     */
+    @Override
+    public Page<Librarian> findPage(PageRequest request) {
+        return metrics.time("Librarian", "findPage", () -> {
+            EntityManager em = emf.createEntityManager();
+            try {
+                return KEYSET.fetch(em, request, FETCH_USER, null, Map.of());
+            } finally {
+                em.close();
+            }
+        });
+    }
+
+    /**
+     * Streams all {@link Librarian} entities from the database in ID order through a forward-only cursor.
+     * The returned stream must be closed to release its database connection.
+     *
+     * @return a {@link Stream} over all {@link Librarian} entities.
+     */
+    @Override
+    public Stream<Librarian> streamAll() {
+        return metrics.time("Librarian", "streamAll",
+                () -> Streams.scroll(emf, "SELECT l FROM Librarian l " + FETCH_USER + " ORDER BY l.id", Librarian.class, Map.of()));
     }
 
     /**
@@ -80,15 +147,34 @@ public class LibrarianDao implements Dao<Librarian> {
      */
     @Override
     public Librarian update(Librarian librarian) {
-        EntityManager em = emf.createEntityManager();
-        try {
-            em.getTransaction().begin();
-            Librarian merged = em.merge(librarian);
-            em.getTransaction().commit();
-            return merged;
-        } finally {
-            em.close();
-        }
+        return metrics.time("Librarian", "update", () -> {
+            EntityManager em = emf.createEntityManager();
+            try {
+                em.getTransaction().begin();
+                Librarian merged = em.merge(librarian);
+                em.getTransaction().commit();
+                return merged;
+            } finally {
+                if (em.getTransaction().isActive()) {
+                    em.getTransaction().rollback();
+                }
+                em.close();
+            }
+        });
+    }
+
+    /**
+     * Updates a {@link Librarian} entity by re-reading it and applying changes to its current state,
+     * retrying after concurrent updates as described in {@link Dao#update(Long, Consumer)}.
+     *
+     * @param id      the ID of the {@link Librarian} to update.
+     * @param changes the changes to apply to the {@link Librarian}.
+     * @return the updated {@link Librarian} entity, or {@code null} if no entity is found.
+     */
+    @Override
+    public Librarian update(Long id, Consumer<Librarian> changes) {
+        return metrics.time("Librarian", "updateById",
+                () -> OptimisticRetry.DEFAULT.execute(() -> Transactions.modify(emf, Librarian.class, id, changes)));
     }
 
     /**
@@ -98,16 +184,69 @@ public class LibrarianDao implements Dao<Librarian> {
      */
     @Override
     public void delete(Long librarianId) {
-        EntityManager em = emf.createEntityManager();
-        try {
-            em.getTransaction().begin();
-            Librarian librarian = em.find(Librarian.class, librarianId);
-            if (librarian != null) {
-                em.remove(librarian);
+        metrics.run("Librarian", "delete", () -> {
+            EntityManager em = emf.createEntityManager();
+            try {
+                em.getTransaction().begin();
+                remove(em, librarianId);
+                em.getTransaction().commit();
+            } finally {
+                if (em.getTransaction().isActive()) {
+                    em.getTransaction().rollback();
+                }
+                em.close();
             }
-            em.getTransaction().commit();
-        } finally {
-            em.close();
+        });
+    }
+
+    /**
+     * Persists several new {@link Librarian} entities in a single batched transaction.
+     *
+     * @param librarians the {@link Librarian} entities to be created.
+     * @return the persisted {@link Librarian} entities with auto-generated IDs.
+     */
+    @Override
+    public List<Librarian> createAll(Collection<Librarian> librarians) {
+        return metrics.time("Librarian", "createAll", () -> {
+            return Batches.apply(emf, librarians, (em, librarian) -> {
+                em.persist(librarian);
+                return librarian;
+            });
+        });
+    }
+
+    /**
+     * Updates several existing {@link Librarian} entities in a single batched transaction.
+     *
+     * @param librarians the {@link Librarian} entities with updated values.
+     * @return the updated {@link Librarian} entities.
+     */
+    @Override
+    public List<Librarian> updateAll(Collection<Librarian> librarians) {
+        return metrics.time("Librarian", "updateAll", () -> Batches.apply(emf, librarians, EntityManager::merge));
+    }
+
+    /**
+     * Deletes several {@link Librarian} entities by their IDs in a single batched transaction,
+     * applying the same rules as {@link #delete(Long)} to each of them.
+     *
+     * @param ids the IDs of the {@link Librarian} entities to delete.
+     */
+    @Override
+    public void deleteAll(Collection<Long> ids) {
+        metrics.run("Librarian", "deleteAll", () -> Batches.run(emf, ids, this::remove));
+    }
+
+    /**
+     * Removes a {@link Librarian} entity within the caller's transaction.
+     *
+     * @param em the {@link EntityManager} of the current transaction.
+     * @param librarianId the ID of the {@link Librarian} to remove.
+     */
+    private void remove(EntityManager em, Long librarianId) {
+        Librarian librarian = em.find(Librarian.class, librarianId);
+        if (librarian != null) {
+            em.remove(librarian);
         }
     }
 }
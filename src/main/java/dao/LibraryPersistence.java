@@ -0,0 +1,117 @@
+package dao;
+
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.Persistence;
+import javax.persistence.PersistenceException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Consumer;
+
+/**
+ * Holds the one {@link EntityManagerFactory} of the application.
+ * Building the factory boots Hibernate, updates the schema and starts the connection pool, which takes seconds,
+ * so it is built once and shared by every window and DAO. {@link #startAsync()} starts building it in the
+ * background at application start, and {@link #get()} waits for it only if it is not ready yet.
+ * If building or initializing the factory fails, the next {@link #get()} builds it again with the same initializer,
+ * so a retry never hands out a factory that skipped it.
+ */
+public final class LibraryPersistence {
+
+    /**
+     * The name of the persistence unit in {@code META-INF/persistence.xml}.
+     */
+    public static final String PERSISTENCE_UNIT = "LibraryPU";
+
+    private static CompletableFuture<EntityManagerFactory> factory;
+    private static Consumer<EntityManagerFactory> initializer = emf -> { };
+
+    private LibraryPersistence() { }
+
+    /**
+     * Starts building the shared {@link EntityManagerFactory} on a background thread, unless it was started already.
+     * The factory is initialized with the initializer last given to {@link #startAsync(Consumer)}, if any.
+     *
+     * @return a future completed with the factory once it is built.
+     */
+    public static synchronized CompletableFuture<EntityManagerFactory> startAsync() {
+        return startAsync(initializer);
+    }
+
+    /**
+     * Starts building the shared {@link EntityManagerFactory} on a background thread, unless it was started already,
+     * and runs an initializer on it, for example to load data, before handing it out.
+     * If the factory was started already, the initializer is not run. Otherwise it is kept, and run again
+     * on the factories built after a failed start or a {@link #shutdown()}.
+     *
+     * @param initializer work to do on the new factory before {@link #get()} returns it.
+     * @return a future completed with the factory once it is built and initialized.
+     */
+    public static synchronized CompletableFuture<EntityManagerFactory> startAsync(Consumer<EntityManagerFactory> initializer) {
+        if (factory == null) {
+            LibraryPersistence.initializer = initializer;
+            CompletableFuture<EntityManagerFactory> future = new CompletableFuture<>();
+            Thread bootstrap = new Thread(() -> {
+                EntityManagerFactory emf = null;
+                try {
+                    emf = Persistence.createEntityManagerFactory(PERSISTENCE_UNIT);
+                    initializer.accept(emf);
+                    future.complete(emf);
+                } catch (Throwable t) {
+                    if (emf != null) {
+                        emf.close();
+                    }
+                    future.completeExceptionally(t);
+                }
+            }, "library-persistence-bootstrap");
+            bootstrap.setDaemon(true);
+            bootstrap.start();
+            factory = future;
+        }
+        return factory;
+    }
+
+    /**
+     * Gets the shared {@link EntityManagerFactory}, building it first if needed.
+     *
+     * @return the shared factory.
+     * @throws PersistenceException if the factory could not be built.
+     */
+    public static EntityManagerFactory get() {
+        CompletableFuture<EntityManagerFactory> future = startAsync();
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            synchronized (LibraryPersistence.class) {
+                // Allow a later call to try again, with the same initializer
+                if (factory == future) {
+                    factory = null;
+                }
+            }
+            if (e.getCause() instanceof PersistenceException) {
+                throw (PersistenceException) e.getCause();
+            }
+            throw new PersistenceException("Could not start persistence unit " + PERSISTENCE_UNIT, e.getCause());
+        }
+    }
+
+    /**
+     * Closes the shared {@link EntityManagerFactory}, releasing its connections and caches.
+     * A later {@link #get()} builds a new factory, with the same initializer.
+     */
+    public static synchronized void shutdown() {
+        if (factory == null) {
+            return;
+        }
+        CompletableFuture<EntityManagerFactory> future = factory;
+        factory = null;
+        EntityManagerFactory emf;
+        try {
+            emf = future.join();
+        } catch (CompletionException e) {
+            return; // Nothing was built
+        }
+        if (emf.isOpen()) {
+            emf.close();
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package dao;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * A small least-recently-used map from natural keys, such as ISBNs or email addresses, to entity IDs.
+ * A lookup that hits it reads the entity by ID, which the second-level cache or the primary key answers,
+ * instead of querying by the key. Entries are never trusted blindly: the entity read by ID must still
+ * have the key, otherwise the entry is dropped and the key is queried again, so writes need not evict anything.
+ * There is one cache per natural key and {@link EntityManagerFactory}.
+ *
+ * @param <T> the entity type
+ */
+final class NaturalKeyCache<T> {
+
+    /**
+     * Number of keys kept per cache.
+     */
+    static final int CAPACITY = 10_000;
+
+    private static final Map<EntityManagerFactory, Map<String, NaturalKeyCache<?>>> CACHES =
+            Collections.synchronizedMap(new WeakHashMap<>());
+
+    private final Class<T> type;
+    private final Function<T, Long> idOf;
+    private final Map<Object, Long> ids = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Object, Long> eldest) {
+            return size() > CAPACITY;
+        }
+    };
+
+    private NaturalKeyCache(Class<T> type, Function<T, Long> idOf) {
+        this.type = type;
+        this.idOf = idOf;
+    }
+
+    /**
+     * Gets the cache of a natural key, creating it if needed.
+     *
+     * @param emf  the {@link EntityManagerFactory} of the database
+     * @param name the name of the natural key, for example {@code "Book.isbn"}
+     * @param type the entity class
+     * @param idOf reads the ID of an entity
+     * @param <T>  the entity type
+     * @return the cache
+     */
+    @SuppressWarnings("unchecked")
+    static <T> NaturalKeyCache<T> of(EntityManagerFactory emf, String name, Class<T> type, Function<T, Long> idOf) {
+        Map<String, NaturalKeyCache<?>> caches = CACHES.computeIfAbsent(emf, key -> new HashMap<>());
+        synchronized (caches) {
+            return (NaturalKeyCache<T>) caches.computeIfAbsent(name, key -> new NaturalKeyCache<>(type, idOf));
+        }
+    }
+
+    /**
+     * Finds an entity by its natural key.
+     *
+     * @param em      the {@link EntityManager} to read with
+     * @param key     the natural key
+     * @param hasKey  checks that an entity read by a cached ID still has the key
+     * @param query   finds the entity by the key in the database, returning {@code null} if there is none
+     * @return the entity, or {@code null} if no entity has the key
+     */
+    T find(EntityManager em, Object key, Predicate<T> hasKey, Function<EntityManager, T> query) {
+        Long id;
+        synchronized (ids) {
+            id = ids.get(key);
+        }
+        if (id != null) {
+            T entity = em.find(type, id);
+            if (entity != null && hasKey.test(entity)) {
+                return entity;
+            }
+            synchronized (ids) {
+                ids.remove(key, id);
+            }
+        }
+        T entity = query.apply(em);
+        if (entity != null) {
+            synchronized (ids) {
+                ids.put(key, idOf.apply(entity));
+            }
+        }
+        return entity;
+    }
+}
@@ -0,0 +1,156 @@
+package dao;
+
+import org.hibernate.StaleStateException;
+
+import javax.persistence.OptimisticLockException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Retries write operations that fail because another transaction changed the same versioned entity first.
+ * Each retry waits a random time between zero and an exponentially growing bound ("full jitter"),
+ * so writers that collided once are unlikely to collide again. The operation must re-read the entity
+ * in a new transaction on every attempt, as {@link Dao#update(Long, java.util.function.Consumer)} does.
+ * Counters are kept for monitoring.
+ */
+public final class OptimisticRetry implements OptimisticRetryMBean {
+
+    /**
+     * The policy used by the DAOs: up to 5 attempts, backing off from 5 ms up to 200 ms.
+     */
+    public static final OptimisticRetry DEFAULT = new OptimisticRetry(5, 5, 200);
+
+    private final int maxAttempts;
+    private final long baseDelayMillis;
+    private final long maxDelayMillis;
+
+    private final LongAdder operations = new LongAdder();
+    private final LongAdder conflicts = new LongAdder();
+    private final LongAdder retries = new LongAdder();
+    private final LongAdder exhausted = new LongAdder();
+
+    /**
+     * Constructs a retry policy.
+     *
+     * @param maxAttempts     the maximum number of attempts, including the first one
+     * @param baseDelayMillis the upper bound of the delay before the first retry
+     * @param maxDelayMillis  the cap of the delay bound as it doubles with every retry
+     */
+    public OptimisticRetry(int maxAttempts, long baseDelayMillis, long maxDelayMillis) {
+        if (maxAttempts < 1) {
+            throw new IllegalArgumentException("At least one attempt is required");
+        }
+        this.maxAttempts = maxAttempts;
+        this.baseDelayMillis = baseDelayMillis;
+        this.maxDelayMillis = maxDelayMillis;
+    }
+
+    /**
+     * Runs an operation, retrying it after optimistic locking conflicts.
+     *
+     * @param operation the operation, which must start its own transaction
+     * @param <R>       the result type
+     * @return the result of the first successful attempt
+     * @throws RuntimeException the conflict of the last attempt once all attempts are used up,
+     *                          or any other failure immediately
+     */
+    public <R> R execute(Supplier<R> operation) {
+        operations.increment();
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return operation.get();
+            } catch (RuntimeException e) {
+                if (!isConflict(e)) {
+                    throw e;
+                }
+                conflicts.increment();
+                if (attempt >= maxAttempts) {
+                    exhausted.increment();
+                    throw e;
+                }
+                retries.increment();
+                backOff(attempt, e);
+            }
+        }
+    }
+
+    /**
+     * Runs an operation without a result, retrying it after optimistic locking conflicts.
+     *
+     * @param operation the operation, which must start its own transaction
+     */
+    public void run(Runnable operation) {
+        execute(() -> {
+            operation.run();
+            return null;
+        });
+    }
+
+    /**
+     * Gets the number of operations run through this policy.
+     *
+     * @return the operation count
+     */
+    public long getOperationCount() {
+        return operations.sum();
+    }
+
+    /**
+     * Gets the number of attempts that failed with an optimistic locking conflict.
+     *
+     * @return the conflict count
+     */
+    public long getConflictCount() {
+        return conflicts.sum();
+    }
+
+    /**
+     * Gets the number of retries performed.
+     *
+     * @return the retry count
+     */
+    public long getRetryCount() {
+        return retries.sum();
+    }
+
+    /**
+     * Gets the number of operations that still failed after the last attempt.
+     *
+     * @return the count of operations that gave up
+     */
+    public long getExhaustedCount() {
+        return exhausted.sum();
+    }
+
+    /**
+     * Checks whether a failure was caused by an optimistic locking conflict.
+     * JPA reports conflicts directly, or wrapped in a {@link javax.persistence.RollbackException} at commit.
+     *
+     * @param failure the failure to inspect
+     * @return {@code true} if a version check failed somewhere in the cause chain
+     */
+    static boolean isConflict(Throwable failure) {
+        for (Throwable t = failure; t != null; t = t.getCause()) {
+            if (t instanceof OptimisticLockException || t instanceof StaleStateException) {
+                return true;
+            }
+            if (t.getCause() == t) {
+                break;
+            }
+        }
+        return false;
+    }
+
+    private void backOff(int attempt, RuntimeException conflict) {
+        long bound = Math.min(maxDelayMillis, baseDelayMillis << Math.min(attempt - 1, 20));
+        long delay = ThreadLocalRandom.current().nextLong(bound + 1);
+        try {
+            TimeUnit.MILLISECONDS.sleep(delay);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw conflict;
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package dao;
+
+/**
+ * JMX view of the counters of an {@link OptimisticRetry} policy.
+ */
+public interface OptimisticRetryMBean {
+
+    /**
+     * @return the number of operations run under the policy
+     */
+    long getOperationCount();
+
+    /**
+     * @return the number of attempts that failed on an optimistic locking conflict
+     */
+    long getConflictCount();
+
+    /**
+     * @return the number of attempts repeated after a conflict
+     */
+    long getRetryCount();
+
+    /**
+     * @return the number of operations that still conflicted on their last attempt
+     */
+    long getExhaustedCount();
+}
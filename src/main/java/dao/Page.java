@@ -0,0 +1,53 @@
+package dao;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * One page of entities returned by {@link Dao#findPage(PageRequest)}.
+ *
+ * @param <T> the type of the entities on the page.
+ */
+public final class Page<T> {
+
+    private final List<T> items;
+    private final PageRequest next;
+
+    /**
+     * Constructs a page.
+     *
+     * @param items the entities on this page
+     * @param next  the request for the following page, or {@code null} if this is the last page
+     */
+    public Page(List<T> items, PageRequest next) {
+        this.items = Collections.unmodifiableList(items);
+        this.next = next;
+    }
+
+    /**
+     * Gets the entities on this page.
+     *
+     * @return an unmodifiable {@link List} of entities
+     */
+    public List<T> getItems() {
+        return items;
+    }
+
+    /**
+     * Checks whether another page follows this one.
+     *
+     * @return {@code true} if {@link #next()} returns a request
+     */
+    public boolean hasNext() {
+        return next != null;
+    }
+
+    /**
+     * Gets the request for the following page.
+     *
+     * @return the following page request, or {@code null} if this is the last page
+     */
+    public PageRequest next() {
+        return next;
+    }
+}
@@ -0,0 +1,125 @@
+package dao;
+
+/**
+ * Describes which page of entities a {@link Dao} should return when walking a table with keyset pagination.
+ * Instead of an offset, a request remembers the sort value and ID of the last row of the previous page,
+ * so every page is served by an index range scan no matter how deep into the table the caller is.
+ */
+public final class PageRequest {
+
+    /**
+     * The sort key that orders entities by their ID. Supported by every {@link Dao}.
+     */
+    public static final String ID = "id";
+
+    private final String sortKey;
+    private final Object lastSortValue;
+    private final Long lastId;
+    private final int limit;
+
+    private PageRequest(String sortKey, Object lastSortValue, Long lastId, int limit) {
+        if (sortKey == null) {
+            throw new IllegalArgumentException("Sort key must not be null");
+        }
+        if (limit <= 0) {
+            throw new IllegalArgumentException("Page limit must be greater than 0");
+        }
+        this.sortKey = sortKey;
+        this.lastSortValue = lastSortValue;
+        this.lastId = lastId;
+        this.limit = limit;
+    }
+
+    /**
+     * Creates a request for the first page ordered by ID.
+     *
+     * @param limit the maximum number of entities on the page
+     * @return a request for the first page
+     */
+    public static PageRequest first(int limit) {
+        return new PageRequest(ID, null, null, limit);
+    }
+
+    /**
+     * Creates a request for the first page ordered by the given sort key.
+     *
+     * @param sortKey the name of the sort key, as supported by the {@link Dao} that serves the request
+     * @param limit   the maximum number of entities on the page
+     * @return a request for the first page
+     */
+    public static PageRequest first(String sortKey, int limit) {
+        return new PageRequest(sortKey, null, null, limit);
+    }
+
+    /**
+     * Creates a request for the page that follows the entity with the given ID, ordered by ID.
+     *
+     * @param lastId the ID of the last entity already seen
+     * @param limit  the maximum number of entities on the page
+     * @return a request for the following page
+     */
+    public static PageRequest afterId(Long lastId, int limit) {
+        return new PageRequest(ID, lastId, lastId, limit);
+    }
+
+    /**
+     * Creates a request for the page that follows the given position in the sort order.
+     *
+     * @param sortKey       the name of the sort key
+     * @param lastSortValue the sort value of the last entity already seen (may be {@code null})
+     * @param lastId        the ID of the last entity already seen
+     * @param limit         the maximum number of entities on the page
+     * @return a request for the following page
+     */
+    public static PageRequest after(String sortKey, Object lastSortValue, Long lastId, int limit) {
+        if (lastId == null) {
+            throw new IllegalArgumentException("Last ID must not be null");
+        }
+        return new PageRequest(sortKey, lastSortValue, lastId, limit);
+    }
+
+    /**
+     * Gets the name of the sort key.
+     *
+     * @return the sort key
+     */
+    public String getSortKey() {
+        return sortKey;
+    }
+
+    /**
+     * Gets the sort value of the last entity of the previous page.
+     *
+     * @return the last sort value, or {@code null} for the first page or a {@code null} sort value
+     */
+    public Object getLastSortValue() {
+        return lastSortValue;
+    }
+
+    /**
+     * Gets the ID of the last entity of the previous page.
+     *
+     * @return the last ID, or {@code null} for the first page
+     */
+    public Long getLastId() {
+        return lastId;
+    }
+
+    /**
+     * Gets the maximum number of entities on the page.
+     *
+     * @return the page limit
+     */
+    public int getLimit() {
+        return limit;
+    }
+
+    /**
+     * Checks whether this request is for the first page.
+     *
+     * @return {@code true} if no entity has been seen yet
+     */
+    public boolean isFirst() {
+        return lastId == null;
+    }
+}
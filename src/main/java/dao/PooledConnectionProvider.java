@@ -0,0 +1,255 @@
+package dao;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import monitoring.PoolMetrics;
+import monitoring.SlowQueryLog;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.engine.jdbc.connections.spi.ConnectionProvider;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.service.UnknownUnwrapTypeException;
+import org.hibernate.service.spi.Configurable;
+import org.hibernate.service.spi.Stoppable;
+
+import javax.persistence.EntityManagerFactory;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * Hands out JDBC connections to Hibernate from a HikariCP pool.
+ * The pool is configured with {@code hibernate.hikari.*} properties, for example
+ * {@code hibernate.hikari.maximumPoolSize}. Without an explicit size the pool holds two connections
+ * per available processor, but at least {@value #MIN_DEFAULT_POOL_SIZE}. The JDBC URL, driver and isolation level are taken from the usual
+ * {@code hibernate.connection.*} or {@code javax.persistence.jdbc.*} properties.
+ * Pool usage is recorded in {@link PoolMetrics}, see {@link #metrics(EntityManagerFactory)}.
+ * <p>
+ * Connections are handed out wrapped by a {@link SlowQueryLog}, see {@link #slowQueries(EntityManagerFactory)},
+ * configured with {@value #SLOW_QUERY_THRESHOLD} (default {@value #DEFAULT_SLOW_QUERY_THRESHOLD_MS} ms) and
+ * {@value #SLOW_QUERY_BIND_SAMPLE_RATE} (default {@value #DEFAULT_BIND_SAMPLE_RATE}).
+ * Setting {@value #SLOW_QUERY_ENABLED} to {@code false} hands out the pool's connections unwrapped.
+ */
+public class PooledConnectionProvider implements ConnectionProvider, Configurable, Stoppable {
+
+    /**
+     * Lower bound of the default pool size, so small machines still serve a few desks at once.
+     */
+    static final int MIN_DEFAULT_POOL_SIZE = 4;
+
+    /**
+     * Prefix of the settings passed to HikariCP, with the prefix removed.
+     */
+    static final String HIKARI_PREFIX = "hibernate.hikari.";
+
+    /**
+     * Setting that turns the slow-query log on or off.
+     */
+    public static final String SLOW_QUERY_ENABLED = "library.slow-query.enabled";
+
+    /**
+     * Setting holding the execution time, in milliseconds, from which statements are logged.
+     */
+    public static final String SLOW_QUERY_THRESHOLD = "library.slow-query.threshold-ms";
+
+    /**
+     * Setting holding the share of logged statements whose bind values are logged too.
+     */
+    public static final String SLOW_QUERY_BIND_SAMPLE_RATE = "library.slow-query.bind-sample-rate";
+
+    static final long DEFAULT_SLOW_QUERY_THRESHOLD_MS = 200;
+    static final double DEFAULT_BIND_SAMPLE_RATE = 0.1;
+
+    private final PoolMetrics metrics = new PoolMetrics();
+    private HikariDataSource dataSource;
+    private SlowQueryLog slowQueries;
+
+    /**
+     * Gets the pool metrics of a persistence unit.
+     *
+     * @param emf the {@link EntityManagerFactory} of the persistence unit
+     * @return the {@link PoolMetrics} of its connection pool
+     * @throws IllegalStateException if the persistence unit does not use this connection provider
+     */
+    public static PoolMetrics metrics(EntityManagerFactory emf) {
+        return of(emf).metrics;
+    }
+
+    /**
+     * Gets the slow-query log of a persistence unit.
+     *
+     * @param emf the {@link EntityManagerFactory} of the persistence unit
+     * @return the {@link SlowQueryLog} of its connections, or {@code null} if it is turned off
+     * @throws IllegalStateException if the persistence unit does not use this connection provider
+     */
+    public static SlowQueryLog slowQueries(EntityManagerFactory emf) {
+        return of(emf).slowQueries;
+    }
+
+    private static PooledConnectionProvider of(EntityManagerFactory emf) {
+        ConnectionProvider provider = emf.unwrap(SessionFactoryImplementor.class)
+                .getServiceRegistry()
+                .getService(ConnectionProvider.class);
+        if (!provider.isUnwrappableAs(PooledConnectionProvider.class)) {
+            throw new IllegalStateException("Persistence unit does not use a pooled connection provider");
+        }
+        return provider.unwrap(PooledConnectionProvider.class);
+    }
+
+    /**
+     * Starts the pool.
+     *
+     * @param settings the persistence unit settings
+     */
+    @Override
+    @SuppressWarnings({"rawtypes", "unchecked"})
+    public void configure(Map settings) {
+        HikariConfig config = hikariConfig(settings);
+        if (config.getMaximumPoolSize() < 1) {
+            config.setMaximumPoolSize(Math.max(MIN_DEFAULT_POOL_SIZE, Runtime.getRuntime().availableProcessors() * 2));
+        }
+        config.setMetricsTrackerFactory(metrics);
+        dataSource = new HikariDataSource(config);
+
+        if (!"false".equalsIgnoreCase(String.valueOf(settings.get(SLOW_QUERY_ENABLED)).trim())) {
+            slowQueries = new SlowQueryLog(
+                    number(settings, SLOW_QUERY_THRESHOLD, DEFAULT_SLOW_QUERY_THRESHOLD_MS).longValue(),
+                    number(settings, SLOW_QUERY_BIND_SAMPLE_RATE, DEFAULT_BIND_SAMPLE_RATE).doubleValue());
+        }
+    }
+
+    /**
+     * Builds the pool configuration from the {@code hibernate.hikari.*} settings, then fills in what they leave
+     * out from the {@code hibernate.connection.*} and {@code javax.persistence.jdbc.*} settings.
+     *
+     * @param settings the persistence unit settings
+     * @return the pool configuration
+     */
+    @SuppressWarnings("rawtypes")
+    static HikariConfig hikariConfig(Map settings) {
+        Properties properties = new Properties();
+        for (Object entry : settings.entrySet()) {
+            Object key = ((Map.Entry) entry).getKey();
+            Object value = ((Map.Entry) entry).getValue();
+            if (key instanceof String && ((String) key).startsWith(HIKARI_PREFIX) && value != null) {
+                properties.setProperty(((String) key).substring(HIKARI_PREFIX.length()), value.toString());
+            }
+        }
+        HikariConfig config = new HikariConfig(properties);
+
+        String url = setting(settings, AvailableSettings.URL, AvailableSettings.JPA_JDBC_URL);
+        if (config.getJdbcUrl() == null && config.getDataSourceClassName() == null && url != null) {
+            config.setJdbcUrl(url);
+        }
+        String driver = setting(settings, AvailableSettings.DRIVER, AvailableSettings.JPA_JDBC_DRIVER);
+        if (config.getDriverClassName() == null && config.getDataSourceClassName() == null && driver != null) {
+            config.setDriverClassName(driver);
+        }
+        String user = setting(settings, AvailableSettings.USER, AvailableSettings.JPA_JDBC_USER);
+        if (config.getUsername() == null && user != null) {
+            config.setUsername(user);
+        }
+        String password = setting(settings, AvailableSettings.PASS, AvailableSettings.JPA_JDBC_PASSWORD);
+        if (config.getPassword() == null && password != null) {
+            config.setPassword(password);
+        }
+        String isolation = setting(settings, AvailableSettings.ISOLATION, null);
+        if (config.getTransactionIsolation() == null && isolation != null) {
+            config.setTransactionIsolation(isolationName(isolation));
+        }
+        String autoCommit = setting(settings, AvailableSettings.AUTOCOMMIT, null);
+        if (!properties.containsKey("autoCommit") && autoCommit != null) {
+            config.setAutoCommit(Boolean.parseBoolean(autoCommit));
+        }
+        return config;
+    }
+
+    @SuppressWarnings("rawtypes")
+    private static String setting(Map settings, String name, String fallbackName) {
+        Object value = settings.get(name);
+        if ((value == null || value.toString().isBlank()) && fallbackName != null) {
+            value = settings.get(fallbackName);
+        }
+        return value == null || value.toString().isBlank() ? null : value.toString().trim();
+    }
+
+    /**
+     * Turns an isolation level given as a JDBC constant or a name, such as {@code 2} or {@code READ_COMMITTED},
+     * into the name HikariCP expects, such as {@code TRANSACTION_READ_COMMITTED}.
+     */
+    private static String isolationName(String isolation) {
+        switch (isolation) {
+            case "0":
+                return "TRANSACTION_NONE";
+            case "1":
+                return "TRANSACTION_READ_UNCOMMITTED";
+            case "2":
+                return "TRANSACTION_READ_COMMITTED";
+            case "4":
+                return "TRANSACTION_REPEATABLE_READ";
+            case "8":
+                return "TRANSACTION_SERIALIZABLE";
+            default:
+                String name = isolation.toUpperCase(Locale.ROOT);
+                return name.startsWith("TRANSACTION_") ? name : "TRANSACTION_" + name;
+        }
+    }
+
+    @SuppressWarnings("rawtypes")
+    private static Number number(Map settings, String name, Number defaultValue) {
+        Object value = settings.get(name);
+        if (value == null || value.toString().isBlank()) {
+            return defaultValue;
+        }
+        try {
+            return Double.valueOf(value.toString().trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid " + name + ": " + value, e);
+        }
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        Connection connection = dataSource.getConnection();
+        return slowQueries == null ? connection : slowQueries.wrap(connection);
+    }
+
+    @Override
+    public void closeConnection(Connection connection) throws SQLException {
+        connection.close();
+    }
+
+    @Override
+    public boolean supportsAggressiveRelease() {
+        return false;
+    }
+
+    @Override
+    @SuppressWarnings({"rawtypes", "unchecked"})
+    public boolean isUnwrappableAs(Class unwrapType) {
+        return unwrapType.isAssignableFrom(getClass()) || unwrapType.isAssignableFrom(HikariDataSource.class);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T unwrap(Class<T> unwrapType) {
+        if (unwrapType.isAssignableFrom(getClass())) {
+            return (T) this;
+        }
+        if (unwrapType.isAssignableFrom(HikariDataSource.class)) {
+            return (T) dataSource;
+        }
+        throw new UnknownUnwrapTypeException(unwrapType);
+    }
+
+    /**
+     * Closes the pool and all of its connections.
+     */
+    @Override
+    public void stop() {
+        if (dataSource != null) {
+            dataSource.close();
+        }
+    }
+}
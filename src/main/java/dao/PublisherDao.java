@@ -1,9 +1,14 @@
 package dao;
 
 import entity.Publisher;
+import monitoring.DaoMetrics;
 
 import javax.persistence.*;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 /**
  * Data Access Object (DAO) class for managing {@link Publisher} entities.
@@ -11,7 +16,14 @@ import java.util.List;
  */
 public class PublisherDao implements Dao<Publisher> {
 
+    /**
+     * Keyset pagination queries for {@link Publisher} entities.
+     */
+    private static final Keyset<Publisher> KEYSET = new Keyset<>(Publisher.class, "p", Publisher::getId)
+            .sortKey("name", "name", Publisher::getName);
+
     private final EntityManagerFactory emf;
+    private final DaoMetrics metrics;
 
     /**
      * Constructs a new {@code PublisherDao} with the specified {@link EntityManagerFactory}.
@@ -19,7 +31,18 @@ public class PublisherDao implements Dao<Publisher> {
      * @param emf the {@link EntityManagerFactory} to use for database operations.
      */
     public PublisherDao(EntityManagerFactory emf) {
+        this(emf, DaoMetrics.shared());
+    }
+
+    /**
+     * Constructs a DAO that records its calls into the given metrics instead of the shared ones.
+     *
+     * @param emf     the factory to create EntityManager instances
+     * @param metrics the metrics to record the calls into
+     */
+    public PublisherDao(EntityManagerFactory emf, DaoMetrics metrics) {
         this.emf = emf;
+        this.metrics = metrics;
     }
 
     /**
@@ -30,15 +53,21 @@ public class PublisherDao implements Dao<Publisher> {
      */
     @Override
     public Publisher create(Publisher publisher) {
-        EntityManager em = emf.createEntityManager();
-        try {
-            em.getTransaction().begin();
-            em.persist(publisher);
-            em.getTransaction().commit();
-            return publisher;
-        } finally {
-            em.close();
-        }
+        return metrics.time("Publisher", "create", () -> {
+            EntityManager em = emf.createEntityManager();
+            try {
+                em.getTransaction().begin();
+                em.persist(publisher);
+                em.getTransaction().commit();
+                AutocompleteIndex.of(emf).putPublishers(List.of(publisher));
+                return publisher;
+            } finally {
+                if (em.getTransaction().isActive()) {
+                    em.getTransaction().rollback();
+                }
+                em.close();
+            }
+        });
     }
 
     /**
@@ -49,12 +78,14 @@ public class PublisherDao implements Dao<Publisher> {
      */
     @Override
     public Publisher findById(Long id) {
-        EntityManager em = emf.createEntityManager();
-        try {
-            return em.find(Publisher.class, id);
-        } finally {
-            em.close();
-        }
+        return metrics.time("Publisher", "findById", () -> {
+            EntityManager em = emf.createEntityManager();
+            try {
+                return em.find(Publisher.class, id);
+            } finally {
+                em.close();
+            }
+        });
     }
 
     /**
@@ -64,12 +95,64 @@ public class PublisherDao implements Dao<Publisher> {
      */
     @Override
     public List<Publisher> findAll() {
-        EntityManager em = emf.createEntityManager();
-        try {
-            return em.createQuery("SELECT p FROM Publisher p", Publisher.class).getResultList();
-        } finally {
-            em.close();
-        }
+        return metrics.time("Publisher", "findAll", () -> {
+            EntityManager em = emf.createEntityManager();
+            try {
+                return QueryCache.named(em, "Publisher.findAll", Publisher.class).getResultList();
+            } finally {
+                em.close();
+            }
+        });
+    }
+
+    /**
+     * Finds the {@link Publisher} entities with the given name.
+     *
+     * @param name the exact name of the publisher.
+     * @return a {@link List} of the matching {@link Publisher} entities ordered by ID, empty if there are none.
+     */
+    public List<Publisher> findByName(String name) {
+        return metrics.time("Publisher", "findByName", () -> {
+            EntityManager em = emf.createEntityManager();
+            try {
+                return QueryCache.named(em, "Publisher.findByName", Publisher.class)
+                        .setParameter("name", name)
+                        .getResultList();
+            } finally {
+                em.close();
+            }
+        });
+    }
+
+    /**
+     * Retrieves one page of {@link Publisher} entities using keyset pagination.
+     * Supported sort keys are {@code "id"} and {@code "name"}.
+     *
+     * @param request the page to retrieve.
+     * @return the requested {@link Page} of {@link Publisher} entities.
+     */
+    @Override
+    public Page<Publisher> findPage(PageRequest request) {
+        return metrics.time("Publisher", "findPage", () -> {
+            EntityManager em = emf.createEntityManager();
+            try {
+                return KEYSET.fetch(em, request);
+            } finally {
+                em.close();
+            }
+        });
+    }
+
+    /**
+     * Streams all {@link Publisher} entities from the database in ID order through a forward-only cursor.
+     * The returned stream must be closed to release its database connection.
+     *
+     * @return a {@link Stream} over all {@link Publisher} entities.
+     */
+    @Override
+    public Stream<Publisher> streamAll() {
+        return metrics.time("Publisher", "streamAll",
+                () -> Streams.scroll(emf, "SELECT p FROM Publisher p ORDER BY p.id", Publisher.class, Map.of()));
     }
 
     /**
@@ -80,15 +163,41 @@ public class PublisherDao implements Dao<Publisher> {
      */
     @Override
     public Publisher update(Publisher publisher) {
-        EntityManager em = emf.createEntityManager();
-        try {
-            em.getTransaction().begin();
-            Publisher merged = em.merge(publisher);
-            em.getTransaction().commit();
-            return merged;
-        } finally {
-            em.close();
-        }
+        return metrics.time("Publisher", "update", () -> {
+            EntityManager em = emf.createEntityManager();
+            try {
+                em.getTransaction().begin();
+                Publisher merged = em.merge(publisher);
+                em.getTransaction().commit();
+                AutocompleteIndex.of(emf).putPublishers(List.of(merged));
+                return merged;
+            } finally {
+                if (em.getTransaction().isActive()) {
+                    em.getTransaction().rollback();
+                }
+                em.close();
+            }
+        });
+    }
+
+    /**
+     * Updates a {@link Publisher} entity by re-reading it and applying changes to its current state,
+     * retrying after concurrent updates as described in {@link Dao#update(Long, Consumer)}.
+     *
+     * @param id      the ID of the {@link Publisher} to update.
+     * @param changes the changes to apply to the {@link Publisher}.
+     * @return the updated {@link Publisher} entity, or {@code null} if no entity is found.
+     */
+    @Override
+    public Publisher update(Long id, Consumer<Publisher> changes) {
+        return metrics.time("Publisher", "updateById", () -> {
+            Publisher updated = OptimisticRetry.DEFAULT.execute(
+                    () -> Transactions.modify(emf, Publisher.class, id, changes));
+            if (updated != null) {
+                AutocompleteIndex.of(emf).putPublishers(List.of(updated));
+            }
+            return updated;
+        });
     }
 
     /**
@@ -100,25 +209,88 @@ public class PublisherDao implements Dao<Publisher> {
      */
     @Override
     public void delete(Long publisherId) {
-        EntityManager em = emf.createEntityManager();
-        try {
-            em.getTransaction().begin();
-            Publisher publisher = em.find(Publisher.class, publisherId);
-            if (publisher != null) {
-                // Check if any Book references this Publisher
-                long countBooks = em.createQuery(
-                                "SELECT COUNT(b) FROM Book b WHERE b.publisherEntity.id = :pubId", Long.class)
-                        .setParameter("pubId", publisherId)
-                        .getSingleResult();
-
-                if (countBooks > 0) {
-                    throw new IllegalStateException("Cannot delete a Publisher that still has Books");
+        metrics.run("Publisher", "delete", () -> {
+            EntityManager em = emf.createEntityManager();
+            try {
+                em.getTransaction().begin();
+                remove(em, publisherId);
+                em.getTransaction().commit();
+                AutocompleteIndex.of(emf).removePublishers(List.of(publisherId));
+            } finally {
+                if (em.getTransaction().isActive()) {
+                    em.getTransaction().rollback();
                 }
-                em.remove(publisher);
+                em.close();
+            }
+        });
+    }
+
+    /**
+     * Persists several new {@link Publisher} entities in a single batched transaction.
+     *
+     * @param publishers the {@link Publisher} entities to be created.
+     * @return the persisted {@link Publisher} entities with auto-generated IDs.
+     */
+    @Override
+    public List<Publisher> createAll(Collection<Publisher> publishers) {
+        return metrics.time("Publisher", "createAll", () -> {
+            List<Publisher> created = Batches.apply(emf, publishers, (em, publisher) -> {
+                em.persist(publisher);
+                return publisher;
+            });
+            AutocompleteIndex.of(emf).putPublishers(created);
+            return created;
+        });
+    }
+
+    /**
+     * Updates several existing {@link Publisher} entities in a single batched transaction.
+     *
+     * @param publishers the {@link Publisher} entities with updated values.
+     * @return the updated {@link Publisher} entities.
+     */
+    @Override
+    public List<Publisher> updateAll(Collection<Publisher> publishers) {
+        return metrics.time("Publisher", "updateAll", () -> {
+            List<Publisher> updated = Batches.apply(emf, publishers, EntityManager::merge);
+            AutocompleteIndex.of(emf).putPublishers(updated);
+            return updated;
+        });
+    }
+
+    /**
+     * Deletes several {@link Publisher} entities by their IDs in a single batched transaction,
+     * applying the same rules as {@link #delete(Long)} to each of them.
+     *
+     * @param ids the IDs of the {@link Publisher} entities to delete.
+     */
+    @Override
+    public void deleteAll(Collection<Long> ids) {
+        metrics.run("Publisher", "deleteAll", () -> {
+            Batches.run(emf, ids, this::remove);
+            AutocompleteIndex.of(emf).removePublishers(ids);
+        });
+    }
+
+    /**
+     * Removes a {@link Publisher} entity within the caller's transaction.
+     *
+     * @param em the {@link EntityManager} of the current transaction.
+     * @param publisherId the ID of the {@link Publisher} to remove.
+     */
+    private void remove(EntityManager em, Long publisherId) {
+        Publisher publisher = em.find(Publisher.class, publisherId);
+        if (publisher != null) {
+            // Check if any Book references this Publisher
+            long countBooks = em.createQuery(
+                            "SELECT COUNT(b) FROM Book b WHERE b.publisherEntity.id = :pubId", Long.class)
+                    .setParameter("pubId", publisherId)
+                    .getSingleResult();
+
+            if (countBooks > 0) {
+                throw new IllegalStateException("Cannot delete a Publisher that still has Books");
             }
-            em.getTransaction().commit();
-        } finally {
-            em.close();
+            em.remove(publisher);
         }
     }
 
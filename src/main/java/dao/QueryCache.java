@@ -0,0 +1,89 @@
+package dao;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.TypedQuery;
+import java.util.Map;
+
+/**
+ * Creates queries whose results may be kept in Hibernate's query cache.
+ * Whether a query is cached is decided per query name, so the effect of caching can be measured query by query:
+ * <ul>
+ *     <li>{@code library.query-cache.<query name>}, for example {@code library.query-cache.Book.findAll},</li>
+ *     <li>otherwise {@code library.query-cache.default}.</li>
+ * </ul>
+ * Each setting is read from the system properties first, then from the persistence unit properties.
+ * Queries are not cached if neither is set.
+ * <p>
+ * Cached results are invalidated by table: any write through Hibernate to a table a query reads from
+ * makes its cached results stale, so a DAO write is visible to the next cached read.
+ */
+final class QueryCache {
+
+    /**
+     * Prefix of the properties that switch caching on or off.
+     */
+    static final String PROPERTY_PREFIX = "library.query-cache.";
+
+    private QueryCache() { }
+
+    /**
+     * Creates a named query, marked as cacheable if caching is enabled for its name.
+     *
+     * @param em   the {@link EntityManager} to create the query with
+     * @param name the name of the query, as declared by {@link javax.persistence.NamedQuery}
+     * @param type the result type
+     * @param <T>  the result type
+     * @return the query
+     */
+    static <T> TypedQuery<T> named(EntityManager em, String name, Class<T> type) {
+        return apply(em, name, em.createNamedQuery(name, type));
+    }
+
+    /**
+     * Creates a query from JPQL, marked as cacheable if caching is enabled for the given name.
+     * Used for queries that are built in code and therefore cannot be declared as named queries.
+     *
+     * @param em   the {@link EntityManager} to create the query with
+     * @param name the name under which caching is configured for this query
+     * @param jpql the query
+     * @param type the result type
+     * @param <T>  the result type
+     * @return the query
+     */
+    static <T> TypedQuery<T> create(EntityManager em, String name, String jpql, Class<T> type) {
+        return apply(em, name, em.createQuery(jpql, type));
+    }
+
+    /**
+     * Checks whether caching is enabled for a query.
+     *
+     * @param emf  the {@link EntityManagerFactory} whose properties to consult
+     * @param name the name of the query
+     * @return {@code true} if results of the query are cached
+     */
+    static boolean isEnabled(EntityManagerFactory emf, String name) {
+        Map<String, Object> properties = emf.getProperties();
+        String value = lookup(properties, PROPERTY_PREFIX + name);
+        if (value == null) {
+            value = lookup(properties, PROPERTY_PREFIX + "default");
+        }
+        return Boolean.parseBoolean(value);
+    }
+
+    private static <T> TypedQuery<T> apply(EntityManager em, String name, TypedQuery<T> query) {
+        if (isEnabled(em.getEntityManagerFactory(), name)) {
+            query.setHint("org.hibernate.cacheable", true);
+        }
+        return query;
+    }
+
+    private static String lookup(Map<String, Object> properties, String key) {
+        String value = System.getProperty(key);
+        if (value == null) {
+            Object configured = properties.get(key);
+            value = configured == null ? null : configured.toString().trim();
+        }
+        return value;
+    }
+}
@@ -0,0 +1,103 @@
+package dao;
+
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
+import org.hibernate.Session;
+import org.hibernate.query.Query;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Turns JPQL queries into lazily evaluated {@link Stream}s backed by a forward-only database cursor.
+ * Rows are read in batches of {@link #FETCH_SIZE}, and the persistence context is cleared every
+ * {@link #CLEAR_INTERVAL} rows, so memory use stays flat however many rows the query returns.
+ */
+final class Streams {
+
+    /**
+     * Number of rows the JDBC driver is asked to fetch per round trip.
+     */
+    static final int FETCH_SIZE = 500;
+
+    /**
+     * Number of rows after which the persistence context is cleared.
+     */
+    static final int CLEAR_INTERVAL = 500;
+
+    private Streams() { }
+
+    /**
+     * Opens a stream over the results of a query. The stream owns its own {@link EntityManager}
+     * and must be closed, e.g. with try-with-resources, to release the cursor and the connection.
+     * Entities are detached once the stream has moved {@link #CLEAR_INTERVAL} rows past them.
+     *
+     * @param emf        the {@link EntityManagerFactory} to open the {@link EntityManager} with
+     * @param jpql       the query to run
+     * @param type       the result type, {@code Object[]} for queries selecting several values
+     * @param parameters the named parameters of the query
+     * @param <T>        the result type
+     * @return a sequential, ordered {@link Stream} of the query results
+     */
+    static <T> Stream<T> scroll(EntityManagerFactory emf, String jpql, Class<T> type, Map<String, Object> parameters) {
+        EntityManager em = emf.createEntityManager();
+        try {
+            Session session = em.unwrap(Session.class);
+            Query<T> query = session.createQuery(jpql, type);
+            parameters.forEach(query::setParameter);
+            query.setFetchSize(FETCH_SIZE);
+            query.setReadOnly(true);
+            ScrollableResults results = query.scroll(ScrollMode.FORWARD_ONLY);
+
+            Iterator<T> iterator = new Iterator<T>() {
+                private boolean advanced;
+                private boolean hasRow;
+                private long rows;
+
+                @Override
+                public boolean hasNext() {
+                    if (!advanced) {
+                        if (rows > 0 && rows % CLEAR_INTERVAL == 0) {
+                            session.clear();
+                        }
+                        hasRow = results.next();
+                        advanced = true;
+                    }
+                    return hasRow;
+                }
+
+                @Override
+                @SuppressWarnings("unchecked")
+                public T next() {
+                    if (!hasNext()) {
+                        throw new NoSuchElementException();
+                    }
+                    advanced = false;
+                    rows++;
+                    // A query selecting several values yields its whole row
+                    return (T) (type == Object[].class ? results.get() : results.get(0));
+                }
+            };
+
+            return StreamSupport.stream(
+                    Spliterators.spliteratorUnknownSize(iterator, Spliterator.ORDERED | Spliterator.NONNULL), false)
+                    .onClose(() -> {
+                        try {
+                            results.close();
+                        } finally {
+                            em.close();
+                        }
+                    });
+        } catch (RuntimeException e) {
+            em.close();
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package dao;
+
+import javax.persistence.CacheRetrieveMode;
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.EntityTransaction;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Single-entity write transactions shared by the DAOs.
+ */
+final class Transactions {
+
+    /**
+     * Reads from the database even if the second-level cache holds the entity. A nonstrict cache region may
+     * hold an older version than the committed one, and every retry would then fail the version check again.
+     */
+    private static final Map<String, Object> BYPASS_CACHE =
+            Map.of("javax.persistence.cache.retrieveMode", CacheRetrieveMode.BYPASS);
+
+    private Transactions() { }
+
+    /**
+     * Reads an entity in a new transaction, applies changes to it and commits.
+     * Because the entity is read fresh from the database, bypassing the second-level cache, the changes are applied on top of the latest committed version,
+     * and the version check at commit only fails if another transaction commits in between.
+     *
+     * @param emf     the {@link EntityManagerFactory} to open the {@link EntityManager} with
+     * @param type    the entity class
+     * @param id      the ID of the entity to change
+     * @param changes the changes to apply
+     * @param <T>     the entity type
+     * @return the updated entity, or {@code null} if no entity with the given ID exists
+     */
+    static <T> T modify(EntityManagerFactory emf, Class<T> type, Long id, Consumer<T> changes) {
+        EntityManager em = emf.createEntityManager();
+        EntityTransaction tx = em.getTransaction();
+        try {
+            tx.begin();
+            T entity = em.find(type, id, BYPASS_CACHE);
+            if (entity != null) {
+                changes.accept(entity);
+            }
+            tx.commit();
+            return entity;
+        } finally {
+            if (tx.isActive()) {
+                tx.rollback();
+            }
+            em.close();
+        }
+    }
+}
@@ -1,9 +1,14 @@
 package dao;
 
 import entity.User;
+import monitoring.DaoMetrics;
 
 import javax.persistence.*;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 /**
  * Data Access Object (DAO) for managing {@link User} entities.
@@ -12,7 +17,15 @@ import java.util.List;
  */
 public class UserDao implements Dao<User> {
 
+    /**
+     * Keyset pagination queries for {@link User} entities.
+     */
+    private static final Keyset<User> KEYSET = new Keyset<>(User.class, "u", User::getId)
+            .sortKey("name", "name", User::getName)
+            .sortKey("email", "email", User::getEmail);
+
     private final EntityManagerFactory emf;
+    private final DaoMetrics metrics;
 
     /**
      * Constructs a new UserDao with the provided EntityManagerFactory.
@@ -20,7 +33,18 @@ public class UserDao implements Dao<User> {
      * @param emf the factory to create EntityManager instances
      */
     public UserDao(EntityManagerFactory emf) {
+        this(emf, DaoMetrics.shared());
+    }
+
+    /**
+     * Constructs a DAO that records its calls into the given metrics instead of the shared ones.
+     *
+     * @param emf     the factory to create EntityManager instances
+     * @param metrics the metrics to record the calls into
+     */
+    public UserDao(EntityManagerFactory emf, DaoMetrics metrics) {
         this.emf = emf;
+        this.metrics = metrics;
     }
 
     /**
@@ -31,15 +55,20 @@ public class UserDao implements Dao<User> {
      */
     @Override
     public User create(User user) {
-        EntityManager em = emf.createEntityManager();
-        try {
-            em.getTransaction().begin();
-            em.persist(user); // ID will be auto-generated
-            em.getTransaction().commit();
-            return user;
-        } finally {
-            em.close();
-        }
+        return metrics.time("User", "create", () -> {
+            EntityManager em = emf.createEntityManager();
+            try {
+                em.getTransaction().begin();
+                em.persist(user); // ID will be auto-generated
+                em.getTransaction().commit();
+                return user;
+            } finally {
+                if (em.getTransaction().isActive()) {
+                    em.getTransaction().rollback();
+                }
+                em.close();
+            }
+        });
     }
 
     /**
@@ -50,12 +79,100 @@ public class UserDao implements Dao<User> {
      */
     @Override
     public User findById(Long id) {
-        EntityManager em = emf.createEntityManager();
-        try {
-            return em.find(User.class, id);
-        } finally {
-            em.close();
-        }
+        return metrics.time("User", "findById", () -> {
+            EntityManager em = emf.createEntityManager();
+            try {
+                return em.find(User.class, id);
+            } finally {
+                em.close();
+            }
+        });
+    }
+
+    /**
+     * Finds a {@link User} entity by its email address, using the unique index on the email column.
+     * Recently found addresses are mapped to their user IDs, so repeated lookups read the user by ID.
+     *
+     * @param email the email address of the User to find; surrounding spaces are ignored
+     * @return the User entity, or {@code null} if not found
+     */
+    public User findByEmail(String email) {
+        return metrics.time("User", "findByEmail", () -> {
+            if (email == null || email.isBlank()) {
+                return null;
+            }
+            String address = email.trim();
+            EntityManager em = emf.createEntityManager();
+            try {
+                return NaturalKeyCache.of(emf, "User.email", User.class, User::getId).find(em, address,
+                        user -> address.equals(user.getEmail()),
+                        manager -> {
+                            List<User> users = manager.createNamedQuery("User.findByEmail", User.class)
+                                    .setParameter("email", address)
+                                    .getResultList();
+                            return users.isEmpty() ? null : users.get(0);
+                        });
+            } finally {
+                em.close();
+            }
+        });
+    }
+
+    /**
+     * Finds a {@link User} entity by its ID together with all of its borrowings,
+     * using the {@code User.borrowings} entity graph.
+     * Prefer {@link #countActiveBorrowings(Long)} or {@link #hasBorrowings(Long)} when only a count is needed.
+     *
+     * @param id the ID of the User to find
+     * @return the User entity with its borrowings loaded, or {@code null} if not found
+     */
+    public User findByIdWithBorrowings(Long id) {
+        return metrics.time("User", "findByIdWithBorrowings", () -> {
+            EntityManager em = emf.createEntityManager();
+            try {
+                Map<String, Object> hints = Map.of("javax.persistence.loadgraph", em.getEntityGraph("User.borrowings"));
+                return em.find(User.class, id, hints);
+            } finally {
+                em.close();
+            }
+        });
+    }
+
+    /**
+     * Counts the borrowings of a {@link User} that have not been returned yet.
+     *
+     * @param userId the ID of the User
+     * @return the number of active borrowings
+     */
+    public long countActiveBorrowings(Long userId) {
+        return metrics.time("User", "countActiveBorrowings", () -> {
+            EntityManager em = emf.createEntityManager();
+            try {
+                return em.createQuery(
+                                "SELECT COUNT(b) FROM Borrowing b WHERE b.user.id = :userId AND b.returnDate IS NULL", Long.class)
+                        .setParameter("userId", userId)
+                        .getSingleResult();
+            } finally {
+                em.close();
+            }
+        });
+    }
+
+    /**
+     * Checks whether a {@link User} has any borrowings, returned or not.
+     *
+     * @param userId the ID of the User
+     * @return {@code true} if at least one borrowing references the User
+     */
+    public boolean hasBorrowings(Long userId) {
+        return metrics.time("User", "hasBorrowings", () -> {
+            EntityManager em = emf.createEntityManager();
+            try {
+                return hasBorrowings(em, userId);
+            } finally {
+                em.close();
+            }
+        });
     }
 
     /**
@@ -65,12 +182,45 @@ public class UserDao implements Dao<User> {
      */
     @Override
     public List<User> findAll() {
-        EntityManager em = emf.createEntityManager();
-        try {
-            return em.createQuery("SELECT u FROM User u", User.class).getResultList();
-        } finally {
-            em.close();
-        }
+        return metrics.time("User", "findAll", () -> {
+            EntityManager em = emf.createEntityManager();
+            try {
+                return em.createQuery("SELECT u FROM User u", User.class).getResultList();
+            } finally {
+                em.close();
+            }
+        });
+    }
+
+    /**
+     * Retrieves one page of {@link User} entities using keyset pagination.
+     * Supported sort keys are {@code "id"}, {@code "name"} and {@code "email"}.
+     *
+     * @param request the page to retrieve.
+     * @return the requested {@link Page} of {@link User} entities.
+     */
+    @Override
+    public Page<User> findPage(PageRequest request) {
+        return metrics.time("User", "findPage", () -> {
+            EntityManager em = emf.createEntityManager();
+            try {
+                return KEYSET.fetch(em, request);
+            } finally {
+                em.close();
+            }
+        });
+    }
+
+    /**
+     * Streams all {@link User} entities from the database in ID order through a forward-only cursor.
+     * The returned stream must be closed to release its database connection.
+     *
+     * @return a {@link Stream} over all {@link User} entities.
+     */
+    @Override
+    public Stream<User> streamAll() {
+        return metrics.time("User", "streamAll",
+                () -> Streams.scroll(emf, "SELECT u FROM User u ORDER BY u.id", User.class, Map.of()));
     }
 
     /**
@@ -81,15 +231,34 @@ public class UserDao implements Dao<User> {
      */
     @Override
     public User update(User user) {
-        EntityManager em = emf.createEntityManager();
-        try {
-            em.getTransaction().begin();
-            User merged = em.merge(user);
-            em.getTransaction().commit();
-            return merged;
-        } finally {
-            em.close();
-        }
+        return metrics.time("User", "update", () -> {
+            EntityManager em = emf.createEntityManager();
+            try {
+                em.getTransaction().begin();
+                User merged = em.merge(user);
+                em.getTransaction().commit();
+                return merged;
+            } finally {
+                if (em.getTransaction().isActive()) {
+                    em.getTransaction().rollback();
+                }
+                em.close();
+            }
+        });
+    }
+
+    /**
+     * Updates a {@link User} entity by re-reading it and applying changes to its current state,
+     * retrying after concurrent updates as described in {@link Dao#update(Long, Consumer)}.
+     *
+     * @param id      the ID of the {@link User} to update.
+     * @param changes the changes to apply to the {@link User}.
+     * @return the updated {@link User} entity, or {@code null} if no entity is found.
+     */
+    @Override
+    public User update(Long id, Consumer<User> changes) {
+        return metrics.time("User", "updateById",
+                () -> OptimisticRetry.DEFAULT.execute(() -> Transactions.modify(emf, User.class, id, changes)));
     }
 
     /**
@@ -101,19 +270,87 @@ public class UserDao implements Dao<User> {
      */
     @Override
     public void delete(Long userId) {
-        EntityManager em = emf.createEntityManager();
-        try {
-            em.getTransaction().begin();
-            User user = em.find(User.class, userId);
-            if (user != null) {
-                if (!user.getBorrowings().isEmpty()) {
-                    throw new IllegalStateException("Cannot delete User with existing Borrowings");
+        metrics.run("User", "delete", () -> {
+            EntityManager em = emf.createEntityManager();
+            try {
+                em.getTransaction().begin();
+                remove(em, userId);
+                em.getTransaction().commit();
+            } finally {
+                if (em.getTransaction().isActive()) {
+                    em.getTransaction().rollback();
                 }
-                em.remove(user);
+                em.close();
+            }
+        });
+    }
+
+    /**
+     * Persists several new {@link User} entities in a single batched transaction.
+     *
+     * @param users the {@link User} entities to be created.
+     * @return the persisted {@link User} entities with auto-generated IDs.
+     */
+    @Override
+    public List<User> createAll(Collection<User> users) {
+        return metrics.time("User", "createAll", () -> {
+            return Batches.apply(emf, users, (em, user) -> {
+                em.persist(user);
+                return user;
+            });
+        });
+    }
+
+    /**
+     * Updates several existing {@link User} entities in a single batched transaction.
+     *
+     * @param users the {@link User} entities with updated values.
+     * @return the updated {@link User} entities.
+     */
+    @Override
+    public List<User> updateAll(Collection<User> users) {
+        return metrics.time("User", "updateAll", () -> Batches.apply(emf, users, EntityManager::merge));
+    }
+
+    /**
+     * Deletes several {@link User} entities by their IDs in a single batched transaction,
+     * applying the same rules as {@link #delete(Long)} to each of them.
+     *
+     * @param ids the IDs of the {@link User} entities to delete.
+     */
+    @Override
+    public void deleteAll(Collection<Long> ids) {
+        metrics.run("User", "deleteAll", () -> Batches.run(emf, ids, this::remove));
+    }
+
+    /**
+     * Removes a {@link User} entity within the caller's transaction.
+     *
+     * @param em the {@link EntityManager} of the current transaction.
+     * @param userId the ID of the {@link User} to remove.
+     */
+    private void remove(EntityManager em, Long userId) {
+        User user = em.find(User.class, userId);
+        if (user != null) {
+            if (hasBorrowings(em, userId)) {
+                throw new IllegalStateException("Cannot delete User with existing Borrowings");
             }
-            em.getTransaction().commit();
-        } finally {
-            em.close();
+            em.remove(user);
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Checks for a borrowing of the {@link User} with an index probe that stops at the first match.
+     *
+     * @param em     the {@link EntityManager} to query with
+     * @param userId the ID of the User
+     * @return {@code true} if at least one borrowing references the User
+     */
+    private boolean hasBorrowings(EntityManager em, Long userId) {
+        return !em.createQuery("SELECT b.id FROM Borrowing b WHERE b.user.id = :userId", Long.class)
+                .setParameter("userId", userId)
+                .setMaxResults(1)
+                .getResultList()
+                .isEmpty();
+    }
+}
@@ -1,5 +1,7 @@
 package entity;
 
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+
 import javax.persistence.*;
 import java.util.ArrayList;
 import java.util.List;
@@ -7,18 +9,39 @@ import java.util.List;
 /**
  * Represents a book in the library.
  * A book can have multiple copies and may be associated with a publisher.
+ * Books are read far more often than they change, so they are kept in the second-level cache
+ * in the read-mostly {@code books} region.
  */
 @Entity
-@Table(name = "Books")
+@Cacheable
+@org.hibernate.annotations.Cache(usage = CacheConcurrencyStrategy.NONSTRICT_READ_WRITE, region = "books")
+@NamedEntityGraph(name = "Book.copies", attributeNodes = @NamedAttributeNode("copies"))
+@NamedQueries({
+        @NamedQuery(name = "Book.findAll", query = "SELECT b FROM Book b LEFT JOIN FETCH b.publisherEntity"),
+        @NamedQuery(name = "Book.findByIsbn",
+                query = "SELECT b FROM Book b LEFT JOIN FETCH b.publisherEntity WHERE b.isbn = :isbn")
+})
+@Table(name = "Books", indexes = {
+        @Index(name = "idx_books_title", columnList = "title"),
+        @Index(name = "idx_books_author", columnList = "author")
+})
 public class Book {
 
     /**
      * Unique identifier for the Book.
-     * Auto-generated by the database.
+     * Drawn from the {@code Books_SEQ} sequence in blocks of 50, so inserts can be JDBC-batched.
      */
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "book_seq")
+    @SequenceGenerator(name = "book_seq", sequenceName = "Books_SEQ", allocationSize = 50)
     @Id
     private Long id;
+
+    /**
+     * Version number used for optimistic locking.
+     * Incremented on every update, so an update based on a stale read fails instead of overwriting newer changes.
+     */
+    @Version
+    private Long version;
     /**
      * Represents title of the Book.
      */
@@ -50,12 +73,15 @@ public class Book {
      * - **Mapped By**: The `book` field in the `Copy` entity specifies the owning side of the relationship.
      * - **Cascade**: All persistence operations (e.g., persist, merge, remove) are cascaded to the associated `Copy` entities.
      * - **Orphan Removal**: Any `Copy` entity removed from this list will also be deleted from the database.
-     * - **Fetch Type**: EAGER, meaning all copies are loaded immediately when the `Book` entity is fetched.
+     * - **Fetch Type**: LAZY, copies are only loaded when the list is accessed or when the book is fetched
+     *   with the `Book.copies` entity graph. Copy counts should come from an aggregate query instead.
+     * - **Cache**: The IDs of the copies are cached in the `book-copies` region; the copies themselves in `copies`.
      */
+    @org.hibernate.annotations.Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "book-copies")
     @OneToMany(mappedBy = "book",
                cascade = CascadeType.ALL,
                orphanRemoval = true,
-               fetch = FetchType.EAGER)
+               fetch = FetchType.LAZY)
     private List<Copy> copies = new ArrayList<>();
 
     /**
@@ -215,6 +241,15 @@ public class Book {
         return id;
     }
 
+    /**
+     * Gets the version number of the book, used for optimistic locking.
+     *
+     * @return the version number, or {@code null} if the book has not been persisted yet
+     */
+    public Long getVersion() {
+        return version;
+    }
+
     /**
      * Gets the title of the book.
      *
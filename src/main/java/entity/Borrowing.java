@@ -12,17 +12,29 @@ import java.time.LocalDate;
  * Can be null if the book has not been returned yet.
  */
 @Entity
-@Table(name = "Borrowings")
+@Table(name = "Borrowings", indexes = {
+        @Index(name = "idx_borrowings_borrow_date", columnList = "borrowDate"),
+        @Index(name = "idx_borrowings_user_return", columnList = "user_id, returnDate"),
+        @Index(name = "idx_borrowings_user_borrow_date", columnList = "user_id, borrowDate")
+})
 public class Borrowing {
 
     /**
      * Unique identifier for the Borrowing.
-     * Auto-generated by the database.
+     * Drawn from the {@code Borrowings_SEQ} sequence in blocks of 50, so inserts can be JDBC-batched.
      */
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "borrowing_seq")
+    @SequenceGenerator(name = "borrowing_seq", sequenceName = "Borrowings_SEQ", allocationSize = 50)
     @Id
     private Long id;
 
+    /**
+     * Version number used for optimistic locking.
+     * Incremented on every update, so an update based on a stale read fails instead of overwriting newer changes.
+     */
+    @Version
+    private Long version;
+
     /**
      * The user who borrowed the book.
      * Many borrowings can reference one user.
@@ -124,6 +136,15 @@ public class Borrowing {
         return id;
     }
 
+    /**
+     * Gets the version number of the borrowing, used for optimistic locking.
+     *
+     * @return the version number, or {@code null} if the borrowing has not been persisted yet
+     */
+    public Long getVersion() {
+        return version;
+    }
+
     /**
      * Gets the user who borrowed the book.
      *
@@ -1,28 +1,45 @@
 package entity;
 
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+
 import javax.persistence.*;
 
 /**
  * Represents a physical copy of a book in the library.
  * Each copy is associated with a specific book and has unique properties such as copy number and status.
+ * Copies are kept in the {@code copies} second-level cache region. Their status changes on every
+ * checkout and checkin, so the region is read-write: cached entries are locked while an update is in flight.
  */
 @Entity
-@Table(name = "Copies")
+@Cacheable
+@org.hibernate.annotations.Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "copies")
+@NamedQuery(name = "Copy.findByBookAndCopyNumber",
+        query = "SELECT c FROM Copy c JOIN FETCH c.book b LEFT JOIN FETCH b.publisherEntity WHERE b.id = :bookId AND c.copyNumber = :copyNumber ORDER BY c.id")
+@Table(name = "Copies", indexes = @Index(name = "idx_copies_book_copy_number", columnList = "book_id, copyNumber"))
 public class Copy {
     /**
      * Unique identifier for the copy.
-     * Auto-generated by the database.
+     * Drawn from the {@code Copies_SEQ} sequence in blocks of 50, so inserts can be JDBC-batched.
      */
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "copy_seq")
+    @SequenceGenerator(name = "copy_seq", sequenceName = "Copies_SEQ", allocationSize = 50)
     private Long id;
 
+    /**
+     * Version number used for optimistic locking.
+     * Incremented on every update, so an update based on a stale read fails instead of overwriting newer changes.
+     */
+    @Version
+    private Long version;
+
     /**
      * The book associated with this copy.
      * Many copies can reference one book.
-     * CascadeType.REMOVE ensures that when a book is deleted, its associated copies are also removed.
+     * Removal is cascaded from {@link Book#getCopies()}, never from a copy to its book,
+     * so deleting one copy leaves the book and its other copies in place.
      */
-    @ManyToOne(cascade = CascadeType.REMOVE)
+    @ManyToOne
     @JoinColumn(name = "book_id", nullable = false)
     private Book book;
 
@@ -93,6 +110,15 @@ public class Copy {
         return id;
     }
 
+    /**
+     * Gets the version number of the copy, used for optimistic locking.
+     *
+     * @return the version number, or {@code null} if the copy has not been persisted yet
+     */
+    public Long getVersion() {
+        return version;
+    }
+
     /**
      * Gets the book associated with this copy.
      *
@@ -102,6 +128,15 @@ public class Copy {
         return book;
     }
 
+    /**
+     * Gets the number of this copy among the copies of its book.
+     *
+     * @return the copy number
+     */
+    public Integer getCopyNumber() {
+        return copyNumber;
+    }
+
     /**
      * Gets the current status of the copy.
      *
@@ -0,0 +1,76 @@
+package entity;
+
+import javax.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * Records that a version of the sample data has been loaded into the database.
+ * The loader checks the highest recorded version and loads only the versions above it,
+ * so starting the application again never inserts the same data twice.
+ */
+@Entity
+@Table(name = "DataSeeds")
+public class DataSeed {
+
+    /**
+     * The version of the sample data, also the identifier of the record.
+     */
+    @Id
+    private Integer version;
+
+    /**
+     * What this version of the sample data contains.
+     */
+    private String description;
+
+    /**
+     * When this version was loaded.
+     */
+    private LocalDateTime appliedAt;
+
+    /**
+     * Default constructor for JPA.
+     */
+    public DataSeed() { }
+
+    /**
+     * Constructs a new DataSeed record.
+     *
+     * @param version     the version of the sample data
+     * @param description what this version contains
+     * @param appliedAt   when this version was loaded
+     */
+    public DataSeed(Integer version, String description, LocalDateTime appliedAt) {
+        this.version = version;
+        this.description = description;
+        this.appliedAt = appliedAt;
+    }
+
+    //---------------------------------------------------------------------getters
+    /**
+     * Gets the version of the sample data.
+     *
+     * @return the version
+     */
+    public Integer getVersion() {
+        return version;
+    }
+
+    /**
+     * Gets the description of this version.
+     *
+     * @return the description
+     */
+    public String getDescription() {
+        return description;
+    }
+
+    /**
+     * Gets the time this version was loaded.
+     *
+     * @return the load time
+     */
+    public LocalDateTime getAppliedAt() {
+        return appliedAt;
+    }
+}
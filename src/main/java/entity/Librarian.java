@@ -1,23 +1,31 @@
 package entity;
 
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+
 import javax.persistence.*;
 import java.time.LocalDate;
 
 /**
  * Represents a librarian in the library system.
  * A Librarian is a specialized type of User, modeled as a separate table with a one-to-one relationship to the User table.
+ * Librarians rarely change, so they are kept in the {@code librarians} second-level cache region,
+ * which lets cached {@code Librarian.findAll} results be resolved without going to the database.
  */
 
 @Entity
+@Cacheable
+@org.hibernate.annotations.Cache(usage = CacheConcurrencyStrategy.NONSTRICT_READ_WRITE, region = "librarians")
+@NamedQuery(name = "Librarian.findAll", query = "SELECT l FROM Librarian l LEFT JOIN FETCH l.user")
 @Table(name = "Librarians")
 public class Librarian {
 
     /**
      * Unique identifier for the librarian.
-     * Auto-generated by the database.
+     * Drawn from the {@code Librarians_SEQ} sequence in blocks of 50, so inserts can be JDBC-batched.
      */
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "librarian_seq")
+    @SequenceGenerator(name = "librarian_seq", sequenceName = "Librarians_SEQ", allocationSize = 50)
     private Long id;
 
     /**
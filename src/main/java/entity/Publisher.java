@@ -1,21 +1,31 @@
 package entity;
 
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+
 import javax.persistence.*;
 
 /**
  * Represents a publisher entity in the library system.
  * Publishers can be associated with books as their publishing entity.
+ * Publishers rarely change, so they are kept in the read-mostly {@code publishers} second-level cache region.
  */
 @Entity
-@Table(name = "Publishers")
+@Cacheable
+@org.hibernate.annotations.Cache(usage = CacheConcurrencyStrategy.NONSTRICT_READ_WRITE, region = "publishers")
+@NamedQueries({
+        @NamedQuery(name = "Publisher.findAll", query = "SELECT p FROM Publisher p"),
+        @NamedQuery(name = "Publisher.findByName", query = "SELECT p FROM Publisher p WHERE p.name = :name ORDER BY p.id")
+})
+@Table(name = "Publishers", indexes = @Index(name = "idx_publishers_name", columnList = "name"))
 public class Publisher {
 
     /**
      * Unique identifier for the publisher.
-     * Auto-generated by the database.
+     * Drawn from the {@code Publishers_SEQ} sequence in blocks of 50, so inserts can be JDBC-batched.
      */
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "publisher_seq")
+    @SequenceGenerator(name = "publisher_seq", sequenceName = "Publishers_SEQ", allocationSize = 50)
     private Long id;
 
     /**
@@ -10,16 +10,26 @@ import java.util.List;
  * Users can borrow copies of books, which are tracked through the `Borrowing` entity.
  */
 @Entity
-@Table(name = "Users")
+@NamedEntityGraph(name = "User.borrowings", attributeNodes = @NamedAttributeNode("borrowings"))
+@NamedQuery(name = "User.findByEmail", query = "SELECT u FROM User u WHERE u.email = :email")
+@Table(name = "Users", indexes = @Index(name = "idx_users_name", columnList = "name"))
 public class User {
     /**
      * The unique identifier for the user.
-     * Generated automatically by database h2.
+     * Drawn from the {@code Users_SEQ} sequence in blocks of 50, so inserts can be JDBC-batched.
      */
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "user_seq")
+    @SequenceGenerator(name = "user_seq", sequenceName = "Users_SEQ", allocationSize = 50)
     @Id
     private Long id;
 
+    /**
+     * Version number used for optimistic locking.
+     * Incremented on every update, so an update based on a stale read fails instead of overwriting newer changes.
+     */
+    @Version
+    private Long version;
+
     /**
      * The name of the user.
      */
@@ -45,9 +55,10 @@ public class User {
      * A list of borrowings associated with this user.
      * - **Relationship**: One-to-Many with the `Borrowing` entity.
      * - **Mapped By**: The `user` field in the `Borrowing` entity.
-     * - **Fetch Type**: EAGER, meaning all borrowings will be fetched immediately when the user is loaded.
+     * - **Fetch Type**: LAZY, borrowings are only loaded when the list is accessed or when the user is fetched
+     *   with the `User.borrowings` entity graph, so loading a user does not grow with their loan history.
      */
-    @OneToMany(mappedBy = "user", fetch = FetchType.EAGER)
+    @OneToMany(mappedBy = "user", fetch = FetchType.LAZY)
     private List<Borrowing> borrowings = new ArrayList<>();
 
     /**
@@ -126,6 +137,15 @@ public class User {
         return id;
     }
 
+    /**
+     * Gets the version number of the user, used for optimistic locking.
+     *
+     * @return the version number, or {@code null} if the user has not been persisted yet
+     */
+    public Long getVersion() {
+        return version;
+    }
+
     /**
      * Gets the name of the user.
      *
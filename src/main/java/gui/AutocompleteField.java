@@ -0,0 +1,194 @@
+package gui;
+
+import javax.swing.*;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
+import java.awt.event.KeyAdapter;
+import java.awt.event.KeyEvent;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Function;
+
+/**
+ * A text field that suggests completions while the user types.
+ * Suggestions are looked up once typing pauses for {@link #DEBOUNCE_MILLIS}, on a background thread,
+ * and shown in a list below the field. Up and Down choose a suggestion, Enter or a click accepts it
+ * and fires the field's action listeners, Escape closes the list. Answers to older text are dropped.
+ */
+public class AutocompleteField extends JTextField {
+
+    /**
+     * Pause in typing, in milliseconds, after which suggestions are looked up.
+     */
+    static final int DEBOUNCE_MILLIS = 150;
+
+    private final Function<String, List<String>> suggestions;
+    private final Timer debounce;
+    private final DefaultListModel<String> listModel = new DefaultListModel<>();
+    private final JList<String> list = new JList<>(listModel);
+    private final JPopupMenu popup = new JPopupMenu();
+
+    private SwingWorker<List<String>, Void> lookup;
+    private boolean adjusting;
+
+    /**
+     * Creates an empty field.
+     *
+     * @param suggestions looks up the suggestions for the typed text; called off the event dispatch thread.
+     */
+    public AutocompleteField(Function<String, List<String>> suggestions) {
+        this.suggestions = suggestions;
+
+        debounce = new Timer(DEBOUNCE_MILLIS, e -> lookUp(getText()));
+        debounce.setRepeats(false);
+
+        list.setFocusable(false);
+        list.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+        list.addMouseListener(new MouseAdapter() {
+            @Override
+            public void mouseClicked(MouseEvent e) {
+                accept(list.locationToIndex(e.getPoint()));
+            }
+        });
+        popup.setFocusable(false);
+        popup.add(new JScrollPane(list));
+
+        getDocument().addDocumentListener(new DocumentListener() {
+            @Override
+            public void insertUpdate(DocumentEvent e) {
+                textChanged();
+            }
+
+            @Override
+            public void removeUpdate(DocumentEvent e) {
+                textChanged();
+            }
+
+            @Override
+            public void changedUpdate(DocumentEvent e) {
+                textChanged();
+            }
+        });
+
+        addKeyListener(new KeyAdapter() {
+            @Override
+            public void keyPressed(KeyEvent e) {
+                if (!popup.isVisible()) {
+                    return;
+                }
+                switch (e.getKeyCode()) {
+                    case KeyEvent.VK_DOWN:
+                        select(list.getSelectedIndex() + 1);
+                        e.consume();
+                        break;
+                    case KeyEvent.VK_UP:
+                        select(list.getSelectedIndex() - 1);
+                        e.consume();
+                        break;
+                    case KeyEvent.VK_ENTER:
+                        if (list.getSelectedIndex() >= 0) {
+                            accept(list.getSelectedIndex());
+                            e.consume();
+                        } else {
+                            hideSuggestions();
+                        }
+                        break;
+                    case KeyEvent.VK_ESCAPE:
+                        hideSuggestions();
+                        e.consume();
+                        break;
+                    default:
+                        break;
+                }
+            }
+        });
+    }
+
+    /**
+     * Restarts the pause timer after each change the user makes.
+     */
+    private void textChanged() {
+        if (!adjusting) {
+            debounce.restart();
+        }
+    }
+
+    /**
+     * Looks up suggestions for the text on a background thread, replacing any lookup still running.
+     */
+    private void lookUp(String text) {
+        if (lookup != null) {
+            lookup.cancel(false);
+        }
+        if (text.isBlank()) {
+            hideSuggestions();
+            return;
+        }
+        SwingWorker<List<String>, Void> worker = new SwingWorker<>() {
+            @Override
+            protected List<String> doInBackground() {
+                return suggestions.apply(text);
+            }
+
+            @Override
+            protected void done() {
+                // Show only the answer to the latest text
+                if (isCancelled() || lookup != this || !text.equals(getText())) {
+                    return;
+                }
+                try {
+                    show(get());
+                } catch (InterruptedException | ExecutionException e) {
+                    hideSuggestions();
+                }
+            }
+        };
+        lookup = worker;
+        worker.execute();
+    }
+
+    private void show(List<String> values) {
+        listModel.clear();
+        values.forEach(listModel::addElement);
+        if (values.isEmpty() || !isShowing()) {
+            hideSuggestions();
+            return;
+        }
+        list.setVisibleRowCount(Math.min(values.size(), 8));
+        popup.setPopupSize(getWidth(), popup.getPreferredSize().height);
+        popup.show(this, 0, getHeight());
+        requestFocusInWindow();
+    }
+
+    private void select(int index) {
+        if (index >= 0 && index < listModel.size()) {
+            list.setSelectedIndex(index);
+            list.ensureIndexIsVisible(index);
+        }
+    }
+
+    /**
+     * Puts a suggestion into the field and notifies the action listeners, as if the user had pressed Enter.
+     */
+    private void accept(int index) {
+        if (index < 0 || index >= listModel.size()) {
+            return;
+        }
+        adjusting = true;
+        try {
+            setText(listModel.get(index));
+        } finally {
+            adjusting = false;
+        }
+        hideSuggestions();
+        postActionEvent();
+    }
+
+    private void hideSuggestions() {
+        debounce.stop();
+        popup.setVisible(false);
+        list.clearSelection();
+    }
+}
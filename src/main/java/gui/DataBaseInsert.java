@@ -1,91 +1,121 @@
 package gui;
 
-import dao.*;
 import entity.*;
 
+import javax.persistence.EntityManager;
 import javax.persistence.EntityManagerFactory;
-import javax.persistence.Persistence;
+import javax.persistence.EntityTransaction;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 
 /**
  * Initializes and inserts data into the database to populate tables with sample data.
  * This class provides pre-defined values for `User`, `Publisher`, `Book`, `Copy`, `Borrowing`,
  * and `Librarian` entities to ensure that the database is not empty when started.
+ * <p>
+ * Loading is idempotent: every version of the sample data is recorded as a {@link DataSeed},
+ * a single query finds the highest loaded version, and only newer versions are loaded,
+ * each in one batched transaction together with its {@link DataSeed} record.
  */
 public class DataBaseInsert {
 
     /**
-     * Constructor that initializes the database with sample data.
+     * The newest version of the sample data.
      */
-    public DataBaseInsert() {
-        EntityManagerFactory emf = Persistence.createEntityManagerFactory("LibraryPU");
+    public static final int SEED_VERSION = 1;
 
-        UserDao userDao = new UserDao(emf);
-        BookDao bookDao = new BookDao(emf);
-        PublisherDao publisherDao = new PublisherDao(emf);
-        CopyDao copyDao = new CopyDao(emf);
-        BorrowingDao borrowingDao = new BorrowingDao(emf);
-        LibrarianDao librarianDao = new LibrarianDao(emf);
+    private DataBaseInsert() { }
 
+    /**
+     * Loads the versions of the sample data that are not in the database yet.
+     * Errors are reported on standard error and leave the database unchanged.
+     *
+     * @param emf the {@link EntityManagerFactory} of the database to fill.
+     * @return {@code true} if data was loaded, {@code false} if the database was already up to date or loading failed.
+     */
+    public static boolean seed(EntityManagerFactory emf) {
+        EntityManager em = emf.createEntityManager();
+        EntityTransaction tx = em.getTransaction();
         try {
-            // Insert Users
-            User user1 = new User("Vitalii", "s31719@pjwstk.edu.pl", "575 422 555", "Zlote Terasy");
-            User user2 = new User("Artem", "artem.gatsuta@gmail.com", "095 911 40 26", "Apollo");
-            User user3 = new User("Slava", "slava.larin@gmail.com", "050 058 04 55", "Dublin");
-            userDao.create(user1);
-            userDao.create(user2);
-            userDao.create(user3);
+            int loadedVersion = em.createQuery("SELECT COALESCE(MAX(s.version), 0) FROM DataSeed s", Integer.class)
+                    .getSingleResult();
+            if (loadedVersion >= SEED_VERSION) {
+                return false;
+            }
 
-            // Insert Publishers
-            Publisher publisher1 = new Publisher("Penguin Books", "123 Book St", "123-456-789");
-            Publisher publisher2 = new Publisher("HarperCollins", "456 Novel Ave", "987-654-321");
-            publisherDao.create(publisher1);
-            publisherDao.create(publisher2);
+            tx.begin();
+            if (loadedVersion < 1) {
+                // Record the version first: a concurrent loader fails on its primary key and rolls back
+                em.persist(new DataSeed(1, "Sample users, publishers, books, copies, borrowings and a librarian", LocalDateTime.now()));
+                em.flush();
+                insertVersion1(em);
+            }
+            tx.commit();
+            return true;
+        } catch (Exception e) {
+            e.printStackTrace();
+            System.err.println("Error while inserting initial data: " + e.getMessage());
+            return false;
+        } finally {
+            if (tx.isActive()) {
+                tx.rollback();
+            }
+            em.close();
+        }
+    }
 
-            // Insert Books and set their publishers
-            Book book1 = new Book("The Great Gatsby", "F. Scott Fitzgerald", "Penguin Books", 1925, "9780141182636");
-            Book book2 = new Book("1984", "George Orwell", "Penguin Books", 1949, "9780141036144");
-            Book book3 = new Book("To Kill a Mockingbird", "Harper Lee", "HarperCollins", 1960, "9780060935467");
+    /**
+     * Inserts the first version of the sample data within the caller's transaction.
+     * The rows are persisted together and sent to the database as JDBC batches at commit.
+     *
+     * @param em the {@link EntityManager} of the current transaction.
+     */
+    private static void insertVersion1(EntityManager em) {
+        // Insert Users
+        User user1 = new User("Vitalii", "s31719@pjwstk.edu.pl", "575 422 555", "Zlote Terasy");
+        User user2 = new User("Artem", "artem.gatsuta@gmail.com", "095 911 40 26", "Apollo");
+        User user3 = new User("Slava", "slava.larin@gmail.com", "050 058 04 55", "Dublin");
+        em.persist(user1);
+        em.persist(user2);
+        em.persist(user3);
 
-            book1.setPublisherEntity(publisher1);
-            book2.setPublisherEntity(publisher1);
-            book3.setPublisherEntity(publisher2);
+        // Insert Publishers
+        Publisher publisher1 = new Publisher("Penguin Books", "123 Book St", "123-456-789");
+        Publisher publisher2 = new Publisher("HarperCollins", "456 Novel Ave", "987-654-321");
+        em.persist(publisher1);
+        em.persist(publisher2);
 
-            bookDao.create(book1);
-            bookDao.create(book2);
-            bookDao.create(book3);
+        // Insert Books and set their publishers
+        Book book1 = new Book("The Great Gatsby", "F. Scott Fitzgerald", "Penguin Books", 1925, "9780141182636");
+        Book book2 = new Book("1984", "George Orwell", "Penguin Books", 1949, "9780141036144");
+        Book book3 = new Book("To Kill a Mockingbird", "Harper Lee", "HarperCollins", 1960, "9780060935467");
 
-            // Insert Copies for each book
-            Copy copy1 = new Copy(book1, 1, "Available");
-            Copy copy2 = new Copy(book2, 1, "Available");
-            Copy copy3 = new Copy(book3, 1, "Available");
-            Copy copy4 = new Copy(book3, 2, "Available");
-            copyDao.create(copy1);
-            copyDao.create(copy2);
-            copyDao.create(copy3);
-            copyDao.create(copy4);
+        book1.setPublisherEntity(publisher1);
+        book2.setPublisherEntity(publisher1);
+        book3.setPublisherEntity(publisher2);
 
-            // Insert Borrowings and set the borrowed status for copies
-            Borrowing borrowing1 = new Borrowing(user1, copy1, LocalDate.of(2024, 1, 1), LocalDate.of(2024, 1, 15));
-            Borrowing borrowing2 = new Borrowing(user2, copy3, LocalDate.of(2024, 1, 5), null); // Not yet returned
-            borrowingDao.create(borrowing1);
-            borrowingDao.create(borrowing2);
+        em.persist(book1);
+        em.persist(book2);
+        em.persist(book3);
 
-            // Update the copy status for borrowed copies
-            copy1.setStatus("Borrowed");
-            copy3.setStatus("Borrowed");
-            copyDao.update(copy1);
-            copyDao.update(copy3);
+        // Insert Copies for each book; the copy of the open borrowing below is out
+        Copy copy1 = new Copy(book1, 1, "Available");
+        Copy copy2 = new Copy(book2, 1, "Available");
+        Copy copy3 = new Copy(book3, 1, "Borrowed");
+        Copy copy4 = new Copy(book3, 2, "Available");
+        em.persist(copy1);
+        em.persist(copy2);
+        em.persist(copy3);
+        em.persist(copy4);
 
-            // Insert Librarians linked to existing users
-            Librarian librarian1 = new Librarian(user3, LocalDate.of(2023, 5, 10), "Senior Librarian");
-            librarianDao.create(librarian1);
+        // Insert Borrowings
+        Borrowing borrowing1 = new Borrowing(user1, copy1, LocalDate.of(2024, 1, 1), LocalDate.of(2024, 1, 15));
+        Borrowing borrowing2 = new Borrowing(user2, copy3, LocalDate.of(2024, 1, 5), null); // Not yet returned
+        em.persist(borrowing1);
+        em.persist(borrowing2);
 
-        } catch (Exception e) {
-            e.printStackTrace();
-            System.err.println("Error while inserting initial data: " + e.getMessage());
-        } finally {
-            emf.close();
-        }
+        // Insert Librarians linked to existing users
+        Librarian librarian1 = new Librarian(user3, LocalDate.of(2023, 5, 10), "Senior Librarian");
+        em.persist(librarian1);
     }
 }
@@ -0,0 +1,183 @@
+package gui;
+
+import javax.swing.table.DefaultTableModel;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.Vector;
+
+/**
+ * A table model whose rows are entities keyed by their ID, which is held in the first column.
+ * Besides filling the table as a whole, as {@link TableLoader} does, it applies the change of a single entity:
+ * {@link #put(Object[])} adds the entity's row or rewrites only the cells that changed, and {@link #remove(Long)}
+ * drops the row. Rows are found through an index by ID, so an edit touches one row instead of reloading the table.
+ * Removing a row shifts the rows after it; their positions are recomputed only when one of them is looked up,
+ * so a series of removals costs one pass over the table, and edits of rows above the first removal none.
+ * <p>
+ * Rows added with {@code addRow}, as the loader does, never override a single change: while the table is loading,
+ * a row whose entity was put or removed since the load started is skipped, because the loader may have read it
+ * before the change. Must be used on the event dispatch thread.
+ */
+final class EntityTableModel extends DefaultTableModel {
+
+    /**
+     * Position of the row of every entity shown; positions from {@link #staleFrom} on may be out of date.
+     */
+    private final Map<Long, Integer> rowsById = new HashMap<>();
+
+    /**
+     * The first row whose position in {@link #rowsById} may be out of date, or {@link Integer#MAX_VALUE} if none is.
+     */
+    private int staleFrom = Integer.MAX_VALUE;
+
+    /**
+     * IDs of the entities put or removed during the load in progress, whose loaded rows are out of date.
+     */
+    private final Set<Long> changed = new HashSet<>();
+
+    /**
+     * Constructs an empty model.
+     *
+     * @param columnNames the column names, the first being the ID column
+     */
+    EntityTableModel(String[] columnNames) {
+        super(columnNames, 0);
+    }
+
+    /**
+     * Adds the row of an entity, or updates the cells that differ if the entity is already shown.
+     *
+     * @param row the cells of the row, the entity ID first
+     */
+    void put(Object[] row) {
+        Long id = (Long) row[0];
+        changed.add(id);
+        Integer index = indexOf(id);
+        if (index == null) {
+            int added = getRowCount();
+            super.insertRow(added, convertToVector(row));
+            rowsById.put(id, added);
+            return;
+        }
+        for (int column = 1; column < row.length; column++) {
+            if (!Objects.equals(getValueAt(index, column), row[column])) {
+                setValueAt(row[column], index, column);
+            }
+        }
+    }
+
+    /**
+     * Removes the row of an entity, if it is shown.
+     *
+     * @param id the ID of the entity
+     */
+    void remove(Long id) {
+        changed.add(id);
+        Integer index = indexOf(id);
+        if (index != null) {
+            removeRow(index);
+        }
+    }
+
+    /**
+     * Gets a cell of an entity's row.
+     *
+     * @param id     the ID of the entity
+     * @param column the column of the cell
+     * @return the value of the cell, or {@code null} if the entity is not shown
+     */
+    Object get(Long id, int column) {
+        Integer index = indexOf(id);
+        return index == null ? null : getValueAt(index, column);
+    }
+
+    /**
+     * Forgets the changes made during a load, once the load has delivered its last row or was cancelled.
+     */
+    void loadFinished() {
+        changed.clear();
+    }
+
+    /**
+     * Inserts a loaded row, unless its entity is already shown or was put or removed since the load started.
+     */
+    @Override
+    @SuppressWarnings({"rawtypes", "unchecked"})
+    public void insertRow(int row, Vector rowData) {
+        Long id = rowData == null || rowData.isEmpty() ? null : (Long) rowData.get(0);
+        if (id != null && (rowsById.containsKey(id) || changed.contains(id))) {
+            return;
+        }
+        super.insertRow(row, rowData);
+        if (id != null && row == getRowCount() - 1) {
+            rowsById.put(id, row); // Appended, as the loader does, so no other row moved
+        } else {
+            reindex(row);
+        }
+    }
+
+    @Override
+    public void removeRow(int row) {
+        rowsById.remove(idAt(row));
+        super.removeRow(row);
+        staleFrom = Math.min(staleFrom, row);
+    }
+
+    @Override
+    public void setRowCount(int rowCount) {
+        super.setRowCount(rowCount);
+        if (rowsById != null) {
+            if (rowCount == 0) {
+                changed.clear(); // A new load starts, and reads every entity after the changes made so far
+            }
+            rowsById.clear();
+            reindex(0);
+        }
+    }
+
+    @Override
+    @SuppressWarnings({"rawtypes", "unchecked"})
+    public void setDataVector(Vector dataVector, Vector columnIdentifiers) {
+        super.setDataVector(dataVector, columnIdentifiers);
+        // Called by the superclass constructor, before the index exists
+        if (rowsById != null) {
+            rowsById.clear();
+            reindex(0);
+        }
+    }
+
+    /**
+     * Finds the row of an entity, first recomputing the positions that removals made out of date if it lies among them.
+     *
+     * @param id the ID of the entity
+     * @return the row, or {@code null} if the entity is not shown
+     */
+    private Integer indexOf(Long id) {
+        Integer index = rowsById.get(id);
+        if (index != null && index >= staleFrom) {
+            reindex(staleFrom);
+            index = rowsById.get(id);
+        }
+        return index;
+    }
+
+    /**
+     * Records the positions of the rows from the given one to the end, after rows were inserted or removed.
+     */
+    private void reindex(int from) {
+        int first = Math.min(from, staleFrom);
+        staleFrom = Integer.MAX_VALUE;
+        for (int row = first; row < getRowCount(); row++) {
+            Long id = idAt(row);
+            if (id != null) {
+                rowsById.put(id, row);
+            }
+        }
+    }
+
+    private Long idAt(int row) {
+        return (Long) getValueAt(row, 0);
+    }
+}
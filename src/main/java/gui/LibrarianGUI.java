@@ -5,38 +5,75 @@ import entity.Book;
 import entity.Copy;
 import entity.User;
 import entity.Borrowing;
+import service.CirculationService;
 
 import javax.persistence.EntityManagerFactory;
-import javax.persistence.Persistence;
 import javax.swing.*;
 import javax.swing.table.DefaultTableModel;
+import javax.swing.table.TableRowSorter;
 import java.awt.*;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.regex.Pattern;
+
 /**
  * A GUI-based application for librarians to manage the library system.
  * This interface provides functionalities to manage books, users, and borrowings.
  * Librarians can add, edit, delete, and view records using this system.
+ * All database work runs in the background: tables fill progressively through a {@link TableLoader},
+ * and the buttons hand their DAO calls to an {@link AsyncDao} and update the window when they complete.
+ * After an edit only the rows it changed are updated, from the entities the DAOs return, instead of reloading the tables.
  */
 public class LibrarianGUI extends JFrame {
 
+    /**
+     * Maximum number of completions suggested while typing a filter.
+     */
+    private static final int SUGGESTION_LIMIT = 10;
+
+    /**
+     * Number of rows read per query when filling the tables.
+     */
+    private static final int LOAD_PAGE_SIZE = 500;
+
+    /**
+     * Columns of the books table holding the copy counts, which a book edit leaves unchanged.
+     */
+    private static final int TOTAL_COPIES_COLUMN = 6;
+    private static final int AVAILABLE_COPIES_COLUMN = 7;
+
     private final EntityManagerFactory emf;
     private final BookDao bookDao;
     private final UserDao userDao;
     private final CopyDao copyDao;
     private final BorrowingDao borrowingDao;
-
-    private JTable booksTable;
+    private final CirculationService circulationService;
+    private final AsyncDao<Book> books;
+    private final AsyncDao<User> users;
+    private final AsyncDao<Borrowing> borrowings;
+
+    private EntityTableModel booksTableModel;
+    private EntityTableModel usersTableModel;
+    private EntityTableModel borrowingsTableModel;
+    private TableLoader booksLoader;
+    private TableLoader usersLoader;
+    private TableLoader borrowingsLoader;
 
     /**
      * Constructs the LibrarianGUI and initializes the database connection and DAOs.
      */
     public LibrarianGUI() {
-        // Initialize EntityManagerFactory and DAOs
-        emf = Persistence.createEntityManagerFactory("LibraryPU");
+        // Use the shared EntityManagerFactory
+        emf = LibraryPersistence.get();
         bookDao = new BookDao(emf);
         userDao = new UserDao(emf);
         copyDao = new CopyDao(emf);
         borrowingDao = new BorrowingDao(emf);
+        circulationService = new CirculationService(emf);
+        books = new AsyncDao<>(bookDao);
+        users = new AsyncDao<>(userDao);
+        borrowings = new AsyncDao<>(borrowingDao);
 
         // Set up the main window
         setTitle("Library Management System LIBRARIAN");
@@ -65,16 +102,17 @@ public class LibrarianGUI extends JFrame {
         JPanel panel = new JPanel(new BorderLayout());
 
         // Table model and table
-        DefaultTableModel booksTableModel = new DefaultTableModel(
-                new String[]{"ID", "Title", "Author", "ISBN", "Publisher", "Publication Year", "Total Copies", "Available Copies"}, 0
+        booksTableModel = new EntityTableModel(
+                new String[]{"ID", "Title", "Author", "ISBN", "Publisher", "Publication Year", "Total Copies", "Available Copies"}
         );
 
 
-        booksTable = new JTable(booksTableModel);
+        JTable booksTable = new JTable(booksTableModel);
         JScrollPane tableScrollPane = new JScrollPane(booksTable);
 
-        // Load data from the database
-        refreshBooksTable(booksTableModel);
+        // Load data from the database in the background
+        booksLoader = new TableLoader(booksTableModel, this, "books");
+        refreshBooksTable();
 
         // Buttons for book actions
         JPanel actionPanel = new JPanel(new FlowLayout(FlowLayout.LEFT));
@@ -86,6 +124,20 @@ public class LibrarianGUI extends JFrame {
         actionPanel.add(editBookButton);
         actionPanel.add(deleteBookButton);
 
+        // Filter the table by title, author or publisher, with suggestions while typing
+        TableRowSorter<DefaultTableModel> booksSorter = new TableRowSorter<>(booksTableModel);
+        booksTable.setRowSorter(booksSorter);
+        AutocompleteField filterField = new AutocompleteField(text -> bookDao.suggest(text, SUGGESTION_LIMIT));
+        filterField.setColumns(20);
+        filterField.addActionListener(e -> {
+            String text = filterField.getText().trim();
+            // Columns 1, 2 and 4 hold the title, author and publisher
+            booksSorter.setRowFilter(text.isEmpty() ? null
+                    : RowFilter.regexFilter("(?i)" + Pattern.quote(text), 1, 2, 4));
+        });
+        actionPanel.add(new JLabel("Filter:"));
+        actionPanel.add(filterField);
+
         // Add action listeners for book buttons
         addBookButton.addActionListener(e -> {
             String title = JOptionPane.showInputDialog(this, "Enter Book Title:");
@@ -113,23 +165,26 @@ public class LibrarianGUI extends JFrame {
                     book.setPublisher(publisher); // Set Publisher
                     book.setPublicationYear(publicationYear); // Set Publication Year
 
-                    // Save the book in the database
-                    bookDao.create(book);
-
-                    // Create and save the specified number of copies
-                    for (int i = 1; i <= numCopies; i++) {
-                        Copy copy = new Copy();
-                        copy.setBook(book); // Associate the copy with the book
-                        copy.setCopyNumber(i); // Assign a unique copy number
-                        copy.setStatus("Available"); // Default status for new copies
-                        copyDao.create(copy); // Save the copy in the database
-                    }
-
-                    refreshBooksTable(booksTableModel); // Refresh the books table to reflect changes
+                    // Save the book and its copies in the background
+                    CompletableFuture<Book> saved = books.supply(() -> {
+                        bookDao.create(book);
+
+                        // Create the specified number of copies and save them in one batch
+                        List<Copy> copies = new ArrayList<>();
+                        for (int i = 1; i <= numCopies; i++) {
+                            Copy copy = new Copy();
+                            copy.setBook(book); // Associate the copy with the book
+                            copy.setCopyNumber(i); // Assign a unique copy number
+                            copy.setStatus("Available"); // Default status for new copies
+                            copies.add(copy);
+                        }
+                        copyDao.createAll(copies); // Save the copies in the database
+                        return book;
+                    });
+                    SwingFutures.onEdt(saved, this, "Error adding book: ",
+                            created -> booksTableModel.put(bookRow(created, (long) numCopies, (long) numCopies))); // All new copies are available
                 } catch (NumberFormatException ex) {
                     JOptionPane.showMessageDialog(this, "Invalid input. Please enter valid numbers for publication year and number of copies.", "Error", JOptionPane.ERROR_MESSAGE);
-                } catch (Exception ex) {
-                    JOptionPane.showMessageDialog(this, "Error adding book: " + ex.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
                 }
             }
         });
@@ -137,20 +192,25 @@ public class LibrarianGUI extends JFrame {
         editBookButton.addActionListener(e -> {
             int selectedRow = booksTable.getSelectedRow();
             if (selectedRow >= 0) {
-                Long bookId = Long.parseLong(booksTableModel.getValueAt(selectedRow, 0).toString());
-                Book book = bookDao.findById(bookId);
-                if (book != null) {
+                Long bookId = Long.parseLong(booksTableModel.getValueAt(booksTable.convertRowIndexToModel(selectedRow), 0).toString());
+                SwingFutures.onEdt(books.findById(bookId), this, "Error editing book: ", book -> {
+                    if (book == null) {
+                        JOptionPane.showMessageDialog(this, "Book not found.");
+                        return;
+                    }
                     String newTitle = JOptionPane.showInputDialog(this, "Edit Title:", book.getTitle());
                     String newAuthor = JOptionPane.showInputDialog(this, "Edit Author:", book.getAuthor());
                     if (newTitle != null && newAuthor != null) {
-                        book.setTitle(newTitle);
-                        book.setAuthor(newAuthor);
-                        bookDao.update(book); // Update the book in the database
-                        refreshBooksTable(booksTableModel); // Refresh the table to reflect changes
+                        // Re-read and re-apply on top of concurrent edits instead of overwriting them
+                        CompletableFuture<Book> updated = books.update(bookId, current -> {
+                            current.setTitle(newTitle);
+                            current.setAuthor(newAuthor);
+                        });
+                        SwingFutures.onEdt(updated, this, "Error editing book: ", saved -> booksTableModel.put(bookRow(saved,
+                                booksTableModel.get(bookId, TOTAL_COPIES_COLUMN),
+                                booksTableModel.get(bookId, AVAILABLE_COPIES_COLUMN)))); // The copies did not change
                     }
-                } else {
-                    JOptionPane.showMessageDialog(this, "Book not found.");
-                }
+                });
             } else {
                 JOptionPane.showMessageDialog(this, "Please select a book to edit.");
             }
@@ -159,13 +219,9 @@ public class LibrarianGUI extends JFrame {
         deleteBookButton.addActionListener(e -> {
             int selectedRow = booksTable.getSelectedRow();
             if (selectedRow >= 0) {
-                Long bookId = Long.parseLong(booksTableModel.getValueAt(selectedRow, 0).toString());
-                try {
-                    bookDao.delete(bookId);
-                    refreshBooksTable(booksTableModel); // Refresh the table
-                } catch (Exception ex) {
-                    JOptionPane.showMessageDialog(this, "Error deleting book: " + ex.getMessage());
-                }
+                Long bookId = Long.parseLong(booksTableModel.getValueAt(booksTable.convertRowIndexToModel(selectedRow), 0).toString());
+                SwingFutures.onEdt(books.delete(bookId), this, "Error deleting book: ",
+                        deleted -> booksTableModel.remove(bookId));
             } else {
                 JOptionPane.showMessageDialog(this, "Please select a book to delete.");
             }
@@ -186,12 +242,13 @@ public class LibrarianGUI extends JFrame {
         JPanel panel = new JPanel(new BorderLayout());
 
         // Table model and table
-        DefaultTableModel usersTableModel = new DefaultTableModel(new String[]{"ID", "Name", "Email", "Phone", "Address"}, 0);
+        usersTableModel = new EntityTableModel(new String[]{"ID", "Name", "Email", "Phone", "Address"});
         JTable usersTable = new JTable(usersTableModel);
         JScrollPane tableScrollPane = new JScrollPane(usersTable);
 
-        // Load data from database
-        refreshUsersTable(usersTableModel);
+        // Load data from the database in the background
+        usersLoader = new TableLoader(usersTableModel, this, "users");
+        refreshUsersTable();
 
         // Buttons for user actions
         JPanel actionPanel = new JPanel(new FlowLayout(FlowLayout.LEFT));
@@ -229,8 +286,8 @@ public class LibrarianGUI extends JFrame {
 
                 // Create the user and save to the database
                 User user = new User(name, email, phoneInput, address);
-                userDao.create(user); // Save the user
-                refreshUsersTable(usersTableModel); // Refresh the table
+                SwingFutures.onEdt(users.create(user), this, "An unexpected error occurred: ",
+                        created -> usersTableModel.put(userRow(created))); // Save the user, then show it
             } catch (Exception ex) {
                 JOptionPane.showMessageDialog(this, "An unexpected error occurred: " + ex.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
             }
@@ -241,23 +298,26 @@ public class LibrarianGUI extends JFrame {
             int selectedRow = usersTable.getSelectedRow();
             if (selectedRow >= 0) {
                 Long userId = Long.parseLong(usersTableModel.getValueAt(selectedRow, 0).toString());
-                User user = userDao.findById(userId);
-                if (user != null) {
+                SwingFutures.onEdt(users.findById(userId), this, "Error editing user: ", user -> {
+                    if (user == null) {
+                        JOptionPane.showMessageDialog(this, "User not found.");
+                        return;
+                    }
                     String newName = JOptionPane.showInputDialog(this, "Edit Name:", user.getName());
                     String newEmail = JOptionPane.showInputDialog(this, "Edit Email:", user.getEmail());
                     String newPhone = JOptionPane.showInputDialog(this, "Edit Phone:", user.getPhoneNumber());
                     String newAddress = JOptionPane.showInputDialog(this, "Edit Address:", user.getAddress());
                     if (newName != null && newEmail != null && newPhone != null && newAddress != null) {
-                        user.setName(newName);
-                        user.setEmail(newEmail);
-                        user.setPhoneNumber(newPhone);
-                        user.setAddress(newAddress); // Update the address
-                        userDao.update(user); // Save the changes
-                        refreshUsersTable(usersTableModel); // Refresh the table
+                        CompletableFuture<User> updated = users.update(userId, current -> {
+                            current.setName(newName);
+                            current.setEmail(newEmail);
+                            current.setPhoneNumber(newPhone);
+                            current.setAddress(newAddress);
+                        }); // Save the changes
+                        SwingFutures.onEdt(updated, this, "Error editing user: ",
+                                saved -> usersTableModel.put(userRow(saved))); // Update the user's row
                     }
-                } else {
-                    JOptionPane.showMessageDialog(this, "User not found.");
-                }
+                });
             } else {
                 JOptionPane.showMessageDialog(this, "Please select a user to edit.");
             }
@@ -269,12 +329,8 @@ public class LibrarianGUI extends JFrame {
             int selectedRow = usersTable.getSelectedRow();
             if (selectedRow >= 0) {
                 Long userId = Long.parseLong(usersTableModel.getValueAt(selectedRow, 0).toString());
-                try {
-                    userDao.delete(userId);
-                    refreshUsersTable(usersTableModel);
-                } catch (Exception ex) {
-                    JOptionPane.showMessageDialog(this, "Cannot delete user: " + ex.getMessage());
-                }
+                SwingFutures.onEdt(users.delete(userId), this, "Cannot delete user: ",
+                        deleted -> usersTableModel.remove(userId));
             } else {
                 JOptionPane.showMessageDialog(this, "Please select a user to delete.");
             }
@@ -296,12 +352,13 @@ public class LibrarianGUI extends JFrame {
         JPanel panel = new JPanel(new BorderLayout());
 
         // Table model and table
-        DefaultTableModel borrowingsTableModel = new DefaultTableModel(new String[]{"ID", "User", "Book", "Borrow Date", "Return Date"}, 0);
+        borrowingsTableModel = new EntityTableModel(new String[]{"ID", "User", "Book", "Borrow Date", "Return Date"});
         JTable borrowingsTable = new JTable(borrowingsTableModel);
         JScrollPane tableScrollPane = new JScrollPane(borrowingsTable);
 
-        // Load data from the database
-        refreshBorrowingsTable(borrowingsTableModel);
+        // Load data from the database in the background
+        borrowingsLoader = new TableLoader(borrowingsTableModel, this, "borrowings");
+        refreshBorrowingsTable();
 
         // Buttons for borrowing actions
         JPanel actionPanel = new JPanel(new FlowLayout(FlowLayout.LEFT));
@@ -315,19 +372,17 @@ public class LibrarianGUI extends JFrame {
 
         // Add borrowing button action
         addBorrowingButton.addActionListener(e -> {
-            try {
-                // Get user ID
-                String userIdStr = JOptionPane.showInputDialog(this, "Enter User ID:");
-                Long userId = Long.parseLong(userIdStr);
+            // Get the user by email or ID, and the book by ISBN or ID; both are looked up at the same time
+            String userInput = JOptionPane.showInputDialog(this, "Enter User Email or ID:");
+            String bookInput = JOptionPane.showInputDialog(this, "Enter Book ISBN or ID:");
+            CompletableFuture<User> userLookup = users.supply(() -> findUser(userInput));
+            CompletableFuture<Book> bookLookup = books.supply(() -> findBook(bookInput));
 
-                // Get book ID
-                String bookIdStr = JOptionPane.showInputDialog(this, "Enter Book ID:");
-                Long bookId = Long.parseLong(bookIdStr);
+            SwingFutures.onEdt(userLookup.thenCombine(bookLookup, (user, book) -> new Object[]{user, book}), found -> {
+                User user = (User) found[0];
+                Book book = (Book) found[1];
 
                 // Validate user and book
-                User user = userDao.findById(userId);
-                Book book = bookDao.findById(bookId);
-
                 if (user == null) {
                     JOptionPane.showMessageDialog(this, "User not found.", "Error", JOptionPane.ERROR_MESSAGE);
                     return;
@@ -336,43 +391,43 @@ public class LibrarianGUI extends JFrame {
                     JOptionPane.showMessageDialog(this, "Book not found.", "Error", JOptionPane.ERROR_MESSAGE);
                     return;
                 }
+                Long userId = user.getId();
+                Long bookId = book.getId();
 
-                // Find an available copy
-                Copy availableCopy = book.getCopies().stream()
-                        .filter(copy -> "Available".equals(copy.getStatus()))
-                        .findFirst()
-                        .orElse(null);
-
-                if (availableCopy == null) {
-                    JOptionPane.showMessageDialog(this, "No available copies for this book.", "Error", JOptionPane.ERROR_MESSAGE);
-                    return;
+                try {
+                    // Get borrowing date
+                    String borrowDateStr = JOptionPane.showInputDialog(this, "Enter Borrowing Date (YYYY-MM-DD):");
+                    java.time.LocalDate borrowDate = java.time.LocalDate.parse(borrowDateStr);
+
+                    // Get optional return date
+                    String returnDateStr = JOptionPane.showInputDialog(this, "Enter Return Date (YYYY-MM-DD, optional):");
+                    java.time.LocalDate returnDate = (returnDateStr != null && !returnDateStr.isEmpty())
+                            ? java.time.LocalDate.parse(returnDateStr)
+                            : null;
+
+                    // Claim an available copy and create the borrowing in one transaction
+                    CompletableFuture<Borrowing> checkout = borrowings.supply(() -> {
+                        Borrowing borrowing = circulationService.checkout(userId, bookId, borrowDate);
+                        if (returnDate != null) {
+                            // Already returned, release the copy again and show the borrowing with its return date
+                            return circulationService.checkin(borrowing.getId(), returnDate);
+                        }
+                        return borrowing;
+                    });
+                    SwingFutures.onEdt(checkout, this, "Error adding borrowing: ", borrowing -> {
+                        borrowingsTableModel.put(borrowingRow(borrowing));
+                        refreshBookRow(bookId); // A copy of the book was lent
+                    });
+                } catch (Exception ex) {
+                    JOptionPane.showMessageDialog(this, "Error adding borrowing: " + ex.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
                 }
-
-                // Get borrowing date
-                String borrowDateStr = JOptionPane.showInputDialog(this, "Enter Borrowing Date (YYYY-MM-DD):");
-                java.time.LocalDate borrowDate = java.time.LocalDate.parse(borrowDateStr);
-
-                // Get optional return date
-                String returnDateStr = JOptionPane.showInputDialog(this, "Enter Return Date (YYYY-MM-DD, optional):");
-                java.time.LocalDate returnDate = (returnDateStr != null && !returnDateStr.isEmpty())
-                        ? java.time.LocalDate.parse(returnDateStr)
-                        : null;
-
-                // Create borrowing
-                Borrowing borrowing = new Borrowing(user, availableCopy, borrowDate, returnDate);
-                borrowingDao.create(borrowing);
-
-                // Update the copy's status to "Borrowed"
-                availableCopy.setStatus("Borrowed");
-                copyDao.update(availableCopy);
-
-                refreshBorrowingsTable((DefaultTableModel) borrowingsTable.getModel()); // Refresh the borrowings table
-                refreshBooksTable((DefaultTableModel) booksTable.getModel()); // Refresh the books table
-            } catch (NumberFormatException ex) {
-                JOptionPane.showMessageDialog(this, "Invalid ID format. Please enter a numeric ID.", "Error", JOptionPane.ERROR_MESSAGE);
-            } catch (Exception ex) {
-                JOptionPane.showMessageDialog(this, "Error adding borrowing: " + ex.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
-            }
+            }, ex -> {
+                if (ex instanceof NumberFormatException) {
+                    JOptionPane.showMessageDialog(this, "Invalid input. Please enter an email address, an ISBN or a numeric ID.", "Error", JOptionPane.ERROR_MESSAGE);
+                } else {
+                    JOptionPane.showMessageDialog(this, "Error adding borrowing: " + ex.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
+                }
+            });
         });
 
 
@@ -380,32 +435,34 @@ public class LibrarianGUI extends JFrame {
         editBorrowingButton.addActionListener(e -> {
             int selectedRow = borrowingsTable.getSelectedRow();
             if (selectedRow >= 0) {
-                try {
-                    Long borrowingId = Long.parseLong(borrowingsTableModel.getValueAt(selectedRow, 0).toString());
-                    Borrowing borrowing = borrowingDao.findById(borrowingId);
-
+                Long borrowingId = Long.parseLong(borrowingsTableModel.getValueAt(selectedRow, 0).toString());
+                SwingFutures.onEdt(borrowings.findById(borrowingId), this, "Error editing borrowing: ", borrowing -> {
                     if (borrowing == null) {
                         JOptionPane.showMessageDialog(this, "Borrowing not found.", "Error", JOptionPane.ERROR_MESSAGE);
                         return;
                     }
-
-                    String newReturnDate = JOptionPane.showInputDialog(this, "Enter Return Date (YYYY-MM-DD):", borrowing.getReturnDate());
-                    if (newReturnDate != null) {
-                        borrowing.setReturnDate(java.time.LocalDate.parse(newReturnDate));
-
-                        // Mark the copy as available if returned
-                        if (borrowing.getReturnDate() != null) {
-                            Copy copy = borrowing.getCopy();
-                            copy.setStatus("Available");
-                            copyDao.update(copy);
+                    try {
+                        String newReturnDate = JOptionPane.showInputDialog(this, "Enter Return Date (YYYY-MM-DD):", borrowing.getReturnDate());
+                        if (newReturnDate != null) {
+                            java.time.LocalDate returnDate = java.time.LocalDate.parse(newReturnDate);
+
+                            CompletableFuture<Borrowing> saved;
+                            if (borrowing.getReturnDate() == null) {
+                                // Set the return date and mark the copy as available in one transaction
+                                saved = borrowings.supply(() -> circulationService.checkin(borrowingId, returnDate));
+                            } else {
+                                // Already returned, only correct the date
+                                saved = borrowings.update(borrowingId, current -> current.setReturnDate(returnDate));
+                            }
+                            SwingFutures.onEdt(saved, this, "Error editing borrowing: ", updated -> {
+                                borrowingsTableModel.put(borrowingRow(updated));
+                                refreshBookRow(updated.getCopy().getBook().getId()); // The copy may be available again
+                            });
                         }
-
-                        borrowingDao.update(borrowing);
-                        refreshBorrowingsTable(borrowingsTableModel);
+                    } catch (Exception ex) {
+                        JOptionPane.showMessageDialog(this, "Error editing borrowing: " + ex.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
                     }
-                } catch (Exception ex) {
-                    JOptionPane.showMessageDialog(this, "Error editing borrowing: " + ex.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
-                }
+                });
             } else {
                 JOptionPane.showMessageDialog(this, "Please select a borrowing to edit.");
             }
@@ -416,9 +473,7 @@ public class LibrarianGUI extends JFrame {
             int selectedRow = borrowingsTable.getSelectedRow();
             if (selectedRow >= 0) {
                 Long borrowingId = Long.parseLong(borrowingsTableModel.getValueAt(selectedRow, 0).toString());
-                try {
-                    Borrowing borrowing = borrowingDao.findById(borrowingId);
-
+                SwingFutures.onEdt(borrowings.findById(borrowingId), this, "Error deleting borrowing: ", borrowing -> {
                     if (borrowing != null) {
                         // Confirm deletion
                         int confirmation = JOptionPane.showConfirmDialog(this,
@@ -426,16 +481,15 @@ public class LibrarianGUI extends JFrame {
                                 "Confirm Deletion",
                                 JOptionPane.YES_NO_OPTION);
                         if (confirmation == JOptionPane.YES_OPTION) {
-                            borrowingDao.delete(borrowingId); // Delete the borrowing
-                            refreshBorrowingsTable(borrowingsTableModel); // Refresh the borrowings table
-                            refreshBooksTable((DefaultTableModel) booksTable.getModel()); // Refresh the books table
+                            SwingFutures.onEdt(borrowings.delete(borrowingId), this, "Error deleting borrowing: ", deleted -> {
+                                borrowingsTableModel.remove(borrowingId);
+                                refreshBookRow(borrowing.getCopy().getBook().getId()); // The copy is available again
+                            });
                         }
                     } else {
                         JOptionPane.showMessageDialog(this, "Borrowing not found.");
                     }
-                } catch (Exception ex) {
-                    JOptionPane.showMessageDialog(this, "Error deleting borrowing: " + ex.getMessage());
-                }
+                });
             } else {
                 JOptionPane.showMessageDialog(this, "Please select a borrowing to delete.");
             }
@@ -447,58 +501,135 @@ public class LibrarianGUI extends JFrame {
     }
 
     /**
-     * Refreshes the books table with data from the database.
+     * Finds a user by the email address or the ID a librarian entered. Called off the event dispatch thread.
      *
-     * @param model the table model to refresh
+     * @param input the entered email address or ID, may be {@code null}
+     * @return the user, or {@code null} if none matches
+     * @throws NumberFormatException if the input is neither an email address nor a number
      */
-    private void refreshBooksTable(DefaultTableModel model) {
-        model.setRowCount(0);
-        List<Book> books = bookDao.findAll();
-        for (Book book : books) {
-            int totalCopies = book.getCopies().size(); // Count total copies
-            long availableCopies = book.getCopies().stream().filter(copy -> "Available".equals(copy.getStatus())).count(); // Count available copies
-            model.addRow(new Object[]{
-                    book.getId(),
-                    book.getTitle(),
-                    book.getAuthor(),
-                    book.getIsbn(),
-                    book.getPublisher(),
-                    book.getPublicationYear(),
-                    totalCopies,
-                    availableCopies // Display available copies as an additional column
-            });
+    private User findUser(String input) {
+        if (input == null || input.isBlank()) {
+            return null;
+        }
+        if (input.contains("@")) {
+            return userDao.findByEmail(input);
         }
+        return userDao.findById(Long.parseLong(input.trim()));
     }
 
     /**
-     * Refreshes the users table with data from the database.
+     * Finds a book by the ISBN or the ID a librarian entered. The input is tried as an ISBN first,
+     * so a number that is both a valid ISBN and a book ID finds the book with that ISBN. Called off the event dispatch thread.
      *
-     * @param model the table model to refresh
+     * @param input the entered ISBN, with or without hyphens, or ID, may be {@code null}
+     * @return the book, or {@code null} if none matches
+     * @throws NumberFormatException if the input is neither a known ISBN nor a number
      */
-    private void refreshUsersTable(DefaultTableModel model) {
-        model.setRowCount(0);
-        List<User> users = userDao.findAll();
-        for (User user : users) {
-            model.addRow(new Object[]{
-                    user.getId(),
-                    user.getName(),
-                    user.getEmail(),
-                    user.getPhoneNumber(),
-                    user.getAddress() // Display the address
-            });
+    private Book findBook(String input) {
+        if (input == null || input.isBlank()) {
+            return null;
         }
+        Book book = bookDao.findByIsbn(input);
+        return book != null ? book : bookDao.findById(Long.parseLong(input.trim()));
+    }
+
+    /**
+     * Loads the books table in the background, one page at a time, with copy counts computed by the database.
+     */
+    private void refreshBooksTable() {
+        booksLoader.load(rows -> {
+            for (PageRequest request = PageRequest.first(LOAD_PAGE_SIZE); request != null; ) {
+                Page<BookAvailability> page = bookDao.findCatalog(request); // Copy counts are computed by the database
+                for (BookAvailability book : page.getItems()) {
+                    rows.accept(bookRow(book));
+                }
+                request = page.next();
+            }
+        });
     }
 
     /**
-     * Refreshes the borrowings table with data from the database.
+     * Reads the copy counts of one book in the background and updates its row, after one of its copies was lent or returned.
      *
-     * @param model the table model to refresh
+     * @param bookId the ID of the book
      */
-    private void refreshBorrowingsTable(DefaultTableModel model) {
-        model.setRowCount(0);
-        List<Borrowing> borrowings = borrowingDao.findAll();
-        for (Borrowing borrowing : borrowings) {
-            model.addRow(new Object[]{borrowing.getId(), borrowing.getUser().getName(), borrowing.getCopy().getBook().getTitle(), borrowing.getBorrowDate(), borrowing.getReturnDate()});
-        }
+    private void refreshBookRow(Long bookId) {
+        SwingFutures.onEdt(books.supply(() -> bookDao.findAvailability(bookId)), this, "Could not load book: ", book -> {
+            if (book != null) {
+                booksTableModel.put(bookRow(book));
+            } else {
+                booksTableModel.remove(bookId);
+            }
+        });
+    }
+
+    private static Object[] bookRow(BookAvailability book) {
+        return new Object[]{
+                book.getBookId(),
+                book.getTitle(),
+                book.getAuthor(),
+                book.getIsbn(),
+                book.getPublisher(),
+                book.getPublicationYear(),
+                book.getTotalCopies(),
+                book.getAvailableCopies() // Display available copies as an additional column
+        };
+    }
+
+    private static Object[] bookRow(Book book, Object totalCopies, Object availableCopies) {
+        return new Object[]{
+                book.getId(),
+                book.getTitle(),
+                book.getAuthor(),
+                book.getIsbn(),
+                book.getPublisher(),
+                book.getPublicationYear(),
+                totalCopies,
+                availableCopies
+        };
+    }
+
+    /**
+     * Loads the users table in the background, one page at a time.
+     */
+    private void refreshUsersTable() {
+        usersLoader.load(rows -> {
+            for (PageRequest request = PageRequest.first(LOAD_PAGE_SIZE); request != null; ) {
+                Page<User> page = userDao.findPage(request);
+                for (User user : page.getItems()) {
+                    rows.accept(userRow(user));
+                }
+                request = page.next();
+            }
+        });
+    }
+
+    private static Object[] userRow(User user) {
+        return new Object[]{
+                user.getId(),
+                user.getName(),
+                user.getEmail(),
+                user.getPhoneNumber(),
+                user.getAddress() // Display the address
+        };
+    }
+
+    /**
+     * Loads the borrowings table in the background, one page at a time, with each borrowing's user and book.
+     */
+    private void refreshBorrowingsTable() {
+        borrowingsLoader.load(rows -> {
+            for (PageRequest request = PageRequest.first(LOAD_PAGE_SIZE); request != null; ) {
+                Page<Borrowing> page = borrowingDao.findPage(request);
+                for (Borrowing borrowing : page.getItems()) {
+                    rows.accept(borrowingRow(borrowing));
+                }
+                request = page.next();
+            }
+        });
+    }
+
+    private static Object[] borrowingRow(Borrowing borrowing) {
+        return new Object[]{borrowing.getId(), borrowing.getUser().getName(), borrowing.getCopy().getBook().getTitle(), borrowing.getBorrowDate(), borrowing.getReturnDate()};
     }
-}
\ No newline at end of file
+}
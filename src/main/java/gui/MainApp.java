@@ -1,14 +1,28 @@
 package gui;
 
+import dao.LibraryPersistence;
+import monitoring.LibraryJmx;
+import monitoring.MetricsReporter;
+
 import javax.swing.*;
 
 /**
  * The main entry point for the library management system application.
  * This class initializes the Java Swing application and launches the {@link RoleChooser} window,
  * allowing the user to choose their role (e.g., Librarian).
+ * The persistence unit is started and the sample data loaded in the background while the role is being chosen,
+ * and the persistence unit is closed when the application exits.
+ * Its metrics are published through JMX, and reported periodically if {@value MetricsReporter#INTERVAL_PROPERTY} is set.
  */
 public class MainApp {
     public static void main(String[] args) {
+        LibraryPersistence.startAsync(emf -> {
+            DataBaseInsert.seed(emf);
+            LibraryJmx.register(emf);
+            MetricsReporter.fromSystemProperties(emf);
+        });
+        Runtime.getRuntime().addShutdownHook(new Thread(LibraryPersistence::shutdown, "library-persistence-shutdown"));
+
         SwingUtilities.invokeLater(() -> {
             RoleChooser roleChooser = new RoleChooser();
             roleChooser.setVisible(true);
@@ -1,18 +1,21 @@
 package gui;
 
+import dao.DaoExecutor;
+import dao.LibraryPersistence;
 import dao.UserDao;
 import entity.User;
 
-import javax.persistence.EntityManagerFactory;
-import javax.persistence.Persistence;
 import javax.swing.*;
 import java.awt.*;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * The {@code RoleChooser} class provides a graphical interface for users to select their role in the library system.
  * Users can choose between:
  * Librarian via  {@link LibrarianGUI}.
  * User via {@link UserGUI}.
+ * The database may still be starting when a role is chosen, so it is waited for in the background
+ * and the chosen window opens once it is ready.
  */
 public class RoleChooser extends JFrame {
 
@@ -49,29 +52,41 @@ public class RoleChooser extends JFrame {
 
         // Add action listeners for buttons
         librarianButton.addActionListener(e -> {
-            new DataBaseInsert(); // Populate the database (can be skipped if already populated)
-            new LibrarianGUI().setVisible(true); // Launch the librarian GUI
-            dispose(); // Close the RoleChooser
+            setButtonsEnabled(false, librarianButton, userButton);
+            // Wait for the database off the event dispatch thread, then launch the librarian GUI
+            CompletableFuture<?> ready = DaoExecutor.shared().submit(LibraryPersistence::get, null);
+            SwingFutures.onEdt(ready, emf -> {
+                new LibrarianGUI().setVisible(true);
+                dispose(); // Close the RoleChooser
+            }, ex -> {
+                setButtonsEnabled(true, librarianButton, userButton);
+                JOptionPane.showMessageDialog(this, "Could not open the library: " + ex.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
+            });
         });
 
         userButton.addActionListener(e -> {
-            new DataBaseInsert();
             // Prompt the user for their ID
             String userIdInput = JOptionPane.showInputDialog(this, "Please enter your User ID:");
             if (userIdInput != null) {
                 try {
                     Long userId = Long.parseLong(userIdInput); // Parse the ID
-                    EntityManagerFactory emf = Persistence.createEntityManagerFactory("LibraryPU");
-                    UserDao userDao = new UserDao(emf);
+                    setButtonsEnabled(false, librarianButton, userButton);
 
-                    // Validate the user
-                    User user = userDao.findById(userId);
-                    if (user != null) {
-                        new UserGUI(user).setVisible(true); // Launch the UserGUI with the user
-                        dispose(); // Close the RoleChooser
-                    } else {
-                        JOptionPane.showMessageDialog(this, "User not found. Please try again.", "Error", JOptionPane.ERROR_MESSAGE);
-                    }
+                    // Validate the user in the background
+                    CompletableFuture<User> lookup = DaoExecutor.shared().submit(
+                            () -> new UserDao(LibraryPersistence.get()).findById(userId), null);
+                    SwingFutures.onEdt(lookup, user -> {
+                        if (user != null) {
+                            new UserGUI(user).setVisible(true); // Launch the UserGUI with the user
+                            dispose(); // Close the RoleChooser
+                        } else {
+                            setButtonsEnabled(true, librarianButton, userButton);
+                            JOptionPane.showMessageDialog(this, "User not found. Please try again.", "Error", JOptionPane.ERROR_MESSAGE);
+                        }
+                    }, ex -> {
+                        setButtonsEnabled(true, librarianButton, userButton);
+                        JOptionPane.showMessageDialog(this, "Could not look up the user: " + ex.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
+                    });
                 } catch (NumberFormatException ex) {
                     JOptionPane.showMessageDialog(this, "Invalid ID. Please enter a numeric ID.", "Error", JOptionPane.ERROR_MESSAGE);
                 }
@@ -79,4 +94,13 @@ public class RoleChooser extends JFrame {
         });
     }
 
+    /**
+     * Enables or disables the role buttons, so a role cannot be chosen twice while the database is busy.
+     */
+    private static void setButtonsEnabled(boolean enabled, JButton... buttons) {
+        for (JButton button : buttons) {
+            button.setEnabled(enabled);
+        }
+    }
+
 }
@@ -0,0 +1,60 @@
+package gui;
+
+import javax.swing.*;
+import java.awt.*;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Consumer;
+
+/**
+ * Hands the outcome of background database work back to the event dispatch thread.
+ */
+final class SwingFutures {
+
+    private SwingFutures() { }
+
+    /**
+     * Runs a callback on the event dispatch thread once a future completes.
+     *
+     * @param future  the background work
+     * @param success called with the result if the work succeeded
+     * @param failure called with the cause if the work failed; not called if it was cancelled
+     * @param <R>     the result type
+     */
+    static <R> void onEdt(CompletableFuture<R> future, Consumer<R> success, Consumer<Throwable> failure) {
+        future.whenComplete((result, error) -> SwingUtilities.invokeLater(() -> {
+            if (error == null) {
+                success.accept(result);
+                return;
+            }
+            Throwable cause = unwrap(error);
+            if (!(cause instanceof CancellationException)) {
+                failure.accept(cause);
+            }
+        }));
+    }
+
+    /**
+     * Runs a callback on the event dispatch thread once a future succeeds, or shows an error dialog if it fails.
+     *
+     * @param future  the background work
+     * @param owner   the component to show the error over
+     * @param error   the start of the error message, for example {@code "Error deleting book: "}
+     * @param success called with the result if the work succeeded
+     * @param <R>     the result type
+     */
+    static <R> void onEdt(CompletableFuture<R> future, Component owner, String error, Consumer<R> success) {
+        onEdt(future, success, cause -> JOptionPane.showMessageDialog(owner, error + cause.getMessage(),
+                "Error", JOptionPane.ERROR_MESSAGE));
+    }
+
+    private static Throwable unwrap(Throwable error) {
+        Throwable cause = error;
+        while ((cause instanceof CompletionException || cause instanceof ExecutionException) && cause.getCause() != null) {
+            cause = cause.getCause();
+        }
+        return cause;
+    }
+}
@@ -0,0 +1,130 @@
+package gui;
+
+import javax.swing.*;
+import javax.swing.table.DefaultTableModel;
+import java.awt.*;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Consumer;
+
+/**
+ * Fills a table from the database without blocking the event dispatch thread.
+ * Rows are read by a background worker and added to the table in batches as they arrive, so the first rows
+ * show while the rest are still loading. A new load supersedes the one in progress: the old worker stops at
+ * its next row and whatever it still delivers is dropped, so a burst of refreshes costs one full load.
+ * Must be used on the event dispatch thread.
+ */
+final class TableLoader {
+
+    /**
+     * Reads the rows of a table, on a background thread.
+     */
+    @FunctionalInterface
+    interface RowSource {
+        /**
+         * Reads the rows and hands each to the sink, in display order.
+         *
+         * @param rows receives the rows; throws {@link CancellationException} once the load is superseded
+         * @throws Exception if the rows could not be read
+         */
+        void read(Consumer<Object[]> rows) throws Exception;
+    }
+
+    private final DefaultTableModel model;
+    private final Component owner;
+    private final String description;
+    private SwingWorker<Void, Object[]> current;
+
+    /**
+     * Constructs a loader for a table.
+     *
+     * @param model       the model of the table to fill
+     * @param owner       the component to show load errors over
+     * @param description what the table shows, for error messages, for example {@code "books"}
+     */
+    TableLoader(DefaultTableModel model, Component owner, String description) {
+        this.model = model;
+        this.owner = owner;
+        this.description = description;
+    }
+
+    /**
+     * Empties the table and fills it from a source, cancelling the load in progress.
+     *
+     * @param source reads the rows
+     */
+    void load(RowSource source) {
+        cancel();
+        model.setRowCount(0);
+        SwingWorker<Void, Object[]> worker = new SwingWorker<>() {
+            @Override
+            protected Void doInBackground() throws Exception {
+                source.read(row -> {
+                    if (isCancelled()) {
+                        throw new CancellationException();
+                    }
+                    publish(row);
+                });
+                return null;
+            }
+
+            @Override
+            protected void process(List<Object[]> rows) {
+                // Drop rows of a superseded load
+                if (current == this) {
+                    rows.forEach(model::addRow);
+                }
+            }
+
+            @Override
+            protected void done() {
+                if (current != this || isCancelled()) {
+                    return;
+                }
+                current = null;
+                finished();
+                try {
+                    get();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } catch (ExecutionException e) {
+                    JOptionPane.showMessageDialog(owner, "Could not load " + description + ": " + e.getCause().getMessage(),
+                            "Error", JOptionPane.ERROR_MESSAGE);
+                }
+            }
+        };
+        current = worker;
+        worker.execute();
+    }
+
+    /**
+     * Stops the load in progress, if any, leaving the rows loaded so far.
+     * The worker is not interrupted, so it never abandons a database call halfway; it stops at its next row.
+     */
+    void cancel() {
+        if (current != null) {
+            current.cancel(false);
+            current = null;
+            finished();
+        }
+    }
+
+    /**
+     * Lets an {@link EntityTableModel} forget the changes it guarded against the load that just ended.
+     */
+    private void finished() {
+        if (model instanceof EntityTableModel) {
+            ((EntityTableModel) model).loadFinished();
+        }
+    }
+
+    /**
+     * Checks whether a load is in progress.
+     *
+     * @return {@code true} until the current load has delivered its last row
+     */
+    boolean isLoading() {
+        return current != null;
+    }
+}
@@ -1,34 +1,57 @@
 package gui;
 
+import dao.BookAvailability;
 import dao.BookDao;
 import dao.BorrowingDao;
+import dao.LibraryPersistence;
+import dao.Page;
+import dao.PageRequest;
 import entity.Book;
 import entity.Borrowing;
 import entity.User;
 
 import javax.persistence.EntityManagerFactory;
-import javax.persistence.Persistence;
 import javax.swing.*;
 import javax.swing.table.DefaultTableModel;
 import java.awt.*;
-import java.util.List;
-import java.util.stream.Collectors;
 
 /**
  * A GUI-based application for users.
  * This interface provides functionalities to get list of available titles.
  * View currently available book titles.
  * View their borrowing history.
+ * Tables are filled in the background by a {@link TableLoader}, so the window stays responsive while they load
+ * and a new search replaces the one still running.
  */
 public class UserGUI extends JFrame {
 
+    /**
+     * Number of borrowings loaded per query when filling the borrowing history table.
+     */
+    private static final int HISTORY_PAGE_SIZE = 100;
+
+    /**
+     * Maximum number of books shown for a search.
+     */
+    private static final int SEARCH_LIMIT = 200;
+
+    /**
+     * Maximum number of completions suggested while typing a search.
+     */
+    private static final int SUGGESTION_LIMIT = 10;
+
+    /**
+     * Number of books read per query when filling the "All Titles" table.
+     */
+    private static final int LOAD_PAGE_SIZE = 500;
+
     private final EntityManagerFactory emf;
     private final BookDao bookDao;
     private final BorrowingDao borrowingDao;
 
-    private JTable booksTable;
-    private JTable availableBooksTable;
-    private JTable borrowingHistoryTable;
+    private TableLoader booksLoader;
+    private TableLoader availableBooksLoader;
+    private TableLoader borrowingHistoryLoader;
 
     /**
      * Constructs a {@code UserGUI} for a specified user.
@@ -36,8 +59,8 @@ public class UserGUI extends JFrame {
      * @param currentUser the user for whom this interface is created.
      */
     public UserGUI(User currentUser) {
-        // Initialize EntityManagerFactory and DAOs
-        emf = Persistence.createEntityManagerFactory("LibraryPU");
+        // Use the shared EntityManagerFactory
+        emf = LibraryPersistence.get();
         bookDao = new BookDao(emf);
         borrowingDao = new BorrowingDao(emf);
 
@@ -59,9 +82,10 @@ public class UserGUI extends JFrame {
     }
 
     /**
-     * Creates the "All Titles" panel displaying all books in the library.
+     * Creates the "All Titles" panel displaying all books in the library,
+     * with a search field that narrows the table to the best matching books.
      *
-     * @return a JPanel containing the table of all books.
+     * @return a JPanel containing the search field and the table of all books.
      */
     private JPanel createBooksPanel() {
         JPanel panel = new JPanel(new BorderLayout());
@@ -70,12 +94,24 @@ public class UserGUI extends JFrame {
         DefaultTableModel booksTableModel = new DefaultTableModel(
                 new String[]{"Title", "Author", "Publisher", "Publication Year", "ISBN"}, 0
         );
-        booksTable = new JTable(booksTableModel);
+        JTable booksTable = new JTable(booksTableModel);
         JScrollPane tableScrollPane = new JScrollPane(booksTable);
 
-        // Load data from database
-        refreshBooksTable(booksTableModel);
-
+        // Search by title, author, publisher or ISBN, with suggestions while typing; an empty search shows all books again
+        JPanel searchPanel = new JPanel(new BorderLayout(5, 0));
+        JTextField searchField = new AutocompleteField(text -> bookDao.suggest(text, SUGGESTION_LIMIT));
+        JButton searchButton = new JButton("Search");
+        searchField.addActionListener(e -> searchBooks(searchField.getText()));
+        searchButton.addActionListener(e -> searchBooks(searchField.getText()));
+        searchPanel.add(new JLabel("Search:"), BorderLayout.WEST);
+        searchPanel.add(searchField, BorderLayout.CENTER);
+        searchPanel.add(searchButton, BorderLayout.EAST);
+
+        // Load data from the database in the background
+        booksLoader = new TableLoader(booksTableModel, this, "books");
+        refreshBooksTable();
+
+        panel.add(searchPanel, BorderLayout.NORTH);
         panel.add(tableScrollPane, BorderLayout.CENTER);
         return panel;
     }
@@ -92,11 +128,12 @@ public class UserGUI extends JFrame {
         DefaultTableModel availableBooksTableModel = new DefaultTableModel(
                 new String[]{"Title", "Author", "Publisher", "Publication Year", "ISBN"}, 0
         );
-        availableBooksTable = new JTable(availableBooksTableModel);
+        JTable availableBooksTable = new JTable(availableBooksTableModel);
         JScrollPane tableScrollPane = new JScrollPane(availableBooksTable);
 
-        // Load data from database
-        refreshAvailableBooksTable(availableBooksTableModel);
+        // Load data from the database in the background
+        availableBooksLoader = new TableLoader(availableBooksTableModel, this, "available books");
+        refreshAvailableBooksTable();
 
         panel.add(tableScrollPane, BorderLayout.CENTER);
         return panel;
@@ -115,48 +152,61 @@ public class UserGUI extends JFrame {
         DefaultTableModel borrowingHistoryTableModel = new DefaultTableModel(
                 new String[]{"Title", "Borrow Date", "Return Date"}, 0
         );
-        borrowingHistoryTable = new JTable(borrowingHistoryTableModel);
+        JTable borrowingHistoryTable = new JTable(borrowingHistoryTableModel);
         JScrollPane tableScrollPane = new JScrollPane(borrowingHistoryTable);
 
-        // Load data from database
-        refreshBorrowingHistoryTable(borrowingHistoryTableModel, currentUser);
+        // Load data from the database in the background
+        borrowingHistoryLoader = new TableLoader(borrowingHistoryTableModel, this, "your borrowing history");
+        refreshBorrowingHistoryTable(currentUser);
 
         panel.add(tableScrollPane, BorderLayout.CENTER);
         return panel;
     }
 
     /**
-     * Refreshes the table displaying all books.
+     * Reloads the table displaying all books in the background, one page at a time.
+     */
+    private void refreshBooksTable() {
+        booksLoader.load(rows -> {
+            for (PageRequest request = PageRequest.first(LOAD_PAGE_SIZE); request != null; ) {
+                Page<Book> page = bookDao.findPage(request);
+                page.getItems().forEach(book -> rows.accept(bookRow(book)));
+                request = page.next();
+            }
+        });
+    }
+
+    /**
+     * Fills the table with the books matching a search, best match first, or with all books if the search is empty.
+     * A search replaces the load or search still in progress.
      *
-     * @param model the table model to be updated.
+     * @param query the words to search for.
      */
-    private void refreshBooksTable(DefaultTableModel model) {
-        model.setRowCount(0); // Clear the table
-        List<Book> books = bookDao.findAll(); // Fetch all books
-        for (Book book : books) {
-            model.addRow(new Object[]{
-                    book.getTitle(),
-                    book.getAuthor(),
-                    book.getPublisher(),
-                    book.getPublicationYear(),
-                    book.getIsbn()
-            });
+    private void searchBooks(String query) {
+        if (query.isBlank()) {
+            refreshBooksTable();
+            return;
         }
+        booksLoader.load(rows -> bookDao.search(query, SEARCH_LIMIT).forEach(book -> rows.accept(bookRow(book))));
+    }
+
+    private static Object[] bookRow(Book book) {
+        return new Object[]{
+                book.getTitle(),
+                book.getAuthor(),
+                book.getPublisher(),
+                book.getPublicationYear(),
+                book.getIsbn()
+        };
     }
 
     /**
-     * Refreshes the table displaying books with available copies.
-     *
-     * @param model the table model to be updated.
+     * Reloads the table displaying books with available copies in the background.
      */
-    private void refreshAvailableBooksTable(DefaultTableModel model) {
-        model.setRowCount(0); // Clear the table
-        List<Book> books = bookDao.findAll(); // Fetch all books
-        for (Book book : books) {
-            boolean isAvailable = book.getCopies().stream()
-                    .anyMatch(copy -> "Available".equals(copy.getStatus())); // Check if any copy is available
-            if (isAvailable) {
-                model.addRow(new Object[]{
+    private void refreshAvailableBooksTable() {
+        availableBooksLoader.load(rows -> {
+            for (BookAvailability book : bookDao.findAvailableCatalog()) { // Only books with an available copy
+                rows.accept(new Object[]{
                         book.getTitle(),
                         book.getAuthor(),
                         book.getPublisher(),
@@ -164,27 +214,29 @@ public class UserGUI extends JFrame {
                         book.getIsbn()
                 });
             }
-        }
+        });
     }
 
     /**
-     * Refreshes the table displaying the borrowing history of the current user.
+     * Reloads the table displaying the borrowing history of the current user in the background.
      *
-     * @param model        the table model to be updated.
      * @param currentUser  the user whose borrowing history will be displayed.
      */
-    private void refreshBorrowingHistoryTable(DefaultTableModel model, User currentUser) {
-        model.setRowCount(0); // Clear the table
-        List<Borrowing> borrowings = borrowingDao.findAll().stream()
-                .filter(b -> b.getUser().getId().equals(currentUser.getId())) // Filter borrowings for the current user
-                .collect(Collectors.toList());
-
-        for (Borrowing borrowing : borrowings) {
-            model.addRow(new Object[]{
-                    borrowing.getCopy().getBook().getTitle(),
-                    borrowing.getBorrowDate(),
-                    borrowing.getReturnDate()
-            });
-        }
+    private void refreshBorrowingHistoryTable(User currentUser) {
+        borrowingHistoryLoader.load(rows -> {
+            // Walk only the current user's borrowings, page by page in borrow date order
+            PageRequest request = PageRequest.first("borrowDate", HISTORY_PAGE_SIZE);
+            while (request != null) {
+                Page<Borrowing> page = borrowingDao.findByUser(currentUser.getId(), request);
+                for (Borrowing borrowing : page.getItems()) {
+                    rows.accept(new Object[]{
+                            borrowing.getCopy().getBook().getTitle(),
+                            borrowing.getBorrowDate(),
+                            borrowing.getReturnDate()
+                    });
+                }
+                request = page.next();
+            }
+        });
     }
 }
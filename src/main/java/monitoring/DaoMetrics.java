@@ -0,0 +1,134 @@
+package monitoring;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Supplier;
+
+/**
+ * The metrics of all DAO operations, one {@link OperationMetrics} per entity and method.
+ * Every public method of the DAOs, and of {@link service.CirculationService}, records its calls here,
+ * into the instance it was constructed with or else into {@link #shared()}.
+ * Operations are added on their first call. Once {@link #exportTo(MBeanServer)} was called, every operation,
+ * including ones added later, is published as the MBean {@code library:type=Dao,entity=<entity>,operation=<method>}.
+ */
+public final class DaoMetrics {
+
+    private static final DaoMetrics SHARED = new DaoMetrics();
+
+    private final ConcurrentMap<String, OperationMetrics> operations = new ConcurrentHashMap<>();
+    private volatile MBeanServer server;
+
+    /**
+     * Gets the metrics shared by the whole application.
+     *
+     * @return the shared instance
+     */
+    public static DaoMetrics shared() {
+        return SHARED;
+    }
+
+    /**
+     * Gets the metrics of an operation, creating them on first use.
+     *
+     * @param entity    the entity the operation works on, for example {@code Book}
+     * @param operation the DAO method, for example {@code findById}
+     * @return the metrics of the operation
+     */
+    public OperationMetrics operation(String entity, String operation) {
+        return operations.computeIfAbsent(entity + '.' + operation, key -> {
+            OperationMetrics metrics = new OperationMetrics(entity, operation);
+            register(metrics);
+            return metrics;
+        });
+    }
+
+    /**
+     * Runs a DAO call and records its latency and outcome.
+     *
+     * @param entity    the entity the operation works on
+     * @param operation the DAO method
+     * @param call      the call
+     * @param <R>       the result type
+     * @return the result of the call
+     */
+    public <R> R time(String entity, String operation, Supplier<R> call) {
+        OperationMetrics metrics = operation(entity, operation);
+        long start = System.nanoTime();
+        boolean failed = true;
+        try {
+            R result = call.get();
+            failed = false;
+            return result;
+        } finally {
+            metrics.record(System.nanoTime() - start, failed);
+        }
+    }
+
+    /**
+     * Runs a DAO call without result and records its latency and outcome.
+     *
+     * @param entity    the entity the operation works on
+     * @param operation the DAO method
+     * @param call      the call
+     */
+    public void run(String entity, String operation, Runnable call) {
+        time(entity, operation, () -> {
+            call.run();
+            return null;
+        });
+    }
+
+    /**
+     * Gets the metrics of all operations called so far.
+     *
+     * @return the operations, ordered by entity and method
+     */
+    public List<OperationMetrics> operations() {
+        List<OperationMetrics> all = new ArrayList<>(operations.values());
+        all.sort(Comparator.comparing(OperationMetrics::getEntity).thenComparing(OperationMetrics::getOperation));
+        return all;
+    }
+
+    /**
+     * Publishes the operations through JMX, now and as they are added.
+     *
+     * @param server the MBean server to register with
+     */
+    public void exportTo(MBeanServer server) {
+        this.server = server;
+        operations.values().forEach(this::register);
+    }
+
+    /**
+     * Builds the JMX name of an operation.
+     *
+     * @param metrics the operation
+     * @return its name
+     * @throws JMException if the entity or method name is not valid in an object name
+     */
+    static ObjectName objectName(OperationMetrics metrics) throws JMException {
+        return new ObjectName(LibraryJmx.DOMAIN + ":type=Dao,entity=" + metrics.getEntity()
+                + ",operation=" + metrics.getOperation());
+    }
+
+    private void register(OperationMetrics metrics) {
+        MBeanServer target = server;
+        if (target == null) {
+            return;
+        }
+        try {
+            target.registerMBean(metrics, objectName(metrics));
+        } catch (InstanceAlreadyExistsException e) {
+            // Registered already by an earlier export
+        } catch (JMException e) {
+            throw new IllegalStateException("Could not register DAO metrics " + metrics.getEntity() + "." + metrics.getOperation(), e);
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package monitoring;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+
+import javax.persistence.EntityManagerFactory;
+
+/**
+ * The Hibernate statistics of a persistence unit: queries, entity and collection loads, second-level cache use,
+ * flushes and transactions. Counts are kept by Hibernate while {@code hibernate.generate_statistics} is enabled
+ * and grow for the lifetime of the {@link EntityManagerFactory}.
+ */
+public final class HibernateMetrics implements HibernateMetricsMBean {
+
+    private final Statistics statistics;
+
+    /**
+     * Constructs a view of the statistics of a persistence unit.
+     *
+     * @param emf the {@link EntityManagerFactory} whose statistics to read
+     */
+    public HibernateMetrics(EntityManagerFactory emf) {
+        this.statistics = emf.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    @Override
+    public long getQueryExecutionCount() {
+        return statistics.getQueryExecutionCount();
+    }
+
+    @Override
+    public long getQueryExecutionMaxTimeMillis() {
+        return statistics.getQueryExecutionMaxTime();
+    }
+
+    @Override
+    public String getSlowestQuery() {
+        return statistics.getQueryExecutionMaxTimeQueryString();
+    }
+
+    @Override
+    public long getPrepareStatementCount() {
+        return statistics.getPrepareStatementCount();
+    }
+
+    @Override
+    public long getEntityLoadCount() {
+        return statistics.getEntityLoadCount();
+    }
+
+    @Override
+    public long getEntityFetchCount() {
+        return statistics.getEntityFetchCount();
+    }
+
+    @Override
+    public long getEntityInsertCount() {
+        return statistics.getEntityInsertCount();
+    }
+
+    @Override
+    public long getEntityUpdateCount() {
+        return statistics.getEntityUpdateCount();
+    }
+
+    @Override
+    public long getEntityDeleteCount() {
+        return statistics.getEntityDeleteCount();
+    }
+
+    @Override
+    public long getCollectionLoadCount() {
+        return statistics.getCollectionLoadCount();
+    }
+
+    @Override
+    public long getSecondLevelCacheHitCount() {
+        return statistics.getSecondLevelCacheHitCount();
+    }
+
+    @Override
+    public long getSecondLevelCacheMissCount() {
+        return statistics.getSecondLevelCacheMissCount();
+    }
+
+    @Override
+    public long getSecondLevelCachePutCount() {
+        return statistics.getSecondLevelCachePutCount();
+    }
+
+    @Override
+    public long getQueryCacheHitCount() {
+        return statistics.getQueryCacheHitCount();
+    }
+
+    @Override
+    public long getFlushCount() {
+        return statistics.getFlushCount();
+    }
+
+    @Override
+    public long getSessionOpenCount() {
+        return statistics.getSessionOpenCount();
+    }
+
+    @Override
+    public long getTransactionCount() {
+        return statistics.getTransactionCount();
+    }
+
+    @Override
+    public long getOptimisticFailureCount() {
+        return statistics.getOptimisticFailureCount();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("queries=%d, maxQuery=%dms, statements=%d, loads=%d, fetches=%d, l2Hits=%d, l2Misses=%d, "
+                        + "flushes=%d, transactions=%d, optimisticFailures=%d",
+                getQueryExecutionCount(), getQueryExecutionMaxTimeMillis(), getPrepareStatementCount(),
+                getEntityLoadCount(), getEntityFetchCount(), getSecondLevelCacheHitCount(),
+                getSecondLevelCacheMissCount(), getFlushCount(), getTransactionCount(), getOptimisticFailureCount());
+    }
+}
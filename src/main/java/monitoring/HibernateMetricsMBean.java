@@ -0,0 +1,97 @@
+package monitoring;
+
+/**
+ * JMX view of the Hibernate statistics of the persistence unit, see {@link HibernateMetrics}.
+ */
+public interface HibernateMetricsMBean {
+
+    /**
+     * @return the number of JPQL and SQL queries executed
+     */
+    long getQueryExecutionCount();
+
+    /**
+     * @return the time of the slowest query in milliseconds
+     */
+    long getQueryExecutionMaxTimeMillis();
+
+    /**
+     * @return the slowest query
+     */
+    String getSlowestQuery();
+
+    /**
+     * @return the number of JDBC statements prepared
+     */
+    long getPrepareStatementCount();
+
+    /**
+     * @return the number of entities loaded from the database
+     */
+    long getEntityLoadCount();
+
+    /**
+     * @return the number of entities fetched lazily
+     */
+    long getEntityFetchCount();
+
+    /**
+     * @return the number of entities inserted
+     */
+    long getEntityInsertCount();
+
+    /**
+     * @return the number of entities updated
+     */
+    long getEntityUpdateCount();
+
+    /**
+     * @return the number of entities deleted
+     */
+    long getEntityDeleteCount();
+
+    /**
+     * @return the number of collections loaded from the database
+     */
+    long getCollectionLoadCount();
+
+    /**
+     * @return the number of lookups answered by the second-level cache
+     */
+    long getSecondLevelCacheHitCount();
+
+    /**
+     * @return the number of second-level cache lookups that went to the database
+     */
+    long getSecondLevelCacheMissCount();
+
+    /**
+     * @return the number of entries put into the second-level cache
+     */
+    long getSecondLevelCachePutCount();
+
+    /**
+     * @return the number of queries answered by the query cache
+     */
+    long getQueryCacheHitCount();
+
+    /**
+     * @return the number of flushes
+     */
+    long getFlushCount();
+
+    /**
+     * @return the number of sessions opened
+     */
+    long getSessionOpenCount();
+
+    /**
+     * @return the number of transactions completed
+     */
+    long getTransactionCount();
+
+    /**
+     * @return the number of optimistic locking failures
+     */
+    long getOptimisticFailureCount();
+}
@@ -0,0 +1,87 @@
+package monitoring;
+
+import dao.CacheStatistics;
+import dao.OptimisticRetry;
+import dao.PooledConnectionProvider;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.persistence.EntityManagerFactory;
+import java.lang.management.ManagementFactory;
+
+/**
+ * Publishes the metrics of the application through the platform MBean server, where JConsole, VisualVM or
+ * any JMX client can read them. All names are in the {@link #DOMAIN} domain:
+ * <ul>
+ *     <li>{@code library:type=Hibernate} &ndash; {@link HibernateMetrics}</li>
+ *     <li>{@code library:type=SecondLevelCache} &ndash; {@link CacheStatistics}</li>
+ *     <li>{@code library:type=ConnectionPool} &ndash; {@link PoolMetrics}, when the persistence unit uses {@link PooledConnectionProvider}</li>
+ *     <li>{@code library:type=SlowQueries} &ndash; {@link SlowQueryLog}, when the pool is in use and the log is on</li>
+ *     <li>{@code library:type=OptimisticRetry} &ndash; {@link OptimisticRetry#DEFAULT}</li>
+ *     <li>{@code library:type=Dao,entity=...,operation=...} &ndash; the {@link DaoMetrics#shared() shared DAO metrics}</li>
+ * </ul>
+ */
+public final class LibraryJmx {
+
+    /**
+     * The JMX domain of all library MBeans.
+     */
+    public static final String DOMAIN = "library";
+
+    private LibraryJmx() { }
+
+    /**
+     * Registers the MBeans of a persistence unit, replacing those of a persistence unit registered earlier.
+     *
+     * @param emf the {@link EntityManagerFactory} to publish the metrics of
+     * @throws IllegalStateException if an MBean could not be registered
+     */
+    public static synchronized void register(EntityManagerFactory emf) {
+        unregister();
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            server.registerMBean(new HibernateMetrics(emf), name("Hibernate"));
+            server.registerMBean(new CacheStatistics(emf), name("SecondLevelCache"));
+            server.registerMBean(OptimisticRetry.DEFAULT, name("OptimisticRetry"));
+            PoolMetrics pool = MetricsReporter.poolOf(emf);
+            if (pool != null) {
+                server.registerMBean(pool, name("ConnectionPool"));
+                SlowQueryLog slowQueries = PooledConnectionProvider.slowQueries(emf);
+                if (slowQueries != null) {
+                    server.registerMBean(slowQueries, name("SlowQueries"));
+                }
+            }
+        } catch (JMException e) {
+            throw new IllegalStateException("Could not register the library MBeans", e);
+        }
+        DaoMetrics.shared().exportTo(server);
+    }
+
+    /**
+     * Removes all library MBeans from the platform MBean server.
+     *
+     * @throws IllegalStateException if an MBean could not be removed
+     */
+    public static synchronized void unregister() {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            for (ObjectName name : server.queryNames(new ObjectName(DOMAIN + ":*"), null)) {
+                server.unregisterMBean(name);
+            }
+        } catch (JMException e) {
+            throw new IllegalStateException("Could not unregister the library MBeans", e);
+        }
+    }
+
+    /**
+     * Builds the name of a library MBean.
+     *
+     * @param type the value of the {@code type} key
+     * @return the name
+     * @throws JMException if the type is not valid in an object name
+     */
+    public static ObjectName name(String type) throws JMException {
+        return new ObjectName(DOMAIN + ":type=" + type);
+    }
+}
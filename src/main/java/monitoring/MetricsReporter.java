@@ -0,0 +1,248 @@
+package monitoring;
+
+import dao.CacheStatistics;
+import dao.OptimisticRetry;
+import dao.PooledConnectionProvider;
+
+import javax.persistence.EntityManagerFactory;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Writes the metrics of the application at a fixed interval: a summary to the {@code monitoring.MetricsReporter}
+ * logger and, if a file is given, one line per metric to a CSV file with the columns
+ * {@code timestamp,metric,value}. Metric names are dotted paths such as {@code dao.Book.findById.p99Micros},
+ * {@code hibernate.queryExecutionCount} or {@code pool.activeConnections}, so the file can be pivoted or
+ * plotted without knowing the metrics in advance.
+ * <p>
+ * {@link #fromSystemProperties(EntityManagerFactory)} starts a reporter when {@value #INTERVAL_PROPERTY} is set,
+ * for example {@code -Dlibrary.metrics.interval=PT30S -Dlibrary.metrics.csv=metrics.csv}.
+ */
+public final class MetricsReporter implements AutoCloseable {
+
+    /**
+     * System property holding the reporting interval as an ISO-8601 duration or a number of seconds.
+     */
+    public static final String INTERVAL_PROPERTY = "library.metrics.interval";
+
+    /**
+     * System property holding the path of the CSV file to append to.
+     */
+    public static final String CSV_PROPERTY = "library.metrics.csv";
+
+    private static final int SLOWEST_SHAPES = 5;
+
+    private static final Logger LOG = Logger.getLogger(MetricsReporter.class.getName());
+
+    private final HibernateMetrics hibernate;
+    private final CacheStatistics cache;
+    private final PoolMetrics pool;
+    private final SlowQueryLog slowQueries;
+    private final DaoMetrics dao;
+    private final Path csv;
+    private ScheduledExecutorService scheduler;
+
+    /**
+     * Constructs a reporter of a persistence unit and the {@link DaoMetrics#shared() shared DAO metrics}.
+     *
+     * @param emf the {@link EntityManagerFactory} to report on
+     * @param csv the CSV file to append to, or {@code null} to only log
+     */
+    public MetricsReporter(EntityManagerFactory emf, Path csv) {
+        this(emf, DaoMetrics.shared(), csv);
+    }
+
+    /**
+     * Constructs a reporter of a persistence unit and the given DAO metrics.
+     *
+     * @param emf the {@link EntityManagerFactory} to report on
+     * @param dao the DAO metrics to report
+     * @param csv the CSV file to append to, or {@code null} to only log
+     */
+    public MetricsReporter(EntityManagerFactory emf, DaoMetrics dao, Path csv) {
+        this.hibernate = new HibernateMetrics(emf);
+        this.cache = new CacheStatistics(emf);
+        this.pool = poolOf(emf);
+        this.slowQueries = pool == null ? null : PooledConnectionProvider.slowQueries(emf);
+        this.dao = dao;
+        this.csv = csv;
+    }
+
+    /**
+     * Starts a reporter as configured by the {@value #INTERVAL_PROPERTY} and {@value #CSV_PROPERTY} system properties.
+     *
+     * @param emf the {@link EntityManagerFactory} to report on
+     * @return the started reporter, or {@code null} if no interval is set
+     * @throws IllegalArgumentException if the interval is not a positive duration
+     */
+    public static MetricsReporter fromSystemProperties(EntityManagerFactory emf) {
+        String interval = System.getProperty(INTERVAL_PROPERTY);
+        if (interval == null || interval.isBlank()) {
+            return null;
+        }
+        String csv = System.getProperty(CSV_PROPERTY);
+        MetricsReporter reporter = new MetricsReporter(emf, csv == null || csv.isBlank() ? null : Path.of(csv));
+        reporter.start(parseInterval(interval.trim()));
+        return reporter;
+    }
+
+    /**
+     * Starts reporting at a fixed interval on a daemon thread.
+     *
+     * @param interval the time between two reports
+     * @throws IllegalArgumentException if the interval is not positive
+     * @throws IllegalStateException    if the reporter was started already
+     */
+    public synchronized void start(Duration interval) {
+        if (interval.isZero() || interval.isNegative()) {
+            throw new IllegalArgumentException("Reporting interval must be positive: " + interval);
+        }
+        if (scheduler != null) {
+            throw new IllegalStateException("Metrics reporter already started");
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "library-metrics-reporter");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long millis = interval.toMillis();
+        scheduler.scheduleAtFixedRate(() -> {
+            try {
+                report();
+            } catch (RuntimeException e) {
+                // Keep reporting; a later report may succeed
+                LOG.log(Level.WARNING, "Could not report metrics", e);
+            }
+        }, millis, millis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Writes one report now.
+     *
+     * @throws UncheckedIOException if the CSV file could not be written
+     */
+    public void report() {
+        Map<String, Number> metrics = snapshot();
+        LOG.info(() -> "Hibernate: " + hibernate);
+        if (pool != null) {
+            LOG.info(() -> "Connection pool: " + pool);
+        }
+        LOG.info(() -> String.format("Optimistic retry: operations=%d, conflicts=%d, retries=%d, exhausted=%d",
+                OptimisticRetry.DEFAULT.getOperationCount(), OptimisticRetry.DEFAULT.getConflictCount(),
+                OptimisticRetry.DEFAULT.getRetryCount(), OptimisticRetry.DEFAULT.getExhaustedCount()));
+        dao.operations().forEach(operation -> LOG.info(operation::toString));
+        if (slowQueries != null) {
+            slowQueries.slowest(SLOWEST_SHAPES).forEach(shape -> LOG.info(() -> "Slow statement shape: " + shape));
+        }
+        if (csv != null) {
+            appendCsv(Instant.now(), metrics);
+        }
+    }
+
+    /**
+     * Reads the current value of every metric.
+     *
+     * @return the values by metric name, in a stable order
+     */
+    public Map<String, Number> snapshot() {
+        Map<String, Number> metrics = new LinkedHashMap<>();
+        for (OperationMetrics operation : dao.operations()) {
+            String prefix = "dao." + operation.getEntity() + "." + operation.getOperation() + ".";
+            metrics.put(prefix + "calls", operation.getCallCount());
+            metrics.put(prefix + "errors", operation.getErrorCount());
+            metrics.put(prefix + "meanMicros", operation.getMeanMicros());
+            metrics.put(prefix + "p50Micros", operation.getP50Micros());
+            metrics.put(prefix + "p90Micros", operation.getP90Micros());
+            metrics.put(prefix + "p99Micros", operation.getP99Micros());
+            metrics.put(prefix + "maxMicros", operation.getMaxMicros());
+        }
+        metrics.put("hibernate.queryExecutionCount", hibernate.getQueryExecutionCount());
+        metrics.put("hibernate.queryExecutionMaxTimeMillis", hibernate.getQueryExecutionMaxTimeMillis());
+        metrics.put("hibernate.prepareStatementCount", hibernate.getPrepareStatementCount());
+        metrics.put("hibernate.entityLoadCount", hibernate.getEntityLoadCount());
+        metrics.put("hibernate.entityFetchCount", hibernate.getEntityFetchCount());
+        metrics.put("hibernate.collectionLoadCount", hibernate.getCollectionLoadCount());
+        metrics.put("hibernate.secondLevelCacheHitCount", hibernate.getSecondLevelCacheHitCount());
+        metrics.put("hibernate.secondLevelCacheMissCount", hibernate.getSecondLevelCacheMissCount());
+        metrics.put("hibernate.queryCacheHitCount", cache.getQueryCacheHitCount());
+        metrics.put("hibernate.flushCount", hibernate.getFlushCount());
+        metrics.put("hibernate.transactionCount", hibernate.getTransactionCount());
+        metrics.put("hibernate.optimisticFailureCount", hibernate.getOptimisticFailureCount());
+        if (pool != null) {
+            metrics.put("pool.activeConnections", pool.getActiveConnections());
+            metrics.put("pool.idleConnections", pool.getIdleConnections());
+            metrics.put("pool.waitingThreads", pool.getWaitingThreads());
+            metrics.put("pool.averageAcquireMicros", pool.getAverageAcquireMicros());
+            metrics.put("pool.maxAcquireMicros", pool.getMaxAcquireMicros());
+            metrics.put("pool.timeoutCount", pool.getTimeoutCount());
+        }
+        if (slowQueries != null) {
+            metrics.put("sql.statementCount", slowQueries.getStatementCount());
+            metrics.put("sql.slowStatementCount", slowQueries.getSlowStatementCount());
+        }
+        metrics.put("retry.conflictCount", OptimisticRetry.DEFAULT.getConflictCount());
+        metrics.put("retry.exhaustedCount", OptimisticRetry.DEFAULT.getExhaustedCount());
+        return metrics;
+    }
+
+    /**
+     * Stops reporting. Reports already running are allowed to finish.
+     */
+    @Override
+    public synchronized void close() {
+        if (scheduler != null) {
+            scheduler.shutdown();
+            scheduler = null;
+        }
+    }
+
+    private void appendCsv(Instant timestamp, Map<String, Number> metrics) {
+        StringBuilder lines = new StringBuilder();
+        try {
+            if (Files.notExists(csv) || Files.size(csv) == 0) {
+                lines.append("timestamp,metric,value\n");
+            }
+            metrics.forEach((name, value) -> lines.append(timestamp).append(',')
+                    .append(name).append(',').append(value).append('\n'));
+            Files.writeString(csv, lines, StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not write metrics to " + csv, e);
+        }
+    }
+
+    /**
+     * Gets the connection pool metrics of a persistence unit, if it uses the pool.
+     *
+     * @param emf the {@link EntityManagerFactory} of the persistence unit
+     * @return the pool metrics, or {@code null} if Hibernate manages the connections itself
+     */
+    static PoolMetrics poolOf(EntityManagerFactory emf) {
+        try {
+            return PooledConnectionProvider.metrics(emf);
+        } catch (IllegalStateException e) {
+            return null;
+        }
+    }
+
+    private static Duration parseInterval(String interval) {
+        try {
+            return interval.matches("\\d+") ? Duration.ofSeconds(Long.parseLong(interval)) : Duration.parse(interval);
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Invalid " + INTERVAL_PROPERTY + ": " + interval, e);
+        }
+    }
+}
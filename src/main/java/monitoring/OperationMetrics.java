@@ -0,0 +1,85 @@
+package monitoring;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Call count, error count and latency histogram of one DAO operation, such as {@code Book.findById}.
+ * Latencies are measured from the call to the return or the exception, failed calls included.
+ */
+public final class OperationMetrics implements OperationMetricsMBean {
+
+    private final String entity;
+    private final String operation;
+    private final LongAdder errors = new LongAdder();
+    private final LatencyHistogram latencies = new LatencyHistogram();
+
+    OperationMetrics(String entity, String operation) {
+        this.entity = entity;
+        this.operation = operation;
+    }
+
+    /**
+     * Records one call.
+     *
+     * @param nanos  how long the call took
+     * @param failed whether the call threw an exception
+     */
+    void record(long nanos, boolean failed) {
+        latencies.record(nanos / 1000);
+        if (failed) {
+            errors.increment();
+        }
+    }
+
+    @Override
+    public String getEntity() {
+        return entity;
+    }
+
+    @Override
+    public String getOperation() {
+        return operation;
+    }
+
+    @Override
+    public long getCallCount() {
+        return latencies.getCount();
+    }
+
+    @Override
+    public long getErrorCount() {
+        return errors.sum();
+    }
+
+    @Override
+    public double getMeanMicros() {
+        return latencies.getMean();
+    }
+
+    @Override
+    public long getP50Micros() {
+        return latencies.getPercentile(50);
+    }
+
+    @Override
+    public long getP90Micros() {
+        return latencies.getPercentile(90);
+    }
+
+    @Override
+    public long getP99Micros() {
+        return latencies.getPercentile(99);
+    }
+
+    @Override
+    public long getMaxMicros() {
+        return latencies.getMax();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s.%s calls=%d, errors=%d, mean=%.1fus, p50=%dus, p90=%dus, p99=%dus, max=%dus",
+                entity, operation, getCallCount(), getErrorCount(), getMeanMicros(),
+                getP50Micros(), getP90Micros(), getP99Micros(), getMaxMicros());
+    }
+}
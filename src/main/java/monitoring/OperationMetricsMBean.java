@@ -0,0 +1,52 @@
+package monitoring;
+
+/**
+ * JMX view of the metrics of one DAO operation, see {@link OperationMetrics}.
+ */
+public interface OperationMetricsMBean {
+
+    /**
+     * @return the entity the operation works on, for example {@code Book}
+     */
+    String getEntity();
+
+    /**
+     * @return the DAO method, for example {@code findById}
+     */
+    String getOperation();
+
+    /**
+     * @return the number of calls, failed ones included
+     */
+    long getCallCount();
+
+    /**
+     * @return the number of calls that threw an exception
+     */
+    long getErrorCount();
+
+    /**
+     * @return the mean latency in microseconds
+     */
+    double getMeanMicros();
+
+    /**
+     * @return the median latency in microseconds
+     */
+    long getP50Micros();
+
+    /**
+     * @return the 90th percentile latency in microseconds
+     */
+    long getP90Micros();
+
+    /**
+     * @return the 99th percentile latency in microseconds
+     */
+    long getP99Micros();
+
+    /**
+     * @return the highest latency in microseconds
+     */
+    long getMaxMicros();
+}
@@ -0,0 +1,156 @@
+package monitoring;
+
+import com.zaxxer.hikari.metrics.IMetricsTracker;
+import com.zaxxer.hikari.metrics.MetricsTrackerFactory;
+import com.zaxxer.hikari.metrics.PoolStats;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Metrics of one connection pool: the current number of active, idle and waiting connections,
+ * and how long callers had to wait for a connection.
+ * An instance is handed to HikariCP as its {@link MetricsTrackerFactory}, which reports every connection
+ * acquisition to it; recording only updates striped counters, so it adds no contention to the pool.
+ */
+public final class PoolMetrics implements MetricsTrackerFactory, PoolMetricsMBean {
+
+    private volatile PoolStats poolStats;
+
+    private final LongAdder acquisitions = new LongAdder();
+    private final LongAdder acquireNanos = new LongAdder();
+    private final LongAccumulator maxAcquireNanos = new LongAccumulator(Math::max, 0);
+    private final LongAdder timeouts = new LongAdder();
+    private final LongAdder usageMillis = new LongAdder();
+
+    /**
+     * Called by HikariCP when the pool starts.
+     *
+     * @param poolName  the name of the pool
+     * @param poolStats the live pool counts
+     * @return the tracker receiving the pool's events
+     */
+    @Override
+    public IMetricsTracker create(String poolName, PoolStats poolStats) {
+        this.poolStats = poolStats;
+        return new Tracker();
+    }
+
+    /**
+     * Gets the number of connections currently in use.
+     *
+     * @return the active connection count, or 0 if the pool has not started
+     */
+    public int getActiveConnections() {
+        PoolStats stats = poolStats;
+        return stats == null ? 0 : stats.getActiveConnections();
+    }
+
+    /**
+     * Gets the number of open connections waiting in the pool.
+     *
+     * @return the idle connection count, or 0 if the pool has not started
+     */
+    public int getIdleConnections() {
+        PoolStats stats = poolStats;
+        return stats == null ? 0 : stats.getIdleConnections();
+    }
+
+    /**
+     * Gets the number of open connections, active or idle.
+     *
+     * @return the total connection count, or 0 if the pool has not started
+     */
+    public int getTotalConnections() {
+        PoolStats stats = poolStats;
+        return stats == null ? 0 : stats.getTotalConnections();
+    }
+
+    /**
+     * Gets the number of threads currently waiting for a connection.
+     *
+     * @return the waiting thread count, or 0 if the pool has not started
+     */
+    public int getWaitingThreads() {
+        PoolStats stats = poolStats;
+        return stats == null ? 0 : stats.getPendingThreads();
+    }
+
+    /**
+     * Gets the number of connections handed out by the pool.
+     *
+     * @return the acquisition count
+     */
+    public long getAcquireCount() {
+        return acquisitions.sum();
+    }
+
+    /**
+     * Gets the average time callers waited for a connection.
+     *
+     * @return the mean acquire latency in microseconds, or 0 if no connection was acquired yet
+     */
+    public double getAverageAcquireMicros() {
+        long count = acquisitions.sum();
+        return count == 0 ? 0 : TimeUnit.NANOSECONDS.toMicros(acquireNanos.sum()) / (double) count;
+    }
+
+    /**
+     * Gets the longest time a caller waited for a connection.
+     *
+     * @return the maximum acquire latency in microseconds
+     */
+    public long getMaxAcquireMicros() {
+        return TimeUnit.NANOSECONDS.toMicros(maxAcquireNanos.get());
+    }
+
+    /**
+     * Gets the number of times a caller gave up waiting for a connection.
+     *
+     * @return the timeout count
+     */
+    public long getTimeoutCount() {
+        return timeouts.sum();
+    }
+
+    /**
+     * Gets the average time a connection was held before being returned to the pool.
+     *
+     * @return the mean usage time in milliseconds, or 0 if no connection was acquired yet
+     */
+    public double getAverageUsageMillis() {
+        long count = acquisitions.sum();
+        return count == 0 ? 0 : usageMillis.sum() / (double) count;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("active=%d, idle=%d, waiting=%d, acquired=%d, avgAcquire=%.1fus, maxAcquire=%dus, timeouts=%d",
+                getActiveConnections(), getIdleConnections(), getWaitingThreads(), getAcquireCount(),
+                getAverageAcquireMicros(), getMaxAcquireMicros(), getTimeoutCount());
+    }
+
+    /**
+     * Receives the events of the pool.
+     */
+    private final class Tracker implements IMetricsTracker {
+
+        @Override
+        public void recordConnectionAcquiredNanos(long elapsedAcquiredNanos) {
+            acquisitions.increment();
+            acquireNanos.add(elapsedAcquiredNanos);
+            maxAcquireNanos.accumulate(elapsedAcquiredNanos);
+        }
+
+        @Override
+        public void recordConnectionUsageMillis(long elapsedBorrowedMillis) {
+            usageMillis.add(elapsedBorrowedMillis);
+        }
+
+        @Override
+        public void recordConnectionTimeout() {
+            timeouts.increment();
+        }
+    }
+}
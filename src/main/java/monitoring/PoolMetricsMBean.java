@@ -0,0 +1,52 @@
+package monitoring;
+
+/**
+ * JMX view of the connection pool metrics, see {@link PoolMetrics}.
+ */
+public interface PoolMetricsMBean {
+
+    /**
+     * @return the number of connections currently in use
+     */
+    int getActiveConnections();
+
+    /**
+     * @return the number of open connections waiting in the pool
+     */
+    int getIdleConnections();
+
+    /**
+     * @return the number of open connections, active or idle
+     */
+    int getTotalConnections();
+
+    /**
+     * @return the number of threads currently waiting for a connection
+     */
+    int getWaitingThreads();
+
+    /**
+     * @return the number of connections handed out by the pool
+     */
+    long getAcquireCount();
+
+    /**
+     * @return the mean time callers waited for a connection, in microseconds
+     */
+    double getAverageAcquireMicros();
+
+    /**
+     * @return the longest time a caller waited for a connection, in microseconds
+     */
+    long getMaxAcquireMicros();
+
+    /**
+     * @return the number of times a caller gave up waiting for a connection
+     */
+    long getTimeoutCount();
+
+    /**
+     * @return the mean time a connection was held, in milliseconds
+     */
+    double getAverageUsageMillis();
+}
@@ -0,0 +1,305 @@
+package monitoring;
+
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Logger;
+import java.util.regex.Pattern;
+
+/**
+ * Times every SQL statement run through a {@link #wrap(Connection) wrapped} connection and logs the slow ones.
+ * <p>
+ * Statements are grouped by shape: the SQL with literals replaced by {@code ?} and {@code IN} lists collapsed,
+ * so {@code id IN (?, ?)} and {@code id IN (?, ?, ?)} count as one shape. For each shape the log keeps the
+ * call count, total and longest execution time, and the DAO method that ran it most recently slowly;
+ * {@link #slowest(int)} lists the slowest shapes while the application runs. Shapes beyond {@value #MAX_SHAPES}
+ * displace the fastest one.
+ * <p>
+ * A statement that takes at least the threshold is logged as a warning to the {@code monitoring.SlowQueryLog}
+ * logger, with the DAO method that ran it. Its bind values are logged for a sample of such statements only,
+ * since they can hold personal data. Times cover executing the statement, not reading its results.
+ */
+public final class SlowQueryLog implements SlowQueryLogMBean {
+
+    /**
+     * The most statement shapes kept.
+     */
+    static final int MAX_SHAPES = 1000;
+
+    /**
+     * The most distinct SQL strings whose shape is remembered. Prepared statements reuse a fixed set of strings,
+     * so the cache only fills up if SQL is built with inlined literals; it is then emptied and refilled.
+     */
+    static final int MAX_CACHED_SQL = 4096;
+
+    private static final Logger LOG = Logger.getLogger(SlowQueryLog.class.getName());
+
+    private static final Pattern STRING_LITERAL = Pattern.compile("'(?:[^']|'')*'");
+    private static final Pattern NUMBER_LITERAL = Pattern.compile("\\b\\d+(?:\\.\\d+)?\\b");
+    private static final Pattern IN_LIST = Pattern.compile("\\(\\s*\\?(?:\\s*,\\s*\\?)+\\s*\\)");
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+    private static final int MAX_BIND_LENGTH = 100;
+
+    private final Map<String, Shape> shapes = new ConcurrentHashMap<>();
+    private final Map<String, String> shapesBySql = new ConcurrentHashMap<>();
+    private final LongAdder statements = new LongAdder();
+    private final LongAdder slowStatements = new LongAdder();
+    private volatile long thresholdNanos;
+    private volatile double bindSampleRate;
+
+    /**
+     * Constructs a slow-query log.
+     *
+     * @param thresholdMillis the execution time from which a statement is logged, in milliseconds
+     * @param bindSampleRate  the share of logged statements whose bind values are logged too, from 0 to 1
+     * @throws IllegalArgumentException if the threshold is negative or the rate is not between 0 and 1
+     */
+    public SlowQueryLog(long thresholdMillis, double bindSampleRate) {
+        setThresholdMillis(thresholdMillis);
+        setBindSampleRate(bindSampleRate);
+    }
+
+    /**
+     * Wraps a connection so the statements it runs are timed.
+     *
+     * @param connection the connection to wrap
+     * @return a connection that delegates to the given one
+     */
+    public Connection wrap(Connection connection) {
+        return (Connection) Proxy.newProxyInstance(SlowQueryLog.class.getClassLoader(),
+                new Class<?>[]{Connection.class}, new TimedStatements.ConnectionHandler(connection, this));
+    }
+
+    /**
+     * Records one executed statement, logging it if it was slow.
+     *
+     * @param sql   the SQL of the statement
+     * @param nanos the execution time in nanoseconds
+     * @param binds the bind values by parameter position, starting at 0; may be empty
+     */
+    void record(String sql, long nanos, List<Object> binds) {
+        statements.increment();
+        String shape = cachedShapeOf(sql);
+        Shape stats = shapes.get(shape);
+        if (stats == null) {
+            stats = shapes.computeIfAbsent(shape, Shape::new);
+            if (shapes.size() > MAX_SHAPES) {
+                evictFastest(shape);
+            }
+        }
+        stats.record(nanos);
+        if (nanos < thresholdNanos) {
+            return;
+        }
+        slowStatements.increment();
+        String origin = origin();
+        stats.origin = origin;
+        boolean withBinds = !binds.isEmpty() && ThreadLocalRandom.current().nextDouble() < bindSampleRate;
+        LOG.warning(() -> String.format("Slow statement (%d ms) from %s: %s%s", TimeUnit.NANOSECONDS.toMillis(nanos),
+                origin, sql, withBinds ? " binds " + describe(binds) : ""));
+    }
+
+    /**
+     * Gets the slowest statement shapes seen so far.
+     *
+     * @param limit the most shapes to return
+     * @return the shapes, longest execution first
+     */
+    public List<Shape> slowest(int limit) {
+        List<Shape> all = new ArrayList<>(shapes.values());
+        all.sort(Comparator.comparingLong(Shape::getMaxNanos).reversed());
+        return all.subList(0, Math.min(limit, all.size()));
+    }
+
+    @Override
+    public long getThresholdMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(thresholdNanos);
+    }
+
+    @Override
+    public void setThresholdMillis(long thresholdMillis) {
+        if (thresholdMillis < 0) {
+            throw new IllegalArgumentException("Threshold must not be negative: " + thresholdMillis);
+        }
+        this.thresholdNanos = TimeUnit.MILLISECONDS.toNanos(thresholdMillis);
+    }
+
+    @Override
+    public double getBindSampleRate() {
+        return bindSampleRate;
+    }
+
+    @Override
+    public void setBindSampleRate(double bindSampleRate) {
+        if (!(bindSampleRate >= 0 && bindSampleRate <= 1)) {
+            throw new IllegalArgumentException("Bind sample rate must be between 0 and 1: " + bindSampleRate);
+        }
+        this.bindSampleRate = bindSampleRate;
+    }
+
+    @Override
+    public long getStatementCount() {
+        return statements.sum();
+    }
+
+    @Override
+    public long getSlowStatementCount() {
+        return slowStatements.sum();
+    }
+
+    @Override
+    public String[] getSlowestShapes() {
+        return slowest(20).stream().map(Shape::toString).toArray(String[]::new);
+    }
+
+    @Override
+    public void reset() {
+        shapes.clear();
+        statements.reset();
+        slowStatements.reset();
+    }
+
+    /**
+     * Gets the shape of SQL, reducing each distinct string only once, since the regular expressions
+     * would otherwise run for every statement executed.
+     */
+    private String cachedShapeOf(String sql) {
+        String shape = shapesBySql.get(sql);
+        if (shape == null) {
+            if (shapesBySql.size() >= MAX_CACHED_SQL) {
+                shapesBySql.clear();
+            }
+            shape = shapeOf(sql);
+            shapesBySql.put(sql, shape);
+        }
+        return shape;
+    }
+
+    /**
+     * Reduces SQL to its shape: literals become {@code ?}, lists of parameters become {@code (?, ...)}
+     * and runs of whitespace become one space.
+     *
+     * @param sql the SQL
+     * @return its shape
+     */
+    static String shapeOf(String sql) {
+        String shape = STRING_LITERAL.matcher(sql).replaceAll("?");
+        shape = NUMBER_LITERAL.matcher(shape).replaceAll("?");
+        shape = IN_LIST.matcher(shape).replaceAll("(?, ...)");
+        return WHITESPACE.matcher(shape).replaceAll(" ").trim();
+    }
+
+    /**
+     * Finds the method that ran the current statement: the first DAO method on the stack, looking through
+     * lambdas the DAO passed to its helpers, or else the first frame outside the JDK, Hibernate, the pool and the driver.
+     */
+    private static String origin() {
+        return StackWalker.getInstance().walk(frames -> {
+            String fallback = "unknown";
+            for (StackWalker.StackFrame frame : (Iterable<StackWalker.StackFrame>) frames::iterator) {
+                String type = frame.getClassName();
+                if (type.startsWith("dao.") && type.endsWith("Dao") && !frame.getMethodName().startsWith("lambda$")) {
+                    return type.substring(4) + "." + frame.getMethodName();
+                }
+                if (fallback.equals("unknown") && !isInfrastructure(type)) {
+                    fallback = type + "." + frame.getMethodName();
+                }
+            }
+            return fallback;
+        });
+    }
+
+    private static boolean isInfrastructure(String type) {
+        return type.startsWith("java.") || type.startsWith("javax.") || type.startsWith("jdk.")
+                || type.startsWith("sun.") || type.startsWith("com.sun.") || type.startsWith("org.hibernate.")
+                || type.startsWith("com.zaxxer.") || type.startsWith("org.h2.") || type.startsWith("monitoring.")
+                || type.startsWith("dao.") || type.startsWith("com.sun.proxy.");
+    }
+
+    private static String describe(List<Object> binds) {
+        List<String> values = new ArrayList<>(binds.size());
+        for (Object bind : binds) {
+            String value = String.valueOf(bind);
+            values.add(value.length() > MAX_BIND_LENGTH ? value.substring(0, MAX_BIND_LENGTH) + "..." : value);
+        }
+        return values.toString();
+    }
+
+    private void evictFastest(String keep) {
+        shapes.values().stream()
+                .filter(shape -> !shape.sql.equals(keep))
+                .min(Comparator.comparingLong(Shape::getMaxNanos))
+                .ifPresent(shape -> shapes.remove(shape.sql));
+    }
+
+    /**
+     * The execution times of one statement shape.
+     */
+    public static final class Shape {
+        private final String sql;
+        private final LongAdder count = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+        private volatile String origin;
+
+        Shape(String sql) {
+            this.sql = sql;
+        }
+
+        void record(long nanos) {
+            count.increment();
+            totalNanos.add(nanos);
+            maxNanos.accumulate(nanos);
+        }
+
+        /**
+         * @return the shape of the SQL
+         */
+        public String getSql() {
+            return sql;
+        }
+
+        /**
+         * @return the number of executions
+         */
+        public long getCount() {
+            return count.sum();
+        }
+
+        /**
+         * @return the longest execution time in nanoseconds
+         */
+        public long getMaxNanos() {
+            return maxNanos.get();
+        }
+
+        /**
+         * @return the mean execution time in nanoseconds
+         */
+        public double getMeanNanos() {
+            long n = count.sum();
+            return n == 0 ? 0 : (double) totalNanos.sum() / n;
+        }
+
+        /**
+         * @return the method that last ran the shape slowly, or {@code null} if it never was slow
+         */
+        public String getOrigin() {
+            return origin;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("max %.1f ms, mean %.2f ms, %d calls, from %s: %s", getMaxNanos() / 1e6,
+                    getMeanNanos() / 1e6, getCount(), origin == null ? "-" : origin, sql);
+        }
+    }
+}
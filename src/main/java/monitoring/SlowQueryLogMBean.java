@@ -0,0 +1,47 @@
+package monitoring;
+
+/**
+ * JMX view of the slow-query log, see {@link SlowQueryLog}.
+ */
+public interface SlowQueryLogMBean {
+
+    /**
+     * @return the execution time from which a statement is logged, in milliseconds
+     */
+    long getThresholdMillis();
+
+    /**
+     * @param thresholdMillis the execution time from which a statement is logged, in milliseconds
+     */
+    void setThresholdMillis(long thresholdMillis);
+
+    /**
+     * @return the share of logged statements whose bind values are logged too, from 0 to 1
+     */
+    double getBindSampleRate();
+
+    /**
+     * @param bindSampleRate the share of logged statements whose bind values are logged too, from 0 to 1
+     */
+    void setBindSampleRate(double bindSampleRate);
+
+    /**
+     * @return the number of statements executed
+     */
+    long getStatementCount();
+
+    /**
+     * @return the number of statements that took at least the threshold
+     */
+    long getSlowStatementCount();
+
+    /**
+     * @return the slowest statement shapes, slowest first, one line each
+     */
+    String[] getSlowestShapes();
+
+    /**
+     * Forgets all statement shapes and counts.
+     */
+    void reset();
+}
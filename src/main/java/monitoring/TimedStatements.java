@@ -0,0 +1,134 @@
+package monitoring;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The JDBC proxies behind {@link SlowQueryLog#wrap(Connection)}. The connection proxy hands out statement
+ * proxies, which remember their SQL and bind values and report every execution to the log.
+ */
+final class TimedStatements {
+
+    private TimedStatements() { }
+
+    /**
+     * Calls a method on the real object, rethrowing what it throws rather than a reflection wrapper.
+     */
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Wraps the statements created by a connection.
+     */
+    static final class ConnectionHandler implements InvocationHandler {
+        private final Connection connection;
+        private final SlowQueryLog log;
+
+        ConnectionHandler(Connection connection, SlowQueryLog log) {
+            this.connection = connection;
+            this.log = log;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            Object result = TimedStatements.invoke(connection, method, args);
+            switch (method.getName()) {
+                case "prepareStatement":
+                    return wrap(PreparedStatement.class, result, (String) args[0]);
+                case "prepareCall":
+                    return wrap(CallableStatement.class, result, (String) args[0]);
+                case "createStatement":
+                    return wrap(Statement.class, result, null);
+                default:
+                    return result;
+            }
+        }
+
+        private Object wrap(Class<? extends Statement> type, Object statement, String sql) {
+            return Proxy.newProxyInstance(SlowQueryLog.class.getClassLoader(), new Class<?>[]{type},
+                    new StatementHandler((Statement) statement, sql, log));
+        }
+    }
+
+    /**
+     * Times the executions of one statement. For a prepared statement the SQL is known up front and the bind
+     * values are collected from the setters; for a plain statement the SQL comes with each execution.
+     */
+    static final class StatementHandler implements InvocationHandler {
+        private final Statement statement;
+        private final String preparedSql;
+        private final SlowQueryLog log;
+        private final List<Object> binds = new ArrayList<>();
+        private final List<String> batch = new ArrayList<>();
+        private int batchSize;
+
+        StatementHandler(Statement statement, String preparedSql, SlowQueryLog log) {
+            this.statement = statement;
+            this.preparedSql = preparedSql;
+            this.log = log;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            if (name.startsWith("set") && args != null && args.length >= 2 && args[0] instanceof Integer
+                    && preparedSql != null) {
+                bind((Integer) args[0], name.equals("setNull") ? null : args[1]);
+            } else if (name.equals("clearParameters")) {
+                binds.clear();
+            } else if (name.equals("addBatch")) {
+                if (args != null && args.length == 1) {
+                    batch.add((String) args[0]);
+                }
+                batchSize++;
+            } else if (name.equals("clearBatch")) {
+                batch.clear();
+                batchSize = 0;
+            } else if (name.startsWith("execute")) {
+                return execute(method, args);
+            }
+            return TimedStatements.invoke(statement, method, args);
+        }
+
+        private Object execute(Method method, Object[] args) throws Throwable {
+            String sql;
+            if (method.getName().startsWith("executeBatch") || method.getName().startsWith("executeLargeBatch")) {
+                sql = (preparedSql != null ? preparedSql : String.join("; ", batch)) + " /* batch of " + batchSize + " */";
+                batch.clear();
+                batchSize = 0;
+            } else if (args != null && args.length > 0 && args[0] instanceof String) {
+                sql = (String) args[0];
+            } else {
+                sql = preparedSql;
+            }
+            long start = System.nanoTime();
+            try {
+                return TimedStatements.invoke(statement, method, args);
+            } finally {
+                if (sql != null) {
+                    log.record(sql, System.nanoTime() - start, binds);
+                }
+            }
+        }
+
+        private void bind(int position, Object value) {
+            while (binds.size() < position) {
+                binds.add(null);
+            }
+            binds.set(position - 1, value);
+        }
+    }
+}
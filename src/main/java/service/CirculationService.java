@@ -0,0 +1,209 @@
+package service;
+
+import dao.OptimisticRetry;
+import monitoring.DaoMetrics;
+import entity.Book;
+import entity.Borrowing;
+import entity.Copy;
+import entity.User;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.EntityTransaction;
+import javax.persistence.LockModeType;
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Lends and takes back copies of books.
+ * Each checkout and checkin runs in a single transaction, so a copy's status and its {@link Borrowing}
+ * always change together. Checkouts read the available copies of a title and claim the first one they can lock
+ * with {@code SELECT ... FOR UPDATE SKIP LOCKED}: concurrent checkouts of the same title each lock a different
+ * available copy instead of waiting for one another or handing out the same copy twice.
+ * Copies are locked one at a time by ID, because H2 locks every row a {@code FOR UPDATE} query reads,
+ * even those a {@code FETCH FIRST} clause then drops.
+ * Both run under {@link OptimisticRetry#DEFAULT}, so a concurrent update of the same copy
+ * makes the whole transaction start over instead of failing. Their latency, retries included, is recorded
+ * in {@link DaoMetrics} as {@code Circulation.checkout} and {@code Circulation.checkin}.
+ */
+public class CirculationService {
+
+    /**
+     * Selects the available copies of a book, without locking them, in the order they are lent.
+     */
+    private static final String AVAILABLE_COPIES_SQL =
+            "SELECT id FROM Copies WHERE book_id = ? AND status = 'Available' ORDER BY copyNumber, id";
+
+    /**
+     * Locks a copy if it is still available and no other transaction has locked it.
+     */
+    private static final String CLAIM_COPY_SQL =
+            "SELECT id FROM Copies WHERE id = ? AND status = 'Available' FOR UPDATE SKIP LOCKED";
+
+    private final EntityManagerFactory emf;
+    private final DaoMetrics metrics;
+
+    /**
+     * Constructs a new {@code CirculationService} with the specified {@link EntityManagerFactory},
+     * recording into the shared {@link DaoMetrics}.
+     *
+     * @param emf the {@link EntityManagerFactory} to use for database operations.
+     */
+    public CirculationService(EntityManagerFactory emf) {
+        this(emf, DaoMetrics.shared());
+    }
+
+    /**
+     * Constructs a new {@code CirculationService} that records its calls into the given metrics.
+     *
+     * @param emf     the {@link EntityManagerFactory} to use for database operations.
+     * @param metrics the metrics to record the calls into.
+     */
+    public CirculationService(EntityManagerFactory emf, DaoMetrics metrics) {
+        this.emf = emf;
+        this.metrics = metrics;
+    }
+
+    /**
+     * Lends an available copy of a book to a user, starting today.
+     *
+     * @param userId the ID of the borrowing {@link User}.
+     * @param bookId the ID of the {@link Book} to borrow.
+     * @return the persisted {@link Borrowing}.
+     * @throws IllegalArgumentException if the user or the book does not exist.
+     * @throws IllegalStateException    if no copy of the book is available.
+     */
+    public Borrowing checkout(Long userId, Long bookId) {
+        return checkout(userId, bookId, LocalDate.now());
+    }
+
+    /**
+     * Lends an available copy of a book to a user. The copy is claimed, marked as "Borrowed"
+     * and the {@link Borrowing} is created in one transaction.
+     *
+     * @param userId     the ID of the borrowing {@link User}.
+     * @param bookId     the ID of the {@link Book} to borrow.
+     * @param borrowDate the date the copy is borrowed.
+     * @return the persisted {@link Borrowing}.
+     * @throws IllegalArgumentException if the user or the book does not exist.
+     * @throws IllegalStateException    if no copy of the book is available.
+     */
+    public Borrowing checkout(Long userId, Long bookId, LocalDate borrowDate) {
+        return metrics.time("Circulation", "checkout",
+                () -> OptimisticRetry.DEFAULT.execute(() -> lend(userId, bookId, borrowDate)));
+    }
+
+    /**
+     * Runs one checkout attempt in its own transaction.
+     *
+     * @param userId     the ID of the borrowing {@link User}.
+     * @param bookId     the ID of the {@link Book} to borrow.
+     * @param borrowDate the date the copy is borrowed.
+     * @return the persisted {@link Borrowing}.
+     */
+    private Borrowing lend(Long userId, Long bookId, LocalDate borrowDate) {
+        EntityManager em = emf.createEntityManager();
+        EntityTransaction tx = em.getTransaction();
+        try {
+            tx.begin();
+            User user = em.find(User.class, userId);
+            if (user == null) {
+                throw new IllegalArgumentException("User not found: " + userId);
+            }
+
+            List<?> available = em.createNativeQuery(AVAILABLE_COPIES_SQL)
+                    .setParameter(1, bookId)
+                    .getResultList();
+            Long claimedId = null;
+            for (Object candidate : available) {
+                // Skip copies another checkout has locked, or lent since they were read
+                if (!em.createNativeQuery(CLAIM_COPY_SQL).setParameter(1, candidate).getResultList().isEmpty()) {
+                    claimedId = ((Number) candidate).longValue();
+                    break;
+                }
+            }
+            if (claimedId == null) {
+                if (available.isEmpty() && em.find(Book.class, bookId) == null) {
+                    throw new IllegalArgumentException("Book not found: " + bookId);
+                }
+                throw new IllegalStateException("No available copies for this book");
+            }
+
+            // The row is locked by this transaction, so its status cannot change before commit
+            Copy copy = em.find(Copy.class, claimedId);
+            copy.setStatus("Borrowed");
+
+            Borrowing borrowing = new Borrowing(user, copy, borrowDate, null);
+            em.persist(borrowing);
+            tx.commit();
+            return borrowing;
+        } finally {
+            if (tx.isActive()) {
+                tx.rollback();
+            }
+            em.close();
+        }
+    }
+
+    /**
+     * Takes back a borrowed copy today.
+     *
+     * @param borrowingId the ID of the {@link Borrowing} to close.
+     * @return the updated {@link Borrowing}.
+     * @throws IllegalArgumentException if the borrowing does not exist.
+     * @throws IllegalStateException    if the borrowing has already been returned.
+     */
+    public Borrowing checkin(Long borrowingId) {
+        return checkin(borrowingId, LocalDate.now());
+    }
+
+    /**
+     * Takes back a borrowed copy. The return date is set and the copy is marked as "Available"
+     * in one transaction. The borrowing row is locked first, so a copy cannot be returned twice.
+     *
+     * @param borrowingId the ID of the {@link Borrowing} to close.
+     * @param returnDate  the date the copy was returned.
+     * @return the updated {@link Borrowing}.
+     * @throws IllegalArgumentException if the borrowing does not exist.
+     * @throws IllegalStateException    if the borrowing has already been returned.
+     */
+    public Borrowing checkin(Long borrowingId, LocalDate returnDate) {
+        return metrics.time("Circulation", "checkin",
+                () -> OptimisticRetry.DEFAULT.execute(() -> takeBack(borrowingId, returnDate)));
+    }
+
+    /**
+     * Runs one checkin attempt in its own transaction.
+     *
+     * @param borrowingId the ID of the {@link Borrowing} to close.
+     * @param returnDate  the date the copy was returned.
+     * @return the updated {@link Borrowing}.
+     */
+    private Borrowing takeBack(Long borrowingId, LocalDate returnDate) {
+        EntityManager em = emf.createEntityManager();
+        EntityTransaction tx = em.getTransaction();
+        try {
+            tx.begin();
+            Borrowing borrowing = em.find(Borrowing.class, borrowingId, LockModeType.PESSIMISTIC_WRITE);
+            if (borrowing == null) {
+                throw new IllegalArgumentException("Borrowing not found: " + borrowingId);
+            }
+            if (borrowing.getReturnDate() != null) {
+                throw new IllegalStateException("Borrowing has already been returned");
+            }
+
+            borrowing.setReturnDate(returnDate);
+            Copy copy = borrowing.getCopy();
+            if (copy != null) {
+                copy.setStatus("Available");
+            }
+            tx.commit();
+            return borrowing;
+        } finally {
+            if (tx.isActive()) {
+                tx.rollback();
+            }
+            em.close();
+        }
+    }
+}
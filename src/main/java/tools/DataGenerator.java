@@ -0,0 +1,522 @@
+package tools;
+
+import dao.*;
+import entity.*;
+
+import javax.persistence.EntityManagerFactory;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Generates a large, realistic library for scale testing: publishers, books with their copies,
+ * users and a multi-year borrowing history.
+ * <ul>
+ *     <li>Generation is deterministic: the same seed and settings always produce the same data.</li>
+ *     <li>Book popularity follows a Zipf distribution, so a few titles account for most borrowings,
+ *     and popular titles own more copies.</li>
+ *     <li>The history is simulated day by day: a copy is only lent while it is on the shelf, and loans that
+ *     have not ended by the end date stay open with their copy marked "Borrowed".</li>
+ *     <li>Rows are written in chunks through the batched {@code createAll} of each DAO.</li>
+ * </ul>
+ * ISBNs and e-mail addresses are numbered from {@link #firstIndex(long)}, so data generated twice into
+ * the same database needs a different first index. Books, copies and users are kept in memory while the
+ * borrowings are written, which takes about 200 bytes per row.
+ */
+public class DataGenerator {
+
+    /**
+     * Number of rows written per transaction.
+     */
+    private static final int CHUNK_SIZE = 10_000;
+
+    /**
+     * Upper bound of the number of copies of one book.
+     */
+    private static final int MAX_COPIES = 20;
+
+    /**
+     * Mixed into the seed for the borrowing history, which is simulated twice and must not depend on
+     * how many random numbers were used for the rest of the data.
+     */
+    private static final long HISTORY_SALT = 0x5DEECE66DL;
+
+    private static final String[] ADJECTIVES = {
+            "Silent", "Golden", "Hidden", "Last", "Broken", "Crimson", "Distant", "Endless", "Forgotten", "Frozen",
+            "Gentle", "Hollow", "Iron", "Lonely", "Lost", "Midnight", "Northern", "Quiet", "Restless", "Secret",
+            "Shattered", "Silver", "Stolen", "Summer", "Velvet", "Wild", "Winter", "Wandering", "Burning", "Painted"
+    };
+
+    private static final String[] NOUNS = {
+            "River", "Garden", "Kingdom", "House", "Shadow", "Ocean", "Mountain", "Letter", "Mirror", "Promise",
+            "Island", "Forest", "City", "Storm", "Journey", "Empire", "Harbor", "Song", "Voyage", "Lantern",
+            "Orchard", "Machine", "Library", "Bridge", "Crown", "Dream", "Engine", "Frontier", "Witness", "Archive"
+    };
+
+    private static final String[] FIRST_NAMES = {
+            "Anna", "Jan", "Olga", "Piotr", "Maria", "Tomasz", "Elena", "Adam", "Sofia", "Marek",
+            "Laura", "David", "Irina", "Lukas", "Emma", "Oskar", "Nina", "Viktor", "Clara", "Pavel"
+    };
+
+    private static final String[] LAST_NAMES = {
+            "Nowak", "Kowalski", "Smith", "Novak", "Horvat", "Schmidt", "Ivanova", "Garcia", "Rossi", "Dubois",
+            "Jensen", "Kaplan", "Moreau", "Petrov", "Silva", "Weber", "Lindqvist", "Costa", "Fischer", "Marin"
+    };
+
+    private static final String[] PUBLISHER_SUFFIXES = {"Press", "Books", "Publishing", "House", "Editions"};
+
+    private final long seed;
+    private int publishers = 50;
+    private int books = 10_000;
+    private int users = 5_000;
+    private int years = 3;
+    private double loansPerUserPerYear = 12;
+    private double popularitySkew = 1.0;
+    private LocalDate endDate = LocalDate.of(2025, 1, 1);
+    private long firstIndex = 0;
+
+    /**
+     * Constructs a generator with default settings.
+     *
+     * @param seed the seed of all random choices
+     */
+    public DataGenerator(long seed) {
+        this.seed = seed;
+    }
+
+    /**
+     * Sets the number of publishers.
+     *
+     * @param publishers the number of publishers, at least 1
+     * @return this generator
+     */
+    public DataGenerator publishers(int publishers) {
+        this.publishers = requirePositive(publishers, "publishers");
+        return this;
+    }
+
+    /**
+     * Sets the number of books. Each book gets between 1 and {@value #MAX_COPIES} copies.
+     *
+     * @param books the number of books, at least 1
+     * @return this generator
+     */
+    public DataGenerator books(int books) {
+        this.books = requirePositive(books, "books");
+        return this;
+    }
+
+    /**
+     * Sets the number of users.
+     *
+     * @param users the number of users, at least 1
+     * @return this generator
+     */
+    public DataGenerator users(int users) {
+        this.users = requirePositive(users, "users");
+        return this;
+    }
+
+    /**
+     * Sets the length of the borrowing history.
+     *
+     * @param years the number of years before the end date, at least 1
+     * @return this generator
+     */
+    public DataGenerator years(int years) {
+        this.years = requirePositive(years, "years");
+        return this;
+    }
+
+    /**
+     * Sets how many loans the average user asks for per year. Asks for titles with no copy on the shelf
+     * are not turned into borrowings, so the history can hold fewer loans than asked for.
+     *
+     * @param loansPerUserPerYear the average number of loans per user and year, not negative
+     * @return this generator
+     */
+    public DataGenerator loansPerUserPerYear(double loansPerUserPerYear) {
+        if (loansPerUserPerYear < 0) {
+            throw new IllegalArgumentException("loansPerUserPerYear must not be negative");
+        }
+        this.loansPerUserPerYear = loansPerUserPerYear;
+        return this;
+    }
+
+    /**
+     * Sets the exponent of the Zipf distribution of book popularity. Higher values concentrate
+     * borrowings on fewer titles.
+     *
+     * @param popularitySkew the exponent, greater than 0
+     * @return this generator
+     */
+    public DataGenerator popularitySkew(double popularitySkew) {
+        if (popularitySkew <= 0) {
+            throw new IllegalArgumentException("popularitySkew must be positive");
+        }
+        this.popularitySkew = popularitySkew;
+        return this;
+    }
+
+    /**
+     * Sets the last day of the borrowing history. Loans still running on that day stay open.
+     *
+     * @param endDate the end of the history
+     * @return this generator
+     */
+    public DataGenerator endDate(LocalDate endDate) {
+        this.endDate = endDate;
+        return this;
+    }
+
+    /**
+     * Sets the number from which ISBNs and e-mail addresses are counted.
+     *
+     * @param firstIndex the first index, not negative
+     * @return this generator
+     */
+    public DataGenerator firstIndex(long firstIndex) {
+        if (firstIndex < 0) {
+            throw new IllegalArgumentException("firstIndex must not be negative");
+        }
+        this.firstIndex = firstIndex;
+        return this;
+    }
+
+    /**
+     * Generates the data and writes it to the database.
+     *
+     * @param emf the {@link EntityManagerFactory} of the database to fill
+     * @return the number of rows written
+     */
+    public Result generate(EntityManagerFactory emf) {
+        long started = System.nanoTime();
+        SplittableRandom random = new SplittableRandom(seed);
+
+        // Publishers
+        List<Publisher> publisherList = new ArrayList<>(publishers);
+        for (int i = 0; i < publishers; i++) {
+            publisherList.add(newPublisher(random, i));
+        }
+        new PublisherDao(emf).createAll(publisherList);
+
+        // Popularity: books are ranked in a random order, popular books get more copies
+        int[] bookOfRank = shuffledIndexes(books, random);
+        int[] copyCounts = new int[books];
+        for (int rank = 0; rank < books; rank++) {
+            copyCounts[bookOfRank[rank]] = copyCount(rank, random);
+        }
+        int[] firstCopy = new int[books + 1];
+        for (int book = 0; book < books; book++) {
+            firstCopy[book + 1] = firstCopy[book] + copyCounts[book];
+        }
+        int totalCopies = firstCopy[books];
+
+        // First pass over the history, to know which copies are out at the end
+        boolean[] lentOut = new boolean[totalCopies];
+        simulateHistory(bookOfRank, firstCopy, (user, copy, borrowDay, returnDay) -> {
+            if (returnDay < 0) {
+                lentOut[copy] = true;
+            }
+        });
+
+        // Books and their copies
+        BookDao bookDao = new BookDao(emf);
+        CopyDao copyDao = new CopyDao(emf);
+        Book[] bookEntities = new Book[books];
+        Copy[] copyEntities = new Copy[totalCopies];
+        List<Book> bookChunk = new ArrayList<>(CHUNK_SIZE);
+        List<Copy> copyChunk = new ArrayList<>(CHUNK_SIZE);
+        for (int book = 0; book < books; book++) {
+            Publisher publisher = publisherList.get(random.nextInt(publishers));
+            bookEntities[book] = newBook(random, book, publisher);
+            bookChunk.add(bookEntities[book]);
+            if (bookChunk.size() == CHUNK_SIZE || book == books - 1) {
+                bookDao.createAll(bookChunk);
+                bookChunk.clear();
+            }
+        }
+        for (int book = 0; book < books; book++) {
+            for (int copy = firstCopy[book]; copy < firstCopy[book + 1]; copy++) {
+                String status = lentOut[copy] ? "Borrowed" : "Available";
+                copyEntities[copy] = new Copy(bookEntities[book], copy - firstCopy[book] + 1, status);
+                copyChunk.add(copyEntities[copy]);
+                if (copyChunk.size() == CHUNK_SIZE) {
+                    copyDao.createAll(copyChunk);
+                    copyChunk.clear();
+                }
+            }
+        }
+        if (!copyChunk.isEmpty()) {
+            copyDao.createAll(copyChunk);
+        }
+
+        // Users
+        UserDao userDao = new UserDao(emf);
+        User[] userEntities = new User[users];
+        List<User> userChunk = new ArrayList<>(CHUNK_SIZE);
+        for (int user = 0; user < users; user++) {
+            userEntities[user] = newUser(random, user);
+            userChunk.add(userEntities[user]);
+            if (userChunk.size() == CHUNK_SIZE || user == users - 1) {
+                userDao.createAll(userChunk);
+                userChunk.clear();
+            }
+        }
+
+        // Second pass over the history, which draws exactly the same loans, writing them
+        BorrowingDao borrowingDao = new BorrowingDao(emf);
+        LocalDate startDate = startDate();
+        List<Borrowing> borrowingChunk = new ArrayList<>(CHUNK_SIZE);
+        long[] counts = new long[2]; // borrowings, of which still open
+        simulateHistory(bookOfRank, firstCopy, (user, copy, borrowDay, returnDay) -> {
+            LocalDate returnDate = returnDay < 0 ? null : startDate.plusDays(returnDay);
+            borrowingChunk.add(new Borrowing(userEntities[user], copyEntities[copy], startDate.plusDays(borrowDay), returnDate));
+            counts[0]++;
+            if (returnDate == null) {
+                counts[1]++;
+            }
+            if (borrowingChunk.size() == CHUNK_SIZE) {
+                borrowingDao.createAll(borrowingChunk);
+                borrowingChunk.clear();
+            }
+        });
+        if (!borrowingChunk.isEmpty()) {
+            borrowingDao.createAll(borrowingChunk);
+        }
+
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started);
+        return new Result(publishers, books, totalCopies, users, counts[0], counts[1], elapsedMillis);
+    }
+
+    /**
+     * Receives the loans of the simulated history in chronological order.
+     */
+    private interface LoanConsumer {
+        /**
+         * @param user      the index of the borrowing user
+         * @param copy      the index of the borrowed copy
+         * @param borrowDay the day of the loan, counted from the start of the history
+         * @param returnDay the day of the return, or -1 if the copy is still out at the end of the history
+         */
+        void accept(int user, int copy, int borrowDay, int returnDay);
+    }
+
+    /**
+     * Simulates the borrowing history day by day. Each day a number of users ask for a title drawn by popularity
+     * and get the first copy of it that is on the shelf, for one to six weeks.
+     * Uses its own random sequence, so every call reports the same loans.
+     */
+    private void simulateHistory(int[] bookOfRank, int[] firstCopy, LoanConsumer consumer) {
+        SplittableRandom random = new SplittableRandom(seed ^ HISTORY_SALT);
+        ZipfSampler popularity = new ZipfSampler(books, popularitySkew);
+        int days = (int) ChronoUnit.DAYS.between(startDate(), endDate);
+        double loansPerDay = users * loansPerUserPerYear * years / days;
+        int[] onShelfFrom = new int[firstCopy[books]];
+
+        for (int day = 0; day < days; day++) {
+            int asks = (int) loansPerDay + (random.nextDouble() < loansPerDay % 1 ? 1 : 0);
+            for (int ask = 0; ask < asks; ask++) {
+                int user = random.nextInt(users);
+                int book = bookOfRank[popularity.sample(random) - 1];
+                int loanDays = 7 + random.nextInt(36);
+
+                int copy = firstCopy[book];
+                while (copy < firstCopy[book + 1] && onShelfFrom[copy] > day) {
+                    copy++;
+                }
+                if (copy == firstCopy[book + 1]) {
+                    continue; // Every copy of the title is out
+                }
+                int returnDay = day + loanDays;
+                if (returnDay >= days) {
+                    onShelfFrom[copy] = Integer.MAX_VALUE;
+                    consumer.accept(user, copy, day, -1);
+                } else {
+                    onShelfFrom[copy] = returnDay;
+                    consumer.accept(user, copy, day, returnDay);
+                }
+            }
+        }
+    }
+
+    private LocalDate startDate() {
+        return endDate.minusYears(years);
+    }
+
+    private Publisher newPublisher(SplittableRandom random, int index) {
+        String name = pick(random, NOUNS) + " " + pick(random, PUBLISHER_SUFFIXES);
+        return new Publisher(name, (index + 1) + " " + pick(random, NOUNS) + " Street", phoneNumber(random));
+    }
+
+    private Book newBook(SplittableRandom random, int index, Publisher publisher) {
+        String title;
+        switch (random.nextInt(4)) {
+            case 0:
+                title = "The " + pick(random, ADJECTIVES) + " " + pick(random, NOUNS);
+                break;
+            case 1:
+                title = "The " + pick(random, NOUNS) + " of the " + pick(random, NOUNS);
+                break;
+            case 2:
+                title = pick(random, ADJECTIVES) + " " + pick(random, NOUNS);
+                break;
+            default:
+                title = pick(random, NOUNS) + " and " + pick(random, NOUNS);
+                break;
+        }
+        String author = pick(random, FIRST_NAMES) + " " + pick(random, LAST_NAMES);
+        double age = random.nextDouble();
+        int publicationYear = endDate.getYear() - (int) (75 * age * age); // Newer books are more common
+        Book book = new Book(title, author, publisher.getName(), publicationYear, isbn(firstIndex + index));
+        book.setPublisherEntity(publisher);
+        return book;
+    }
+
+    private User newUser(SplittableRandom random, int index) {
+        String firstName = pick(random, FIRST_NAMES);
+        String lastName = pick(random, LAST_NAMES);
+        String email = firstName.toLowerCase() + "." + lastName.toLowerCase() + "." + (firstIndex + index) + "@example.org";
+        String address = (1 + random.nextInt(200)) + " " + pick(random, NOUNS) + " Avenue";
+        return new User(firstName + " " + lastName, email, phoneNumber(random), address);
+    }
+
+    /**
+     * Draws the number of copies of a book: mostly one or two, more for popular titles.
+     */
+    private static int copyCount(int rank, SplittableRandom random) {
+        int extra = (int) (Math.log(1 - random.nextDouble()) / Math.log(0.45)); // Geometric, mean about 0.8
+        int popular = (int) (8 / Math.sqrt(rank + 1));
+        return Math.min(MAX_COPIES, 1 + extra + popular);
+    }
+
+    /**
+     * Builds a valid ISBN-13 in the 979 range from a running number.
+     */
+    static String isbn(long number) {
+        String digits = "979" + String.format("%09d", number % 1_000_000_000L);
+        int sum = 0;
+        for (int i = 0; i < 12; i++) {
+            sum += (digits.charAt(i) - '0') * (i % 2 == 0 ? 1 : 3);
+        }
+        return digits + (10 - sum % 10) % 10;
+    }
+
+    private static int[] shuffledIndexes(int size, SplittableRandom random) {
+        int[] indexes = new int[size];
+        for (int i = 0; i < size; i++) {
+            indexes[i] = i;
+        }
+        for (int i = size - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int swap = indexes[i];
+            indexes[i] = indexes[j];
+            indexes[j] = swap;
+        }
+        return indexes;
+    }
+
+    private static String phoneNumber(SplittableRandom random) {
+        return String.format("%03d %03d %03d", random.nextInt(1000), random.nextInt(1000), random.nextInt(1000));
+    }
+
+    private static String pick(SplittableRandom random, String[] values) {
+        return values[random.nextInt(values.length)];
+    }
+
+    private static int requirePositive(int value, String name) {
+        if (value < 1) {
+            throw new IllegalArgumentException(name + " must be at least 1");
+        }
+        return value;
+    }
+
+    /**
+     * Generates a library into the application database and prints what was written.
+     * Arguments, all optional: number of books, number of users, years of history, seed.
+     *
+     * @param args the command line arguments
+     */
+    public static void main(String[] args) {
+        int books = args.length > 0 ? Integer.parseInt(args[0]) : 10_000;
+        int users = args.length > 1 ? Integer.parseInt(args[1]) : books / 2;
+        int years = args.length > 2 ? Integer.parseInt(args[2]) : 3;
+        long seed = args.length > 3 ? Long.parseLong(args[3]) : 42;
+        try {
+            Result result = new DataGenerator(seed)
+                    .publishers(Math.max(1, books / 200))
+                    .books(books)
+                    .users(Math.max(1, users))
+                    .years(years)
+                    .generate(LibraryPersistence.get());
+            System.out.println(result);
+        } finally {
+            LibraryPersistence.shutdown();
+        }
+    }
+
+    /**
+     * The number of rows written by {@link #generate(EntityManagerFactory)}.
+     */
+    public static final class Result {
+        private final int publishers;
+        private final int books;
+        private final int copies;
+        private final int users;
+        private final long borrowings;
+        private final long openBorrowings;
+        private final long elapsedMillis;
+
+        Result(int publishers, int books, int copies, int users, long borrowings, long openBorrowings, long elapsedMillis) {
+            this.publishers = publishers;
+            this.books = books;
+            this.copies = copies;
+            this.users = users;
+            this.borrowings = borrowings;
+            this.openBorrowings = openBorrowings;
+            this.elapsedMillis = elapsedMillis;
+        }
+
+        public int getPublishers() {
+            return publishers;
+        }
+
+        public int getBooks() {
+            return books;
+        }
+
+        public int getCopies() {
+            return copies;
+        }
+
+        public int getUsers() {
+            return users;
+        }
+
+        public long getBorrowings() {
+            return borrowings;
+        }
+
+        /**
+         * Gets the number of borrowings without a return date, one per copy marked "Borrowed".
+         *
+         * @return the number of open borrowings
+         */
+        public long getOpenBorrowings() {
+            return openBorrowings;
+        }
+
+        public long getElapsedMillis() {
+            return elapsedMillis;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("publishers=%d, books=%d, copies=%d, users=%d, borrowings=%d (open %d) in %d ms",
+                    publishers, books, copies, users, borrowings, openBorrowings, elapsedMillis);
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package tools;
+
+import java.util.SplittableRandom;
+
+/**
+ * Draws ranks from a Zipf distribution: rank {@code k} out of {@code n} is drawn with probability
+ * proportional to {@code 1 / k^exponent}, so a few ranks are drawn very often and most rarely.
+ * Uses rejection-inversion sampling (Hörmann and Derflinger), which needs constant memory and
+ * constant expected time per draw for any {@code n}.
+ */
+final class ZipfSampler {
+
+    private final int numberOfElements;
+    private final double exponent;
+    private final double hIntegralX1;
+    private final double hIntegralNumberOfElements;
+    private final double s;
+
+    /**
+     * Constructs a sampler.
+     *
+     * @param numberOfElements the number of ranks, at least 1
+     * @param exponent         the skew of the distribution, greater than 0; 1 is the classic Zipf law
+     */
+    ZipfSampler(int numberOfElements, double exponent) {
+        if (numberOfElements < 1 || exponent <= 0) {
+            throw new IllegalArgumentException("Zipf distribution needs at least one element and a positive exponent");
+        }
+        this.numberOfElements = numberOfElements;
+        this.exponent = exponent;
+        this.hIntegralX1 = hIntegral(1.5) - 1d;
+        this.hIntegralNumberOfElements = hIntegral(numberOfElements + 0.5);
+        this.s = 2d - hIntegralInverse(hIntegral(2.5) - h(2));
+    }
+
+    /**
+     * Draws a rank.
+     *
+     * @param random the source of randomness
+     * @return a rank between 1 and the number of elements
+     */
+    int sample(SplittableRandom random) {
+        while (true) {
+            double u = hIntegralNumberOfElements + random.nextDouble() * (hIntegralX1 - hIntegralNumberOfElements);
+            double x = hIntegralInverse(u);
+            int k = (int) (x + 0.5);
+            if (k < 1) {
+                k = 1;
+            } else if (k > numberOfElements) {
+                k = numberOfElements;
+            }
+            if (k - x <= s || u >= hIntegral(k + 0.5) - h(k)) {
+                return k;
+            }
+        }
+    }
+
+    private double hIntegral(double x) {
+        double logX = Math.log(x);
+        return helper2((1d - exponent) * logX) * logX;
+    }
+
+    private double h(double x) {
+        return Math.exp(-exponent * Math.log(x));
+    }
+
+    private double hIntegralInverse(double x) {
+        double t = x * (1d - exponent);
+        if (t < -1d) {
+            t = -1d; // Limit the value to the domain of log1p, which can be left by rounding errors
+        }
+        return Math.exp(helper1(t) * x);
+    }
+
+    /**
+     * Computes {@code log(1 + x) / x}, accurately also for {@code x} close to 0.
+     */
+    private static double helper1(double x) {
+        return Math.abs(x) > 1e-8 ? Math.log1p(x) / x : 1d - x * (0.5 - x * (1d / 3 - 0.25 * x));
+    }
+
+    /**
+     * Computes {@code (exp(x) - 1) / x}, accurately also for {@code x} close to 0.
+     */
+    private static double helper2(double x) {
+        return Math.abs(x) > 1e-8 ? Math.expm1(x) / x : 1d + x * 0.5 * (1d + x * (1d / 3) * (1d + 0.25 * x));
+    }
+}
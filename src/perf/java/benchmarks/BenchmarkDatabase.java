@@ -0,0 +1,77 @@
+package benchmarks;
+
+import tools.DataGenerator;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.Persistence;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * An in-memory H2 database of its own for one benchmark trial, filled by {@link DataGenerator}.
+ * Each instance uses a new database name, so trials never see each other's rows, and the database
+ * is dropped when {@link #close()} closes its last connection.
+ */
+final class BenchmarkDatabase implements AutoCloseable {
+
+    private static final AtomicInteger DATABASES = new AtomicInteger();
+
+    private final EntityManagerFactory emf;
+
+    /**
+     * Creates and fills a database.
+     *
+     * @param books           the number of books to generate; users, publishers and history are scaled from it
+     * @param extraProperties persistence unit properties to override, for example to switch the query cache off
+     */
+    BenchmarkDatabase(int books, Map<String, Object> extraProperties) {
+        Map<String, Object> properties = new HashMap<>();
+        properties.put("javax.persistence.jdbc.url",
+                "jdbc:h2:mem:bench" + DATABASES.incrementAndGet() + ";QUERY_CACHE_SIZE=64");
+        properties.put("hibernate.show_sql", "false");
+        properties.put("hibernate.format_sql", "false");
+        properties.put("hibernate.session.events.log", "false");
+        properties.putAll(extraProperties);
+        emf = Persistence.createEntityManagerFactory("LibraryPU", properties);
+
+        new DataGenerator(42)
+                .publishers(Math.max(1, books / 200))
+                .books(books)
+                .users(Math.max(1, books / 2))
+                .years(2)
+                .generate(emf);
+    }
+
+    /**
+     * Gets the {@link EntityManagerFactory} of the database.
+     *
+     * @return the factory
+     */
+    EntityManagerFactory emf() {
+        return emf;
+    }
+
+    /**
+     * Reads all IDs of an entity, to pick existing rows at random while benchmarking.
+     *
+     * @param entityName the JPQL name of the entity
+     * @return the IDs
+     */
+    long[] ids(String entityName) {
+        EntityManager em = emf.createEntityManager();
+        try {
+            List<Long> ids = em.createQuery("SELECT e.id FROM " + entityName + " e", Long.class).getResultList();
+            return ids.stream().mapToLong(Long::longValue).toArray();
+        } finally {
+            em.close();
+        }
+    }
+
+    @Override
+    public void close() {
+        emf.close();
+    }
+}
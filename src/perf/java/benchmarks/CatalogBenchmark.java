@@ -0,0 +1,74 @@
+package benchmarks;
+
+import dao.BookDao;
+import dao.BookAvailability;
+import dao.CopyDao;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks the catalog refresh of the user window, with and without the query cache.
+ * {@link #refresh()} reads the catalog repeatedly, as when nothing changes between refreshes;
+ * {@link #refreshAfterWrite()} changes a copy first, which invalidates cached catalog results.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CatalogBenchmark {
+
+    /**
+     * The number of generated books; the other tables are scaled from it.
+     */
+    @Param({"1000", "10000", "100000"})
+    public int datasetSize;
+
+    /**
+     * Whether catalog results are kept in the query cache.
+     */
+    @Param({"true", "false"})
+    public boolean queryCache;
+
+    private BenchmarkDatabase database;
+    private BookDao bookDao;
+    private CopyDao copyDao;
+    private long[] copyIds;
+    private SplittableRandom random;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        database = new BenchmarkDatabase(datasetSize, Map.of("library.query-cache.default", Boolean.toString(queryCache)));
+        bookDao = new BookDao(database.emf());
+        copyDao = new CopyDao(database.emf());
+        copyIds = database.ids("Copy");
+        random = new SplittableRandom(13);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        database.close();
+    }
+
+    @Benchmark
+    public List<BookAvailability> refresh() {
+        return bookDao.findCatalog();
+    }
+
+    @Benchmark
+    public List<BookAvailability> refreshAvailable() {
+        return bookDao.findAvailableCatalog();
+    }
+
+    @Benchmark
+    public List<BookAvailability> refreshAfterWrite() {
+        // Flips the sign of the copy number, so every write is a real update and the next one on this copy undoes it
+        copyDao.update(copyIds[random.nextInt(copyIds.length)], copy -> copy.setCopyNumber(-copy.getCopyNumber()));
+        return bookDao.findCatalog();
+    }
+}
@@ -0,0 +1,100 @@
+package benchmarks;
+
+import dao.BookAvailability;
+import dao.BookDao;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Checks the circulation invariants of a database after a load test:
+ * <ul>
+ *     <li>no copy has more than one open borrowing,</li>
+ *     <li>a copy is "Borrowed" exactly when it has an open borrowing,</li>
+ *     <li>no book has more open borrowings than copies, that is, no availability is negative.</li>
+ * </ul>
+ * Each check is a single query, so it must run while no circulation is in progress.
+ */
+final class CirculationAudit {
+
+    private final EntityManagerFactory emf;
+
+    /**
+     * Creates an audit of a database.
+     *
+     * @param emf the {@link EntityManagerFactory} of the database to check
+     */
+    CirculationAudit(EntityManagerFactory emf) {
+        this.emf = emf;
+    }
+
+    /**
+     * Counts the borrowings that have not been returned.
+     *
+     * @return the number of open borrowings
+     */
+    long openBorrowings() {
+        EntityManager em = emf.createEntityManager();
+        try {
+            return em.createQuery("SELECT COUNT(b) FROM Borrowing b WHERE b.returnDate IS NULL", Long.class)
+                    .getSingleResult();
+        } finally {
+            em.close();
+        }
+    }
+
+    /**
+     * Runs all checks.
+     *
+     * @return a description of every violation found, empty if the invariants hold
+     */
+    List<String> check() {
+        List<String> violations = new ArrayList<>();
+        EntityManager em = emf.createEntityManager();
+        try {
+            List<Object[]> doubleBorrowed = em.createQuery(
+                            "SELECT b.copy.id, COUNT(b) FROM Borrowing b WHERE b.returnDate IS NULL "
+                                    + "GROUP BY b.copy.id HAVING COUNT(b) > 1", Object[].class)
+                    .getResultList();
+            for (Object[] row : doubleBorrowed) {
+                violations.add("Copy " + row[0] + " is borrowed " + row[1] + " times at once");
+            }
+
+            List<Long> borrowedWithoutLoan = em.createQuery(
+                            "SELECT c.id FROM Copy c WHERE c.status = 'Borrowed' AND NOT EXISTS "
+                                    + "(SELECT b FROM Borrowing b WHERE b.copy = c AND b.returnDate IS NULL)", Long.class)
+                    .getResultList();
+            for (Long copyId : borrowedWithoutLoan) {
+                violations.add("Copy " + copyId + " is marked Borrowed but has no open borrowing");
+            }
+
+            List<Long> availableWithLoan = em.createQuery(
+                            "SELECT c.id FROM Copy c WHERE c.status = 'Available' AND EXISTS "
+                                    + "(SELECT b FROM Borrowing b WHERE b.copy = c AND b.returnDate IS NULL)", Long.class)
+                    .getResultList();
+            for (Long copyId : availableWithLoan) {
+                violations.add("Copy " + copyId + " is marked Available but has an open borrowing");
+            }
+
+            Map<Long, Long> openByBook = new HashMap<>();
+            em.createQuery("SELECT b.copy.book.id, COUNT(b) FROM Borrowing b WHERE b.returnDate IS NULL "
+                            + "GROUP BY b.copy.book.id", Object[].class)
+                    .getResultList()
+                    .forEach(row -> openByBook.put((Long) row[0], (Long) row[1]));
+            for (BookAvailability book : new BookDao(emf).findCatalog()) {
+                long open = openByBook.getOrDefault(book.getBookId(), 0L);
+                if (book.getTotalCopies() - open < 0) {
+                    violations.add("Book " + book.getBookId() + " has " + open + " open borrowings for "
+                            + book.getTotalCopies() + " copies");
+                }
+            }
+        } finally {
+            em.close();
+        }
+        return violations;
+    }
+}
@@ -0,0 +1,63 @@
+package benchmarks;
+
+import entity.Borrowing;
+import org.openjdk.jmh.annotations.*;
+import service.CirculationService;
+
+import java.time.LocalDate;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks the checkout and return workflow of {@link CirculationService} on a generated database.
+ * Each invocation lends a copy of a random book to a random user and takes it back, so the number of
+ * available copies stays the same from one invocation to the next.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CirculationBenchmark {
+
+    /**
+     * The number of generated books; the other tables are scaled from it.
+     */
+    @Param({"1000", "10000", "100000"})
+    public int datasetSize;
+
+    private BenchmarkDatabase database;
+    private CirculationService circulation;
+    private long[] userIds;
+    private long[] bookIds;
+    private SplittableRandom random;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        database = new BenchmarkDatabase(datasetSize, Map.of());
+        circulation = new CirculationService(database.emf());
+        userIds = database.ids("User");
+        bookIds = database.ids("Book");
+        random = new SplittableRandom(11);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        database.close();
+    }
+
+    @Benchmark
+    public Borrowing checkoutAndReturn() {
+        long userId = userIds[random.nextInt(userIds.length)];
+        long bookId = bookIds[random.nextInt(bookIds.length)];
+        Borrowing borrowing;
+        try {
+            borrowing = circulation.checkout(userId, bookId, LocalDate.of(2025, 1, 1));
+        } catch (IllegalStateException e) {
+            return null; // Every copy of this book is out, which is part of the workload
+        }
+        return circulation.checkin(borrowing.getId(), LocalDate.of(2025, 1, 15));
+    }
+}
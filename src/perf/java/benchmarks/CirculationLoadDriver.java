@@ -0,0 +1,331 @@
+package benchmarks;
+
+import dao.BookDao;
+import dao.OptimisticRetry;
+import dao.PooledConnectionProvider;
+import entity.Borrowing;
+import monitoring.PoolMetrics;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+import service.CirculationService;
+
+import javax.persistence.OptimisticLockException;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Load test of the circulation path: thousands of patrons browse, borrow and return books concurrently,
+ * each on its own virtual thread, while a few librarian desks take back the returned copies.
+ * It runs headless against a generated in-memory H2 database and prints throughput and latency percentiles
+ * per operation, connection pool and retry statistics, and the violations of the circulation invariants
+ * found by {@link CirculationAudit} afterwards. The exit code is 1 if any invariant was violated.
+ * <p>
+ * Patrons pick an operation by weight and wait an exponentially distributed think time between operations:
+ * <ul>
+ *     <li>browse reads a random book with its copies through {@link BookDao},</li>
+ *     <li>borrow checks out a random book through {@link CirculationService},</li>
+ *     <li>return hands one of the patron's own borrowings to a desk, which checks it in.</li>
+ * </ul>
+ * Raising {@code --patrons} and lowering {@code --think-ms} or {@code --hot-books} until throughput stops growing
+ * finds the contention ceiling of the borrow path. Run it from the benchmark jar, for example:
+ * {@code java -cp target/benchmarks.jar benchmarks.CirculationLoadDriver --patrons=5000 --hot-books=50}.
+ * Options:
+ * <ul>
+ *     <li>{@code --books} generated books, 1000 by default; users and copies are scaled from it,</li>
+ *     <li>{@code --patrons} concurrent patrons, 2000 by default,</li>
+ *     <li>{@code --desks} librarian desks taking back returns, 8 by default,</li>
+ *     <li>{@code --mix} operation weights, {@code browse:50,borrow:30,return:20} by default,</li>
+ *     <li>{@code --think-ms} mean think time between operations, 100 by default, 0 for none,</li>
+ *     <li>{@code --hot-books} the number of books patrons borrow from, all books by default,</li>
+ *     <li>{@code --warmup-s} and {@code --duration-s} seconds before and during measuring, 5 and 30 by default,</li>
+ *     <li>{@code --pool-size} maximum connections, the configured pool size by default,</li>
+ *     <li>{@code --seed} seed of the random choices, 1 by default.</li>
+ * </ul>
+ */
+public final class CirculationLoadDriver {
+
+    /**
+     * The operations of the load test.
+     */
+    enum Operation { BROWSE, BORROW, RETURN }
+
+    private final Map<String, String> options;
+    private final Map<Operation, Integer> mix = new EnumMap<>(Operation.class);
+    private final Map<Operation, Recorder> latencies = new EnumMap<>(Operation.class);
+    private final Map<Operation, LongAdder> completed = new EnumMap<>(Operation.class);
+    private final Map<Operation, LongAdder> failed = new EnumMap<>(Operation.class);
+    private final LongAdder unavailable = new LongAdder();
+    private final LongAdder checkouts = new LongAdder();
+    private final LongAdder checkins = new LongAdder();
+    private final LinkedBlockingQueue<Long> returns = new LinkedBlockingQueue<>();
+    private final AtomicBoolean failureReported = new AtomicBoolean();
+
+    private volatile boolean measuring;
+    private volatile boolean running = true;
+
+    private BookDao bookDao;
+    private CirculationService circulation;
+    private long[] userIds;
+    private long[] bookIds;
+
+    private CirculationLoadDriver(Map<String, String> options) {
+        this.options = options;
+        for (String entry : option("mix", "browse:50,borrow:30,return:20").split(",")) {
+            String[] parts = entry.split(":");
+            if (parts.length != 2) {
+                throw new IllegalArgumentException("Invalid mix entry: " + entry);
+            }
+            mix.put(Operation.valueOf(parts[0].trim().toUpperCase()), Integer.parseInt(parts[1].trim()));
+        }
+        if (mix.values().stream().mapToInt(Integer::intValue).sum() <= 0) {
+            throw new IllegalArgumentException("The mix needs at least one positive weight");
+        }
+        for (Operation operation : Operation.values()) {
+            latencies.put(operation, new Recorder(3));
+            completed.put(operation, new LongAdder());
+            failed.put(operation, new LongAdder());
+        }
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--") || !arg.contains("=")) {
+                throw new IllegalArgumentException("Expected --name=value but got: " + arg);
+            }
+            options.put(arg.substring(2, arg.indexOf('=')), arg.substring(arg.indexOf('=') + 1));
+        }
+        int violations = new CirculationLoadDriver(options).run();
+        System.exit(violations == 0 ? 0 : 1);
+    }
+
+    /**
+     * Generates the database, runs the load and audits the result.
+     *
+     * @return the number of invariant violations found after the run
+     */
+    private int run() throws InterruptedException {
+        Map<String, Object> properties = new HashMap<>();
+        if (options.containsKey("pool-size")) {
+            properties.put("hibernate.hikari.maximumPoolSize", option("pool-size", null));
+        }
+        int books = Integer.parseInt(option("books", "1000"));
+        System.out.println("Generating " + books + " books...");
+        try (BenchmarkDatabase database = new BenchmarkDatabase(books, properties)) {
+            bookDao = new BookDao(database.emf());
+            circulation = new CirculationService(database.emf());
+            userIds = database.ids("User");
+            bookIds = database.ids("Book");
+            int hotBooks = Integer.parseInt(option("hot-books", "0"));
+            if (hotBooks > 0 && hotBooks < bookIds.length) {
+                bookIds = Arrays.copyOf(bookIds, hotBooks);
+            }
+
+            CirculationAudit audit = new CirculationAudit(database.emf());
+            List<String> before = audit.check();
+            long openBefore = audit.openBorrowings();
+
+            long warmupMillis = TimeUnit.SECONDS.toMillis(Long.parseLong(option("warmup-s", "5")));
+            long durationMillis = TimeUnit.SECONDS.toMillis(Long.parseLong(option("duration-s", "30")));
+            int patrons = Integer.parseInt(option("patrons", "2000"));
+            int desks = Integer.parseInt(option("desks", "8"));
+            long seed = Long.parseLong(option("seed", "1"));
+            System.out.println("Running " + patrons + " patrons and " + desks + " desks for "
+                    + Duration.ofMillis(warmupMillis) + " warmup and " + Duration.ofMillis(durationMillis) + "...");
+
+            SplittableRandom seeds = new SplittableRandom(seed);
+            try (ExecutorService threads = Executors.newVirtualThreadPerTaskExecutor()) {
+                for (int i = 0; i < patrons; i++) {
+                    long userId = userIds[i % userIds.length];
+                    SplittableRandom random = seeds.split();
+                    threads.submit(() -> patron(userId, random));
+                }
+                for (int i = 0; i < desks; i++) {
+                    threads.submit(this::desk);
+                }
+
+                Thread.sleep(warmupMillis);
+                for (Recorder recorder : latencies.values()) {
+                    recorder.reset();
+                }
+                completed.values().forEach(LongAdder::reset);
+                failed.values().forEach(LongAdder::reset);
+                unavailable.reset();
+                measuring = true;
+                long start = System.nanoTime();
+                Thread.sleep(durationMillis);
+                measuring = false;
+                long elapsedNanos = System.nanoTime() - start;
+                running = false;
+                threads.shutdown();
+                threads.awaitTermination(1, TimeUnit.MINUTES);
+                report(elapsedNanos, PooledConnectionProvider.metrics(database.emf()));
+            }
+
+            List<String> after = audit.check();
+            long expectedOpen = openBefore + checkouts.sum() - checkins.sum();
+            long openAfter = audit.openBorrowings();
+            if (openAfter != expectedOpen) {
+                after.add("Expected " + expectedOpen + " open borrowings after " + checkouts.sum() + " checkouts and "
+                        + checkins.sum() + " checkins, but found " + openAfter);
+            }
+            System.out.println();
+            System.out.println("Violations before the run: " + before.size());
+            System.out.println("Violations after the run:  " + after.size());
+            after.stream().limit(20).forEach(violation -> System.out.println("  " + violation));
+            return after.size();
+        }
+    }
+
+    /**
+     * Runs one patron until the load test ends.
+     *
+     * @param userId the user the patron borrows as
+     * @param random the patron's random choices
+     */
+    private void patron(long userId, SplittableRandom random) {
+        Deque<Long> loans = new ArrayDeque<>();
+        int totalWeight = mix.values().stream().mapToInt(Integer::intValue).sum();
+        double thinkMillis = Double.parseDouble(option("think-ms", "100"));
+        while (running) {
+            Operation operation = pick(random.nextInt(totalWeight));
+            if (operation == Operation.RETURN && loans.isEmpty()) {
+                operation = Operation.BROWSE;
+            }
+            long bookId = bookIds[random.nextInt(bookIds.length)];
+            long start = System.nanoTime();
+            try {
+                switch (operation) {
+                    case BROWSE:
+                        bookDao.findByIdWithCopies(bookId);
+                        break;
+                    case BORROW:
+                        try {
+                            Borrowing borrowing = circulation.checkout(userId, bookId);
+                            checkouts.increment();
+                            loans.add(borrowing.getId());
+                        } catch (IllegalStateException e) {
+                            unavailable.increment(); // Every copy is out; a valid answer, not a failure
+                        }
+                        break;
+                    case RETURN:
+                        // Timed at the desk, which does the checkin
+                        returns.add(loans.poll());
+                        continue;
+                }
+                record(operation, start);
+            } catch (RuntimeException e) {
+                fail(operation, e);
+            }
+            think(random, thinkMillis);
+        }
+    }
+
+    /**
+     * Runs one librarian desk, checking in returned borrowings until the load test ends.
+     */
+    private void desk() {
+        while (running) {
+            Long borrowingId;
+            try {
+                borrowingId = returns.poll(100, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            if (borrowingId == null) {
+                continue;
+            }
+            long start = System.nanoTime();
+            try {
+                circulation.checkin(borrowingId);
+                checkins.increment();
+                record(Operation.RETURN, start);
+            } catch (RuntimeException e) {
+                fail(Operation.RETURN, e);
+            }
+        }
+    }
+
+    private Operation pick(int ticket) {
+        for (Map.Entry<Operation, Integer> entry : mix.entrySet()) {
+            ticket -= entry.getValue();
+            if (ticket < 0) {
+                return entry.getKey();
+            }
+        }
+        throw new IllegalStateException("Ticket outside the mix");
+    }
+
+    private void record(Operation operation, long startNanos) {
+        if (measuring) {
+            latencies.get(operation).recordValue(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - startNanos));
+            completed.get(operation).increment();
+        }
+    }
+
+    private void fail(Operation operation, RuntimeException e) {
+        if (measuring) {
+            failed.get(operation).increment();
+        }
+        // Report the first unexpected failure only; thousands of threads would flood the output
+        if (!(e instanceof OptimisticLockException) && failureReported.compareAndSet(false, true)) {
+            System.err.println("First " + operation + " failure: " + e);
+        }
+    }
+
+    private static void think(SplittableRandom random, double meanMillis) {
+        if (meanMillis <= 0) {
+            return;
+        }
+        long pauseMicros = (long) (-meanMillis * 1000 * Math.log(1 - random.nextDouble()));
+        try {
+            Thread.sleep(pauseMicros / 1000, (int) (pauseMicros % 1000) * 1000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void report(long elapsedNanos, PoolMetrics pool) {
+        double seconds = elapsedNanos / 1e9;
+        System.out.println();
+        System.out.printf("%-8s %10s %8s %10s %9s %9s %9s %9s %9s%n",
+                "op", "ok", "failed", "ops/s", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms");
+        for (Operation operation : Operation.values()) {
+            Histogram histogram = latencies.get(operation).getIntervalHistogram();
+            System.out.printf("%-8s %10d %8d %10.1f %9.2f %9.2f %9.2f %9.2f %9.2f%n",
+                    operation.name().toLowerCase(),
+                    completed.get(operation).sum(),
+                    failed.get(operation).sum(),
+                    completed.get(operation).sum() / seconds,
+                    histogram.getValueAtPercentile(50) / 1000.0,
+                    histogram.getValueAtPercentile(90) / 1000.0,
+                    histogram.getValueAtPercentile(99) / 1000.0,
+                    histogram.getValueAtPercentile(99.9) / 1000.0,
+                    histogram.getMaxValue() / 1000.0);
+        }
+        System.out.println("Unavailable checkouts: " + unavailable.sum());
+        System.out.println("Optimistic retries: " + OptimisticRetry.DEFAULT.getRetryCount()
+                + ", exhausted: " + OptimisticRetry.DEFAULT.getExhaustedCount());
+        if (pool != null) {
+            System.out.println("Connection pool: " + pool);
+        }
+    }
+
+    private String option(String name, String defaultValue) {
+        return options.getOrDefault(name, defaultValue);
+    }
+}
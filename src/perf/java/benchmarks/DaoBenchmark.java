@@ -0,0 +1,191 @@
+package benchmarks;
+
+import dao.*;
+import entity.*;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Benchmarks the CRUD operations of every DAO against a generated in-memory database.
+ * The DAO and the dataset size are parameters, so one run compares all DAOs at every scale:
+ * {@code java -jar target/benchmarks.jar DaoBenchmark -p dao=book -p datasetSize=10000}.
+ * Rows are picked at random, so the results include second-level cache misses as well as hits.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class DaoBenchmark {
+
+    /**
+     * The DAO under test.
+     */
+    @Param({"book", "copy", "user", "borrowing", "publisher", "librarian"})
+    public String dao;
+
+    /**
+     * The number of generated books; the other tables are scaled from it.
+     */
+    @Param({"1000", "10000", "100000"})
+    public int datasetSize;
+
+    private BenchmarkDatabase database;
+    private Fixture<?> fixture;
+    private SplittableRandom random;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        database = new BenchmarkDatabase(datasetSize, Map.of());
+        fixture = fixture(dao);
+        random = new SplittableRandom(7);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        database.close();
+    }
+
+    @Benchmark
+    public Object findById() {
+        return fixture.findById(random);
+    }
+
+    @Benchmark
+    public void findAll(Blackhole blackhole) {
+        List<?> all = fixture.dao.findAll();
+        blackhole.consume(all);
+    }
+
+    @Benchmark
+    public Object create() {
+        return fixture.create();
+    }
+
+    @Benchmark
+    public Object update() {
+        return fixture.update(random);
+    }
+
+    /**
+     * Deletes a row created just before the measured call, so there is always a row without relationships to delete.
+     */
+    @State(Scope.Thread)
+    public static class DeleteTarget {
+        Long id;
+
+        @Setup(Level.Invocation)
+        public void create(DaoBenchmark benchmark) {
+            id = benchmark.fixture.createId();
+        }
+    }
+
+    @Benchmark
+    public void delete(DeleteTarget target) {
+        fixture.dao.delete(target.id);
+    }
+
+    private Fixture<?> fixture(String name) {
+        switch (name) {
+            case "book": {
+                BookDao bookDao = new BookDao(database.emf());
+                return new Fixture<>(bookDao, Book::getId, database.ids("Book"),
+                        () -> new Book("Benchmark Title", "Benchmark Author", "Benchmark Press", 2024, uniqueValue("BENCH-")),
+                        book -> book.setTitle("Benchmark Title " + System.nanoTime()));
+            }
+            case "copy": {
+                CopyDao copyDao = new CopyDao(database.emf());
+                Book book = new BookDao(database.emf()).findById(database.ids("Book")[0]);
+                return new Fixture<>(copyDao, Copy::getId, database.ids("Copy"),
+                        () -> new Copy(book, 999, "Available"),
+                        copy -> copy.setCopyNumber(copy.getId().intValue()));
+            }
+            case "user": {
+                UserDao userDao = new UserDao(database.emf());
+                return new Fixture<>(userDao, User::getId, database.ids("User"),
+                        () -> new User("Benchmark User", uniqueValue("bench") + "@example.org", "000 000 000", "Benchmark Street"),
+                        user -> user.setAddress("Street " + System.nanoTime()));
+            }
+            case "borrowing": {
+                BorrowingDao borrowingDao = new BorrowingDao(database.emf());
+                User user = new UserDao(database.emf()).findById(database.ids("User")[0]);
+                Copy copy = new CopyDao(database.emf()).findById(database.ids("Copy")[0]);
+                return new Fixture<>(borrowingDao, Borrowing::getId, database.ids("Borrowing"),
+                        () -> new Borrowing(user, copy, LocalDate.of(2020, 1, 1), LocalDate.of(2020, 1, 8)),
+                        borrowing -> borrowing.setReturnDate(LocalDate.of(2020, 1, 8).plusDays(System.nanoTime() % 28)));
+            }
+            case "publisher": {
+                PublisherDao publisherDao = new PublisherDao(database.emf());
+                return new Fixture<>(publisherDao, Publisher::getId, database.ids("Publisher"),
+                        () -> new Publisher("Benchmark Press", "Benchmark Street", "000 000 000"),
+                        // Publishers have no setters, so this measures the read and version check of an update only
+                        publisher -> { });
+            }
+            case "librarian": {
+                LibrarianDao librarianDao = new LibrarianDao(database.emf());
+                // The generator creates no librarians, so seed some without users
+                for (int i = 0; i < Math.max(10, datasetSize / 100); i++) {
+                    librarianDao.create(new Librarian(null, LocalDate.of(2020, 1, 1), "Librarian"));
+                }
+                return new Fixture<>(librarianDao, Librarian::getId, database.ids("Librarian"),
+                        () -> new Librarian(null, LocalDate.of(2024, 1, 1), "Benchmark Librarian"),
+                        librarian -> librarian.setPosition("Position " + System.nanoTime()));
+            }
+            default:
+                throw new IllegalArgumentException("Unknown DAO: " + name);
+        }
+    }
+
+    private static long counter;
+
+    private static synchronized String uniqueValue(String prefix) {
+        return prefix + System.nanoTime() + "-" + counter++;
+    }
+
+    /**
+     * Ties a DAO to the existing IDs of its table and to ways of making and changing its entities.
+     *
+     * @param <T> the entity type
+     */
+    private static final class Fixture<T> {
+        final Dao<T> dao;
+        private final Function<T, Long> idOf;
+        private final long[] ids;
+        private final Supplier<T> factory;
+        private final Consumer<T> change;
+
+        Fixture(Dao<T> dao, Function<T, Long> idOf, long[] ids, Supplier<T> factory, Consumer<T> change) {
+            this.dao = dao;
+            this.idOf = idOf;
+            this.ids = ids;
+            this.factory = factory;
+            this.change = change;
+        }
+
+        T findById(SplittableRandom random) {
+            return dao.findById(ids[random.nextInt(ids.length)]);
+        }
+
+        T create() {
+            return dao.create(factory.get());
+        }
+
+        Long createId() {
+            return idOf.apply(create());
+        }
+
+        T update(SplittableRandom random) {
+            return dao.update(ids[random.nextInt(ids.length)], change);
+        }
+    }
+}
@@ -0,0 +1,166 @@
+import dao.AsyncDao;
+import dao.DaoExecutor;
+import dao.PublisherDao;
+import entity.Publisher;
+import org.junit.jupiter.api.*;
+
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.Persistence;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test suite for {@link AsyncDao} and {@link DaoExecutor}: concurrent calls, the concurrency limit,
+ * timeouts and cancellation.
+ */
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+public class AsyncDaoTests {
+
+    private static EntityManagerFactory emf;
+    private static AsyncDao<Publisher> publisherDao;
+
+    private static List<Long> publisherIds; // IDs of the publishers created for testing
+
+    /**
+     * Initializes the test environment by creating the DAO.
+     */
+    @BeforeAll
+    static void setup() {
+        emf = Persistence.createEntityManagerFactory("LibraryPU");
+        publisherDao = new AsyncDao<>(new PublisherDao(emf));
+    }
+
+    /**
+     * Cleans up resources after all tests are executed.
+     */
+    @AfterAll
+    static void tearDown() throws Exception {
+        if (publisherIds != null) {
+            publisherDao.deleteAll(publisherIds).get(10, TimeUnit.SECONDS);
+        }
+        emf.close();
+    }
+
+    /**
+     * Tests that independent lookups issued together all complete with their own results.
+     */
+    @Order(1)
+    @Test
+    public void testConcurrentLookups() throws Exception {
+        List<Publisher> created = publisherDao.createAll(List.of(
+                new Publisher("Async House 1", "1 Future Street", "5550201"),
+                new Publisher("Async House 2", "2 Future Street", "5550202"),
+                new Publisher("Async House 3", "3 Future Street", "5550203"))).get(10, TimeUnit.SECONDS);
+        publisherIds = created.stream().map(Publisher::getId).toList();
+
+        List<CompletableFuture<Publisher>> lookups = new ArrayList<>();
+        for (Long id : publisherIds) {
+            lookups.add(publisherDao.findById(id));
+        }
+        CompletableFuture.allOf(lookups.toArray(new CompletableFuture<?>[0])).get(10, TimeUnit.SECONDS);
+        for (int i = 0; i < publisherIds.size(); i++) {
+            assertEquals("Async House " + (i + 1), lookups.get(i).join().getName());
+        }
+    }
+
+    /**
+     * Tests that no more calls than the limit run at the same time, and that all of them still run.
+     */
+    @Order(2)
+    @Test
+    public void testConcurrencyLimit() throws Exception {
+        DaoExecutor executor = new DaoExecutor(2);
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger mostRunning = new AtomicInteger();
+        List<CompletableFuture<Integer>> calls = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            calls.add(executor.submit(() -> {
+                mostRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                try {
+                    Thread.sleep(20);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return running.decrementAndGet();
+            }, null));
+        }
+        CompletableFuture.allOf(calls.toArray(new CompletableFuture<?>[0])).get(10, TimeUnit.SECONDS);
+        assertEquals(2, mostRunning.get());
+        assertEquals(0, executor.getActiveCount());
+    }
+
+    /**
+     * Tests that a call running past its timeout fails with a {@link TimeoutException} but is not interrupted,
+     * and that writes do not time out.
+     */
+    @Order(3)
+    @Test
+    public void testTimeoutLeavesRunningCallAlone() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicBoolean interrupted = new AtomicBoolean();
+        CountDownLatch finished = new CountDownLatch(1);
+        AsyncDao<Publisher> timed = publisherDao.withTimeout(Duration.ofMillis(50));
+        CompletableFuture<Object> call = timed.supply(() -> {
+            try {
+                release.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                interrupted.set(true);
+            }
+            finished.countDown();
+            return null;
+        });
+        ExecutionException failure = assertThrows(ExecutionException.class, () -> call.get(10, TimeUnit.SECONDS));
+        assertInstanceOf(TimeoutException.class, failure.getCause());
+        release.countDown();
+        assertTrue(finished.await(10, TimeUnit.SECONDS));
+        assertFalse(interrupted.get(), "The timed out call was interrupted");
+
+        AsyncDao<Publisher> impatient = publisherDao.withTimeout(Duration.ofNanos(1));
+        Publisher publisher = impatient.create(new Publisher("Patient Press", "9 Slow Lane", "5550199"))
+                .get(10, TimeUnit.SECONDS);
+        assertNotNull(publisher.getId());
+        impatient.delete(publisher.getId()).get(10, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Tests that a call cancelled while waiting for a permit never runs.
+     */
+    @Order(4)
+    @Test
+    public void testCancelledCallDoesNotRun() throws Exception {
+        DaoExecutor executor = new DaoExecutor(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<Boolean> blocker = executor.submit(() -> {
+            try {
+                return release.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                return false;
+            }
+        }, null);
+        AtomicBoolean ran = new AtomicBoolean();
+        CompletableFuture<Void> waiting = new AsyncDao<>(new PublisherDao(emf), executor, null).supply(() -> {
+            ran.set(true);
+            return null;
+        });
+
+        assertTrue(waiting.cancel(true));
+        release.countDown();
+        assertTrue(blocker.get(10, TimeUnit.SECONDS));
+        assertThrows(CancellationException.class, waiting::join);
+        // A second call gets the permit back
+        assertEquals(1, executor.submit(() -> 1, Duration.ofSeconds(10)).get(10, TimeUnit.SECONDS));
+        assertFalse(ran.get());
+    }
+}
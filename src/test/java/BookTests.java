@@ -1,10 +1,24 @@
+import dao.BookAvailability;
 import dao.BookDao;
+import dao.CacheStatistics;
 import dao.CopyDao;
 import entity.Book;
 import entity.Copy;
+import entity.Publisher;
+import dao.OptimisticRetry;
+import dao.Page;
+import dao.PageRequest;
+import dao.PublisherDao;
+import org.hibernate.Session;
 import org.junit.jupiter.api.*;
+import javax.persistence.EntityManager;
 import javax.persistence.EntityManagerFactory;
+import javax.persistence.OptimisticLockException;
 import javax.persistence.Persistence;
+import java.sql.PreparedStatement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -65,7 +79,7 @@ public class BookTests {
         copy2Id = copy2.getId();
 
         // Verify the copies are correctly associated
-        Book fetchedBook = bookDao.findById(testBookId);
+        Book fetchedBook = bookDao.findByIdWithCopies(testBookId);
         assertNotNull(fetchedBook);
         assertEquals(2, fetchedBook.getCopies().size(), "Copies count mismatch");
     }
@@ -79,14 +93,43 @@ public class BookTests {
         Book foundBook = bookDao.findById(testBookId);
         assertNotNull(foundBook, "Book not found");
         assertEquals("Test Title", foundBook.getTitle(), "Book title mismatch");
-        assertEquals(2, foundBook.getCopies().size(), "Copies count mismatch");
+        assertEquals(2, bookDao.findByIdWithCopies(testBookId).getCopies().size(), "Copies count mismatch");
     }
 
     /**
-     * Tests updating a book's title.
+     * Tests that the catalog, and the catalog row of a single book, count total and available copies per book.
      */
     @Test
     @Order(3)
+    void testCatalogCounts() {
+        Copy copy = copyDao.findById(copy2Id);
+        copy.setStatus("Borrowed");
+        copyDao.update(copy);
+
+        BookAvailability row = bookDao.findCatalog().stream()
+                .filter(b -> b.getBookId().equals(testBookId))
+                .findFirst()
+                .orElseThrow();
+        assertEquals(2, row.getTotalCopies(), "Total copies mismatch");
+        assertEquals(1, row.getAvailableCopies(), "Available copies mismatch");
+        assertTrue(bookDao.findAvailableCatalog().stream().anyMatch(b -> b.getBookId().equals(testBookId)));
+
+        // The single-book row agrees with the catalog
+        BookAvailability single = bookDao.findAvailability(testBookId);
+        assertEquals(2, single.getTotalCopies(), "Total copies mismatch");
+        assertEquals(1, single.getAvailableCopies(), "Available copies mismatch");
+        assertNull(bookDao.findAvailability(-1L), "A missing book should have no catalog row");
+
+        copy = copyDao.findById(copy2Id);
+        copy.setStatus("Available");
+        copyDao.update(copy);
+    }
+
+    /**
+     * Tests updating a book's title.
+     */
+    @Test
+    @Order(4)
     void testUpdateBook() {
         Book foundBook = bookDao.findById(testBookId);
         assertNotNull(foundBook, "Book not found");
@@ -101,7 +144,7 @@ public class BookTests {
      * Tests that attempting to delete a book with associated copies fails.
      */
     @Test
-    @Order(4)
+    @Order(5)
     void testDeleteBookWithExistingCopiesShouldFail() {
         // Attempt to delete the book while copies still exist
         // Because we haven't removed them, we expect an exception
@@ -118,7 +161,7 @@ public class BookTests {
      * Tests the successful deletion of a book after removing its associated copies.
      */
     @Test
-    @Order(5)
+    @Order(6)
     void testDeleteBook() {
         // First delete copies, so that "delete only if not in relationship" is satisfied:
         copyDao.delete(copy1Id);
@@ -128,4 +171,296 @@ public class BookTests {
         Book foundBook = bookDao.findById(testBookId);
         assertNull(foundBook, "Book should be null after deletion");
     }
-}
\ No newline at end of file
+
+    /**
+     * Tests walking the books table page by page in title order.
+     */
+    @Test
+    @Order(7)
+    void testFindPageByTitle() {
+        List<Long> createdIds = new ArrayList<>();
+        for (int i = 5; i >= 1; i--) {
+            Book book = bookDao.create(new Book("Paging Title " + i, "Paging Author", "Paging Publisher", 2000 + i, "PAGING-" + i));
+            createdIds.add(book.getId());
+        }
+
+        List<Long> seenIds = new ArrayList<>();
+        String previousTitle = null;
+        PageRequest request = PageRequest.first("title", 2);
+        while (request != null) {
+            Page<Book> page = bookDao.findPage(request);
+            assertTrue(page.getItems().size() <= 2, "Page exceeds its limit");
+            for (Book book : page.getItems()) {
+                if (previousTitle != null && book.getTitle() != null) {
+                    assertTrue(previousTitle.compareTo(book.getTitle()) <= 0, "Books are not ordered by title");
+                }
+                if (book.getTitle() != null) {
+                    previousTitle = book.getTitle();
+                }
+                seenIds.add(book.getId());
+            }
+            request = page.next();
+        }
+
+        assertEquals(seenIds.size(), seenIds.stream().distinct().count(), "A book was returned twice");
+        assertTrue(seenIds.containsAll(createdIds), "Not every book was returned");
+
+        for (Long id : createdIds) {
+            bookDao.delete(id);
+        }
+    }
+
+    /**
+     * Tests that pages ordered by ID continue after the given ID.
+     */
+    @Test
+    @Order(8)
+    void testFindPageAfterId() {
+        Book first = bookDao.create(new Book("Seek One", "Seek Author", "Seek Publisher", 2020, "SEEK-1"));
+        Book second = bookDao.create(new Book("Seek Two", "Seek Author", "Seek Publisher", 2020, "SEEK-2"));
+
+        Page<Book> page = bookDao.findPage(PageRequest.afterId(first.getId(), 1));
+        assertEquals(1, page.getItems().size());
+        assertEquals(second.getId(), page.getItems().get(0).getId(), "Page should start right after the given ID");
+
+        assertThrows(IllegalArgumentException.class, () -> bookDao.findPage(PageRequest.first("isbn", 10)));
+
+        bookDao.delete(first.getId());
+        bookDao.delete(second.getId());
+    }
+
+    /**
+     * Tests that an update based on a stale read fails instead of overwriting a newer change.
+     */
+    @Test
+    @Order(9)
+    void testStaleUpdateShouldFail() {
+        Book book = bookDao.create(new Book("Versioned Title", "Versioned Author", "Versioned Publisher", 2022, "ISBN-VERSION"));
+        Book first = bookDao.findById(book.getId());
+        Book second = bookDao.findById(book.getId());
+
+        first.setTitle("First Edit");
+        Book updated = bookDao.update(first);
+        assertTrue(updated.getVersion() > second.getVersion(), "Version was not incremented");
+
+        second.setTitle("Second Edit");
+        assertThrows(OptimisticLockException.class, () -> bookDao.update(second));
+        assertEquals("First Edit", bookDao.findById(book.getId()).getTitle(), "Newer change was overwritten");
+
+        bookDao.delete(book.getId());
+    }
+
+    /**
+     * Tests that an update by ID re-reads the book and re-applies its changes after a concurrent update.
+     */
+    @Test
+    @Order(10)
+    void testUpdateByIdRetriesAfterConflict() {
+        Book book = bookDao.create(new Book("Retry Title", "Retry Author", "Retry Publisher", 2022, "ISBN-RETRY"));
+        long retriesBefore = OptimisticRetry.DEFAULT.getRetryCount();
+        AtomicInteger attempts = new AtomicInteger();
+
+        Book updated = bookDao.update(book.getId(), current -> {
+            if (attempts.incrementAndGet() == 1) {
+                // Another librarian changes the author after this attempt has read the book
+                bookDao.update(book.getId(), other -> other.setAuthor("Concurrent Author"));
+            }
+            current.setTitle("Retried Title");
+        });
+
+        assertEquals(2, attempts.get(), "Changes were not re-applied after the conflict");
+        assertTrue(OptimisticRetry.DEFAULT.getRetryCount() > retriesBefore, "Retry was not counted");
+        Book stored = bookDao.findById(book.getId());
+        assertEquals("Retried Title", stored.getTitle());
+        assertEquals("Concurrent Author", stored.getAuthor(), "Concurrent change was overwritten");
+        assertEquals(updated.getVersion(), stored.getVersion());
+
+        bookDao.delete(book.getId());
+    }
+
+    /**
+     * Tests that repeated lookups of a book are answered by the second-level cache, and that updates are visible.
+     */
+    @Test
+    @Order(11)
+    void testFindByIdUsesSecondLevelCache() {
+        CacheStatistics cacheStatistics = new CacheStatistics(emf);
+        Book book = bookDao.create(new Book("Cached Title", "Cached Author", "Cached Publisher", 2023, "ISBN-CACHE"));
+
+        bookDao.findById(book.getId());
+        long hitsBefore = cacheStatistics.getHitCount(CacheStatistics.BOOK_REGION);
+        bookDao.findById(book.getId());
+        assertTrue(cacheStatistics.getHitCount(CacheStatistics.BOOK_REGION) > hitsBefore, "Book was not served from the cache");
+
+        bookDao.update(book.getId(), current -> current.setTitle("Cached Title Updated"));
+        assertEquals("Cached Title Updated", bookDao.findById(book.getId()).getTitle(), "Cache returned a stale book");
+
+        bookDao.delete(book.getId());
+    }
+
+    /**
+     * Tests that repeated catalog and ISBN queries are answered by the query cache, and that writes invalidate them.
+     */
+    @Test
+    @Order(12)
+    void testQueryCacheInvalidatedByWrites() {
+        CacheStatistics cacheStatistics = new CacheStatistics(emf);
+        Book book = bookDao.create(new Book("Query Cache Title", "Query Cache Author", "Query Cache Publisher", 2023, "ISBN-QUERY-CACHE"));
+
+        assertEquals(book.getId(), bookDao.findByIsbn("ISBN-QUERY-CACHE").getId());
+        long bookHitsBefore = cacheStatistics.getHitCount(CacheStatistics.BOOK_REGION);
+        assertEquals(book.getId(), bookDao.findByIsbn("ISBN-QUERY-CACHE").getId());
+        assertTrue(cacheStatistics.getHitCount(CacheStatistics.BOOK_REGION) > bookHitsBefore,
+                "Repeated ISBN lookup was not served by ID from the second-level cache");
+        assertNull(bookDao.findByIsbn("ISBN-UNKNOWN"));
+
+        bookDao.findCatalog();
+        long hitsBefore = cacheStatistics.getQueryCacheHitCount();
+        bookDao.findCatalog();
+        assertTrue(cacheStatistics.getQueryCacheHitCount() > hitsBefore, "Catalog was not served from the query cache");
+        Copy copy = copyDao.create(new Copy(book, 1, "Available"));
+        BookAvailability row = bookDao.findCatalog().stream()
+                .filter(b -> b.getBookId().equals(book.getId()))
+                .findFirst()
+                .orElseThrow();
+        assertEquals(1, row.getTotalCopies(), "Cached catalog was not invalidated by the new copy");
+
+        copyDao.delete(copy.getId());
+        bookDao.delete(book.getId());
+        assertNull(bookDao.findByIsbn("ISBN-QUERY-CACHE"), "Cached lookup was not invalidated by the delete");
+    }
+
+    /**
+     * Tests that search matches word prefixes in every field, ranks title matches first
+     * and follows later updates and deletes.
+     */
+    @Test
+    @Order(13)
+    void testSearchRanksAndFollowsWrites() {
+        Book byTitle = bookDao.create(new Book("Quixotic Zephyrs", "Ann Lee", "Search Press", 2001, "978-1-00000-001-1"));
+        Book byAuthor = bookDao.create(new Book("Ordinary Days", "Zephyrine Quixotic", "Search Press", 2002, "ISBN-SEARCH-2"));
+        assertEquals(List.of(), bookDao.search("   ", 10));
+
+        List<Book> results = bookDao.search("quix zeph", 10);
+        assertEquals(2, results.size());
+        assertEquals(byTitle.getId(), results.get(0).getId(), "Title match should rank above author match");
+        assertEquals(byAuthor.getId(), results.get(1).getId());
+        assertEquals(byTitle.getId(), bookDao.search("978-1-00000-001", 10).get(0).getId(), "ISBN prefix was not found");
+
+        // A one-letter word matches several words of many books, but each book is listed once
+        List<Long> shortWordIds = bookDao.search("s", 50).stream().map(Book::getId).toList();
+        assertEquals(shortWordIds.size(), shortWordIds.stream().distinct().count(), "A book was listed twice");
+        assertFalse(shortWordIds.isEmpty(), "One-letter word found nothing");
+
+        bookDao.update(byAuthor.getId(), book -> book.setAuthor("Somebody Else"));
+        assertEquals(List.of(byTitle.getId()), bookDao.search("quixotic", 10).stream().map(Book::getId).toList());
+
+        bookDao.delete(byTitle.getId());
+        bookDao.delete(byAuthor.getId());
+        assertTrue(bookDao.search("quixotic", 10).isEmpty(), "Deleted books are still found");
+        assertThrows(IllegalArgumentException.class, () -> bookDao.search("quixotic", 0));
+    }
+
+    /**
+     * Tests that suggestions cover titles, authors and publisher names, put values starting with the text first
+     * and follow later writes.
+     */
+    @Test
+    @Order(14)
+    void testSuggestFollowsWrites() {
+        PublisherDao publisherDao = new PublisherDao(emf);
+        Book book = bookDao.create(new Book("Vexillology Basics", "Vera Vexley", "Flag Press", 2010, "ISBN-SUGGEST-1"));
+        Publisher publisher = publisherDao.create(new Publisher("Vexilla Publishing", "Flag Street", "123"));
+
+        assertEquals(List.of("Vexilla Publishing", "Vexillology Basics"), bookDao.suggest("vexil", 10));
+        assertEquals(List.of("Vera Vexley"), bookDao.suggest("vera v", 10));
+        assertEquals(List.of("Vexilla Publishing", "Vexillology Basics", "Vera Vexley"), bookDao.suggest("vex", 10),
+                "Values starting with the text should come before values with a later word starting with it");
+        assertEquals(1, bookDao.suggest("vexil", 1).size());
+
+        bookDao.update(book.getId(), current -> current.setTitle("Heraldry Basics"));
+        assertEquals(List.of("Vexilla Publishing"), bookDao.suggest("vexil", 10));
+        publisherDao.delete(publisher.getId());
+        bookDao.delete(book.getId());
+        assertTrue(bookDao.suggest("vexil", 10).isEmpty(), "Deleted values are still suggested");
+        assertTrue(bookDao.suggest("  ", 10).isEmpty());
+    }
+
+    /**
+     * Tests that ISBNs are stored normalized and found, by lookup and by search, in their ISBN-10 and ISBN-13 forms.
+     */
+    @Test
+    @Order(15)
+    void testFindByIsbnAcceptsIsbn10And13() {
+        Book book = bookDao.create(new Book("Normalized Isbn", "Isbn Author", "Isbn Publisher", 1990, "0-306-40615-2"));
+        assertEquals("9780306406157", book.getIsbn(), "ISBN-10 was not stored as ISBN-13");
+
+        assertEquals(book.getId(), bookDao.findByIsbn("0306406152").getId());
+        assertEquals(book.getId(), bookDao.findByIsbn("978-0-306-40615-7").getId());
+        assertEquals(book.getId(), bookDao.findByIsbn("9780306406157").getId());
+        assertNull(bookDao.findByIsbn("0-306-40615-3"), "An invalid ISBN matched");
+
+        // Search finds the book by the ISBN-10 it was created with, and by ISBN-13 prefixes
+        assertEquals(book.getId(), bookDao.search("0-306-40615-2", 10).get(0).getId(), "ISBN-10 search found nothing");
+        assertEquals(book.getId(), bookDao.search("0306406152", 10).get(0).getId());
+        assertEquals(book.getId(), bookDao.search("978-0-306-406", 10).get(0).getId(), "ISBN-13 prefix was not found");
+
+        bookDao.delete(book.getId());
+        assertNull(bookDao.findByIsbn("9780306406157"), "Lookup returned a deleted book");
+    }
+
+    /**
+     * Tests that an update by ID applies its changes on top of the committed version of a book,
+     * even while the second-level cache still holds an older version of it.
+     */
+    @Test
+    @Order(16)
+    void testUpdateByIdBypassesStaleCache() {
+        Book book = bookDao.create(new Book("Cached Title", "Cached Author", "Cache Publisher", 2001, "ISBN-STALE-CACHE"));
+        Long bookId = book.getId();
+        bookDao.findById(bookId); // Caches the book at its current version
+
+        // Commit a newer version behind Hibernate's back, leaving the older one in the cache
+        EntityManager em = emf.createEntityManager();
+        try {
+            em.getTransaction().begin();
+            em.unwrap(Session.class).doWork(connection -> {
+                try (PreparedStatement statement = connection.prepareStatement(
+                        "UPDATE Books SET title = ?, version = version + 1 WHERE id = ?")) {
+                    statement.setString(1, "Committed Title");
+                    statement.setLong(2, bookId);
+                    statement.executeUpdate();
+                }
+            });
+            em.getTransaction().commit();
+        } finally {
+            em.close();
+        }
+        assertEquals("Cached Title", bookDao.findById(bookId).getTitle(), "The cache should still hold the old version");
+
+        Book updated = bookDao.update(bookId, current -> current.setAuthor("Fresh Author"));
+        assertEquals("Committed Title", updated.getTitle(), "The update was applied to the cached version");
+        assertEquals("Fresh Author", updated.getAuthor());
+
+        bookDao.delete(bookId);
+    }
+
+    /**
+     * Tests that walking the catalog page by page returns the same rows, in the same order, as reading it at once.
+     */
+    @Test
+    @Order(17)
+    void testCatalogPages() {
+        List<BookAvailability> paged = new ArrayList<>();
+        for (PageRequest request = PageRequest.first(2); request != null; ) {
+            Page<BookAvailability> page = bookDao.findCatalog(request);
+            assertTrue(page.getItems().size() <= 2);
+            paged.addAll(page.getItems());
+            request = page.next();
+        }
+        List<Long> expected = bookDao.findCatalog().stream().map(BookAvailability::getBookId).toList();
+        assertEquals(expected, paged.stream().map(BookAvailability::getBookId).toList());
+
+        assertThrows(IllegalArgumentException.class, () -> bookDao.findCatalog(PageRequest.first("title", 2)));
+    }
+}
@@ -1,9 +1,14 @@
 import dao.BookDao;
+import dao.Page;
+import dao.PageRequest;
 import entity.Book;
 import org.junit.jupiter.api.*;
 import javax.persistence.EntityManagerFactory;
 import javax.persistence.Persistence;
 import java.time.LocalDate;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 import dao.BorrowingDao;
 import dao.UserDao;
 import dao.CopyDao;
@@ -155,8 +160,10 @@ public class BorrowingTests {
         copyDao.update(newCopy);
 
         // Verify the user now has multiple borrowings
-        user = userDao.findById(testUserId); // Reload user to fetch relationships
+        user = userDao.findByIdWithBorrowings(testUserId); // Reload user to fetch relationships
         assertEquals(2, user.getBorrowings().size(), "User should have two borrowings");
+        assertTrue(userDao.hasBorrowings(testUserId), "User should have borrowings");
+        assertEquals(1, userDao.countActiveBorrowings(testUserId), "Only the second borrowing is still active");
     }
 
     /**
@@ -174,4 +181,45 @@ public class BorrowingTests {
         Borrowing deletedBorrowing = borrowingDao.findById(testBorrowingId);
         assertNull(deletedBorrowing);
     }
-}
\ No newline at end of file
+
+    /**
+     * Tests streaming all borrowings and only the active ones.
+     */
+    @Test
+    @Order(6)
+    void testStreamBorrowings() {
+        List<Borrowing> active;
+        try (Stream<Borrowing> stream = borrowingDao.streamActive()) {
+            active = stream.filter(b -> b.getUser().getId().equals(testUserId)).collect(Collectors.toList());
+        }
+        assertEquals(1, active.size(), "User should have one active borrowing left");
+        assertNull(active.get(0).getReturnDate());
+        assertEquals("Second Book", active.get(0).getCopy().getBook().getTitle());
+
+        long total;
+        try (Stream<Borrowing> stream = borrowingDao.streamAll()) {
+            total = stream.count();
+        }
+        assertEquals(borrowingDao.findAll().size(), total, "Streaming should return every borrowing");
+    }
+
+    /**
+     * Tests reading the borrowing history of a single user page by page.
+     */
+    @Test
+    @Order(7)
+    void testFindBorrowingsByUser() {
+        User otherUser = userDao.create(new User("Other User", "other@test.com", "0987654321", "Other Address"));
+        Copy otherCopy = copyDao.create(new Copy(bookDao.findById(testBookId), 2, "Borrowed"));
+        borrowingDao.create(new Borrowing(otherUser, otherCopy, LocalDate.now(), null));
+
+        Page<Borrowing> page = borrowingDao.findByUser(testUserId, PageRequest.first("borrowDate", 10));
+        assertEquals(1, page.getItems().size(), "Only the remaining borrowing of the test user should be returned");
+        assertFalse(page.hasNext());
+        assertEquals("Second Book", page.getItems().get(0).getCopy().getBook().getTitle());
+
+        List<Borrowing> active = borrowingDao.findActiveByUser(otherUser.getId());
+        assertEquals(1, active.size());
+        assertEquals(otherCopy.getId(), active.get(0).getCopy().getId());
+    }
+}
@@ -0,0 +1,172 @@
+import dao.BookDao;
+import dao.CopyDao;
+import dao.PooledConnectionProvider;
+import dao.UserDao;
+import entity.Book;
+import entity.Borrowing;
+import entity.Copy;
+import entity.User;
+import monitoring.PoolMetrics;
+import org.junit.jupiter.api.*;
+import service.CirculationService;
+
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.Persistence;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test suite for {@link CirculationService}, covering checkouts, checkins and concurrent checkouts of one title.
+ */
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+public class CirculationTests {
+
+    private static EntityManagerFactory emf;
+    private static CirculationService circulationService;
+    private static UserDao userDao;
+    private static BookDao bookDao;
+    private static CopyDao copyDao;
+
+    private static Long userId;
+    private static Long bookId;
+    private static Long borrowingId;
+
+    /**
+     * Sets up the test environment by creating a user and a book with two copies.
+     */
+    @BeforeAll
+    static void setup() {
+        emf = Persistence.createEntityManagerFactory("LibraryPU");
+        circulationService = new CirculationService(emf);
+        userDao = new UserDao(emf);
+        bookDao = new BookDao(emf);
+        copyDao = new CopyDao(emf);
+
+        userId = userDao.create(new User("Circulation User", "circulation@test.com", "111222333", "Desk Street")).getId();
+        Book book = bookDao.create(new Book("Circulation Book", "Circulation Author", "CircPub", 2024, "ISBN-CIRC"));
+        bookId = book.getId();
+        copyDao.createAll(List.of(new Copy(book, 1, "Available"), new Copy(book, 2, "Available")));
+    }
+
+    /**
+     * Cleans up resources after all tests are executed.
+     */
+    @AfterAll
+    static void tearDown() {
+        if (emf != null) {
+            emf.close();
+        }
+    }
+
+    /**
+     * Tests that a checkout claims an available copy and marks it as borrowed.
+     */
+    @Test
+    @Order(1)
+    void testCheckout() {
+        Borrowing borrowing = circulationService.checkout(userId, bookId);
+        assertNotNull(borrowing.getId());
+        borrowingId = borrowing.getId();
+
+        Copy copy = copyDao.findById(borrowing.getCopy().getId());
+        assertEquals("Borrowed", copy.getStatus());
+        assertEquals(1, userDao.countActiveBorrowings(userId));
+    }
+
+    /**
+     * Tests that checkouts fail once every copy is borrowed, and for unknown users and books.
+     */
+    @Test
+    @Order(2)
+    void testCheckoutWithoutAvailableCopyShouldFail() {
+        Borrowing second = circulationService.checkout(userId, bookId);
+        assertNotEquals(borrowingId, second.getId());
+
+        assertThrows(IllegalStateException.class, () -> circulationService.checkout(userId, bookId));
+        assertThrows(IllegalArgumentException.class, () -> circulationService.checkout(-1L, bookId));
+        assertThrows(IllegalArgumentException.class, () -> circulationService.checkout(userId, -1L));
+
+        circulationService.checkin(second.getId());
+    }
+
+    /**
+     * Tests that a checkin sets the return date and releases the copy, and cannot be repeated.
+     */
+    @Test
+    @Order(3)
+    void testCheckin() {
+        LocalDate returnDate = LocalDate.now().plusDays(3);
+        Borrowing returned = circulationService.checkin(borrowingId, returnDate);
+        assertEquals(returnDate, returned.getReturnDate());
+        assertEquals("Available", copyDao.findById(returned.getCopy().getId()).getStatus());
+
+        assertThrows(IllegalStateException.class, () -> circulationService.checkin(borrowingId));
+        assertEquals(0, userDao.countActiveBorrowings(userId));
+    }
+
+    /**
+     * Tests that concurrent checkouts of one title never hand out the same copy twice, and hand out every copy.
+     */
+    @Test
+    @Order(4)
+    void testConcurrentCheckoutsClaimDistinctCopies() throws Exception {
+        Book hotBook = bookDao.create(new Book("Hot Title", "Popular Author", "CircPub", 2024, "ISBN-CIRC-HOT"));
+        List<Copy> copies = new ArrayList<>();
+        for (int i = 1; i <= 5; i++) {
+            copies.add(new Copy(hotBook, i, "Available"));
+        }
+        copyDao.createAll(copies);
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<Long>> attempts = new ArrayList<>();
+            for (int i = 0; i < 20; i++) {
+                attempts.add(executor.submit(() -> {
+                    try {
+                        return circulationService.checkout(userId, hotBook.getId()).getCopy().getId();
+                    } catch (IllegalStateException e) {
+                        return null; // No copy was free at that moment
+                    }
+                }));
+            }
+
+            List<Long> claimedCopies = new ArrayList<>();
+            for (Future<Long> attempt : attempts) {
+                Long copyId = attempt.get(30, TimeUnit.SECONDS);
+                if (copyId != null) {
+                    claimedCopies.add(copyId);
+                }
+            }
+
+            Set<Long> distinct = claimedCopies.stream().collect(Collectors.toSet());
+            assertEquals(claimedCopies.size(), distinct.size(), "A copy was handed out twice");
+            // Every checkout commits, so each copy is claimed exactly once and none is skipped as unavailable
+            assertEquals(5, claimedCopies.size(), "Every copy should be checked out once");
+            for (Copy copy : copies) {
+                assertEquals("Borrowed", copyDao.findById(copy.getId()).getStatus(), "Copy " + copy.getCopyNumber() + " was not borrowed");
+            }
+            assertEquals(claimedCopies.size(), userDao.countActiveBorrowings(userId));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Tests that the connection pool reports its usage and gets every connection back after the concurrent checkouts.
+     */
+    @Test
+    @Order(5)
+    void testConnectionPoolMetrics() {
+        PoolMetrics metrics = PooledConnectionProvider.metrics(emf);
+        assertTrue(metrics.getAcquireCount() > 0, "No connection acquisitions were recorded");
+        assertTrue(metrics.getTotalConnections() > 0, "Pool has no connections");
+        assertEquals(0, metrics.getActiveConnections(), "A connection was not returned to the pool");
+        assertEquals(0, metrics.getTimeoutCount(), "Callers timed out waiting for a connection");
+    }
+}
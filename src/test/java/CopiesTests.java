@@ -7,6 +7,9 @@ import org.junit.jupiter.api.*;
 import javax.persistence.EntityManager;
 import javax.persistence.EntityManagerFactory;
 import javax.persistence.Persistence;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
 
 import static org.junit.jupiter.api.Assertions.assertThrows;
 
@@ -100,7 +103,7 @@ public class CopiesTests {
         copyDao.create(c2);
 
         // Confirm the book has multiple copies
-        Book reloaded = bookDao.findById(bookId);
+        Book reloaded = bookDao.findByIdWithCopies(bookId);
         Assertions.assertTrue(reloaded.getCopies().size() >= 3);
     }
 
@@ -146,4 +149,65 @@ public class CopiesTests {
             em.close();
         }
     }
+
+    /**
+     * Tests creating, updating and deleting many copies with the bulk operations.
+     */
+    @Test
+    @Order(7)
+    void testBulkCreateUpdateDeleteCopies() {
+        Book book = bookDao.create(new Book("Bulk Book", "Bulk Author", "BulkPub", 2022, "ISBN-BULK"));
+
+        List<Copy> copies = new ArrayList<>();
+        for (int i = 1; i <= 120; i++) {
+            copies.add(new Copy(book, i, "Available"));
+        }
+        List<Copy> created = copyDao.createAll(copies);
+        Assertions.assertEquals(120, created.size());
+        Assertions.assertTrue(created.stream().allMatch(c -> c.getId() != null), "Every copy should have an ID");
+
+        created.forEach(c -> c.setStatus("Withdrawn"));
+        copyDao.updateAll(created);
+        Assertions.assertEquals("Withdrawn", copyDao.findById(created.get(119).getId()).getStatus());
+
+        List<Long> ids = created.stream().map(Copy::getId).collect(Collectors.toList());
+        copyDao.deleteAll(ids.subList(0, 60));
+        Assertions.assertNull(copyDao.findById(ids.get(0)));
+        Assertions.assertNotNull(copyDao.findById(ids.get(60)));
+    }
+
+    /**
+     * Tests that a bulk delete is rolled back completely if one copy cannot be deleted.
+     */
+    @Test
+    @Order(8)
+    void testBulkDeleteWithBorrowedCopyShouldFail() {
+        Book book = bookDao.create(new Book("Bulk Rollback Book", "Bulk Author", "BulkPub", 2022, "ISBN-BULK-ROLLBACK"));
+        List<Copy> created = copyDao.createAll(List.of(new Copy(book, 1, "Available"), new Copy(book, 2, "Borrowed")));
+        List<Long> ids = created.stream().map(Copy::getId).collect(Collectors.toList());
+
+        assertThrows(IllegalStateException.class, () -> copyDao.deleteAll(ids));
+
+        Assertions.assertNotNull(copyDao.findById(ids.get(0)), "Available copy should survive the failed bulk delete");
+    }
+
+    /**
+     * Tests finding a copy by its book and copy number, including after the number changes.
+     */
+    @Test
+    @Order(9)
+    void testFindByBookAndCopyNumber() {
+        Book book = bookDao.create(new Book("Copy Number Book", "Number Author", "NumberPub", 2022, "ISBN-COPY-NUMBER"));
+        Copy first = copyDao.create(new Copy(book, 1, "Available"));
+        Copy second = copyDao.create(new Copy(book, 2, "Available"));
+
+        Assertions.assertEquals(second.getId(), copyDao.findByBookAndCopyNumber(book.getId(), 2).getId());
+        Assertions.assertEquals(second.getId(), copyDao.findByBookAndCopyNumber(book.getId(), 2).getId());
+        Assertions.assertNull(copyDao.findByBookAndCopyNumber(book.getId(), 3));
+
+        copyDao.update(second.getId(), copy -> copy.setCopyNumber(3));
+        Assertions.assertNull(copyDao.findByBookAndCopyNumber(book.getId(), 2), "Lookup returned a copy whose number changed");
+        Assertions.assertEquals(second.getId(), copyDao.findByBookAndCopyNumber(book.getId(), 3).getId());
+        Assertions.assertEquals(first.getId(), copyDao.findByBookAndCopyNumber(book.getId(), 1).getId());
+    }
 }
@@ -0,0 +1,86 @@
+import org.junit.jupiter.api.*;
+import tools.DataGenerator;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.Persistence;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test suite for {@link DataGenerator}, checking that generated data is consistent and reproducible.
+ */
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+public class DataGeneratorTests {
+
+    private static EntityManagerFactory emf;
+    private static DataGenerator.Result first;
+
+    /**
+     * Sets up the test environment by initializing the EntityManagerFactory.
+     */
+    @BeforeAll
+    static void setup() {
+        emf = Persistence.createEntityManagerFactory("LibraryPU");
+    }
+
+    /**
+     * Cleans up resources after all tests.
+     */
+    @AfterAll
+    static void tearDown() {
+        if (emf != null) {
+            emf.close();
+        }
+    }
+
+    /**
+     * Tests that every open borrowing holds a copy marked "Borrowed" and no copy is lent twice.
+     */
+    @Test
+    @Order(1)
+    void testGeneratedHistoryIsConsistent() {
+        first = generator().firstIndex(700_000_000L).generate(emf);
+        assertEquals(200, first.getBooks());
+        assertTrue(first.getCopies() >= first.getBooks(), "Every book needs a copy");
+        assertTrue(first.getBorrowings() > 0, "No history was generated");
+
+        EntityManager em = emf.createEntityManager();
+        try {
+            long borrowedCopies = em.createQuery("SELECT COUNT(c) FROM Copy c WHERE c.status = 'Borrowed' "
+                    + "AND c.book.isbn LIKE '979700%'", Long.class).getSingleResult();
+            long openBorrowings = em.createQuery("SELECT COUNT(b) FROM Borrowing b WHERE b.returnDate IS NULL "
+                    + "AND b.copy.book.isbn LIKE '979700%'", Long.class).getSingleResult();
+            long doubleLent = em.createQuery("SELECT COUNT(b) FROM Borrowing b WHERE b.returnDate IS NULL "
+                    + "AND b.copy.book.isbn LIKE '979700%' GROUP BY b.copy.id HAVING COUNT(b) > 1", Long.class)
+                    .getResultList().size();
+
+            assertEquals(first.getOpenBorrowings(), openBorrowings);
+            assertEquals(openBorrowings, borrowedCopies, "Copy status does not match the open borrowings");
+            assertEquals(0, doubleLent, "A copy is lent twice");
+        } finally {
+            em.close();
+        }
+    }
+
+    /**
+     * Tests that the same seed and settings produce the same data.
+     */
+    @Test
+    @Order(2)
+    void testGenerationIsDeterministic() {
+        DataGenerator.Result second = generator().firstIndex(710_000_000L).generate(emf);
+        assertEquals(first.getCopies(), second.getCopies());
+        assertEquals(first.getBorrowings(), second.getBorrowings());
+        assertEquals(first.getOpenBorrowings(), second.getOpenBorrowings());
+    }
+
+    private static DataGenerator generator() {
+        return new DataGenerator(7)
+                .publishers(5)
+                .books(200)
+                .users(100)
+                .years(1)
+                .loansPerUserPerYear(12);
+    }
+}
@@ -0,0 +1,106 @@
+import dao.BookDao;
+import dao.CopyDao;
+import dao.LibraryPersistence;
+import entity.Book;
+import entity.DataSeed;
+import gui.DataBaseInsert;
+import org.junit.jupiter.api.*;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.Persistence;
+import javax.persistence.PersistenceException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test suite for loading the sample data and the {@link DataSeed} records that make it idempotent.
+ */
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+public class DataSeedTests {
+
+    private static EntityManagerFactory emf;
+    private static BookDao bookDao;
+    private static CopyDao copyDao;
+
+    /**
+     * Sets up the test environment by initializing the EntityManagerFactory and DAOs.
+     */
+    @BeforeAll
+    static void setup() {
+        emf = Persistence.createEntityManagerFactory("LibraryPU");
+        bookDao = new BookDao(emf);
+        copyDao = new CopyDao(emf);
+    }
+
+    /**
+     * Cleans up resources after all tests.
+     */
+    @AfterAll
+    static void tearDown() {
+        if (emf != null) {
+            emf.close();
+        }
+    }
+
+    /**
+     * Tests that seeding loads the sample data and records its version.
+     */
+    @Test
+    @Order(1)
+    void testSeedLoadsSampleData() {
+        DataBaseInsert.seed(emf);
+
+        EntityManager em = emf.createEntityManager();
+        try {
+            DataSeed seed = em.find(DataSeed.class, DataBaseInsert.SEED_VERSION);
+            assertNotNull(seed, "Seed version was not recorded");
+            assertNotNull(seed.getAppliedAt());
+        } finally {
+            em.close();
+        }
+
+        Book gatsby = bookDao.findByIsbn("9780141182636");
+        assertNotNull(gatsby, "Sample book was not loaded");
+        assertEquals(1, bookDao.findByIdWithCopies(gatsby.getId()).getCopies().size());
+    }
+
+    /**
+     * Tests that seeding again changes nothing.
+     */
+    @Test
+    @Order(2)
+    void testSeedIsIdempotent() {
+        long booksBefore = bookDao.findAll().size();
+        long copiesBefore = copyDao.findAll().size();
+
+        assertFalse(DataBaseInsert.seed(emf), "Sample data was loaded twice");
+
+        assertEquals(booksBefore, bookDao.findAll().size());
+        assertEquals(copiesBefore, copyDao.findAll().size());
+    }
+
+    /**
+     * Tests that a start of the shared persistence unit whose initializer failed is retried with the same initializer.
+     */
+    @Test
+    @Order(3)
+    void testFailedStartIsRetriedWithItsInitializer() {
+        AtomicInteger runs = new AtomicInteger();
+        LibraryPersistence.startAsync(shared -> {
+            if (runs.incrementAndGet() == 1) {
+                throw new IllegalStateException("Seeding failed");
+            }
+        });
+        try {
+            assertThrows(PersistenceException.class, LibraryPersistence::get);
+
+            EntityManagerFactory shared = LibraryPersistence.get();
+            assertTrue(shared.isOpen());
+            assertEquals(2, runs.get(), "The retry skipped the initializer");
+        } finally {
+            LibraryPersistence.shutdown();
+        }
+    }
+}
@@ -0,0 +1,212 @@
+import dao.BookDao;
+import dao.PageRequest;
+import dao.PooledConnectionProvider;
+import dao.PublisherDao;
+import entity.Publisher;
+import monitoring.DaoMetrics;
+import monitoring.LibraryJmx;
+import monitoring.MetricsReporter;
+import monitoring.OperationMetrics;
+import monitoring.SlowQueryLog;
+import org.junit.jupiter.api.*;
+import service.CirculationService;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.Persistence;
+
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Handler;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test suite for the DAO metrics, their JMX export, the metrics reporter and the slow-query log.
+ */
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+public class MonitoringTests {
+
+    private static EntityManagerFactory emf;
+    private static DaoMetrics metrics;
+    private static PublisherDao publisherDao;
+
+    private static Long publisherId; // ID of the publisher created through the DAO with its own metrics
+
+    /**
+     * Initializes the test environment with metrics of its own, so counts are not shared with other tests.
+     */
+    @BeforeAll
+    static void setup() {
+        emf = Persistence.createEntityManagerFactory("LibraryPU");
+        metrics = new DaoMetrics();
+        publisherDao = new PublisherDao(emf, metrics);
+    }
+
+    /**
+     * Cleans up resources after all tests are executed.
+     */
+    @AfterAll
+    static void tearDown() {
+        LibraryJmx.unregister();
+        emf.close();
+    }
+
+    /**
+     * Tests that calls are counted and timed per operation, and failures counted as errors.
+     */
+    @Order(1)
+    @Test
+    public void testDaoCountsCallsAndErrors() {
+        Publisher publisher = publisherDao.create(new Publisher("Metrics Press", "1 Gauge Road", "5550100"));
+        publisherId = publisher.getId();
+        for (int i = 0; i < 3; i++) {
+            assertNotNull(publisherDao.findById(publisherId));
+        }
+        assertThrows(IllegalStateException.class, () -> publisherDao.update(publisherId, p -> {
+            throw new IllegalStateException("rejected");
+        }));
+
+        OperationMetrics findById = metrics.operation("Publisher", "findById");
+        assertEquals(3, findById.getCallCount());
+        assertEquals(0, findById.getErrorCount());
+        assertTrue(findById.getMaxMicros() > 0);
+        assertTrue(findById.getP50Micros() <= findById.getP99Micros());
+        assertTrue(findById.getP99Micros() <= findById.getMaxMicros());
+
+        OperationMetrics updateById = metrics.operation("Publisher", "updateById");
+        assertEquals(1, updateById.getCallCount());
+        assertEquals(1, updateById.getErrorCount());
+
+        List<String> names = metrics.operations().stream().map(OperationMetrics::getOperation).toList();
+        assertEquals(List.of("create", "findById", "updateById"), names);
+    }
+
+    /**
+     * Tests that the metrics can be read through the platform MBean server.
+     */
+    @Order(2)
+    @Test
+    public void testMetricsArePublishedThroughJmx() throws Exception {
+        LibraryJmx.register(emf);
+        metrics.exportTo(ManagementFactory.getPlatformMBeanServer());
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+
+        ObjectName findById = new ObjectName("library:type=Dao,entity=Publisher,operation=findById");
+        assertEquals(3L, server.getAttribute(findById, "CallCount"));
+
+        long queries = (Long) server.getAttribute(LibraryJmx.name("Hibernate"), "QueryExecutionCount");
+        publisherDao.findAll();
+        assertEquals(queries + 1, server.getAttribute(LibraryJmx.name("Hibernate"), "QueryExecutionCount"));
+        assertTrue((Long) server.getAttribute(LibraryJmx.name("Hibernate"), "EntityInsertCount") >= 1);
+        assertNotNull(server.getAttribute(LibraryJmx.name("SecondLevelCache"), "TotalHitCount"));
+        assertNotNull(server.getAttribute(LibraryJmx.name("ConnectionPool"), "TotalConnections"));
+        assertNotNull(server.getAttribute(LibraryJmx.name("OptimisticRetry"), "ConflictCount"));
+
+        // Operations first called after the export are published too
+        publisherDao.findPage(PageRequest.first(10));
+        assertTrue(server.isRegistered(new ObjectName("library:type=Dao,entity=Publisher,operation=findPage")));
+    }
+
+    /**
+     * Tests that a report appends one CSV line per metric, with the header only once.
+     */
+    @Order(3)
+    @Test
+    public void testReporterWritesCsv() throws Exception {
+        Path csv = Files.createTempFile("library-metrics", ".csv");
+        Files.delete(csv);
+        try (MetricsReporter reporter = new MetricsReporter(emf, metrics, csv)) {
+            reporter.report();
+            reporter.report();
+
+            Map<String, Number> snapshot = reporter.snapshot();
+            List<String> lines = Files.readAllLines(csv);
+            assertEquals("timestamp,metric,value", lines.get(0));
+            assertEquals(1 + 2 * snapshot.size(), lines.size());
+            assertTrue(lines.stream().anyMatch(line -> line.endsWith(",dao.Publisher.findById.calls,3")));
+            assertTrue(lines.stream().anyMatch(line -> line.contains(",hibernate.queryExecutionCount,")));
+        } finally {
+            Files.deleteIfExists(csv);
+        }
+        publisherDao.delete(publisherId);
+    }
+
+    /**
+     * Tests that slow statements are logged with the DAO method that ran them and their bind values,
+     * and that their shapes are kept.
+     */
+    @Order(4)
+    @Test
+    public void testSlowQueryLogNamesDaoMethodAndBinds() {
+        SlowQueryLog slowQueries = PooledConnectionProvider.slowQueries(emf);
+        assertNotNull(slowQueries);
+        long threshold = slowQueries.getThresholdMillis();
+        double sampleRate = slowQueries.getBindSampleRate();
+        List<String> messages = new ArrayList<>();
+        Handler handler = new Handler() {
+            @Override
+            public void publish(LogRecord record) {
+                messages.add(record.getMessage());
+            }
+
+            @Override
+            public void flush() { }
+
+            @Override
+            public void close() { }
+        };
+        Logger logger = Logger.getLogger(SlowQueryLog.class.getName());
+        logger.addHandler(handler);
+        try {
+            // Log every statement with its binds
+            slowQueries.setThresholdMillis(0);
+            slowQueries.setBindSampleRate(1);
+            long slowBefore = slowQueries.getSlowStatementCount();
+
+            assertNull(new BookDao(emf).findByIsbn("978-0-00-000020-2"));
+
+            assertTrue(slowQueries.getSlowStatementCount() > slowBefore);
+            assertTrue(messages.stream().anyMatch(message -> message.contains("from BookDao.findByIsbn")
+                    && message.contains("978-0-00-000020-2")), messages.toString());
+            SlowQueryLog.Shape shape = slowQueries.slowest(Integer.MAX_VALUE).stream()
+                    .filter(candidate -> "BookDao.findByIsbn".equals(candidate.getOrigin()))
+                    .findFirst()
+                    .orElseThrow();
+            assertTrue(shape.getSql().contains("isbn=?"), shape.getSql());
+            assertTrue(shape.getCount() >= 1);
+        } finally {
+            logger.removeHandler(handler);
+            slowQueries.setThresholdMillis(threshold);
+            slowQueries.setBindSampleRate(sampleRate);
+        }
+    }
+
+    /**
+     * Tests that the DAO-specific queries and the circulation service record their calls in the shared metrics.
+     */
+    @Order(5)
+    @Test
+    public void testSpecificQueriesAndCirculationAreTimed() {
+        DaoMetrics shared = DaoMetrics.shared();
+        OperationMetrics findCatalog = shared.operation("Book", "findCatalog");
+        OperationMetrics checkout = shared.operation("Circulation", "checkout");
+        long catalogCalls = findCatalog.getCallCount();
+        long checkoutCalls = checkout.getCallCount();
+        long checkoutErrors = checkout.getErrorCount();
+
+        assertNotNull(new BookDao(emf).findCatalog());
+        assertThrows(IllegalArgumentException.class, () -> new CirculationService(emf).checkout(-1L, -1L));
+
+        assertEquals(catalogCalls + 1, findCatalog.getCallCount());
+        assertEquals(checkoutCalls + 1, checkout.getCallCount());
+        assertEquals(checkoutErrors + 1, checkout.getErrorCount());
+    }
+}
@@ -0,0 +1,253 @@
+import dao.BookDao;
+import dao.BorrowingDao;
+import dao.CopyDao;
+import dao.Dao;
+import dao.LibrarianDao;
+import dao.Page;
+import dao.PageRequest;
+import dao.PublisherDao;
+import dao.UserDao;
+import entity.Book;
+import entity.Copy;
+import entity.User;
+import org.hibernate.SessionFactory;
+import org.junit.jupiter.api.*;
+import tools.DataGenerator;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.Persistence;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Statement and time budgets for the DAO methods and the queries behind each table of the librarian and user
+ * windows, measured with a cold second-level cache on a generated library of {@value #BOOKS} books.
+ * A budget in statements does not grow with the data, so a method that starts loading associations row by
+ * row (N+1) fails here even while it is still fast on a small database. Time budgets are generous and only
+ * catch gross regressions.
+ */
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+public class PerformanceBudgetTests {
+
+    private static final int BOOKS = 1000;
+    private static final Duration TABLE_BUDGET = Duration.ofSeconds(3);
+    private static final Duration LOOKUP_BUDGET = Duration.ofMillis(500);
+
+    /**
+     * Rows per page when walking a table the way the windows load it; smaller than their pages,
+     * so every table spans several pages.
+     */
+    private static final int TABLE_PAGE_SIZE = 100;
+
+    private static EntityManagerFactory emf;
+    private static BookDao bookDao;
+    private static CopyDao copyDao;
+    private static UserDao userDao;
+    private static BorrowingDao borrowingDao;
+
+    private static Long busiestUserId; // ID of the generated user with the longest borrowing history
+
+    /**
+     * Generates the library the budgets apply to.
+     */
+    @BeforeAll
+    static void setup() {
+        emf = Persistence.createEntityManagerFactory("LibraryPU");
+        bookDao = new BookDao(emf);
+        copyDao = new CopyDao(emf);
+        userDao = new UserDao(emf);
+        borrowingDao = new BorrowingDao(emf);
+
+        new DataGenerator(21)
+                .firstIndex(720_000_000L)
+                .publishers(20)
+                .books(BOOKS)
+                .users(300)
+                .years(1)
+                .loansPerUserPerYear(12)
+                .generate(emf);
+
+        EntityManager em = emf.createEntityManager();
+        try {
+            busiestUserId = em.createQuery("SELECT b.user.id FROM Borrowing b GROUP BY b.user.id "
+                    + "ORDER BY COUNT(b) DESC, b.user.id", Long.class).setMaxResults(1).getSingleResult();
+        } finally {
+            em.close();
+        }
+    }
+
+    /**
+     * Cleans up resources after all tests are executed.
+     */
+    @AfterAll
+    static void tearDown() {
+        emf.close();
+    }
+
+    /**
+     * Empties the second-level and query caches, so every budget holds for a cold start.
+     */
+    @BeforeEach
+    void evictCaches() {
+        emf.unwrap(SessionFactory.class).getCache().evictAllRegions();
+    }
+
+    /**
+     * Tests that the list and page methods of every DAO take one statement, whatever the size of the tables.
+     */
+    @Order(1)
+    @Test
+    public void testDaoListsTakeOneStatement() {
+        Map<String, Dao<?>> daos = new LinkedHashMap<>();
+        daos.put("BookDao", bookDao);
+        daos.put("CopyDao", copyDao);
+        daos.put("UserDao", userDao);
+        daos.put("BorrowingDao", borrowingDao);
+        daos.put("PublisherDao", new PublisherDao(emf));
+        daos.put("LibrarianDao", new LibrarianDao(emf));
+
+        for (Map.Entry<String, Dao<?>> entry : daos.entrySet()) {
+            String name = entry.getKey();
+            Dao<?> dao = entry.getValue();
+            evictCaches();
+            List<?> all = QueryCounter.assertWithin(emf, name + ".findAll", 1, TABLE_BUDGET, dao::findAll);
+            assertFalse(all.isEmpty() && !name.equals("LibrarianDao"), name + ".findAll found nothing");
+
+            evictCaches();
+            Page<?> page = QueryCounter.assertWithin(emf, name + ".findPage", 1, LOOKUP_BUDGET,
+                    () -> dao.findPage(PageRequest.first(50)));
+            if (page.getItems().isEmpty()) {
+                continue;
+            }
+            Object last = page.getItems().get(page.getItems().size() - 1);
+            Long lastId = (Long) emf.getPersistenceUnitUtil().getIdentifier(last);
+
+            evictCaches();
+            QueryCounter.assertWithin(emf, name + ".findPage after " + lastId, 1, LOOKUP_BUDGET,
+                    () -> dao.findPage(PageRequest.afterId(lastId, 50)));
+            evictCaches();
+            QueryCounter.assertWithin(emf, name + ".findById", 1, LOOKUP_BUDGET, () -> dao.findById(lastId));
+        }
+    }
+
+    /**
+     * Tests the books table of the librarian window: one statement per page of books with their copy counts.
+     */
+    @Order(2)
+    @Test
+    public void testLibrarianBooksTable() {
+        int books = assertOneStatementPerPage("Librarian books table", PageRequest.first(TABLE_PAGE_SIZE), bookDao::findCatalog,
+                book -> assertTrue(book.getAvailableCopies() <= book.getTotalCopies()));
+        assertTrue(books >= BOOKS);
+    }
+
+    /**
+     * Tests the users table of the librarian window: one statement per page of users.
+     */
+    @Order(3)
+    @Test
+    public void testLibrarianUsersTable() {
+        assertOneStatementPerPage("Librarian users table", PageRequest.first(TABLE_PAGE_SIZE), userDao::findPage,
+                user -> {
+                    assertNotNull(user.getName());
+                    assertNotNull(user.getEmail());
+                });
+    }
+
+    /**
+     * Tests the borrowings table of the librarian window, which shows each borrowing's user and book title:
+     * one statement per page of borrowings.
+     */
+    @Order(4)
+    @Test
+    public void testLibrarianBorrowingsTable() {
+        assertOneStatementPerPage("Librarian borrowings table", PageRequest.first(TABLE_PAGE_SIZE), borrowingDao::findPage,
+                borrowing -> {
+                    assertNotNull(borrowing.getUser().getName());
+                    assertNotNull(borrowing.getCopy().getBook().getTitle());
+                });
+    }
+
+    /**
+     * Tests the catalog tables of the user window: all books, one statement per page,
+     * and the books with an available copy in one statement.
+     */
+    @Order(5)
+    @Test
+    public void testUserCatalogTables() {
+        int books = assertOneStatementPerPage("User books table", PageRequest.first(TABLE_PAGE_SIZE), bookDao::findPage,
+                book -> assertNotNull(book.getTitle()));
+        assertTrue(books >= BOOKS);
+
+        evictCaches();
+        QueryCounter.assertWithin(emf, "User available books table", 1, TABLE_BUDGET, bookDao::findAvailableCatalog);
+    }
+
+    /**
+     * Tests the borrowing history table of the user window: one statement per page of history.
+     */
+    @Order(6)
+    @Test
+    public void testUserBorrowingHistoryTable() {
+        assertOneStatementPerPage("User borrowing history table", PageRequest.first("borrowDate", 5),
+                request -> borrowingDao.findByUser(busiestUserId, request),
+                borrowing -> assertNotNull(borrowing.getCopy().getBook().getTitle()));
+    }
+
+    /**
+     * Tests the lookups behind the search, suggestion and natural-key fields once their indexes are built.
+     */
+    @Order(7)
+    @Test
+    public void testLookups() {
+        bookDao.search("warm", 1);
+        bookDao.suggest("warm", 1);
+        Book book = bookDao.findAll().get(0);
+        User user = userDao.findAll().get(0);
+        Copy copy = copyDao.findAll().get(0);
+        evictCaches();
+
+        QueryCounter.assertWithin(emf, "Book search", 1, LOOKUP_BUDGET, () -> bookDao.search(book.getTitle(), 200));
+        QueryCounter.assertWithin(emf, "Title suggestions", 0, LOOKUP_BUDGET, () -> bookDao.suggest("the", 10));
+        QueryCounter.assertWithin(emf, "Book by ISBN", 1, LOOKUP_BUDGET, () -> bookDao.findByIsbn(book.getIsbn()));
+        QueryCounter.assertWithin(emf, "User by email", 1, LOOKUP_BUDGET, () -> userDao.findByEmail(user.getEmail()));
+        QueryCounter.assertWithin(emf, "Copy by number", 1, LOOKUP_BUDGET,
+                () -> copyDao.findByBookAndCopyNumber(copy.getBook().getId(), copy.getCopyNumber()));
+    }
+
+    /**
+     * Walks a table page by page, as the windows load it, and checks that each page takes one statement.
+     *
+     * @param what  the table, for the failure message
+     * @param first the request for the first page
+     * @param query reads one page
+     * @param row   checks the cells of one row, loading what the table shows
+     * @param <T>   the entity type
+     * @return the number of rows
+     */
+    private static <T> int assertOneStatementPerPage(String what, PageRequest first,
+                                                     Function<PageRequest, Page<T>> query, Consumer<T> row) {
+        QueryCounter counter = QueryCounter.start(emf);
+        int pages = 0;
+        int rows = 0;
+        for (PageRequest request = first; request != null; ) {
+            Page<T> page = query.apply(request);
+            page.getItems().forEach(row);
+            rows += page.getItems().size();
+            pages++;
+            request = page.next();
+        }
+        counter.stop();
+        assertTrue(pages > 1, what + " fits on one page; use more data or smaller pages");
+        counter.assertAtMost(what + " (" + rows + " rows)", pages, TABLE_BUDGET);
+        return rows;
+    }
+}
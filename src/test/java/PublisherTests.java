@@ -6,6 +6,7 @@ import org.junit.jupiter.api.*;
 
 import javax.persistence.EntityManagerFactory;
 import javax.persistence.Persistence;
+import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.assertThrows;
 
@@ -116,4 +117,20 @@ public class PublisherTests {
         Publisher deleted = publisherDao.findById(publisherId);
         Assertions.assertNull(deleted, "Publisher can be deleted if no books reference it");
     }
+
+    /**
+     * Tests looking up publishers by name, before and after a new one is added.
+     */
+    @Test
+    @Order(6)
+    void testFindByName() {
+        Assertions.assertTrue(publisherDao.findByName("Lookup Pub").isEmpty());
+
+        Publisher publisher = publisherDao.create(new Publisher("Lookup Pub", "1 Lookup St", "555-000-555"));
+        List<Publisher> found = publisherDao.findByName("Lookup Pub");
+        Assertions.assertEquals(1, found.size(), "Cached empty result was not invalidated by the insert");
+        Assertions.assertEquals(publisher.getId(), found.get(0).getId());
+
+        publisherDao.delete(publisher.getId());
+    }
 }
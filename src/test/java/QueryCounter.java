@@ -0,0 +1,129 @@
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+
+import javax.persistence.EntityManagerFactory;
+import java.time.Duration;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Counts the JDBC statements, queries and entity loads of a piece of work from the Hibernate statistics of
+ * a persistence unit, and checks them against a budget. The statistics are shared by everything using the
+ * {@link EntityManagerFactory}, so the work must not run alongside other database work.
+ */
+final class QueryCounter {
+
+    private final Statistics statistics;
+    private final long statements;
+    private final long queries;
+    private final long entityLoads;
+    private final long collectionLoads;
+    private final long startNanos;
+    private long elapsedNanos = -1;
+
+    private QueryCounter(Statistics statistics) {
+        this.statistics = statistics;
+        this.statements = statistics.getPrepareStatementCount();
+        this.queries = statistics.getQueryExecutionCount();
+        this.entityLoads = statistics.getEntityLoadCount();
+        this.collectionLoads = statistics.getCollectionLoadCount();
+        this.startNanos = System.nanoTime();
+    }
+
+    /**
+     * Starts counting.
+     *
+     * @param emf the {@link EntityManagerFactory} to count on; needs {@code hibernate.generate_statistics}
+     * @return the counter
+     */
+    static QueryCounter start(EntityManagerFactory emf) {
+        Statistics statistics = emf.unwrap(SessionFactory.class).getStatistics();
+        if (!statistics.isStatisticsEnabled()) {
+            throw new IllegalStateException("Hibernate statistics are disabled");
+        }
+        return new QueryCounter(statistics);
+    }
+
+    /**
+     * Runs work and checks that it stays within a statement and time budget.
+     *
+     * @param emf           the {@link EntityManagerFactory} the work uses
+     * @param what          a description of the work, for failure messages
+     * @param maxStatements the most JDBC statements the work may prepare
+     * @param maxTime       the longest the work may take
+     * @param work          the work
+     * @param <R>           the result type
+     * @return the result of the work
+     */
+    static <R> R assertWithin(EntityManagerFactory emf, String what, int maxStatements, Duration maxTime, Supplier<R> work) {
+        QueryCounter counter = start(emf);
+        R result = work.get();
+        counter.stop();
+        counter.assertAtMost(what, maxStatements, maxTime);
+        return result;
+    }
+
+    /**
+     * Stops the clock; the counts keep growing until the counter is read.
+     */
+    void stop() {
+        elapsedNanos = System.nanoTime() - startNanos;
+    }
+
+    /**
+     * @return the JDBC statements prepared since the start, queries and entity or collection loads alike
+     */
+    long statements() {
+        return statistics.getPrepareStatementCount() - statements;
+    }
+
+    /**
+     * @return the JPQL and SQL queries executed since the start
+     */
+    long queries() {
+        return statistics.getQueryExecutionCount() - queries;
+    }
+
+    /**
+     * @return the entities loaded from the database since the start
+     */
+    long entityLoads() {
+        return statistics.getEntityLoadCount() - entityLoads;
+    }
+
+    /**
+     * @return the collections loaded from the database since the start
+     */
+    long collectionLoads() {
+        return statistics.getCollectionLoadCount() - collectionLoads;
+    }
+
+    /**
+     * @return the time from the start until {@link #stop()}, or until now if not stopped
+     */
+    Duration elapsed() {
+        return Duration.ofNanos(elapsedNanos >= 0 ? elapsedNanos : System.nanoTime() - startNanos);
+    }
+
+    /**
+     * Checks the statements and time counted so far against a budget.
+     *
+     * @param what          a description of the work, for failure messages
+     * @param maxStatements the most JDBC statements allowed
+     * @param maxTime       the longest time allowed
+     */
+    void assertAtMost(String what, int maxStatements, Duration maxTime) {
+        assertTrue(statements() <= maxStatements, () -> what + " prepared " + statements() + " statements, budget "
+                + maxStatements + " (" + queries() + " queries, " + entityLoads() + " entity loads, "
+                + collectionLoads() + " collection loads)");
+        assertTrue(elapsed().compareTo(maxTime) <= 0, () -> what + " took " + elapsed().toMillis() + " ms, budget "
+                + maxTime.toMillis() + " ms");
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d statements, %d queries, %d entity loads, %d collection loads in %d ms",
+                statements(), queries(), entityLoads(), collectionLoads(), elapsed().toMillis());
+    }
+}
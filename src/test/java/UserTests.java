@@ -138,4 +138,24 @@ public class UserTests {
         userDao.delete(toDelete.getId());
         assertNull(userDao.findById(toDelete.getId()), "User should be deleted");
     }
-}
\ No newline at end of file
+
+    /**
+     * Tests finding a {@link User} by email, including after the email changes.
+     */
+    @Order(5)
+    @Test
+    public void testFindByEmail() {
+        User user = userDao.create(new User("Email Lookup", "email.lookup@example.com", "123", "Email Street"));
+
+        assertEquals(user.getId(), userDao.findByEmail(" email.lookup@example.com ").getId());
+        assertEquals(user.getId(), userDao.findByEmail("email.lookup@example.com").getId());
+        assertNull(userDao.findByEmail("nobody@example.com"));
+
+        userDao.update(user.getId(), current -> current.setEmail("email.changed@example.com"));
+        assertNull(userDao.findByEmail("email.lookup@example.com"), "Lookup returned a user whose email changed");
+        assertEquals(user.getId(), userDao.findByEmail("email.changed@example.com").getId());
+
+        userDao.delete(user.getId());
+        assertNull(userDao.findByEmail("email.changed@example.com"), "Lookup returned a deleted user");
+    }
+}